@@ -27,6 +27,7 @@ public class Axis extends Line {
 	 * selected, and the Axis is represented as a Line made through that point.
 	 */
 	private ArrayList<Segment> projections;
+	private static final Point AXIS_POINT = new Point(100, 100); //the arbitrary point that every Axis passes through. it is never changed
 
 	/**
 	 * Construct an Axis object which has a slope, an indicator
@@ -38,10 +39,27 @@ public class Axis extends Line {
 		//Call the superclass constructor to construct a Line starting at an arbitrary 
 		//point, with the specified slope for this axis. 
 		//The location of the point does not matter, (100, 100) is essentially random.
-		super(new Point(100,100), initSlopeType, initSlope);
+		super(AXIS_POINT, initSlopeType, initSlope);
 		projections = new ArrayList<Segment>();
 	}
 
+	/**
+	 * Change this Axis to be perpendicular to the specified Line, and forget its projections.
+	 * This is the same Axis that line.constructPerpendicularAxis() would create, without
+	 * creating a new one. Used by Shape when its vertices move.
+	 * @param line the Line that this Axis should be perpendicular to
+	 */
+	public void setPerpendicularTo(Line line){
+		if(line.getSlopeType() == 1){ //the line has a nonzero, defined slope, so use the opposite reciprocal
+			setEquation(AXIS_POINT, 1, -1 / line.getSlope());
+		} else if(line.getSlopeType() == 0){ //the line has zero slope, so the axis has undefined slope
+			setEquation(AXIS_POINT, 2, 0);
+		} else { //the line has undefined slope, so the axis has zero slope
+			setEquation(AXIS_POINT, 0, 0);
+		}
+		projections.clear();
+	}
+
 	/**
 	 * Add a projection to the projection list. 
 	 * @param addedProjection The projection to be added to the projections list
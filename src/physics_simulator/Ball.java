@@ -51,6 +51,44 @@ public class Ball {
 	private double initialXVelocity; //this ball's starting x velocity in the simulation (used whenever the "reset balls" button is pressed)
 	private double initialYVelocity; //this ball's starting y velocity in the simulation (used whenever the "reset balls" button is pressed)
 	private int radius = 5;
+	private boolean spawned = false; //was this ball added by an Emitter, rather than loaded from the map file? spawned balls aren't saved, and are removed when the balls are reset
+	/*
+	 * double clearance:
+	 * how far the ball can move before it could possibly touch a shape. while the ball moves
+	 * less than this in a clock tick, the Physics class doesn't need to check for collisions,
+	 * and just subtracts the distance moved. set to 0 whenever the ball is put somewhere new,
+	 * so that it gets calculated again. see Physics9.moveBall().
+	 */
+	private double clearance = 0;
+	/*
+	 * int contactShape, int contactEdge, double contactClearance:
+	 * the shape and edge that the ball is resting or rolling on, or a contactShape of -1 if it
+	 * isn't, and how far the ball can move along that edge before it could possibly touch any
+	 * other shape. while the ball stays on the edge, the Physics class slides it along the edge
+	 * instead of looking for collisions. cleared whenever the ball is put somewhere new, like
+	 * the clearance. see Physics9.followContact().
+	 */
+	private int contactShape = -1;
+	private int contactEdge = 0;
+	private double contactClearance = 0;
+	/*
+	 * int[] nearbyShapes, long[] nearbyCellMasks, int numberOfNearbyShapes, int nearbyColumn,
+	 * int nearbyRow, int nearbyLastColumn, int nearbyLastRow, int nearbyVersion:
+	 * the indices of the shapes that the broad phase grid found in the cells around the ball,
+	 * which of those cells each shape is in (see BroadPhaseGrid.queryCellMasks()), the first and
+	 * last column and row of the cells, and which build of the grid they were found in. while
+	 * the ball stays within those cells, the Physics class picks the shapes near it out of these
+	 * instead of asking the grid again. see Physics9.queryNearbyShapes().
+	 */
+	private int[] nearbyShapes = new int[0];
+	private long[] nearbyCellMasks = new long[0];
+	private int numberOfNearbyShapes = 0;
+	private int nearbyColumn = 0;
+	private int nearbyRow = 0;
+	private int nearbyLastColumn = -1;
+	private int nearbyLastRow = -1;
+	private int nearbyVersion = -1;
+	private int material = 0; //the index of this ball's material in the map's MaterialTable
 	
 	/**
 	 * Constructor that initializes a ball in the simulation.
@@ -78,10 +116,50 @@ public class Ball {
 		resetIntersectionLists();
 		xPosition = initialXPosition;
 		yPosition = initialYPosition;
+		clearance = 0;
+		contactShape = -1;
 		xVelocity = initialXVelocity;
 		yVelocity = initialYVelocity;
 	}
 
+	/**
+	 * Reuse this ball as a newly spawned ball, giving it a new position, velocity and color.
+	 * Called by the BallSpawner class, which keeps removed balls in a pool instead of creating
+	 * a new Ball each time one is spawned.
+	 * @param newXPos the x position to spawn at
+	 * @param newYPos the y position to spawn at
+	 * @param newXVel the starting x velocity
+	 * @param newYVel the starting y velocity
+	 * @param newColor the color of the ball
+	 */
+	public void respawn(double newXPos, double newYPos, double newXVel, double newYVel, Color newColor){
+		frozen = false;
+		xPosition = initialXPosition = newXPos;
+		yPosition = initialYPosition = newYPos;
+		clearance = 0;
+		contactShape = -1;
+		xVelocity = initialXVelocity = newXVel;
+		yVelocity = initialYVelocity = newYVel;
+		color = newColor;
+		resetIntersectionLists();
+	}
+
+	/**
+	 * Set whether this ball was added by an Emitter.
+	 * @param isSpawned true if the ball was spawned, false if it was loaded from the map file
+	 */
+	public void setSpawned(boolean isSpawned){
+		spawned = isSpawned;
+	}
+
+	/**
+	 * Was this ball added by an Emitter, rather than loaded from the map file?
+	 * @return true if the ball was spawned
+	 */
+	public boolean isSpawned(){
+		return spawned;
+	}
+
 	/**
 	 * Return the ArrayList<Segment> that contains all
 	 * of the edges that the ball's path intersects
@@ -172,6 +250,20 @@ public class Ball {
 		xReflectionConstant = ref;
 	}
 
+	/**
+	 * Return the ball's y reflection constant (see setYReflectionConstant())
+	 */
+	public double getYReflectionConstant(){
+		return yReflectionConstant;
+	}
+
+	/**
+	 * Return the ball's x reflection constant (see setXReflectionConstant())
+	 */
+	public double getXReflectionConstant(){
+		return xReflectionConstant;
+	}
+
 	/**
 	 * Return the ball's y velocity
 	 * @return the ball's y velocity
@@ -210,6 +302,8 @@ public class Ball {
 	 */
 	public void setXPosition(double newPos){
 		xPosition = newPos;
+		clearance = 0;
+		contactShape = -1;
 	}
 
 	/**
@@ -218,6 +312,8 @@ public class Ball {
 	 */
 	public void setYPosition(double newPos){
 		yPosition = newPos;
+		clearance = 0;
+		contactShape = -1;
 	}
 
 	/**
@@ -259,6 +355,13 @@ public class Ball {
 		frozen = false;
 	}
 
+	/**
+	 * Return whether the ball is currently frozen in place.
+	 */
+	public boolean isFrozen(){
+		return frozen;
+	}
+
 	/**
 	 * Set the ball's position, by specifying both an x and a y 
 	 * coordinate for it.
@@ -268,6 +371,22 @@ public class Ball {
 	public void setPosition(double newX, double newY){
 		xPosition = newX;
 		yPosition = newY;
+		clearance = 0;
+		contactShape = -1;
+	}
+
+	/**
+	 * Set the ball's position without forgetting the edge it is resting or rolling on. Used by
+	 * the EventDrivenPhysics class, which puts each ball where it would be on the current clock
+	 * tick, even when that is where the Physics class left it. The clearance is still set back
+	 * to 0, since the ball may have moved further than it.
+	 * @param newX the new x position for the ball
+	 * @param newY the new y position for the ball
+	 */
+	public void setPositionKeepingContact(double newX, double newY){
+		xPosition = newX;
+		yPosition = newY;
+		clearance = 0;
 	}
 
 	/**
@@ -278,6 +397,175 @@ public class Ball {
 	public void setPosition(Point newPos){
 		xPosition = newPos.getX();
 		yPosition = newPos.getY();
+		clearance = 0;
+		contactShape = -1;
+	}
+
+	/**
+	 * Return how far the ball can move before it could possibly touch a shape.
+	 * See Physics9.moveBall().
+	 */
+	public double getClearance(){
+		return clearance;
+	}
+
+	/**
+	 * Set how far the ball can move before it could possibly touch a shape.
+	 * Moving the ball with setPosition() sets this back to 0.
+	 */
+	public void setClearance(double newClearance){
+		clearance = newClearance;
+	}
+
+	/**
+	 * Return the index of the shape that the ball is resting or rolling on, or -1 if it isn't.
+	 * See Physics9.followContact().
+	 */
+	public int getContactShape(){
+		return contactShape;
+	}
+
+	/**
+	 * Return the index of the edge that the ball is resting or rolling on, within its shape
+	 */
+	public int getContactEdge(){
+		return contactEdge;
+	}
+
+	/**
+	 * Return how far the ball can move along the edge it is resting or rolling on before it could possibly touch another shape
+	 */
+	public double getContactClearance(){
+		return contactClearance;
+	}
+
+	/**
+	 * Remember that the ball is resting or rolling on an edge.
+	 * @param shapeIndex the index of the shape in the shapes list
+	 * @param edge the index of the edge within the shape
+	 * @param newClearance how far the ball can move along the edge before it could possibly touch another shape
+	 */
+	public void setContact(int shapeIndex, int edge, double newClearance){
+		contactShape = shapeIndex;
+		contactEdge = edge;
+		contactClearance = newClearance;
+	}
+
+	/**
+	 * Set how far the ball can move along the edge it is resting or rolling on before it could possibly touch another shape
+	 */
+	public void setContactClearance(double newClearance){
+		contactClearance = newClearance;
+	}
+
+	/**
+	 * Forget the edge that the ball was resting or rolling on, because it has left it
+	 */
+	public void clearContact(){
+		contactShape = -1;
+	}
+
+	/**
+	 * Return the indices of the shapes that were found in the cells around the ball. Only the
+	 * first getNumberOfNearbyShapes() of them are used. See Physics9.queryNearbyShapes().
+	 */
+	public int[] getNearbyShapes(){
+		return nearbyShapes;
+	}
+
+	/**
+	 * Return which of the cells around the ball each of the shapes found in them is in
+	 */
+	public long[] getNearbyCellMasks(){
+		return nearbyCellMasks;
+	}
+
+	/**
+	 * Return the number of shapes that were found in the cells around the ball
+	 */
+	public int getNumberOfNearbyShapes(){
+		return numberOfNearbyShapes;
+	}
+
+	/**
+	 * Return the first column of the cells around the ball
+	 */
+	public int getNearbyColumn(){
+		return nearbyColumn;
+	}
+
+	/**
+	 * Return the first row of the cells around the ball
+	 */
+	public int getNearbyRow(){
+		return nearbyRow;
+	}
+
+	/**
+	 * Return the last column of the cells around the ball
+	 */
+	public int getNearbyLastColumn(){
+		return nearbyLastColumn;
+	}
+
+	/**
+	 * Return the last row of the cells around the ball
+	 */
+	public int getNearbyLastRow(){
+		return nearbyLastRow;
+	}
+
+	/**
+	 * Return the build of the broad phase grid that the shapes around the ball were found in, or -1 if they haven't been found yet
+	 */
+	public int getNearbyVersion(){
+		return nearbyVersion;
+	}
+
+	/**
+	 * Remember the shapes that were found in the cells around the ball.
+	 * @param shapeIndices the indices of the shapes, which are copied
+	 * @param cellMasks which of the cells each shape is in, which are copied
+	 * @param numberOfShapes the number of shapes in shapeIndices[]
+	 * @param firstColumn the first column of the cells
+	 * @param firstRow the first row of the cells
+	 * @param lastColumn the last column of the cells
+	 * @param lastRow the last row of the cells
+	 * @param version the build of the broad phase grid that they were found in
+	 */
+	public void setNearbyShapes(int[] shapeIndices, long[] cellMasks, int numberOfShapes, int firstColumn, int firstRow, int lastColumn, int lastRow, int version){
+		if(nearbyShapes.length < numberOfShapes){
+			nearbyShapes = new int[Math.max(numberOfShapes, 2 * nearbyShapes.length)];
+			nearbyCellMasks = new long[nearbyShapes.length];
+		}
+		System.arraycopy(shapeIndices, 0, nearbyShapes, 0, numberOfShapes);
+		System.arraycopy(cellMasks, 0, nearbyCellMasks, 0, numberOfShapes);
+		numberOfNearbyShapes = numberOfShapes;
+		nearbyColumn = firstColumn;
+		nearbyRow = firstRow;
+		nearbyLastColumn = lastColumn;
+		nearbyLastRow = lastRow;
+		nearbyVersion = version;
+	}
+
+	/**
+	 * Return the index of this ball's material in the map's MaterialTable
+	 */
+	public int getMaterial(){
+		return material;
+	}
+
+	/**
+	 * Set this ball's material, and set its reflection constants to those of the material,
+	 * for the places that bounce the ball without knowing what it hit.
+	 * @param initMaterial the index of the material in the table
+	 * @param materials the map's MaterialTable
+	 */
+	public void setMaterial(int initMaterial, MaterialTable materials){
+		material = initMaterial;
+		int contact = materials.getContactIndex(material, material);
+		xReflectionConstant = materials.getContactTangentFactor(contact);
+		yReflectionConstant = materials.getContactRestitution(contact);
 	}
 
 	/**
@@ -289,7 +577,65 @@ public class Ball {
 	}
 
 	/**
-	 * Reflect the ball off of an angled surface by changing its velocity accordingly.
+	 * Reflect the ball off of a surface, given the surface's unit normal, which points from the
+	 * surface towards the ball. The ball's velocity is split into the part along the normal
+	 * (v . n) * n, which is reversed, and the part along the surface, which is kept:
+	 * 		v' = (v - (v . n) * n) * xReflectionConstant - (v . n) * n * yReflectionConstant
+	 * For a flat floor, the normal is the y axis, so this is the same as multiplying the x velocity
+	 * by xReflectionConstant and reversing the y velocity and multiplying it by yReflectionConstant.
+	 * For any other surface, the two constants are applied along and across the surface in the
+	 * same way. Unlike angledReflection(), no angles or trigonometry are needed, and vertical
+	 * walls are no different from any other surface.
+	 * @param normalX the x component of the surface's unit normal
+	 * @param normalY the y component of the surface's unit normal
+	 */
+	public void normalReflection(double normalX, double normalY){
+		normalReflection(normalX, normalY, xReflectionConstant, yReflectionConstant);
+	}
+
+	/**
+	 * Same as normalReflection(normalX, normalY), but with the constants for the materials of
+	 * this ball and the surface, instead of the ball's own reflection constants.
+	 * See MaterialTable.getContactTangentFactor() and MaterialTable.getContactRestitution().
+	 * @param normalX the x component of the surface's unit normal
+	 * @param normalY the y component of the surface's unit normal
+	 * @param tangentFactor the fraction of the velocity along the surface that is kept
+	 * @param restitution the fraction of the velocity into the surface that is reversed
+	 */
+	public void normalReflection(double normalX, double normalY, double tangentFactor, double restitution){
+		if(normalX == 0 || normalY == 0){
+			//a horizontal or vertical surface, such as the map's border. the velocity along the normal is just one
+			//of the ball's velocities, so reflecting it is a sign flip, with the same result as the general formula below
+			if(normalX == 0){
+				if(yVelocity * normalY >= 0){
+					return;
+				}
+				xVelocity *= tangentFactor;
+				yVelocity = -yVelocity * restitution;
+			} else {
+				if(xVelocity * normalX >= 0){
+					return;
+				}
+				xVelocity = -xVelocity * restitution;
+				yVelocity *= tangentFactor;
+			}
+			return;
+		}
+		double normalSpeed = (xVelocity * normalX) + (yVelocity * normalY);
+		if(normalSpeed >= 0){
+			//the ball is already moving away from the surface
+			return;
+		}
+		double tangentXVelocity = xVelocity - (normalSpeed * normalX);
+		double tangentYVelocity = yVelocity - (normalSpeed * normalY);
+		xVelocity = (tangentXVelocity * tangentFactor) - (normalSpeed * normalX * restitution);
+		yVelocity = (tangentYVelocity * tangentFactor) - (normalSpeed * normalY * restitution);
+	}
+
+	/**
+	 * Obsolete method for reflecting the ball off of an angled surface by changing its velocity accordingly.
+	 * This method still works, but it is not needed, since the normalReflection() method
+	 * handles every surface without needing the angle between the ball's path and the wall.
 	 * @param angleBetween the angle between the ball's path and the wall the ball has intersected with
 	 */
 	public void angledReflection(double angleBetween){
@@ -300,8 +646,9 @@ public class Ball {
 	}
 	
 	/**
-	 * Reflect the ball off of an angled surface by changing its velocity accordingly.
-	 * @param angleBetween the angle between the ball's path and the wall the ball has intersected with
+	 * Obsolete method for reflecting the ball off of a corner, by reversing its velocity.
+	 * This method still works, but it is not needed, since the normalReflection() method
+	 * bounces the ball off of a corner using the direction from the corner to the ball.
 	 */
 	public void cornerReflection(){
 		xVelocity *= -xReflectionConstant;
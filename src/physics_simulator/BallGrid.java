@@ -0,0 +1,307 @@
+package physics_simulator;
+
+/**
+ * The BallGrid class.
+ * A spatial index of ball positions, rebuilt on every clock tick. The map is divided into
+ * square cells, and the balls are sorted by the cell they are in (using a counting sort,
+ * which takes O(n) time), so that the balls near any point can be found by only looking
+ * at the cells around it.
+ *
+ * This is the ball equivalent of the BroadPhaseGrid class, which indexes shapes. Unlike
+ * shapes, balls move on every clock tick, so instead of being updated, the whole index is
+ * rebuilt from scratch, which is cheap. Nothing is allocated while rebuilding unless the
+ * number of balls grows a lot.
+ *
+ * The cell size adapts to the number of balls, so that there are about as many cells as
+ * balls, and each cell holds about one ball on average. The coordinates of the balls are
+ * also copied into arrays in cell order, so that the balls in neighboring cells are next
+ * to each other in memory.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BallGrid {
+
+	private int width; //the width of the map
+	private int height; //the height of the map
+	private double minimumCellSize; //the smallest the cells are allowed to get, no matter how many balls there are
+	private double cellSize; //the width and height of each cell, in pixels
+	private int columns; //the number of cells along the x axis
+	private int rows; //the number of cells along the y axis
+	/*
+	 * The balls in the cell at (column, row) are stored from cellBalls[cellStart[cell]] up
+	 * to (but not including) cellBalls[cellStart[cell + 1]], where cell = row * columns + column.
+	 */
+	private int[] cellStart;
+	private int[] cellBalls;
+	private int[] ballCell; //the cell each ball is in
+	private double[] sortedX; //the x coordinate of the ball at each position of cellBalls[]
+	private double[] sortedY; //the y coordinate of the ball at each position of cellBalls[]
+	private int count = 0; //the number of balls the grid was last built from
+
+	/**
+	 * Construct a BallGrid covering a map of the specified size.
+	 * @param initWidth the width of the map
+	 * @param initHeight the height of the map
+	 * @param initMinimumCellSize the smallest width and height of each cell
+	 */
+	public BallGrid(int initWidth, int initHeight, double initMinimumCellSize){
+		width = initWidth;
+		height = initHeight;
+		minimumCellSize = initMinimumCellSize;
+		cellBalls = new int[0];
+		ballCell = new int[0];
+		sortedX = new double[0];
+		sortedY = new double[0];
+		resize(0);
+	}
+
+	/**
+	 * Choose a cell size that gives about one ball per cell, and allocate the cells. The cells
+	 * are only reallocated when the ideal cell size changes by more than a factor of two, so
+	 * that a slowly changing number of balls doesn't cause an allocation on every clock tick.
+	 * @param numberOfBalls the number of balls that will be placed into the grid
+	 */
+	private void resize(int numberOfBalls){
+		double idealCellSize = Math.max(minimumCellSize, Math.sqrt(((double) width * height) / Math.max(1, numberOfBalls)));
+		if(cellStart != null && idealCellSize <= cellSize * 2 && idealCellSize >= cellSize / 2){
+			return;
+		}
+		cellSize = idealCellSize;
+		columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		cellStart = new int[(columns * rows) + 1];
+	}
+
+	/**
+	 * Sort the balls into cells by position.
+	 * @param x the x coordinates of the balls
+	 * @param y the y coordinates of the balls
+	 * @param initCount the number of balls
+	 */
+	public void rebuild(double[] x, double[] y, int initCount){
+		count = initCount;
+		resize(count);
+		if(cellBalls.length < count){
+			cellBalls = new int[count];
+			ballCell = new int[count];
+			sortedX = new double[count];
+			sortedY = new double[count];
+		}
+		for(int i = 0; i < cellStart.length; i++){
+			cellStart[i] = 0;
+		}
+		for(int i = 0; i < count; i++){
+			int cell = (clampRow(y[i]) * columns) + clampColumn(x[i]);
+			ballCell[i] = cell;
+			cellStart[cell + 1]++;
+		}
+		for(int i = 1; i < cellStart.length; i++){
+			cellStart[i] += cellStart[i - 1];
+		}
+		//place each ball at the next free position in its cell, using cellStart as a cursor,
+		//then shift the cursors back so that they mark the start of each cell again
+		for(int i = 0; i < count; i++){
+			int cell = ballCell[i];
+			cellBalls[cellStart[cell]] = i;
+			sortedX[cellStart[cell]] = x[i];
+			sortedY[cellStart[cell]] = y[i];
+			cellStart[cell]++;
+		}
+		for(int i = cellStart.length - 1; i > 0; i--){
+			cellStart[i] = cellStart[i - 1];
+		}
+		cellStart[0] = 0;
+	}
+
+	/**
+	 * Find the two balls whose centers are closest together. Any two balls that are less than
+	 * one cell apart are either in the same cell or in neighboring cells, so each ball is only
+	 * compared to the balls in its own cell and in the neighboring cells. To avoid comparing
+	 * each pair twice, only half of the neighbors are checked from each cell: the one to the
+	 * right, and the three below it.
+	 *
+	 * If the closest pair found this way is more than one cell apart, a closer pair may be
+	 * further apart than the neighboring cells, so false is returned, and the caller has to
+	 * use another method, such as the ClosestPair class. With about one ball per cell, this
+	 * only happens when the balls are spread out very unevenly.
+	 * @param result an array of length at least 2 to write the indices of the two balls into, smaller index first
+	 * @return the squared distance between the two balls, or -1 if the closest pair couldn't be found this way
+	 */
+	public double findClosestPair(int[] result){
+		double best = Double.MAX_VALUE;
+		int bestFirst = -1;
+		int bestSecond = -1;
+		for(int row = 0; row < rows; row++){
+			for(int column = 0; column < columns; column++){
+				int cell = (row * columns) + column;
+				int end = cellStart[cell + 1];
+				for(int j = cellStart[cell]; j < end; j++){
+					double bx = sortedX[j];
+					double by = sortedY[j];
+					//the rest of this cell
+					for(int m = j + 1; m < end; m++){
+						double xDifference = sortedX[m] - bx;
+						double yDifference = sortedY[m] - by;
+						double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+						if(distanceSquared < best){
+							best = distanceSquared;
+							bestFirst = j;
+							bestSecond = m;
+						}
+					}
+					//the cell to the right
+					if(column + 1 < columns){
+						for(int m = cellStart[cell + 1]; m < cellStart[cell + 2]; m++){
+							double xDifference = sortedX[m] - bx;
+							double yDifference = sortedY[m] - by;
+							double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+							if(distanceSquared < best){
+								best = distanceSquared;
+								bestFirst = j;
+								bestSecond = m;
+							}
+						}
+					}
+					//the three cells below. they are next to each other in the cell lists, so they can be checked in one loop
+					if(row + 1 < rows){
+						int below = cell + columns;
+						int first = cellStart[(column > 0) ? below - 1 : below];
+						int last = cellStart[(column + 1 < columns) ? below + 2 : below + 1];
+						for(int m = first; m < last; m++){
+							double xDifference = sortedX[m] - bx;
+							double yDifference = sortedY[m] - by;
+							double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+							if(distanceSquared < best){
+								best = distanceSquared;
+								bestFirst = j;
+								bestSecond = m;
+							}
+						}
+					}
+				}
+			}
+		}
+		if(bestFirst == -1 || best > cellSize * cellSize){
+			return -1;
+		}
+		result[0] = Math.min(cellBalls[bestFirst], cellBalls[bestSecond]);
+		result[1] = Math.max(cellBalls[bestFirst], cellBalls[bestSecond]);
+		return best;
+	}
+
+	/**
+	 * Find the k balls closest to the point (px, py), closest first.
+	 * The search starts in the cell containing the point and moves outwards one ring of
+	 * cells at a time, stopping once no unsearched cell can contain a ball closer than
+	 * the k-th closest ball found so far.
+	 * @param px the x coordinate of the point
+	 * @param py the y coordinate of the point
+	 * @param k the number of balls to find
+	 * @param exclude the index of a ball to leave out (such as the ball at the point), or -1
+	 * @param result an array of length at least k to write the indices of the closest balls into
+	 * @param resultDistances an array of length at least k to write their squared distances into
+	 * @return the number of balls found, which is less than k only if there are fewer than k balls
+	 */
+	public int findNearest(double px, double py, int k, int exclude, int[] result, double[] resultDistances){
+		int found = 0;
+		int centerColumn = clampColumn(px);
+		int centerRow = clampRow(py);
+		int maxRing = Math.max(columns, rows);
+		for(int ring = 0; ring <= maxRing; ring++){
+			if(found == k){
+				//every cell in this ring is at least (ring - 1) cells away from the point
+				double ringDistance = (ring - 1) * cellSize;
+				if(ringDistance > 0 && ringDistance * ringDistance > resultDistances[k - 1]){
+					break;
+				}
+			}
+			for(int row = centerRow - ring; row <= centerRow + ring; row++){
+				if(row < 0 || row >= rows){
+					continue;
+				}
+				//in the first and last row of the ring, visit every column. otherwise, only the two sides
+				int step = (row == centerRow - ring || row == centerRow + ring) ? 1 : Math.max(1, ring * 2);
+				for(int column = centerColumn - ring; column <= centerColumn + ring; column += step){
+					if(column < 0 || column >= columns){
+						continue;
+					}
+					int cell = (row * columns) + column;
+					for(int j = cellStart[cell]; j < cellStart[cell + 1]; j++){
+						int ball = cellBalls[j];
+						if(ball == exclude){
+							continue;
+						}
+						double xDifference = sortedX[j] - px;
+						double yDifference = sortedY[j] - py;
+						double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+						if(found < k || distanceSquared < resultDistances[k - 1]){
+							//insert into the sorted result list, dropping the furthest ball if the list is full
+							int position = (found < k) ? found : k - 1;
+							while(position > 0 && resultDistances[position - 1] > distanceSquared){
+								result[position] = result[position - 1];
+								resultDistances[position] = resultDistances[position - 1];
+								position--;
+							}
+							result[position] = ball;
+							resultDistances[position] = distanceSquared;
+							if(found < k){
+								found++;
+							}
+						}
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Return the index of the first ball in the cell list of the specified cell.
+	 * Together with getCellEnd() and getCellBall(), this lets other classes walk
+	 * through the balls in a cell directly.
+	 */
+	public int getCellStart(int column, int row){
+		return cellStart[(row * columns) + column];
+	}
+
+	/**
+	 * Return the index just past the last ball in the cell list of the specified cell.
+	 */
+	public int getCellEnd(int column, int row){
+		return cellStart[(row * columns) + column + 1];
+	}
+
+	/**
+	 * Return the ball stored at the specified position of the cell lists.
+	 */
+	public int getCellBall(int position){
+		return cellBalls[position];
+	}
+
+	/**
+	 * Return the column containing the specified x coordinate, or the closest column
+	 * if the coordinate is outside of the map.
+	 */
+	public int clampColumn(double px){
+		int column = (int) Math.floor(px / cellSize);
+		return Math.max(0, Math.min(columns - 1, column));
+	}
+
+	/**
+	 * Return the row containing the specified y coordinate, or the closest row
+	 * if the coordinate is outside of the map.
+	 */
+	public int clampRow(double py){
+		int row = (int) Math.floor(py / cellSize);
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+
+	public int getColumns(){
+		return columns;
+	}
+
+	public int getRows(){
+		return rows;
+	}
+}
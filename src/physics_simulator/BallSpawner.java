@@ -0,0 +1,204 @@
+package physics_simulator;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The BallSpawner class.
+ * Adds balls to the simulation from each Emitter, and removes balls from the simulation
+ * when they enter a Sink, once per clock tick.
+ *
+ * Balls that are removed are not thrown away. They are kept in a pool, and reused the
+ * next time an emitter spawns a ball, so that once the pool has grown to the size of the
+ * stream, spawning a ball doesn't allocate any memory, and a stream can run for hours
+ * without creating work for the garbage collector.
+ *
+ * Balls are removed by moving the last ball in the players list into the removed ball's
+ * place, so the players list never has any gaps in it, and removing a ball takes the same
+ * amount of time no matter how many balls there are. This means that removing a ball
+ * changes the index of one other ball.
+ *
+ * Balls that were loaded from the map file can be removed by sinks as well. They are
+ * kept aside, and put back when the balls are reset, or the map is saved.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BallSpawner {
+
+	public static final int MAX_SPAWNED_BALLS = 50000; //emitters stop spawning while there are this many spawned balls in the simulation
+	private static final long RANDOM_SEED = 0; //the seed for choosing spawn positions, so that a stream is the same every time it is run
+	private ArrayList<Ball> players; //a list of each ball in the simulation
+	private ArrayList<Emitter> emitters; //a list of each emitter in the simulation
+	private ArrayList<Sink> sinks; //a list of each sink in the simulation
+	private ArrayList<Ball> pool; //spawned balls that have been removed, waiting to be reused
+	private ArrayList<Ball> removedMapBalls; //balls from the map file that have been removed by a sink
+	private Random random; //chooses a random position inside of an emitter for each new ball
+	private MaterialTable materials; //the map's materials, for giving each spawned ball its emitter's material
+	private int numberOfSpawnedBalls = 0; //the number of spawned balls currently in the simulation
+	private long totalSpawned = 0; //the number of balls spawned since the map was loaded
+	private long totalRemoved = 0; //the number of balls removed since the map was loaded
+
+	/**
+	 * Construct a BallSpawner.
+	 * @param initPlayers the list of balls in the simulation
+	 * @param initEmitters the list of emitters in the simulation
+	 * @param initSinks the list of sinks in the simulation
+	 * @param initMaterials the map's materials
+	 */
+	public BallSpawner(ArrayList<Ball> initPlayers, ArrayList<Emitter> initEmitters, ArrayList<Sink> initSinks, MaterialTable initMaterials){
+		players = initPlayers;
+		emitters = initEmitters;
+		sinks = initSinks;
+		materials = initMaterials;
+		pool = new ArrayList<Ball>();
+		removedMapBalls = new ArrayList<Ball>();
+		random = new Random(RANDOM_SEED);
+	}
+
+	/**
+	 * Remove the balls that are inside of a sink, then spawn new balls from each emitter.
+	 * Called by the Physics class at the start of each clock tick.
+	 */
+	public void clockTick(){
+		if(sinks.size() > 0){
+			removeBallsInSinks();
+		}
+		for(int i = 0; i < emitters.size(); i++){
+			Emitter emitter = emitters.get(i);
+			int due = emitter.ballsDue();
+			for(int j = 0; j < due && numberOfSpawnedBalls < MAX_SPAWNED_BALLS; j++){
+				spawn(emitter);
+			}
+		}
+	}
+
+	/**
+	 * Remove every ball whose center is inside of a sink.
+	 */
+	private void removeBallsInSinks(){
+		int i = 0;
+		while(i < players.size()){
+			Ball ball = players.get(i);
+			if(isInSink(ball.getXPosition(), ball.getYPosition())){
+				//don't move on to the next index, since another ball has just been moved into this one
+				remove(i);
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Is the point (x, y) inside of any sink?
+	 */
+	private boolean isInSink(double x, double y){
+		for(int i = 0; i < sinks.size(); i++){
+			if(sinks.get(i).contains(x, y)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add a ball to the simulation at a random position inside of the specified emitter,
+	 * reusing a ball from the pool if there is one.
+	 */
+	private void spawn(Emitter emitter){
+		double x = emitter.getX() + (random.nextDouble() * emitter.getWidth());
+		double y = emitter.getY() + (random.nextDouble() * emitter.getHeight());
+		Ball ball;
+		if(pool.size() > 0){
+			ball = pool.remove(pool.size() - 1);
+			ball.respawn(x, y, emitter.getXVelocity(), emitter.getYVelocity(), emitter.getColor());
+		} else {
+			ball = new Ball(x, y, emitter.getXVelocity(), emitter.getYVelocity(), emitter.getColor());
+			ball.setSpawned(true);
+		}
+		//a ball from the pool may have come from an emitter with a different material
+		ball.setMaterial(emitter.getMaterial(), materials);
+		players.add(ball);
+		numberOfSpawnedBalls++;
+		totalSpawned++;
+	}
+
+	/**
+	 * Remove the ball at the specified index of the players list, by moving the last ball
+	 * in the list into its place. Spawned balls go back into the pool, and balls from the
+	 * map file are kept aside until the balls are reset.
+	 * @param index the index of the ball in the players list
+	 */
+	private void remove(int index){
+		Ball ball = players.get(index);
+		int last = players.size() - 1;
+		players.set(index, players.get(last));
+		players.remove(last);
+		if(ball.isSpawned()){
+			pool.add(ball);
+			numberOfSpawnedBalls--;
+		} else {
+			removedMapBalls.add(ball);
+		}
+		totalRemoved++;
+	}
+
+	/**
+	 * Remove every spawned ball from the simulation, put back the balls from the map file
+	 * that were removed by sinks, and start each emitter over again.
+	 * Called by the Physics class when the balls are reset.
+	 */
+	public void reset(){
+		int i = 0;
+		while(i < players.size()){
+			if(players.get(i).isSpawned()){
+				remove(i);
+			} else {
+				i++;
+			}
+		}
+		players.addAll(removedMapBalls);
+		removedMapBalls.clear();
+		for(int j = 0; j < emitters.size(); j++){
+			emitters.get(j).reset();
+		}
+		random = new Random(RANDOM_SEED);
+		totalSpawned = 0;
+		totalRemoved = 0;
+	}
+
+	/**
+	 * Return the balls from the map file that are currently removed because they entered a sink.
+	 * These are still part of the map, so they are saved along with the other balls.
+	 */
+	public ArrayList<Ball> getRemovedMapBalls(){
+		return removedMapBalls;
+	}
+
+	/**
+	 * Return the number of spawned balls currently in the simulation.
+	 */
+	public int getNumberOfSpawnedBalls(){
+		return numberOfSpawnedBalls;
+	}
+
+	/**
+	 * Return the number of removed balls waiting in the pool to be reused.
+	 */
+	public int getPoolSize(){
+		return pool.size();
+	}
+
+	/**
+	 * Return the number of balls spawned since the map was loaded or the balls were last reset.
+	 */
+	public long getTotalSpawned(){
+		return totalSpawned;
+	}
+
+	/**
+	 * Return the number of balls removed since the map was loaded or the balls were last reset.
+	 */
+	public long getTotalRemoved(){
+		return totalRemoved;
+	}
+}
@@ -0,0 +1,467 @@
+package physics_simulator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The BarnesHutTree class.
+ * Makes the balls attract each other, like stars in a galaxy, when ball attraction is turned
+ * on (see Physics9.setBallAttraction()). Adding the pull of every ball on every other ball
+ * would take n^2 calculations on each clock tick, which is far too slow for thousands of
+ * balls, so this class uses the Barnes-Hut method instead.
+ *
+ * The balls are sorted into a quadtree: the root node is a square around all of them, and
+ * every node with more than LEAF_SIZE balls is divided into four smaller squares. Each node
+ * stores the number of balls in it and their center of mass. To find the pull on a ball,
+ * the tree is walked from the root. A node that looks small from the ball (its width divided
+ * by its distance is less than the opening angle) pulls like a single ball with the node's
+ * total mass at its center of mass, so its contents don't need to be looked at. Larger
+ * nodes are opened, and the balls in leaves are added one by one. This takes about n log n
+ * calculations. A smaller opening angle is more accurate and slower; 0 is exact.
+ *
+ * The tree is rebuilt on every clock tick, since the balls move. Each ball gets a Morton
+ * code, which interleaves the bits of its x and y coordinates, so that sorting the codes puts
+ * the balls of every node next to each other, in the order of a depth first walk of the
+ * tree. The codes are made and sorted in parallel, the tree is divided into subtrees of
+ * roughly equal size, and the subtrees are built in parallel. The nodes are stored in plain
+ * arrays that are kept from one clock tick to the next, so a rebuild doesn't create any
+ * objects. The pull on each ball is also calculated in parallel, and since each ball's pull
+ * is added up in the same order no matter which thread does it, the results are the same on
+ * every run.
+ *
+ * Every ball has the same mass, and the total mass of all of the balls is fixed, so a ball at
+ * distance d from a cluster holding a fraction f of the balls is pulled by
+ * strength * f * d / (d^2 + softening^2)^(3/2). This keeps a demo behaving the same way with a
+ * thousand balls or a hundred thousand.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BarnesHutTree {
+
+	public static final double DEFAULT_OPENING_ANGLE = 0.5; //how small a node must look from a ball to be treated as a single ball. see setOpeningAngle()
+	public static final double DEFAULT_STRENGTH = 250; //the pull of all of the balls together, at a distance of one pixel
+	public static final double DEFAULT_SOFTENING = 5; //the distance within which the pull stops growing, so that balls passing close to each other aren't flung apart
+	private static final int LEAF_SIZE = 8; //nodes with this many balls or fewer aren't divided
+	private static final int MAXIMUM_LEVEL = 16; //the deepest level of the tree. each level uses two bits of the Morton codes
+	private static final int INDEX_BITS = 21; //the low bits of each key hold the index of its ball, so there can be at most 2^21 balls
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+	private static final int MINIMUM_SUBTREE_SIZE = 1024; //the tree is divided into subtrees with no more balls than this, or than 1/256 of the balls, for building in parallel
+	private static final int CHUNK_SIZE = 1024; //the number of balls each thread calculates the pull on at a time
+	private double openingAngle = DEFAULT_OPENING_ANGLE;
+	private double strength = DEFAULT_STRENGTH;
+	private double softening = DEFAULT_SOFTENING;
+	private int numberOfBodies = 0; //the number of balls in the tree
+	private long[] keys = new long[0]; //the Morton code of each ball, followed by its index, sorted
+	private double[] sortedX = new double[0]; //the x coordinate of each ball, in the order of the sorted keys
+	private double[] sortedY = new double[0]; //the y coordinate of each ball, in the order of the sorted keys
+	private int[] sortedIndex = new int[0]; //the index in the ball list of each ball, in the order of the sorted keys
+	private double rootX; //the left side of the root node
+	private double rootY; //the top side of the root node
+	private double rootSize; //the width and height of the root node
+	/*
+	 * The nodes, stored in plain arrays. The children of a node are stored next to each
+	 * other, and each node's balls are at indices nodeStart to nodeEnd - 1 of the sorted arrays.
+	 */
+	private int numberOfNodes = 0;
+	private int[] nodeStart = new int[0];
+	private int[] nodeEnd = new int[0];
+	private int[] nodeFirstChild = new int[0]; //the index of a node's first child, or -1 for a leaf
+	private int[] nodeChildCount = new int[0]; //the number of children of a node, from 1 to 4 (empty squares don't get a node)
+	private double[] nodeSize = new double[0]; //the width and height of a node's square
+	private double[] nodeMass = new double[0]; //the number of balls in a node
+	private double[] nodeX = new double[0]; //the x coordinate of the center of mass of a node's balls
+	private double[] nodeY = new double[0]; //the y coordinate of the center of mass of a node's balls
+	/*
+	 * The subtrees that are built in parallel: the node index, first ball, last ball + 1 and
+	 * level of each subtree's root, and the index where its other nodes are stored.
+	 */
+	private int numberOfSubtrees = 0;
+	private int[] subtreeNode = new int[0];
+	private int[] subtreeStart = new int[0];
+	private int[] subtreeEnd = new int[0];
+	private int[] subtreeLevel = new int[0];
+	private int[] subtreeFirstNode = new int[0];
+	private double[] ballX = new double[0]; //the x coordinate of each ball, copied out of the ball list
+	private double[] ballY = new double[0]; //the y coordinate of each ball
+	private double[] accelerationX = new double[0]; //the x acceleration of each ball, in the order of the ball list
+	private double[] accelerationY = new double[0]; //the y acceleration of each ball, in the order of the ball list
+
+	/**
+	 * Add the pull of all of the other balls to the velocity of each ball.
+	 * This is called by Physics9.bounceModeClockTick() once per clock tick, before the balls are moved.
+	 * @param players the balls in the simulation
+	 */
+	public void apply(ArrayList<Ball> players){
+		int count = players.size();
+		if(count < 2){
+			return;
+		}
+		if(ballX.length < count){
+			int capacity = Math.max(count, ballX.length * 2);
+			ballX = new double[capacity];
+			ballY = new double[capacity];
+			accelerationX = new double[capacity];
+			accelerationY = new double[capacity];
+		}
+		for(int i = 0; i < count; i++){
+			ballX[i] = players.get(i).getXPosition();
+			ballY[i] = players.get(i).getYPosition();
+		}
+		build(ballX, ballY, count);
+		calculateAccelerations(accelerationX, accelerationY);
+		for(int i = 0; i < count; i++){
+			Ball ball = players.get(i);
+			ball.setXVelocity(ball.getXVelocity() + accelerationX[i]);
+			ball.setYVelocity(ball.getYVelocity() + accelerationY[i]);
+		}
+	}
+
+	/**
+	 * Build the tree for the specified positions.
+	 * @param x the x coordinate of each ball
+	 * @param y the y coordinate of each ball
+	 * @param count the number of balls, at most 2^21
+	 */
+	public void build(double[] x, double[] y, int count){
+		numberOfBodies = count;
+		if(keys.length < count){
+			int capacity = Math.max(count, keys.length * 2);
+			keys = new long[capacity];
+			sortedX = new double[capacity];
+			sortedY = new double[capacity];
+			sortedIndex = new int[capacity];
+		}
+		numberOfNodes = 0;
+		numberOfSubtrees = 0;
+		if(count == 0){
+			return;
+		}
+		//the root node is the smallest square around all of the balls
+		double minimumX = Double.POSITIVE_INFINITY;
+		double minimumY = Double.POSITIVE_INFINITY;
+		double maximumX = Double.NEGATIVE_INFINITY;
+		double maximumY = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < count; i++){
+			minimumX = Math.min(minimumX, x[i]);
+			minimumY = Math.min(minimumY, y[i]);
+			maximumX = Math.max(maximumX, x[i]);
+			maximumY = Math.max(maximumY, y[i]);
+		}
+		rootX = minimumX;
+		rootY = minimumY;
+		rootSize = Math.max(Math.max(maximumX - minimumX, maximumY - minimumY), 1e-9);
+		final double scale = (1 << MAXIMUM_LEVEL) / rootSize;
+		final int largestCoordinate = (1 << MAXIMUM_LEVEL) - 1;
+		final long[] keyArray = keys;
+		IntStream.range(0, count).parallel().forEach(i -> {
+			int column = (int) Math.max(0, Math.min(largestCoordinate, (x[i] - rootX) * scale));
+			int row = (int) Math.max(0, Math.min(largestCoordinate, (y[i] - rootY) * scale));
+			keyArray[i] = (interleave(column) | (interleave(row) << 1)) << INDEX_BITS | i;
+		});
+		Arrays.parallelSort(keys, 0, count);
+		IntStream.range(0, count).parallel().forEach(i -> {
+			int index = (int) (keyArray[i] & INDEX_MASK);
+			sortedIndex[i] = index;
+			sortedX[i] = x[index];
+			sortedY[i] = y[index];
+		});
+
+		//build the top of the tree, down to subtrees that are small enough, one node at a time
+		int subtreeSize = Math.max(MINIMUM_SUBTREE_SIZE, count / 256);
+		ensureNodeCapacity(1);
+		numberOfNodes = 1;
+		buildTop(0, 0, count, 0, subtreeSize);
+		int topNodes = numberOfNodes;
+		//count the nodes of each subtree in parallel, so that each one knows where to store its nodes
+		IntStream.range(0, numberOfSubtrees).parallel().forEach(t -> {
+			subtreeFirstNode[t] = countNodes(subtreeStart[t], subtreeEnd[t], subtreeLevel[t]);
+		});
+		for(int t = 0; t < numberOfSubtrees; t++){
+			int size = subtreeFirstNode[t];
+			subtreeFirstNode[t] = numberOfNodes;
+			numberOfNodes += size;
+		}
+		ensureNodeCapacity(numberOfNodes);
+		IntStream.range(0, numberOfSubtrees).parallel().forEach(t -> {
+			buildNode(subtreeNode[t], subtreeStart[t], subtreeEnd[t], subtreeLevel[t], subtreeFirstNode[t]);
+		});
+		//the children of the top nodes are stored after them, so going backwards adds up the children before their parents
+		for(int node = topNodes - 1; node >= 0; node--){
+			if(nodeFirstChild[node] >= 0){
+				sumChildren(node);
+			}
+		}
+	}
+
+	/**
+	 * Spread the 16 bits of a coordinate out into the even bits of a long, for a Morton code.
+	 */
+	private static long interleave(int coordinate){
+		long bits = coordinate & 0xFFFFL;
+		bits = (bits | (bits << 8)) & 0x00FF00FFL;
+		bits = (bits | (bits << 4)) & 0x0F0F0F0FL;
+		bits = (bits | (bits << 2)) & 0x33333333L;
+		bits = (bits | (bits << 1)) & 0x55555555L;
+		return bits;
+	}
+
+	/**
+	 * Return which quarter (0 to 3) of its node at the specified level the ball with the specified key is in.
+	 */
+	private static int getQuadrant(long key, int level){
+		return (int) (key >>> (INDEX_BITS + (2 * (MAXIMUM_LEVEL - 1 - level)))) & 3;
+	}
+
+	/**
+	 * Return the index of the first ball from start to end - 1 that is in a later quarter
+	 * than the specified one, of a node at the specified level. The balls of a node are
+	 * sorted by quarter, so this is a binary search.
+	 */
+	private int findQuadrantEnd(int start, int end, int level, int quadrant){
+		int low = start;
+		int high = end;
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			if(getQuadrant(keys[middle], level) <= quadrant){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private boolean isLeaf(int start, int end, int level){
+		return end - start <= LEAF_SIZE || level == MAXIMUM_LEVEL;
+	}
+
+	/**
+	 * Build the top of the tree below the specified node, one node at a time, stopping at
+	 * nodes small enough to be built as separate subtrees.
+	 */
+	private void buildTop(int node, int start, int end, int level, int subtreeSize){
+		if(end - start <= subtreeSize && !isLeaf(start, end, level)){
+			if(numberOfSubtrees == subtreeNode.length){
+				int capacity = Math.max(64, subtreeNode.length * 2);
+				subtreeNode = Arrays.copyOf(subtreeNode, capacity);
+				subtreeStart = Arrays.copyOf(subtreeStart, capacity);
+				subtreeEnd = Arrays.copyOf(subtreeEnd, capacity);
+				subtreeLevel = Arrays.copyOf(subtreeLevel, capacity);
+				subtreeFirstNode = Arrays.copyOf(subtreeFirstNode, capacity);
+			}
+			subtreeNode[numberOfSubtrees] = node;
+			subtreeStart[numberOfSubtrees] = start;
+			subtreeEnd[numberOfSubtrees] = end;
+			subtreeLevel[numberOfSubtrees] = level;
+			numberOfSubtrees++;
+			return;
+		}
+		ensureNodeCapacity(numberOfNodes + 4);
+		int firstChild = buildNode(node, start, end, level, -1);
+		for(int child = firstChild; child < firstChild + nodeChildCount[node] && firstChild >= 0; child++){
+			buildTop(child, nodeStart[child], nodeEnd[child], level + 1, subtreeSize);
+		}
+	}
+
+	/**
+	 * Return the number of nodes below a node with the specified balls, at the specified level.
+	 */
+	private int countNodes(int start, int end, int level){
+		if(isLeaf(start, end, level)){
+			return 0;
+		}
+		int count = 0;
+		for(int quadrant = 0; quadrant < 4; quadrant++){
+			int quadrantEnd = findQuadrantEnd(start, end, level, quadrant);
+			if(quadrantEnd > start){
+				count += 1 + countNodes(start, quadrantEnd, level + 1);
+			}
+			start = quadrantEnd;
+		}
+		return count;
+	}
+
+	/**
+	 * Fill in a node with the specified balls. If nextNode is -1, only the node and its
+	 * children are filled in, with the children stored at the end of the node arrays, and the
+	 * index of the first child is returned (the children are added up later). Otherwise, the
+	 * whole subtree below the node is built, storing its nodes from index nextNode on, and
+	 * the index after the last node used is returned.
+	 */
+	private int buildNode(int node, int start, int end, int level, int nextNode){
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		nodeSize[node] = rootSize / (1 << level);
+		if(isLeaf(start, end, level)){
+			nodeFirstChild[node] = -1;
+			nodeChildCount[node] = 0;
+			double sumX = 0;
+			double sumY = 0;
+			for(int i = start; i < end; i++){
+				sumX += sortedX[i];
+				sumY += sortedY[i];
+			}
+			nodeMass[node] = end - start;
+			nodeX[node] = sumX / (end - start);
+			nodeY[node] = sumY / (end - start);
+			return nextNode;
+		}
+		boolean onlyChildren = nextNode == -1;
+		int firstChild = onlyChildren ? numberOfNodes : nextNode;
+		int childCount = 0;
+		int childStart = start;
+		for(int quadrant = 0; quadrant < 4; quadrant++){
+			int quadrantEnd = findQuadrantEnd(childStart, end, level, quadrant);
+			if(quadrantEnd > childStart){
+				nodeStart[firstChild + childCount] = childStart;
+				nodeEnd[firstChild + childCount] = quadrantEnd;
+				childCount++;
+			}
+			childStart = quadrantEnd;
+		}
+		nodeFirstChild[node] = firstChild;
+		nodeChildCount[node] = childCount;
+		if(onlyChildren){
+			numberOfNodes += childCount;
+			return firstChild;
+		}
+		nextNode = firstChild + childCount;
+		for(int child = firstChild; child < firstChild + childCount; child++){
+			nextNode = buildNode(child, nodeStart[child], nodeEnd[child], level + 1, nextNode);
+		}
+		sumChildren(node);
+		return nextNode;
+	}
+
+	/**
+	 * Set the mass and center of mass of a node from those of its children.
+	 */
+	private void sumChildren(int node){
+		double mass = 0;
+		double sumX = 0;
+		double sumY = 0;
+		for(int child = nodeFirstChild[node]; child < nodeFirstChild[node] + nodeChildCount[node]; child++){
+			mass += nodeMass[child];
+			sumX += nodeMass[child] * nodeX[child];
+			sumY += nodeMass[child] * nodeY[child];
+		}
+		nodeMass[node] = mass;
+		nodeX[node] = sumX / mass;
+		nodeY[node] = sumY / mass;
+	}
+
+	private void ensureNodeCapacity(int capacity){
+		if(nodeStart.length >= capacity){
+			return;
+		}
+		capacity = Math.max(capacity, nodeStart.length * 2);
+		nodeStart = Arrays.copyOf(nodeStart, capacity);
+		nodeEnd = Arrays.copyOf(nodeEnd, capacity);
+		nodeFirstChild = Arrays.copyOf(nodeFirstChild, capacity);
+		nodeChildCount = Arrays.copyOf(nodeChildCount, capacity);
+		nodeSize = Arrays.copyOf(nodeSize, capacity);
+		nodeMass = Arrays.copyOf(nodeMass, capacity);
+		nodeX = Arrays.copyOf(nodeX, capacity);
+		nodeY = Arrays.copyOf(nodeY, capacity);
+	}
+
+	/**
+	 * Calculate the pull of all of the other balls on each ball in the tree, using the last built tree.
+	 * @param resultX the x acceleration of each ball is stored here, in the order the balls were given to build()
+	 * @param resultY the y acceleration of each ball is stored here
+	 */
+	public void calculateAccelerations(double[] resultX, double[] resultY){
+		int chunks = (numberOfBodies + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		//the balls are taken in sorted order, so that neighboring balls, which walk through the same nodes, are calculated together
+		IntStream.range(0, chunks).parallel().forEach(chunk -> {
+			int[] stack = new int[(3 * MAXIMUM_LEVEL) + 4];
+			for(int i = chunk * CHUNK_SIZE; i < Math.min(numberOfBodies, (chunk + 1) * CHUNK_SIZE); i++){
+				calculateAcceleration(i, stack, resultX, resultY);
+			}
+		});
+	}
+
+	/**
+	 * Walk the tree to find the pull on the ball at the specified sorted index.
+	 */
+	private void calculateAcceleration(int body, int[] stack, double[] resultX, double[] resultY){
+		double x = sortedX[body];
+		double y = sortedY[body];
+		double softeningSquared = softening * softening;
+		double openingAngleSquared = openingAngle * openingAngle;
+		double sumX = 0;
+		double sumY = 0;
+		int stackSize = 0;
+		stack[stackSize++] = 0;
+		while(stackSize > 0){
+			int node = stack[--stackSize];
+			if(nodeFirstChild[node] < 0){
+				//a leaf: add each of its balls, other than this one
+				for(int i = nodeStart[node]; i < nodeEnd[node]; i++){
+					if(i == body){
+						continue;
+					}
+					double dx = sortedX[i] - x;
+					double dy = sortedY[i] - y;
+					double distanceSquared = (dx * dx) + (dy * dy) + softeningSquared;
+					double scale = 1 / (distanceSquared * Math.sqrt(distanceSquared));
+					sumX += scale * dx;
+					sumY += scale * dy;
+				}
+				continue;
+			}
+			double dx = nodeX[node] - x;
+			double dy = nodeY[node] - y;
+			double distanceSquared = (dx * dx) + (dy * dy);
+			if(nodeSize[node] * nodeSize[node] < openingAngleSquared * distanceSquared){
+				//the node looks small from here, so it pulls like one ball at its center of mass
+				distanceSquared += softeningSquared;
+				double scale = nodeMass[node] / (distanceSquared * Math.sqrt(distanceSquared));
+				sumX += scale * dx;
+				sumY += scale * dy;
+			} else {
+				for(int child = nodeFirstChild[node]; child < nodeFirstChild[node] + nodeChildCount[node]; child++){
+					stack[stackSize++] = child;
+				}
+			}
+		}
+		double pull = strength / numberOfBodies;
+		resultX[sortedIndex[body]] = sumX * pull;
+		resultY[sortedIndex[body]] = sumY * pull;
+	}
+
+	/**
+	 * Set how small a node must look from a ball, as its width divided by its distance, for
+	 * its balls to be treated as a single ball. 0 adds up every pair of balls exactly, 0.5 is
+	 * accurate to about a percent, and 1 is faster but rougher.
+	 */
+	public void setOpeningAngle(double initOpeningAngle){
+		openingAngle = Math.max(0, initOpeningAngle);
+	}
+
+	public double getOpeningAngle(){
+		return openingAngle;
+	}
+
+	/**
+	 * Set the pull of all of the balls together, at a distance of one pixel
+	 */
+	public void setStrength(double initStrength){
+		strength = initStrength;
+	}
+
+	/**
+	 * Set the distance within which the pull between two balls stops growing
+	 */
+	public void setSoftening(double initSoftening){
+		softening = Math.max(initSoftening, 0.01);
+	}
+
+	/**
+	 * Return the number of nodes in the last built tree
+	 */
+	public int getNumberOfNodes(){
+		return numberOfNodes;
+	}
+}
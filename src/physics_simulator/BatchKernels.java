@@ -0,0 +1,78 @@
+package physics_simulator;
+
+/**
+ * The BatchKernels class.
+ * Simple loops that do the same arithmetic for many balls at once, on plain arrays of
+ * coordinates instead of Ball objects. Working on arrays lets the processor
+ * handle several values with each instruction: the VectorBatchKernels class overrides these
+ * methods using the Java Vector API, which does this explicitly, and this class is the plain
+ * version used when the Vector API isn't available.
+ *
+ * The Vector API is still an incubator module, so the VectorBatchKernels class is kept in the
+ * separate src_vector source folder, and the rest of the program builds without it. It is only
+ * used when it has been compiled too, and the program is run with "--add-modules
+ * jdk.incubator.vector". Use create() to get the fastest version that can run. Both versions do exactly the same operations in the same order, so they give
+ * exactly the same results.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BatchKernels {
+
+	/**
+	 * Return a VectorBatchKernels if the Vector API is available, or a BatchKernels otherwise.
+	 */
+	public static BatchKernels create(){
+		if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+			try {
+				//loaded by name, so that this class still works when the Vector API classes can't be found
+				return (BatchKernels) Class.forName("physics_simulator.VectorBatchKernels").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e){
+				//fall back to the plain version below
+			}
+		}
+		return new BatchKernels();
+	}
+
+	/**
+	 * Return a short description of how these kernels run, for printing in benchmarks.
+	 */
+	public String getDescription(){
+		return "scalar";
+	}
+
+	/**
+	 * Find where many balls are after moving under gravity alone for some number of clock ticks,
+	 * using the closed form of the way the Physics class moves a single ball (add gravity to the
+	 * y velocity, then add the velocity to the position): after n clock ticks, a ball that started at p with
+	 * velocity v is at p + n * v + gravity * n * (n + 1) / 2, with velocity v + n * gravity.
+	 * See EventDrivenPhysics.
+	 * @param x the starting x position of each ball
+	 * @param y the starting y position of each ball
+	 * @param xVelocity the starting x velocity of each ball
+	 * @param yVelocity the starting y velocity of each ball
+	 * @param ticks the number of clock ticks each ball has moved for
+	 * @param count the number of balls
+	 * @param gravity the amount added to the y velocity on each clock tick
+	 * @param resultX an array to write the x position of each ball into
+	 * @param resultY an array to write the y position of each ball into
+	 * @param resultYVelocity an array to write the y velocity of each ball into
+	 */
+	public void project(double[] x, double[] y, double[] xVelocity, double[] yVelocity, double[] ticks, int count, double gravity,
+			double[] resultX, double[] resultY, double[] resultYVelocity){
+		project(x, y, xVelocity, yVelocity, ticks, 0, count, gravity, resultX, resultY, resultYVelocity);
+	}
+
+	/**
+	 * Same as project(), for the balls from start up to (but not including) end.
+	 */
+	protected void project(double[] x, double[] y, double[] xVelocity, double[] yVelocity, double[] ticks, int start, int end, double gravity,
+			double[] resultX, double[] resultY, double[] resultYVelocity){
+		for(int i = start; i < end; i++){
+			double n = ticks[i];
+			resultX[i] = x[i] + (n * xVelocity[i]);
+			resultY[i] = y[i] + (n * yVelocity[i]) + (gravity * n * (n + 1) / 2);
+			resultYVelocity[i] = yVelocity[i] + (n * gravity);
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The BroadPhaseGrid class.
+ * Divides the map into square cells, and keeps a list of the shapes whose hit boxes
+ * overlap each cell. Before checking a ball carefully for collisions, the Physics class
+ * asks the grid for the shapes near the ball's path, so that shapes on the other side
+ * of the map are never looked at, no matter how many there are.
+ *
+ * Kinematic shapes (see the KinematicMotion class) are placed into the grid using their
+ * swept bounding box, which covers every position they can reach. This way, the grid stays
+ * correct while they move, and only needs to be rebuilt when shapes are edited, added or
+ * deleted.
+ *
+ * Containers (see Shape.setContainer()), like the map's border, are only placed into the
+ * cells that their edges pass through. A container's hit box covers every ball inside of it,
+ * so otherwise every query would return it, and every ball would be checked against its
+ * edges on every clock tick, even out in the middle of the map where it can't reach them.
+ *
+ * Positions outside of the map are clamped to the cells along its edge, so shapes and balls
+ * that leave the map are still found, just less efficiently.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BroadPhaseGrid {
+
+	public static final int CELL_SIZE = 32; //the width and height of each cell, in pixels
+	public static final int MASK_SIZE = 8; //the most columns and rows that queryCellMasks() can cover, so that a bit mask of the cells fits into a long
+	private int columns; //the number of cells along the x axis
+	private int rows; //the number of cells along the y axis
+	/*
+	 * The shape lists for all cells are stored one after another in the cellShapes[] array.
+	 * The shapes in the cell at (column, row) are stored from cellShapes[cellStart[cell]] up
+	 * to (but not including) cellShapes[cellStart[cell + 1]], where cell = row * columns + column.
+	 */
+	private int[] cellStart;
+	private int[] cellShapes;
+	/*
+	 * int[] shapeStamp:
+	 * used to avoid returning the same shape twice when it overlaps several of the cells
+	 * that a query covers. Each query gets a new stamp value, and a shape is only added to
+	 * the query's result if its stamp isn't already equal to that value.
+	 */
+	private int[] shapeStamp;
+	private int currentStamp = 0;
+	private int[] shapeSlot; //where each shape was written into the result of the current queryCellMasks(), so that the cells found after the first can be added to its mask
+	private long numberOfQueries = 0; //the number of times the grid has been asked for shapes
+	private int[] cellMark = new int[0]; //the shape most recently placed into each cell plus one, so that a container's edges don't place it into the same cell twice
+
+	/**
+	 * Construct a BroadPhaseGrid covering a map of the specified size.
+	 * @param width the width of the map
+	 * @param height the height of the map
+	 */
+	public BroadPhaseGrid(int width, int height){
+		columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+		rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+		cellStart = new int[(columns * rows) + 1];
+		cellShapes = new int[0];
+		shapeStamp = new int[0];
+		shapeSlot = new int[0];
+	}
+
+	/**
+	 * Place every shape in the list into the cells its hit box (or swept bounding box,
+	 * for kinematic shapes) overlaps, or for a container that doesn't move, the cells its
+	 * edges pass through. This is done in two passes: the first counts how many shapes
+	 * belong in each cell, and the second fills in the cell lists.
+	 * @param shapes the list of shapes in the simulation
+	 */
+	public void rebuild(ArrayList<Shape> shapes){
+		int numberOfShapes = shapes.size();
+		int[] bounds = new int[numberOfShapes * 4]; //the first and last column and row covered by each shape
+		int[][] edgeCells = new int[numberOfShapes][]; //the cells that each container's edges pass through, or null for other shapes
+		for(int i = 0; i < cellStart.length; i++){
+			cellStart[i] = 0;
+		}
+		for(int i = 0; i < numberOfShapes; i++){
+			Shape shape = shapes.get(i);
+			if(shape.isContainer() && !shape.isKinematic()){
+				edgeCells[i] = findEdgeCells(shape, i);
+				for(int k = 0; k < edgeCells[i].length; k++){
+					cellStart[edgeCells[i][k] + 1]++;
+				}
+				continue;
+			}
+			if(shape.isKinematic()){
+				double[] swept = shape.getMotion().getSweptBounds(shape);
+				findCellRange(swept[0], swept[1], swept[2], swept[3], bounds, i * 4);
+			} else {
+				findCellRange(shape.getXMin(), shape.getYMin(), shape.getXMax(), shape.getYMax(), bounds, i * 4);
+			}
+			for(int row = bounds[(i * 4) + 1]; row <= bounds[(i * 4) + 3]; row++){
+				for(int column = bounds[i * 4]; column <= bounds[(i * 4) + 2]; column++){
+					cellStart[(row * columns) + column + 1]++;
+				}
+			}
+		}
+		//turn the counts into starting positions
+		for(int i = 1; i < cellStart.length; i++){
+			cellStart[i] += cellStart[i - 1];
+		}
+		cellShapes = new int[cellStart[cellStart.length - 1]];
+		int[] fill = new int[columns * rows];
+		for(int i = 0; i < numberOfShapes; i++){
+			if(edgeCells[i] != null){
+				for(int k = 0; k < edgeCells[i].length; k++){
+					int cell = edgeCells[i][k];
+					cellShapes[cellStart[cell] + fill[cell]] = i;
+					fill[cell]++;
+				}
+				continue;
+			}
+			for(int row = bounds[(i * 4) + 1]; row <= bounds[(i * 4) + 3]; row++){
+				for(int column = bounds[i * 4]; column <= bounds[(i * 4) + 2]; column++){
+					int cell = (row * columns) + column;
+					cellShapes[cellStart[cell] + fill[cell]] = i;
+					fill[cell]++;
+				}
+			}
+		}
+		if(shapeStamp.length < numberOfShapes){
+			shapeStamp = new int[numberOfShapes];
+			shapeSlot = new int[numberOfShapes];
+			currentStamp = 0;
+		}
+	}
+
+	/**
+	 * Find the indices of every shape that may overlap the specified rectangle, and write
+	 * them into the result[] array. Each shape is only written once. No memory is allocated.
+	 * @param xMin the left side of the rectangle
+	 * @param yMin the top side of the rectangle
+	 * @param xMax the right side of the rectangle
+	 * @param yMax the bottom side of the rectangle
+	 * @param result an array to write the shape indices into. must have room for every shape
+	 * @return the number of shape indices written into the result array
+	 */
+	public int query(double xMin, double yMin, double xMax, double yMax, int[] result){
+		return queryCells((int) Math.floor(xMin / CELL_SIZE), (int) Math.floor(yMin / CELL_SIZE), (int) Math.floor(xMax / CELL_SIZE), (int) Math.floor(yMax / CELL_SIZE), result);
+	}
+
+	/**
+	 * Same as query(), but for a rectangle of cells given by their columns and rows, which are
+	 * clamped to the grid. Used by the FixedPointPhysics class, which finds the cells of its
+	 * fixed-point coordinates by shifting instead of dividing.
+	 * @param firstColumn the column of the left side of the rectangle
+	 * @param firstRow the row of the top side of the rectangle
+	 * @param lastColumn the column of the right side of the rectangle
+	 * @param lastRow the row of the bottom side of the rectangle
+	 * @param result an array to write the shape indices into. must have room for every shape
+	 * @return the number of shape indices written into the result array
+	 */
+	public int queryCells(int firstColumn, int firstRow, int lastColumn, int lastRow, int[] result){
+		currentStamp++;
+		numberOfQueries++;
+		firstColumn = Math.max(0, Math.min(columns - 1, firstColumn));
+		lastColumn = Math.max(0, Math.min(columns - 1, lastColumn));
+		firstRow = Math.max(0, Math.min(rows - 1, firstRow));
+		lastRow = Math.max(0, Math.min(rows - 1, lastRow));
+		int count = 0;
+		for(int row = firstRow; row <= lastRow; row++){
+			for(int column = firstColumn; column <= lastColumn; column++){
+				int cell = (row * columns) + column;
+				for(int k = cellStart[cell]; k < cellStart[cell + 1]; k++){
+					int shapeIndex = cellShapes[k];
+					if(shapeStamp[shapeIndex] != currentStamp){
+						shapeStamp[shapeIndex] = currentStamp;
+						result[count] = shapeIndex;
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Same as queryCells(), but also writes down which of the rectangle's cells each shape is
+	 * in, so that the shapes in a smaller rectangle inside of it can be picked out later without
+	 * asking the grid again (see cellMask()). The cell at (column, row) is bit
+	 * ((row - firstRow) * MASK_SIZE) + (column - firstColumn) of a shape's mask. The rectangle
+	 * must already be clamped to the grid, and be at most MASK_SIZE cells wide and tall.
+	 * @param result an array to write the shape indices into. must have room for every shape
+	 * @param masks an array to write the mask of each shape into, at the same position as its index in result[]
+	 * @return the number of shape indices written into the result array
+	 */
+	public int queryCellMasks(int firstColumn, int firstRow, int lastColumn, int lastRow, int[] result, long[] masks){
+		currentStamp++;
+		numberOfQueries++;
+		int count = 0;
+		for(int row = firstRow; row <= lastRow; row++){
+			for(int column = firstColumn; column <= lastColumn; column++){
+				int cell = (row * columns) + column;
+				long bit = 1L << (((row - firstRow) * MASK_SIZE) + (column - firstColumn));
+				for(int k = cellStart[cell]; k < cellStart[cell + 1]; k++){
+					int shapeIndex = cellShapes[k];
+					if(shapeStamp[shapeIndex] != currentStamp){
+						shapeStamp[shapeIndex] = currentStamp;
+						shapeSlot[shapeIndex] = count;
+						result[count] = shapeIndex;
+						masks[count] = bit;
+						count++;
+					} else {
+						masks[shapeSlot[shapeIndex]] |= bit;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the bit mask of the cells in a rectangle, numbered the same way as the masks
+	 * found by queryCellMasks(), with the columns and rows counted from the first column
+	 * and row of that query.
+	 */
+	public static long cellMask(int firstColumn, int firstRow, int lastColumn, int lastRow){
+		long rowMask = (1L << (lastColumn - firstColumn + 1)) - 1;
+		long mask = 0;
+		for(int row = firstRow; row <= lastRow; row++){
+			mask |= rowMask << ((row * MASK_SIZE) + firstColumn);
+		}
+		return mask;
+	}
+
+	/**
+	 * Find every cell that at least one of a shape's edges passes through. Each edge is cut
+	 * into the parts within each row it crosses, and the cells from the left end to the
+	 * right end of each part are added, so no cell is missed, however steep the edge is.
+	 * @param shape the shape
+	 * @param shapeIndex the index of the shape in the shapes list
+	 * @return the cells, as row * columns + column, each listed once
+	 */
+	private int[] findEdgeCells(Shape shape, int shapeIndex){
+		if(cellMark.length != columns * rows){
+			cellMark = new int[columns * rows];
+		}
+		int[] cells = new int[16];
+		int count = 0;
+		int numberOfVertices = shape.getNumberOfVertices();
+		for(int k = 0; k < numberOfVertices; k++){
+			Point start = shape.getVertex(k);
+			Point end = shape.getVertex((k + 1) % numberOfVertices);
+			double x0 = start.getX();
+			double y0 = start.getY();
+			double x1 = end.getX();
+			double y1 = end.getY();
+			int firstRow = clampRow(Math.min(y0, y1));
+			int lastRow = clampRow(Math.max(y0, y1));
+			for(int row = firstRow; row <= lastRow; row++){
+				//the part of the edge between the top and bottom of this row. rows along the
+				//edge of the grid also hold everything past the edge of the map
+				double xLow = Math.min(x0, x1);
+				double xHigh = Math.max(x0, x1);
+				if(y0 != y1){
+					double top = (row == firstRow) ? Math.min(y0, y1) : row * CELL_SIZE;
+					double bottom = (row == lastRow) ? Math.max(y0, y1) : (row + 1) * CELL_SIZE;
+					double xTop = x0 + ((top - y0) * (x1 - x0) / (y1 - y0));
+					double xBottom = x0 + ((bottom - y0) * (x1 - x0) / (y1 - y0));
+					xLow = Math.max(xLow, Math.min(xTop, xBottom));
+					xHigh = Math.min(xHigh, Math.max(xTop, xBottom));
+				}
+				//a pixel is added on each side, so that rounding where the edge crosses a row can't leave out a cell
+				for(int column = clampColumn(xLow - 1); column <= clampColumn(xHigh + 1); column++){
+					int cell = (row * columns) + column;
+					if(cellMark[cell] == shapeIndex + 1){
+						continue;
+					}
+					cellMark[cell] = shapeIndex + 1;
+					if(count == cells.length){
+						int[] larger = new int[count * 2];
+						System.arraycopy(cells, 0, larger, 0, count);
+						cells = larger;
+					}
+					cells[count] = cell;
+					count++;
+				}
+			}
+		}
+		//forget the marks, so that the next rebuild can place this shape into the same cells again
+		for(int c = 0; c < count; c++){
+			cellMark[cells[c]] = 0;
+		}
+		int[] result = new int[count];
+		System.arraycopy(cells, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Find the first and last column and row covered by a rectangle, and store them in
+	 * the specified array starting at the specified offset.
+	 */
+	private void findCellRange(double xMin, double yMin, double xMax, double yMax, int[] bounds, int offset){
+		bounds[offset] = clampColumn(xMin);
+		bounds[offset + 1] = clampRow(yMin);
+		bounds[offset + 2] = clampColumn(xMax);
+		bounds[offset + 3] = clampRow(yMax);
+	}
+
+	/**
+	 * Return the column containing the specified x coordinate, or the closest column
+	 * if the coordinate is outside of the map.
+	 */
+	public int clampColumn(double x){
+		int column = (int) Math.floor(x / CELL_SIZE);
+		return Math.max(0, Math.min(columns - 1, column));
+	}
+
+	/**
+	 * Return the row containing the specified y coordinate, or the closest row
+	 * if the coordinate is outside of the map.
+	 */
+	public int clampRow(double y){
+		int row = (int) Math.floor(y / CELL_SIZE);
+		return Math.max(0, Math.min(rows - 1, row));
+	}
+
+	/**
+	 * Return the number of times the grid has been asked for the shapes in an area
+	 */
+	public long getNumberOfQueries(){
+		return numberOfQueries;
+	}
+
+	/**
+	 * Return the number of cells along the x axis
+	 */
+	public int getColumns(){
+		return columns;
+	}
+
+	/**
+	 * Return the number of cells along the y axis
+	 */
+	public int getRows(){
+		return rows;
+	}
+}
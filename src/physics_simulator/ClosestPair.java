@@ -0,0 +1,200 @@
+package physics_simulator;
+
+/**
+ * The ClosestPair class.
+ * Finds the two closest points out of a set of points in O(n log n) time, using the
+ * classic divide and conquer algorithm, instead of checking the distance between every
+ * pair of points, which takes O(n^2) time (see Physics9.closestPairBruteForce()).
+ *
+ * The algorithm:
+ * 		1. sort the points by x value, and split them into a left half and a right half.
+ * 		2. recursively find the closest pair in each half. call the smaller of the two
+ * 		   distances d.
+ * 		3. the only pairs left to check are pairs with one point in each half. both points
+ * 		   must be within d of the dividing line, and within d of each other vertically,
+ * 		   so only the points in this narrow "strip" need to be checked, and each one only
+ * 		   needs to be compared to the next few points above it.
+ * Each recursive call also merges its two halves so that they come back sorted by y value,
+ * which is the order the strip needs to be in.
+ *
+ * Points are passed in as arrays of coordinates, and all working space is kept between
+ * calls, so finding the closest pair on every clock tick doesn't allocate any memory
+ * unless the number of points grows.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ClosestPair {
+
+	private double[] x; //the x coordinates of the points
+	private double[] y; //the y coordinates of the points
+	private int[] order; //indices of the points, sorted by x value before the recursion, and by y value within each finished range
+	private int[] temp; //working space for merging
+	private int[] strip; //indices of the points near the dividing line in the current recursive call
+	private double bestDistanceSquared; //the squared distance between the closest pair found so far
+	private double bestDistance; //the distance between the closest pair found so far
+	private int first = -1; //the index of one point in the closest pair
+	private int second = -1; //the index of the other point in the closest pair
+
+	/**
+	 * Find the closest pair out of the first count points in the specified coordinate arrays.
+	 * The result can be read with getFirst(), getSecond() and getDistanceSquared().
+	 * @param initX the x coordinates of the points
+	 * @param initY the y coordinates of the points
+	 * @param count the number of points
+	 * @return true if a pair was found, false if there are fewer than two points
+	 */
+	public boolean find(double[] initX, double[] initY, int count){
+		x = initX;
+		y = initY;
+		first = -1;
+		second = -1;
+		bestDistanceSquared = Double.MAX_VALUE;
+		bestDistance = Double.MAX_VALUE;
+		if(count < 2){
+			return false;
+		}
+		if(order == null || order.length < count){
+			order = new int[count];
+			temp = new int[count];
+			strip = new int[count];
+		}
+		for(int i = 0; i < count; i++){
+			order[i] = i;
+		}
+		sortByKey(order, x, 0, count);
+		findInRange(0, count);
+		return true;
+	}
+
+	/**
+	 * Find the closest pair among order[low] to order[high - 1], which are sorted by x value.
+	 * When this method returns, the same range is sorted by y value instead.
+	 */
+	private void findInRange(int low, int high){
+		if(high - low <= 3){
+			//too few points to be worth splitting. check every pair, then sort by y
+			for(int i = low; i < high; i++){
+				for(int j = i + 1; j < high; j++){
+					checkPair(order[i], order[j]);
+				}
+			}
+			sortByKey(order, y, low, high);
+			return;
+		}
+		int middle = (low + high) / 2;
+		double dividingX = x[order[middle]];
+		findInRange(low, middle);
+		findInRange(middle, high);
+		merge(order, y, low, middle, high);
+		//collect the points close enough to the dividing line to be part of a closer pair
+		int stripSize = 0;
+		for(int i = low; i < high; i++){
+			if(Math.abs(x[order[i]] - dividingX) < bestDistance){
+				strip[stripSize] = order[i];
+				stripSize++;
+			}
+		}
+		//the strip is sorted by y, so each point only has to be compared to the points
+		//above it until they are further away vertically than the best distance so far
+		for(int i = 0; i < stripSize; i++){
+			for(int j = i + 1; j < stripSize && y[strip[j]] - y[strip[i]] < bestDistance; j++){
+				checkPair(strip[i], strip[j]);
+			}
+		}
+	}
+
+	/**
+	 * Check whether two points are closer to each other than the closest pair found so far.
+	 */
+	private void checkPair(int index0, int index1){
+		double xDifference = x[index0] - x[index1];
+		double yDifference = y[index0] - y[index1];
+		double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+		if(distanceSquared < bestDistanceSquared){
+			bestDistanceSquared = distanceSquared;
+			bestDistance = Math.sqrt(distanceSquared);
+			first = Math.min(index0, index1);
+			second = Math.max(index0, index1);
+		}
+	}
+
+	/**
+	 * Sort indices[low] to indices[high - 1] by the values they refer to in the key[] array,
+	 * using merge sort.
+	 */
+	private void sortByKey(int[] indices, double[] key, int low, int high){
+		if(high - low <= 8){
+			//insertion sort is faster for small ranges
+			for(int i = low + 1; i < high; i++){
+				int current = indices[i];
+				int j = i - 1;
+				while(j >= low && key[indices[j]] > key[current]){
+					indices[j + 1] = indices[j];
+					j--;
+				}
+				indices[j + 1] = current;
+			}
+			return;
+		}
+		int middle = (low + high) / 2;
+		sortByKey(indices, key, low, middle);
+		sortByKey(indices, key, middle, high);
+		merge(indices, key, low, middle, high);
+	}
+
+	/**
+	 * Merge two neighboring ranges of indices, each already sorted by the values they
+	 * refer to in the key[] array, into one sorted range.
+	 */
+	private void merge(int[] indices, double[] key, int low, int middle, int high){
+		int left = low;
+		int right = middle;
+		int k = low;
+		while(left < middle && right < high){
+			if(key[indices[left]] <= key[indices[right]]){
+				temp[k] = indices[left];
+				left++;
+			} else {
+				temp[k] = indices[right];
+				right++;
+			}
+			k++;
+		}
+		while(left < middle){
+			temp[k] = indices[left];
+			left++;
+			k++;
+		}
+		while(right < high){
+			temp[k] = indices[right];
+			right++;
+			k++;
+		}
+		System.arraycopy(temp, low, indices, low, high - low);
+	}
+
+	/**
+	 * Return the smaller index of the two points in the closest pair
+	 * @return the index of one point in the closest pair, or -1 if no pair was found
+	 */
+	public int getFirst(){
+		return first;
+	}
+
+	/**
+	 * Return the larger index of the two points in the closest pair
+	 * @return the index of the other point in the closest pair, or -1 if no pair was found
+	 */
+	public int getSecond(){
+		return second;
+	}
+
+	/**
+	 * Return the squared distance between the two points in the closest pair
+	 * @return the squared distance between the closest pair
+	 */
+	public double getDistanceSquared(){
+		return bestDistanceSquared;
+	}
+}
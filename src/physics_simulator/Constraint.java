@@ -0,0 +1,119 @@
+package physics_simulator;
+
+/**
+ * The Constraint class.
+ * Keeps two balls, or a ball and a fixed point, at a certain distance from each other. There
+ * are four types of constraints:
+ * 		SPRING: pulls the balls together when they are further apart than its length, and pushes
+ * 			them apart when they are closer, more strongly the higher its stiffness.
+ * 		ROD: keeps the balls at exactly its length from each other, like a rigid stick.
+ * 		ROPE: keeps the balls from getting further apart than its length, but lets them come
+ * 			closer together, like a rope that goes slack.
+ * 		ANCHOR: keeps a ball at exactly its length from a fixed point, like a rod nailed to the
+ * 			map. An anchor with a length of zero pins the ball to the point.
+ *
+ * A spring's stiffness is the acceleration, in pixels per clock tick per clock tick, that it
+ * gives to a ball for each pixel that it is stretched or squashed, like the stiffness of the
+ * SoftParticles class.
+ *
+ * The constraints of a map are solved by the ConstraintSolver class. Chains and soft bodies are
+ * made by joining many balls with many constraints.
+ *
+ * In map files, constraints are listed after the force fields, and refer to balls by their
+ * position in the list of players, starting at 0:
+ * 		constraints: number_of_constraints
+ * 		spring: first_ball second_ball length stiffness
+ * 		rod: first_ball second_ball length
+ * 		rope: first_ball second_ball length
+ * 		anchor: ball x y length
+ *
+ * @author Adam Cogen
+ *
+ */
+public class Constraint {
+
+	public static final int SPRING = 0;
+	public static final int ROD = 1;
+	public static final int ROPE = 2;
+	public static final int ANCHOR = 3;
+	private int type; //SPRING, ROD, ROPE or ANCHOR
+	private Ball firstBall; //one of the balls that the constraint joins
+	private Ball secondBall; //the other ball that the constraint joins, or null for an anchor
+	private double x; //the x coordinate of the fixed point of an anchor
+	private double y; //the y coordinate of the fixed point of an anchor
+	private double length; //the distance that the constraint keeps its ends at
+	private double stiffness; //the stiffness of a spring
+
+	private Constraint(int initType, Ball initFirstBall, Ball initSecondBall, double initLength){
+		type = initType;
+		firstBall = initFirstBall;
+		secondBall = initSecondBall;
+		length = Math.max(0, initLength);
+	}
+
+	/**
+	 * Create a spring between two balls.
+	 * @param initLength the distance between the balls at which the spring neither pulls nor pushes
+	 * @param initStiffness the acceleration of the balls for each pixel that the spring is stretched or squashed
+	 */
+	public static Constraint createSpring(Ball initFirstBall, Ball initSecondBall, double initLength, double initStiffness){
+		Constraint constraint = new Constraint(SPRING, initFirstBall, initSecondBall, initLength);
+		constraint.stiffness = initStiffness;
+		return constraint;
+	}
+
+	/**
+	 * Create a rod, which keeps two balls at exactly the specified distance from each other.
+	 */
+	public static Constraint createRod(Ball initFirstBall, Ball initSecondBall, double initLength){
+		return new Constraint(ROD, initFirstBall, initSecondBall, initLength);
+	}
+
+	/**
+	 * Create a rope, which keeps two balls from getting further apart than the specified distance.
+	 */
+	public static Constraint createRope(Ball initFirstBall, Ball initSecondBall, double initLength){
+		return new Constraint(ROPE, initFirstBall, initSecondBall, initLength);
+	}
+
+	/**
+	 * Create an anchor, which keeps a ball at exactly the specified distance from a fixed point.
+	 */
+	public static Constraint createAnchor(Ball initBall, double initX, double initY, double initLength){
+		Constraint constraint = new Constraint(ANCHOR, initBall, null, initLength);
+		constraint.x = initX;
+		constraint.y = initY;
+		return constraint;
+	}
+
+	public int getType(){
+		return type;
+	}
+
+	public Ball getFirstBall(){
+		return firstBall;
+	}
+
+	/**
+	 * Return the second ball that this constraint joins, or null if it is an anchor
+	 */
+	public Ball getSecondBall(){
+		return secondBall;
+	}
+
+	public double getX(){
+		return x;
+	}
+
+	public double getY(){
+		return y;
+	}
+
+	public double getLength(){
+		return length;
+	}
+
+	public double getStiffness(){
+		return stiffness;
+	}
+}
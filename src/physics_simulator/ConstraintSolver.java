@@ -0,0 +1,588 @@
+package physics_simulator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * The ConstraintSolver class.
+ * Solves the springs, rods, ropes and anchors of a map (see the Constraint class) on each
+ * clock tick, before the balls are moved.
+ *
+ * The solver works on the positions that the balls are about to move to: each ball's
+ * position plus its velocity, with gravity added. Going through the constraints one at a
+ * time, it moves the two ends of each one towards or away from each other, until they are
+ * at the right distance (extended position based dynamics, where a spring only moves its
+ * ends part of the way, depending on its stiffness). Since fixing one constraint can break
+ * another one that shares a ball, this is repeated a number of times. The distance that
+ * each ball was moved is then added to its velocity, so that Physics9.moveBall() moves the
+ * ball to the corrected position, and still bounces it off of any shape in the way.
+ *
+ * Each constraint remembers how hard it had to pull or push on the last clock tick, and
+ * starts the next clock tick by pulling or pushing half as hard again (warm starting). A
+ * hanging rope or a squashed soft body pulls or pushes about as hard on each clock tick as on
+ * the one before, so the repetitions of each clock tick partly continue from where the last
+ * clock tick left off. Starting with the whole pull can make quickly swinging chains gain
+ * energy until they fly apart, so only half of it is used.
+ *
+ * Going through the constraints one at a time, a correction at one end of a chain only spreads
+ * one link further with each repetition, so a chain of thousands of links would stretch like
+ * rubber. An island that is a plain chain, without ropes, is instead solved all at once (see
+ * solveChain()), which keeps chains of thousands of links the right length on every clock
+ * tick, as long as each link is longer than the distance its ends move relative to each other
+ * in a clock tick.
+ *
+ * The balls are divided into islands: groups of balls that are joined to each other by
+ * constraints. Separate islands can't affect each other, so they are solved in parallel.
+ * The constraints within an island are always solved in the same order, so the results are
+ * the same no matter how many threads there are.
+ *
+ * A ball that is frozen in place (see Ball.freeze()), or pinned by an anchor with a length
+ * of zero, is treated as infinitely heavy, so the constraints only move the balls at their
+ * other ends. A pinned ball is put back at its anchor's point on every clock tick. Pins aren't
+ * solved like the other constraints, since the direction in which they pull changes from one
+ * repetition to the next, so a pin's pull from the last clock tick can't be used to warm start it.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ConstraintSolver {
+
+	public static final int DEFAULT_ITERATIONS = 20; //the number of times the constraints are gone through on each clock tick
+	private static final int MAXIMUM_CHAIN_ITERATIONS = 50; //the largest number of times the links of a chain are all corrected at once on each clock tick (see solveChain())
+	private static final double CHAIN_TOLERANCE = 1e-6; //the links of a chain are corrected until their lengths are off by about this many pixels or less
+	private static final int MAXIMUM_HALVINGS = 8; //the number of times a correction of a chain can be halved, if it makes the lengths worse (see solveChain())
+	private static final double WARM_START = 0.5; //the fraction of each constraint's pull from the last clock tick that it starts the next clock tick with
+	private ArrayList<Constraint> constraints; //the map's constraints
+	private double gravity; //the amount that Physics9.moveBall() adds to each ball's y velocity before moving it
+	private int iterations = DEFAULT_ITERATIONS;
+	/*
+	 * The constraints that are currently being solved: the ones whose balls are all in the
+	 * simulation. A ball that has been removed by a sink doesn't pull on the balls joined to it.
+	 * Each end is the index of a body, or -1 for the fixed point of an anchor.
+	 */
+	private int numberOfActive = 0;
+	private int[] activeConstraint = new int[0]; //the index in the constraints list of each active constraint
+	private int[] first = new int[0]; //the body at the first end of each active constraint
+	private int[] second = new int[0]; //the body at the second end of each active constraint, or -1
+	private double[] length = new double[0]; //the length of each active constraint
+	private double[] compliance = new double[0]; //one over the stiffness of each active spring, or zero for the other constraints
+	private boolean[] slack = new boolean[0]; //can the active constraint go slack, like a rope?
+	private double[] lambda = new double[0]; //how hard each active constraint pulled (negative) or pushed (positive), added up over this clock tick
+	/*
+	 * The bodies: the balls that have at least one active constraint, and the index in the
+	 * players list that each one had when the active constraints were last found.
+	 */
+	private int numberOfBodies = 0;
+	private Ball[] bodyBall = new Ball[0];
+	private int[] bodyIndex = new int[0];
+	private double[] inverseMass = new double[0]; //0 for a frozen or pinned ball, otherwise 1
+	private boolean[] pinned = new boolean[0]; //is the body pinned by an anchor with a length of zero?
+	private double[] pinX = new double[0]; //the x coordinate that a pinned body is pinned to
+	private double[] pinY = new double[0]; //the y coordinate that a pinned body is pinned to
+	private double[] startX = new double[0]; //the x coordinate that each body would move to without the constraints
+	private double[] startY = new double[0]; //the y coordinate that each body would move to without the constraints
+	private double[] x = new double[0]; //the x coordinate of each body, as the constraints are solved
+	private double[] y = new double[0]; //the y coordinate of each body, as the constraints are solved
+	/*
+	 * The islands. The active constraints of island i are at indices islandStart[i] to
+	 * islandStart[i + 1] - 1 of islandConstraint[].
+	 */
+	private int numberOfIslands = 0;
+	private int[] islandStart = new int[1];
+	private int[] islandConstraint = new int[0];
+	private boolean[] chain = new boolean[0]; //is the island a chain, which is solved all at once (see solveChain())?
+	/*
+	 * Working space for solveChain(), for each position in islandConstraint[]. Each island uses
+	 * its own part of these arrays, so that islands can be solved in parallel.
+	 */
+	private double[] normalX = new double[0]; //the direction from the second end of each constraint to its first end
+	private double[] normalY = new double[0];
+	private double[] diagonal = new double[0];
+	private double[] upper = new double[0]; //the coupling between each constraint and the next one in the chain
+	private double[] change = new double[0]; //the right hand side, and then the change in each constraint's pull
+	private int listedPlayers = -1; //the size of the players list when the active constraints were last found
+
+	/**
+	 * Construct a ConstraintSolver for the specified constraints.
+	 * @param initConstraints the map's constraints
+	 * @param initGravity the map's gravity (see Map.getGravity())
+	 */
+	public ConstraintSolver(ArrayList<Constraint> initConstraints, double initGravity){
+		constraints = initConstraints;
+		gravity = initGravity;
+	}
+
+	/**
+	 * Change the velocity of each constrained ball, so that when it is moved it ends up where the constraints put it.
+	 * This is called by Physics9.bounceModeClockTick() once per clock tick, before the balls are moved.
+	 * @param players the balls in the simulation
+	 */
+	public void apply(ArrayList<Ball> players){
+		if(constraints.size() == 0){
+			return;
+		}
+		if(needsRebuild(players)){
+			rebuild(players);
+		}
+		for(int i = 0; i < numberOfBodies; i++){
+			Ball ball = bodyBall[i];
+			if(ball.isFrozen()){
+				inverseMass[i] = 0;
+				startX[i] = ball.getXPosition();
+				startY[i] = ball.getYPosition();
+			} else {
+				inverseMass[i] = 1;
+				startX[i] = ball.getXPosition() + ball.getXVelocity();
+				startY[i] = ball.getYPosition() + ball.getYVelocity() + gravity;
+			}
+			x[i] = startX[i];
+			y[i] = startY[i];
+			if(pinned[i]){
+				inverseMass[i] = 0;
+				x[i] = pinX[i];
+				y[i] = pinY[i];
+			}
+		}
+		IntStream.range(0, numberOfIslands).parallel().forEach(island -> solveIsland(island));
+		for(int i = 0; i < numberOfBodies; i++){
+			if(inverseMass[i] > 0 || pinned[i]){
+				Ball ball = bodyBall[i];
+				ball.setXVelocity(ball.getXVelocity() + (x[i] - startX[i]));
+				ball.setYVelocity(ball.getYVelocity() + (y[i] - startY[i]));
+			}
+		}
+	}
+
+	/**
+	 * Solve the constraints of one island: start with half of each constraint's pull from the
+	 * last clock tick, then solve a chain all at once until its links are the right length, or
+	 * go through the constraints of any other island the specified number of times, forwards and
+	 * backwards in turn, so that a correction at either side of the island spreads across it quickly.
+	 */
+	private void solveIsland(int island){
+		int start = islandStart[island];
+		int end = islandStart[island + 1];
+		for(int k = start; k < end; k++){
+			int c = islandConstraint[k];
+			lambda[c] *= WARM_START;
+			move(c, lambda[c]);
+		}
+		if(chain[island]){
+			double error = Double.MAX_VALUE;
+			for(int iteration = 0; iteration < MAXIMUM_CHAIN_ITERATIONS && error > CHAIN_TOLERANCE * CHAIN_TOLERANCE * (end - start); iteration++){
+				error = solveChain(start, end);
+			}
+			return;
+		}
+		for(int iteration = 0; iteration < iterations; iteration++){
+			if(iteration % 2 == 0){
+				for(int k = start; k < end; k++){
+					solveConstraint(islandConstraint[k]);
+				}
+			} else {
+				for(int k = end - 1; k >= start; k--){
+					solveConstraint(islandConstraint[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Move the ends of an active constraint to correct its length, as far as its stiffness allows.
+	 */
+	private void solveConstraint(int c){
+		int a = first[c];
+		int b = second[c];
+		double bx = b >= 0 ? x[b] : anchorX(c);
+		double by = b >= 0 ? y[b] : anchorY(c);
+		double weightA = inverseMass[a];
+		double weightB = b >= 0 ? inverseMass[b] : 0;
+		double dx = x[a] - bx;
+		double dy = y[a] - by;
+		double distance = Math.sqrt((dx * dx) + (dy * dy));
+		if(distance == 0 || weightA + weightB == 0){
+			//the direction to move the ends in isn't known, or neither end can move
+			return;
+		}
+		double error = distance - length[c];
+		double change = (-error - (compliance[c] * lambda[c])) / (weightA + weightB + compliance[c]);
+		if(slack[c]){
+			//a rope can only pull
+			change = Math.min(lambda[c] + change, 0) - lambda[c];
+		}
+		lambda[c] += change;
+		double normalX = dx / distance;
+		double normalY = dy / distance;
+		x[a] += weightA * change * normalX;
+		y[a] += weightA * change * normalY;
+		if(b >= 0){
+			x[b] -= weightB * change * normalX;
+			y[b] -= weightB * change * normalY;
+		}
+	}
+
+	/**
+	 * Correct the lengths of all of the constraints of a chain at once. Moving one link of a
+	 * chain moves the links next to it, so the changes in the pulls of the links are found by
+	 * solving a system of linear equations, with one equation for each link. Each equation
+	 * only involves a link and the links on either side of it, so the system is tridiagonal, and
+	 * is solved in a single pass down the chain and back (the Thomas algorithm). Since the links
+	 * turn as they are corrected, this is repeated a few times (Newton's method), but unlike going
+	 * through the links one at a time, each repetition straightens out the whole chain, no matter
+	 * how many links it has. If the links turn so far that a correction makes the lengths worse
+	 * instead of better, the correction is halved until it doesn't.
+	 * @return the sum of the squares of how far each link is from its length afterwards
+	 */
+	private double solveChain(int start, int end){
+		double errorBefore = 0;
+		for(int k = start; k < end; k++){
+			int c = islandConstraint[k];
+			int a = first[c];
+			int b = second[c];
+			double dx = x[a] - (b >= 0 ? x[b] : anchorX(c));
+			double dy = y[a] - (b >= 0 ? y[b] : anchorY(c));
+			double distance = Math.sqrt((dx * dx) + (dy * dy));
+			normalX[k] = distance > 0 ? dx / distance : 0;
+			normalY[k] = distance > 0 ? dy / distance : 0;
+			diagonal[k] = inverseMass[a] + (b >= 0 ? inverseMass[b] : 0) + compliance[c];
+			change[k] = distance > 0 ? -(distance - length[c]) - (compliance[c] * lambda[c]) : 0;
+			errorBefore += change[k] * change[k];
+			if(k > start){
+				//the link before this one shares a body with it
+				int previous = islandConstraint[k - 1];
+				int shared = first[c] == first[previous] || first[c] == second[previous] ? first[c] : b;
+				double sign = (shared == first[c] ? 1 : -1) * (shared == first[previous] ? 1 : -1);
+				upper[k - 1] = sign * inverseMass[shared] * ((normalX[k - 1] * normalX[k]) + (normalY[k - 1] * normalY[k]));
+			}
+		}
+		//eliminate down the chain
+		for(int k = start + 1; k < end; k++){
+			double factor = diagonal[k - 1] > 0 ? upper[k - 1] / diagonal[k - 1] : 0;
+			diagonal[k] -= factor * upper[k - 1];
+			change[k] -= factor * change[k - 1];
+		}
+		//substitute back up the chain
+		for(int k = end - 1; k >= start; k--){
+			if(k < end - 1){
+				change[k] -= upper[k] * change[k + 1];
+			}
+			change[k] = diagonal[k] > 0 ? change[k] / diagonal[k] : 0;
+		}
+		double scale = 1;
+		moveChain(start, end, scale);
+		double errorAfter = chainError(start, end);
+		for(int halving = 0; halving < MAXIMUM_HALVINGS && errorAfter > errorBefore; halving++){
+			moveChain(start, end, -scale / 2);
+			scale /= 2;
+			errorAfter = chainError(start, end);
+		}
+		return errorAfter;
+	}
+
+	/**
+	 * Change the pull of each link of a chain by the specified fraction of the change found by
+	 * solveChain(), and move the ends of the links along the directions found there.
+	 */
+	private void moveChain(int start, int end, double fraction){
+		for(int k = start; k < end; k++){
+			int c = islandConstraint[k];
+			int a = first[c];
+			int b = second[c];
+			double amount = change[k] * fraction;
+			lambda[c] += amount;
+			x[a] += inverseMass[a] * amount * normalX[k];
+			y[a] += inverseMass[a] * amount * normalY[k];
+			if(b >= 0){
+				x[b] -= inverseMass[b] * amount * normalX[k];
+				y[b] -= inverseMass[b] * amount * normalY[k];
+			}
+		}
+	}
+
+	/**
+	 * Return the sum of the squares of how far each link of a chain is from the length its stiffness settles at
+	 */
+	private double chainError(int start, int end){
+		double error = 0;
+		for(int k = start; k < end; k++){
+			int c = islandConstraint[k];
+			int a = first[c];
+			int b = second[c];
+			double dx = x[a] - (b >= 0 ? x[b] : anchorX(c));
+			double dy = y[a] - (b >= 0 ? y[b] : anchorY(c));
+			double linkError = Math.sqrt((dx * dx) + (dy * dy)) - length[c] + (compliance[c] * lambda[c]);
+			error += linkError * linkError;
+		}
+		return error;
+	}
+
+	/**
+	 * Move the ends of an active constraint as if it pulled (negative) or pushed (positive) with the specified strength, for warm starting.
+	 */
+	private void move(int c, double strength){
+		if(strength == 0){
+			return;
+		}
+		int a = first[c];
+		int b = second[c];
+		double dx = x[a] - (b >= 0 ? x[b] : anchorX(c));
+		double dy = y[a] - (b >= 0 ? y[b] : anchorY(c));
+		double distance = Math.sqrt((dx * dx) + (dy * dy));
+		if(distance == 0){
+			return;
+		}
+		double normalX = dx / distance;
+		double normalY = dy / distance;
+		x[a] += inverseMass[a] * strength * normalX;
+		y[a] += inverseMass[a] * strength * normalY;
+		if(b >= 0){
+			x[b] -= inverseMass[b] * strength * normalX;
+			y[b] -= inverseMass[b] * strength * normalY;
+		}
+	}
+
+	private double anchorX(int c){
+		return constraints.get(activeConstraint[c]).getX();
+	}
+
+	private double anchorY(int c){
+		return constraints.get(activeConstraint[c]).getY();
+	}
+
+	/**
+	 * Do the active constraints and islands need to be found again, because balls have been
+	 * added to or removed from the simulation, or have moved around in the players list?
+	 */
+	private boolean needsRebuild(ArrayList<Ball> players){
+		if(players.size() != listedPlayers){
+			return true;
+		}
+		for(int i = 0; i < numberOfBodies; i++){
+			if(bodyIndex[i] >= players.size() || players.get(bodyIndex[i]) != bodyBall[i]){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find the active constraints and their bodies, and divide them into islands. The pulls of
+	 * the constraints from the last clock tick are forgotten.
+	 */
+	private void rebuild(ArrayList<Ball> players){
+		listedPlayers = players.size();
+		IdentityHashMap<Ball, Integer> playerIndex = new IdentityHashMap<Ball, Integer>();
+		for(int i = 0; i < players.size(); i++){
+			playerIndex.put(players.get(i), i);
+		}
+		int size = constraints.size();
+		activeConstraint = new int[size];
+		first = new int[size];
+		second = new int[size];
+		length = new double[size];
+		compliance = new double[size];
+		slack = new boolean[size];
+		lambda = new double[size];
+		bodyBall = new Ball[size * 2];
+		bodyIndex = new int[size * 2];
+		pinned = new boolean[size * 2];
+		pinX = new double[size * 2];
+		pinY = new double[size * 2];
+		IdentityHashMap<Ball, Integer> bodies = new IdentityHashMap<Ball, Integer>();
+		numberOfActive = 0;
+		numberOfBodies = 0;
+		for(int i = 0; i < size; i++){
+			Constraint constraint = constraints.get(i);
+			Ball firstBall = constraint.getFirstBall();
+			Ball secondBall = constraint.getSecondBall();
+			if(!playerIndex.containsKey(firstBall) || (secondBall != null && !playerIndex.containsKey(secondBall))){
+				continue;
+			}
+			if(constraint.getType() == Constraint.ANCHOR && constraint.getLength() == 0){
+				int body = findBody(firstBall, bodies, playerIndex);
+				pinned[body] = true;
+				pinX[body] = constraint.getX();
+				pinY[body] = constraint.getY();
+				continue;
+			}
+			int c = numberOfActive++;
+			activeConstraint[c] = i;
+			first[c] = findBody(firstBall, bodies, playerIndex);
+			second[c] = secondBall == null ? -1 : findBody(secondBall, bodies, playerIndex);
+			length[c] = constraint.getLength();
+			compliance[c] = constraint.getType() == Constraint.SPRING && constraint.getStiffness() > 0 ? 1 / constraint.getStiffness() : 0;
+			slack[c] = constraint.getType() == Constraint.ROPE;
+		}
+		inverseMass = new double[numberOfBodies];
+		startX = new double[numberOfBodies];
+		startY = new double[numberOfBodies];
+		x = new double[numberOfBodies];
+		y = new double[numberOfBodies];
+		normalX = new double[numberOfActive];
+		normalY = new double[numberOfActive];
+		diagonal = new double[numberOfActive];
+		upper = new double[numberOfActive];
+		change = new double[numberOfActive];
+		findIslands();
+	}
+
+	/**
+	 * Return the index of the body for the specified ball, adding a new body if it doesn't have one yet
+	 */
+	private int findBody(Ball ball, IdentityHashMap<Ball, Integer> bodies, IdentityHashMap<Ball, Integer> playerIndex){
+		Integer body = bodies.get(ball);
+		if(body == null){
+			body = numberOfBodies++;
+			bodies.put(ball, body);
+			bodyBall[body] = ball;
+			bodyIndex[body] = playerIndex.get(ball);
+		}
+		return body;
+	}
+
+	/**
+	 * Divide the active constraints into islands, by joining the sets of bodies at the ends of
+	 * each constraint (a union-find), then sorting the constraints by island. The islands are
+	 * numbered in the order that their first constraint appears, and keep their constraints in
+	 * the order they are listed in the map.
+	 */
+	private void findIslands(){
+		int[] parent = new int[numberOfBodies];
+		for(int i = 0; i < numberOfBodies; i++){
+			parent[i] = i;
+		}
+		for(int c = 0; c < numberOfActive; c++){
+			if(second[c] >= 0){
+				int rootA = findRoot(parent, first[c]);
+				int rootB = findRoot(parent, second[c]);
+				if(rootA != rootB){
+					parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+				}
+			}
+		}
+		int[] islandOfRoot = new int[numberOfBodies];
+		Arrays.fill(islandOfRoot, -1);
+		int[] islandOfConstraint = new int[numberOfActive];
+		numberOfIslands = 0;
+		for(int c = 0; c < numberOfActive; c++){
+			int root = findRoot(parent, first[c]);
+			if(islandOfRoot[root] == -1){
+				islandOfRoot[root] = numberOfIslands++;
+			}
+			islandOfConstraint[c] = islandOfRoot[root];
+		}
+		islandStart = new int[numberOfIslands + 1];
+		for(int c = 0; c < numberOfActive; c++){
+			islandStart[islandOfConstraint[c] + 1]++;
+		}
+		for(int i = 0; i < numberOfIslands; i++){
+			islandStart[i + 1] += islandStart[i];
+		}
+		int[] next = Arrays.copyOf(islandStart, numberOfIslands);
+		islandConstraint = new int[numberOfActive];
+		for(int c = 0; c < numberOfActive; c++){
+			islandConstraint[next[islandOfConstraint[c]]++] = c;
+		}
+		findChains();
+	}
+
+	/**
+	 * Find the islands that are chains: islands without ropes, where the constraints can be put
+	 * in a line so that each one shares a ball with the one before it and the one after it, and
+	 * no others. The constraints of a chain are put in order along it, from the end that comes
+	 * first in the map.
+	 */
+	private void findChains(){
+		//the active constraints at each body
+		int[] bodyStart = new int[numberOfBodies + 1];
+		for(int c = 0; c < numberOfActive; c++){
+			bodyStart[first[c] + 1]++;
+			if(second[c] >= 0){
+				bodyStart[second[c] + 1]++;
+			}
+		}
+		for(int i = 0; i < numberOfBodies; i++){
+			bodyStart[i + 1] += bodyStart[i];
+		}
+		int[] bodyConstraint = new int[bodyStart[numberOfBodies]];
+		int[] next = Arrays.copyOf(bodyStart, numberOfBodies);
+		for(int c = 0; c < numberOfActive; c++){
+			bodyConstraint[next[first[c]]++] = c;
+			if(second[c] >= 0){
+				bodyConstraint[next[second[c]]++] = c;
+			}
+		}
+		chain = new boolean[numberOfIslands];
+		int[] path = new int[numberOfActive];
+		for(int island = 0; island < numberOfIslands; island++){
+			int start = islandStart[island];
+			int end = islandStart[island + 1];
+			boolean possible = true;
+			int firstEnd = -1;
+			for(int k = start; k < end && possible; k++){
+				int c = islandConstraint[k];
+				int degreeA = bodyStart[first[c] + 1] - bodyStart[first[c]];
+				int degreeB = second[c] >= 0 ? bodyStart[second[c] + 1] - bodyStart[second[c]] : 0;
+				possible = !slack[c] && degreeA <= 2 && degreeB <= 2;
+				if(firstEnd == -1 && (degreeA < 2 || degreeB < 2)){
+					firstEnd = c;
+				}
+			}
+			if(!possible || firstEnd == -1){
+				//a ball with more than two constraints, a rope, or a loop
+				continue;
+			}
+			//walk along the chain from its first end
+			int length = 0;
+			int c = firstEnd;
+			int body = bodyStart[first[c] + 1] - bodyStart[first[c]] < 2 ? second[c] : first[c]; //the body at the other end of c
+			while(true){
+				path[length++] = c;
+				if(body < 0 || bodyStart[body + 1] - bodyStart[body] < 2){
+					break;
+				}
+				int nextConstraint = bodyConstraint[bodyStart[body]] == c ? bodyConstraint[bodyStart[body] + 1] : bodyConstraint[bodyStart[body]];
+				c = nextConstraint;
+				body = first[c] == body ? second[c] : first[c];
+			}
+			if(length == end - start){
+				chain[island] = true;
+				System.arraycopy(path, 0, islandConstraint, start, length);
+			}
+		}
+	}
+
+	/**
+	 * Return the root of the set that the specified body is in, shortening the path to it on the way
+	 */
+	private static int findRoot(int[] parent, int body){
+		while(parent[body] != body){
+			parent[body] = parent[parent[body]];
+			body = parent[body];
+		}
+		return body;
+	}
+
+	/**
+	 * Forget how hard each constraint pulled on the last clock tick, for example because the balls have been reset.
+	 */
+	public void reset(){
+		listedPlayers = -1;
+	}
+
+	/**
+	 * Set the number of times the constraints are gone through on each clock tick. More
+	 * iterations make rods and ropes stretch less, but take longer.
+	 */
+	public void setIterations(int initIterations){
+		iterations = Math.max(1, initIterations);
+	}
+
+	/**
+	 * Return the number of islands that the constraints were divided into when the active constraints were last found
+	 */
+	public int getNumberOfIslands(){
+		return numberOfIslands;
+	}
+}
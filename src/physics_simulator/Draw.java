@@ -16,6 +16,8 @@ public class Draw {
 	private Map map; //the map that is currently being used
 	private ArrayList<Shape> shapes; //the shape list, taken from the map
 	private ArrayList<Point> currentShape; //a list of vertices that have been added to the shape that is currently in the process of being drawn
+	private Shape rejectedShape = null; //the most recently completed shape, if it was discarded for not being simple. drawn until the next vertex is added
+	private String statusMessage = ""; //a message about the most recently completed shape, drawn beneath the mouse coordinates. empty if there is nothing to report
 
 	/**
 	 * Construct the Draw class, passing in as a parameter the map that is being used
@@ -43,11 +45,22 @@ public class Draw {
 	 * @param vertex The new Point to be added to the shape as a vertex (position is where the user clicked)
 	 */
 	public void addVertexToCurrentShape(Point vertex){
+		rejectedShape = null;
+		statusMessage = "";
 		currentShape.add(vertex);
 		//keep allowing vertices to be added to the current shape, until the required number of vertices is reached
 		if(currentShape.size() == numberOfVertices){
-			//add the completed shape to the shapes list
-			shapes.add(new Shape(currentShape));
+			//add the completed shape to the shapes list, and record it so that it can be undone
+			Shape completedShape = new Shape(currentShape);
+			//a shape whose edges cross, or whose vertices are all on one line, has no consistent inside for balls to bounce off, so it is discarded
+			if(completedShape.isSimple()){
+				shapes.add(completedShape);
+				map.getEditHistory().recordShapeCreation(shapes.size() - 1, completedShape);
+			} else {
+				//keep its outline on the screen, and say why it wasn't added
+				rejectedShape = completedShape;
+				statusMessage = "Shape discarded: its edges cross or overlap, or its vertices are all on one line";
+			}
 			//clear the currentShape ArrayList<Point>, so that it can be used again for a new shape
 			currentShape.clear();
 		}
@@ -98,6 +111,25 @@ public class Draw {
 		return shapeDrawStep;
 	}
 
+	/**
+	 * Return the most recently completed shape, if it was discarded because it isn't simple
+	 * (see Shape.isSimple()). The Window class draws its outline so the user can see what was
+	 * wrong with it, until the next vertex is added.
+	 * @return the discarded Shape, or null if the most recent shape wasn't discarded
+	 */
+	public Shape getRejectedShape(){
+		return rejectedShape;
+	}
+
+	/**
+	 * Return a message about the most recently completed shape, such as why it was discarded.
+	 * Drawn by the Window class beneath the mouse coordinates.
+	 * @return the message, or an empty String if there is nothing to report
+	 */
+	public String getStatusMessage(){
+		return statusMessage;
+	}
+
 	/**
 	 * Change the number of vertices to draw in new shapes.
 	 * Will be set to 3 for triangle draw mode, and 4 for
@@ -139,8 +139,11 @@ public class Edit {
 	 * @param newPosition the new position of the vertex
 	 */
 	public void moveShapeVertex(int shapeIndex, int vertexIndex, Point newPosition){
-		ArrayList<Shape> shapes = map.getShapeList();
-		shapes.get(shapeIndex).moveVertex(vertexIndex, newPosition);
+		Shape shape = map.getShapeList().get(shapeIndex);
+		//the move is recorded in the shape's rest pose, which is where the vertex is unless the shape moves on its own
+		Point oldPosition = new Point(shape.getRestX(vertexIndex), shape.getRestY(vertexIndex));
+		shape.moveVertex(vertexIndex, newPosition);
+		map.getEditHistory().recordVertexMove(shapeIndex, vertexIndex, oldPosition, new Point(shape.getRestX(vertexIndex), shape.getRestY(vertexIndex)));
 	}
 
 	/**
@@ -156,9 +159,19 @@ public class Edit {
 	 */
 	public void moveShape(int shapeIndex, int selectedVertexIndex, Point newPosition){
 		ArrayList<Shape> shapes = map.getShapeList();
+		map.getEditHistory().recordShapeMove(shapeIndex);
 		shapes.get(shapeIndex).moveShape(selectedVertexIndex, newPosition);
 	}
 
+	/**
+	 * End the current click and drag, so that the next vertex or shape move is
+	 * recorded as a new change in the Map's EditHistory, instead of being merged
+	 * into the previous one. Called by the Window class when the mouse is released.
+	 */
+	public void endDrag(){
+		map.getEditHistory().endDrag();
+	}
+
 	/**
 	 * Return the value of the vertexCircleRadius field. See the comments written above
 	 * the field for a description of what this value means.
@@ -174,6 +187,6 @@ public class Edit {
 	 */
 	public void deleteShape(int index){
 		ArrayList<Shape> shapes = map.getShapeList();
-		shapes.remove(index);
+		map.getEditHistory().recordShapeDeletion(index, shapes.remove(index));
 	}
 }
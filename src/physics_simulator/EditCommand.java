@@ -0,0 +1,171 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The EditCommand class.
+ * Stores a single change that was made to the shapes list in edit or draw mode,
+ * so that it can be undone and redone by the EditHistory class.
+ * Only the difference between the old and new state is stored: a moved vertex
+ * stores its old and new coordinates, and a moved shape stores the old and new
+ * coordinates of its vertices. Coordinates are stored in the shape's rest pose
+ * (see Shape.getRestX()), so undoing an edit of a kinematic shape that has moved
+ * on its own since then leaves it where it is in its motion. Only created and deleted shapes hold on to a Shape instance, since
+ * the Shape itself is what was added or removed.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class EditCommand {
+
+	public static final int MOVE_VERTEX = 0; //a single vertex of a shape was moved
+	public static final int MOVE_SHAPE = 1; //an entire shape was moved
+	public static final int CREATE_SHAPE = 2; //a shape was drawn and added to the shapes list
+	public static final int DELETE_SHAPE = 3; //a shape was removed from the shapes list
+
+	private int type; //which kind of change this is. see the constants above
+	private int shapeIndex; //the index of the changed shape in the Map's shapes ArrayList
+	private int vertexIndex; //the index of the moved vertex in the shape's vertices[] array. only used by MOVE_VERTEX
+	/*
+	 * MOVE_VERTEX: (x0, y0) is the old position of the vertex in the rest pose and (x1, y1) is its new position.
+	 * MOVE_SHAPE: unused. see oldCoordinates and newCoordinates.
+	 */
+	private double x0;
+	private double y0;
+	private double x1;
+	private double y1;
+	private Shape shape; //the shape that was created or deleted. only used by CREATE_SHAPE and DELETE_SHAPE
+	/*
+	 * MOVE_SHAPE: the rest pose of the shape before and after the move, from Shape.getRestCoordinates().
+	 * moving a shape by many small steps rounds each vertex a little differently on each step, so undoing
+	 * a long drag by moving the shape back the total distance wouldn't put it exactly where it started.
+	 */
+	private double[] oldCoordinates;
+	private double[] newCoordinates;
+
+	private EditCommand(int initType, int initShapeIndex){
+		type = initType;
+		shapeIndex = initShapeIndex;
+		vertexIndex = -1;
+	}
+
+	/**
+	 * Create a command describing a vertex that was moved from one position to another.
+	 */
+	public static EditCommand vertexMove(int shapeIndex, int vertexIndex, double oldX, double oldY, double newX, double newY){
+		EditCommand command = new EditCommand(MOVE_VERTEX, shapeIndex);
+		command.vertexIndex = vertexIndex;
+		command.x0 = oldX;
+		command.y0 = oldY;
+		command.x1 = newX;
+		command.y1 = newY;
+		return command;
+	}
+
+	/**
+	 * Create a command describing a shape that is about to be moved, recording where its vertices are
+	 * now. Where they end up is recorded by setShapeMoveEnd(), once the shape has been moved.
+	 */
+	public static EditCommand shapeMove(int shapeIndex, Shape movedShape){
+		EditCommand command = new EditCommand(MOVE_SHAPE, shapeIndex);
+		command.oldCoordinates = movedShape.getRestCoordinates();
+		command.newCoordinates = command.oldCoordinates;
+		return command;
+	}
+
+	/**
+	 * Create a command describing a shape that was added to the shapes list at the specified index.
+	 */
+	public static EditCommand shapeCreation(int shapeIndex, Shape createdShape){
+		EditCommand command = new EditCommand(CREATE_SHAPE, shapeIndex);
+		command.shape = createdShape;
+		return command;
+	}
+
+	/**
+	 * Create a command describing a shape that was removed from the specified index of the shapes list.
+	 */
+	public static EditCommand shapeDeletion(int shapeIndex, Shape deletedShape){
+		EditCommand command = new EditCommand(DELETE_SHAPE, shapeIndex);
+		command.shape = deletedShape;
+		return command;
+	}
+
+	/**
+	 * Try to merge a newer command into this one, so that a continuous drag of a vertex
+	 * or a shape is stored as a single journal entry instead of one entry per mouse event.
+	 * Only moves of the same vertex or the same shape can be merged.
+	 * @param newer the command that was recorded after this one
+	 * @return true if the newer command was merged into this one, false otherwise
+	 */
+	public boolean coalesce(EditCommand newer){
+		if(type != newer.type || shapeIndex != newer.shapeIndex){
+			return false;
+		}
+		if(type == MOVE_VERTEX && vertexIndex == newer.vertexIndex){
+			//keep the original starting position, and take the newest end position
+			x1 = newer.x1;
+			y1 = newer.y1;
+			return true;
+		} else if(type == MOVE_SHAPE){
+			//keep the original starting position. the end position is set once, when the drag ends
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Record where the vertices of a moved shape ended up. Called by the EditHistory class when
+	 * a drag ends, after the last move of the drag.
+	 * @param movedShape the shape that was moved
+	 */
+	void setShapeMoveEnd(Shape movedShape){
+		newCoordinates = movedShape.getRestCoordinates();
+	}
+
+	/**
+	 * Reverse this change in the specified shapes list.
+	 * @param shapes the Map's shapes ArrayList
+	 */
+	public void undo(ArrayList<Shape> shapes){
+		if(type == MOVE_VERTEX){
+			shapes.get(shapeIndex).setRestVertex(vertexIndex, x0, y0);
+		} else if(type == MOVE_SHAPE){
+			shapes.get(shapeIndex).setRestCoordinates(oldCoordinates);
+		} else if(type == CREATE_SHAPE){
+			shapes.remove(shapeIndex);
+		} else if(type == DELETE_SHAPE){
+			shapes.add(shapeIndex, shape);
+		}
+	}
+
+	/**
+	 * Apply this change again to the specified shapes list, after it has been undone.
+	 * @param shapes the Map's shapes ArrayList
+	 */
+	public void redo(ArrayList<Shape> shapes){
+		if(type == MOVE_VERTEX){
+			shapes.get(shapeIndex).setRestVertex(vertexIndex, x1, y1);
+		} else if(type == MOVE_SHAPE){
+			shapes.get(shapeIndex).setRestCoordinates(newCoordinates);
+		} else if(type == CREATE_SHAPE){
+			shapes.add(shapeIndex, shape);
+		} else if(type == DELETE_SHAPE){
+			shapes.remove(shapeIndex);
+		}
+	}
+
+	/**
+	 * Return which kind of change this command describes
+	 * @return MOVE_VERTEX, MOVE_SHAPE, CREATE_SHAPE or DELETE_SHAPE
+	 */
+	public int getType(){
+		return type;
+	}
+
+	/**
+	 * Return the index of the changed shape in the Map's shapes ArrayList
+	 */
+	public int getShapeIndex(){
+		return shapeIndex;
+	}
+}
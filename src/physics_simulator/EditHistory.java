@@ -0,0 +1,183 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The EditHistory class.
+ * A journal of the changes made to a Map's shapes list while editing and drawing,
+ * which allows those changes to be undone and redone without reloading the map file.
+ * Each change is stored as an EditCommand, which only records the difference
+ * between the old and new state of the map, so undoing or redoing a change only
+ * costs as much as the change itself. The journal is capped at MAX_ENTRIES entries,
+ * and the oldest entries are forgotten once the cap is reached, so that a long
+ * editing session can't use up an unbounded amount of memory.
+ *
+ * Clicking and dragging a vertex or a shape moves it once per mouse event. While
+ * a drag is in progress, these moves are merged into a single entry, so that a
+ * whole drag is undone at once. The Window class ends the drag when the mouse is
+ * released, by calling endDrag(). A dragged shape's entry keeps where the shape's
+ * vertices were when the drag started, and where they were when it ended, rather
+ * than adding up the distance of every mouse event.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class EditHistory {
+
+	private static final int MAX_ENTRIES = 500; //the maximum number of changes that can be undone
+	private ArrayList<Shape> shapes; //the shapes list of the Map that this history belongs to
+	private ArrayList<EditCommand> undoList; //changes that can be undone, most recent change last
+	private ArrayList<EditCommand> redoList; //changes that have been undone and can be redone, most recently undone change last
+	private boolean dragInProgress = false; //is the mouse currently being dragged? if so, moves are merged into the most recent entry
+	private int revision = 0; //incremented every time the shapes list is changed, including by undo and redo
+
+	/**
+	 * Construct an empty EditHistory for the specified shapes list.
+	 * @param initShapes the shapes ArrayList of the Map this history belongs to
+	 */
+	public EditHistory(ArrayList<Shape> initShapes){
+		shapes = initShapes;
+		undoList = new ArrayList<EditCommand>();
+		redoList = new ArrayList<EditCommand>();
+	}
+
+	/**
+	 * Record that a vertex was moved. Consecutive moves of the same vertex within
+	 * a single drag are stored as one entry.
+	 * @param shapeIndex the index of the shape in the Map's shapes ArrayList
+	 * @param vertexIndex the index of the vertex in the shape's vertices[] array
+	 * @param oldPosition the position of the vertex in the shape's rest pose before it was moved (see Shape.getRestX())
+	 * @param newPosition the position of the vertex in the shape's rest pose after it was moved
+	 */
+	public void recordVertexMove(int shapeIndex, int vertexIndex, Point oldPosition, Point newPosition){
+		record(EditCommand.vertexMove(shapeIndex, vertexIndex, oldPosition.getX(), oldPosition.getY(), newPosition.getX(), newPosition.getY()), true);
+	}
+
+	/**
+	 * Record that a shape is about to be moved. Call this before moving the shape, so that
+	 * its starting position can be recorded. Consecutive moves of the same shape within a
+	 * single drag are stored as one entry, and where the shape ended up is recorded by endDrag().
+	 * @param shapeIndex the index of the shape in the Map's shapes ArrayList
+	 */
+	public void recordShapeMove(int shapeIndex){
+		if(dragInProgress && undoList.size() > 0 && undoList.get(undoList.size() - 1).getType() == EditCommand.MOVE_SHAPE
+				&& undoList.get(undoList.size() - 1).getShapeIndex() == shapeIndex){
+			//the same drag is continuing, so the starting position is already recorded
+			revision++;
+			redoList.clear();
+			return;
+		}
+		record(EditCommand.shapeMove(shapeIndex, shapes.get(shapeIndex)), true);
+	}
+
+	/**
+	 * Record that a shape was drawn and added to the shapes list.
+	 * @param shapeIndex the index the shape was added at in the Map's shapes ArrayList
+	 * @param shape the shape that was added
+	 */
+	public void recordShapeCreation(int shapeIndex, Shape shape){
+		record(EditCommand.shapeCreation(shapeIndex, shape), false);
+	}
+
+	/**
+	 * Record that a shape was removed from the shapes list.
+	 * @param shapeIndex the index the shape was removed from in the Map's shapes ArrayList
+	 * @param shape the shape that was removed
+	 */
+	public void recordShapeDeletion(int shapeIndex, Shape shape){
+		record(EditCommand.shapeDeletion(shapeIndex, shape), false);
+	}
+
+	/**
+	 * Add a command to the undo list, merging it into the most recent entry if
+	 * a drag is in progress. Any changes that were undone can no longer be redone
+	 * once a new change is made.
+	 * @param command the change to record
+	 * @param isDrag true if the change was made by dragging the mouse
+	 */
+	private void record(EditCommand command, boolean isDrag){
+		revision++;
+		redoList.clear();
+		if(isDrag && dragInProgress && undoList.size() > 0 && undoList.get(undoList.size() - 1).coalesce(command)){
+			return;
+		}
+		//this is a new entry, so finish the previous drag before it
+		endDrag();
+		undoList.add(command);
+		if(undoList.size() > MAX_ENTRIES){
+			undoList.remove(0);
+		}
+		dragInProgress = isDrag;
+	}
+
+	/**
+	 * End the current drag, if there is one. The next move will start a new entry.
+	 * Called by the Window class when the mouse is released in edit mode.
+	 */
+	public void endDrag(){
+		if(dragInProgress && undoList.size() > 0){
+			EditCommand command = undoList.get(undoList.size() - 1);
+			if(command.getType() == EditCommand.MOVE_SHAPE && command.getShapeIndex() < shapes.size()){
+				command.setShapeMoveEnd(shapes.get(command.getShapeIndex()));
+			}
+		}
+		dragInProgress = false;
+	}
+
+	/**
+	 * Undo the most recent change, if there is one.
+	 * @return true if a change was undone, false if there was nothing to undo
+	 */
+	public boolean undo(){
+		endDrag();
+		if(undoList.size() == 0){
+			return false;
+		}
+		EditCommand command = undoList.remove(undoList.size() - 1);
+		command.undo(shapes);
+		revision++;
+		redoList.add(command);
+		return true;
+	}
+
+	/**
+	 * Redo the most recently undone change, if there is one.
+	 * @return true if a change was redone, false if there was nothing to redo
+	 */
+	public boolean redo(){
+		endDrag();
+		if(redoList.size() == 0){
+			return false;
+		}
+		EditCommand command = redoList.remove(redoList.size() - 1);
+		command.redo(shapes);
+		revision++;
+		undoList.add(command);
+		return true;
+	}
+
+	/**
+	 * Return a number that changes every time the shapes list is edited. Classes that
+	 * keep data derived from the shapes, such as the Physics class's broad phase grid,
+	 * compare this number to the value they last saw to find out if they are out of date.
+	 * @return the current revision number of the shapes list
+	 */
+	public int getRevision(){
+		return revision;
+	}
+
+	/**
+	 * Is there a change that can be undone?
+	 * @return true if the undo list is not empty
+	 */
+	public boolean canUndo(){
+		return undoList.size() > 0;
+	}
+
+	/**
+	 * Is there a change that can be redone?
+	 * @return true if the redo list is not empty
+	 */
+	public boolean canRedo(){
+		return redoList.size() > 0;
+	}
+}
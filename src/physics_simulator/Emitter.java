@@ -0,0 +1,122 @@
+package physics_simulator;
+import java.awt.Color;
+
+/**
+ * The Emitter class.
+ * A rectangular region of the map that spawns new balls at a steady rate while the
+ * simulation is running. New balls appear at a random position inside the region,
+ * with the emitter's starting velocity and color. Together with the Sink class, this
+ * lets a map contain a continuous stream of balls, instead of a fixed set.
+ *
+ * The rate can be a fraction, such as 0.25 for one ball every four clock ticks. The
+ * fractional part is carried over from one clock tick to the next, so the long run
+ * average is exactly the specified rate.
+ *
+ * In map files, emitters are listed after the shapes:
+ * 		emitters: number_of_emitters
+ * 		emitter: x y width height balls_per_tick x_velocity y_velocity red green blue
+ *
+ * @author Adam Cogen
+ *
+ */
+public class Emitter {
+
+	private double x; //the x coordinate of the left side of the region
+	private double y; //the y coordinate of the top side of the region
+	private double width; //the width of the region
+	private double height; //the height of the region
+	private double rate; //the number of balls spawned per clock tick, on average
+	private double xVelocity; //the starting x velocity of each spawned ball
+	private double yVelocity; //the starting y velocity of each spawned ball
+	private Color color; //the color of each spawned ball
+	private double owed = 0; //the fraction of a ball that is carried over to the next clock tick
+	private int material = 0; //the index of each spawned ball's material in the map's MaterialTable
+
+	/**
+	 * Construct an Emitter.
+	 * @param initX the x coordinate of the left side of the region
+	 * @param initY the y coordinate of the top side of the region
+	 * @param initWidth the width of the region
+	 * @param initHeight the height of the region
+	 * @param initRate the number of balls to spawn per clock tick, on average
+	 * @param initXVelocity the starting x velocity of each spawned ball
+	 * @param initYVelocity the starting y velocity of each spawned ball
+	 * @param initColor the color of each spawned ball
+	 */
+	public Emitter(double initX, double initY, double initWidth, double initHeight, double initRate, double initXVelocity, double initYVelocity, Color initColor){
+		x = initX;
+		y = initY;
+		width = initWidth;
+		height = initHeight;
+		rate = initRate;
+		xVelocity = initXVelocity;
+		yVelocity = initYVelocity;
+		color = initColor;
+	}
+
+	/**
+	 * Return the number of balls that should be spawned during the current clock tick,
+	 * and carry the leftover fraction over to the next one.
+	 * @return the number of balls to spawn
+	 */
+	public int ballsDue(){
+		owed += rate;
+		int due = (int) owed;
+		owed -= due;
+		return due;
+	}
+
+	/**
+	 * Forget any fraction of a ball carried over from earlier clock ticks.
+	 * Called when the balls are reset, so that a reset map behaves the same as a newly loaded one.
+	 */
+	public void reset(){
+		owed = 0;
+	}
+
+	public double getX(){
+		return x;
+	}
+
+	public double getY(){
+		return y;
+	}
+
+	public double getWidth(){
+		return width;
+	}
+
+	public double getHeight(){
+		return height;
+	}
+
+	public double getRate(){
+		return rate;
+	}
+
+	public double getXVelocity(){
+		return xVelocity;
+	}
+
+	public double getYVelocity(){
+		return yVelocity;
+	}
+
+	public Color getColor(){
+		return color;
+	}
+
+	/**
+	 * Return the index of each spawned ball's material in the map's MaterialTable
+	 */
+	public int getMaterial(){
+		return material;
+	}
+
+	/**
+	 * Set the index of each spawned ball's material in the map's MaterialTable
+	 */
+	public void setMaterial(int initMaterial){
+		material = initMaterial;
+	}
+}
@@ -0,0 +1,396 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The EventDrivenPhysics class.
+ * An alternative to moving every ball on every clock tick. Between collisions, a ball only
+ * moves under gravity, so its position on any later clock tick can be calculated directly
+ * (see InflatedGeometry.predictContactTick()). Instead of checking for collisions on every
+ * clock tick, this class predicts the first clock tick on which each ball may collide with
+ * something, and keeps those predictions in a priority queue ordered by time. The simulation
+ * then jumps straight from one predicted collision to the next. Only the ball involved in a
+ * collision is moved normally (using Physics9.moveBall(), so collisions are handled exactly
+ * like in the Physics class) and has its prediction updated, so every other ball is left alone.
+ *
+ * Each ball's motion is stored as a starting clock tick, position and velocity, and its
+ * position is only calculated from those when something needs it, such as the window
+ * drawing the balls (see updateBalls()). Moving forward therefore only costs as much as
+ * the collisions in between, even one clock tick at a time. When the balls are changed by
+ * something else, such as the mouse, every prediction is thrown away and made again (see reset()).
+ *
+ * Since collisions are handled by the same code, and the closed form position is exactly
+ * where the stepped simulation would have put the ball, the balls follow the same paths as
+ * in the Physics class, apart from rounding differences.
+ *
+ * Emitters, sinks and kinematic shapes change the simulation on every clock tick, and force
+ * fields change the balls' paths, so maps with any of them have to use the Physics class
+ * instead (see canRun()).
+ *
+ * @author Adam Cogen
+ *
+ */
+public class EventDrivenPhysics {
+
+	private static final int HORIZON = 256; //the furthest ahead a collision is ever predicted, in clock ticks. a ball with no collision in that time is simply predicted again
+	private static final double MAXIMUM_TRAVEL = 200; //the furthest a ball's path is followed when predicting, in pixels, so that only the shapes near the ball need to be checked
+	private Physics9 physics; //moves balls through the clock ticks where they may collide with something
+	private Map map;
+	private ArrayList<Ball> players;
+	private ArrayList<Shape> shapes;
+	private double gravity; //the amount added to each ball's y velocity on each clock tick
+	private long currentTick = 0; //the number of clock ticks that have passed
+	private int revision = -1; //the revision of the shapes list (see EditHistory.getRevision()) that the predictions were made with
+	private int[] candidateShapes = new int[0]; //the indices of the shapes near the path of the ball that is being predicted
+	/*
+	 * The motion of each ball since its last collision: on clock tick baseTick[i], ball i was at
+	 * (baseX[i], baseY[i]) with velocity (baseXVelocity[i], baseYVelocity[i]).
+	 */
+	private long[] baseTick = new long[0];
+	private double[] baseX = new double[0];
+	private double[] baseY = new double[0];
+	private double[] baseXVelocity = new double[0];
+	private double[] baseYVelocity = new double[0];
+	private boolean[] frozen = new boolean[0]; //was each ball frozen when its motion was last set?
+	private boolean ballsUpToDate = true; //are the balls' positions and velocities the ones for the current clock tick?
+	private BatchKernels kernels = BatchKernels.create(); //finds the current position of every ball at once, when the balls are updated
+	private double[] elapsedTicks = new double[0]; //the number of clock ticks since each ball's base clock tick, for the kernels
+	private double[] currentX = new double[0]; //the current x position of each ball, found by the kernels
+	private double[] currentY = new double[0]; //the current y position of each ball, found by the kernels
+	private double[] currentYVelocity = new double[0]; //the current y velocity of each ball, found by the kernels
+	/*
+	 * The priority queue of predicted collisions, stored as a binary min heap ordered by time,
+	 * with each entry split across two arrays so that nothing is allocated per prediction.
+	 */
+	private long[] eventTick = new long[16];
+	private int[] eventBall = new int[16];
+	private int numberOfEvents = 0;
+	private long eventsHandled = 0; //the number of valid predictions that have come up, for measuring performance
+
+	/**
+	 * Construct an EventDrivenPhysics for a map.
+	 * @param initMap the map to simulate
+	 * @param initPhysics the Physics instance for the same map, which is used to handle collisions
+	 */
+	public EventDrivenPhysics(Map initMap, Physics9 initPhysics){
+		map = initMap;
+		physics = initPhysics;
+		gravity = physics.getGravity();
+		players = map.getPlayerList();
+		shapes = map.getShapeList();
+	}
+
+	/**
+	 * Return whether the specified map can be simulated by this class.
+	 * Emitters, sinks and moving shapes change the map on every clock tick, and force fields
+	 * and constraints bend the balls' paths away from the ones predicted under gravity alone, so maps with any of them can't be.
+	 */
+	public static boolean canRun(Map map){
+		if(map.getEmitterList().size() > 0 || map.getSinkList().size() > 0 || map.getForceFieldList().size() > 0 || map.getConstraintList().size() > 0){
+			return false;
+		}
+		for(int i = 0; i < map.getShapeList().size(); i++){
+			if(map.getShapeList().get(i).isKinematic()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Move the simulation forward by one clock tick, and update the positions of the balls.
+	 * This is called by the simulation timer in place of Physics9.bounceModeClockTick().
+	 */
+	public void bounceModeClockTick(){
+		advance(1);
+	}
+
+	/**
+	 * Move the simulation forward by the specified number of clock ticks. Only the predicted
+	 * collisions in between are handled, and only the balls involved in them are moved, so
+	 * this takes about the same time whether ticks is 1 or 1000, as long as the number of
+	 * collisions is the same. The other balls are left where they were until updateBalls()
+	 * is called.
+	 * @param ticks the number of clock ticks to move forward by
+	 */
+	public void advance(int ticks){
+		physics.updateBroadPhase();
+		if(revision != map.getEditHistory().getRevision() || baseTick.length != players.size()){
+			//the shapes or balls have changed, so every prediction is out of date
+			updateBalls();
+			predictAll();
+		}
+		long target = currentTick + ticks;
+		while(numberOfEvents > 0 && eventTick[0] <= target){
+			long tick = eventTick[0];
+			int ball = eventBall[0];
+			removeFirstEvent();
+			handleEvent(ball, tick, target);
+			physics.ballsMoved();
+		}
+		currentTick = target;
+		ballsUpToDate = false;
+	}
+
+	/**
+	 * Handle a predicted collision: move the ball to where it is just before the clock tick
+	 * of the prediction, then move it through that clock tick normally, and predict again.
+	 * Balls don't collide with each other, so the order in which different balls' collisions
+	 * are handled doesn't matter. This means that if the ball's next predicted collision also
+	 * comes before the target clock tick, it can be handled right away, without going through
+	 * the queue. A ball resting or rolling on a surface is handled on every clock tick, so that
+	 * it follows the edge it is on (see Physics9.followContact()) exactly like in the Physics class.
+	 * @param i the index of the ball
+	 * @param tick the clock tick of the predicted collision
+	 * @param target the clock tick the simulation is being moved forward to
+	 */
+	private void handleEvent(int i, long tick, long target){
+		Ball ball = players.get(i);
+		while(true){
+			eventsHandled++;
+			moveToTick(i, tick - 1);
+			physics.moveBall(ball);
+			physics.keepInsideBorder(ball);
+			setBase(i, tick);
+			long next = tick + predict(i);
+			if(ball.getContactShape() != -1){
+				//the ball is resting or rolling on an edge, so it is slid along the edge on every clock tick, like in the Physics class
+				next = tick + 1;
+			}
+			if(next > target){
+				addEvent(next, i);
+				return;
+			}
+			tick = next;
+		}
+	}
+
+	/**
+	 * Set the position and velocity of a ball to where they would be on the specified clock
+	 * tick, if the ball moved under gravity alone from its base state. The edge the ball is
+	 * resting on is kept: a ball with one is handled on every clock tick, so it is still where
+	 * the Physics class left it.
+	 */
+	private void moveToTick(int i, long tick){
+		long n = tick - baseTick[i];
+		Ball ball = players.get(i);
+		ball.setPositionKeepingContact(baseX[i] + (n * baseXVelocity[i]), baseY[i] + (n * baseYVelocity[i]) + (gravity * n * (n + 1) / 2));
+		ball.setXVelocity(baseXVelocity[i]);
+		ball.setYVelocity(baseYVelocity[i] + (n * gravity));
+	}
+
+	/**
+	 * Make the ball's current position and velocity its new base state, starting on the
+	 * specified clock tick. The ball has to be given a new prediction afterwards.
+	 */
+	private void setBase(int i, long tick){
+		Ball ball = players.get(i);
+		baseTick[i] = tick;
+		baseX[i] = ball.getXPosition();
+		baseY[i] = ball.getYPosition();
+		baseXVelocity[i] = ball.getXVelocity();
+		baseYVelocity[i] = ball.getYVelocity();
+	}
+
+	/**
+	 * Predict the next clock tick on which a ball may collide with something. The ball's path is followed until it has travelled
+	 * MAXIMUM_TRAVEL pixels, or for HORIZON clock ticks, whichever comes first. If nothing is
+	 * in the way by then, the "collision" is just a point where the ball gets predicted again.
+	 * @param i the index of the ball
+	 * @return the number of clock ticks after the ball's base clock tick that the collision may happen on
+	 */
+	private int predict(int i){
+		Ball ball = players.get(i);
+		int radius = ball.getRadius();
+		double px = baseX[i];
+		double py = baseY[i];
+		double vx = baseXVelocity[i];
+		double vy = baseYVelocity[i];
+		//the number of clock ticks it takes for the ball to travel MAXIMUM_TRAVEL pixels at most
+		double reach = Math.sqrt((vx * vx) + (vy * vy)) + (Math.abs(gravity) / 2);
+		double limit = (gravity == 0) ? MAXIMUM_TRAVEL / Math.max(reach, 1e-9) : (-reach + Math.sqrt((reach * reach) + (2 * Math.abs(gravity) * MAXIMUM_TRAVEL))) / Math.abs(gravity);
+		int horizon = (int) Math.max(1, Math.min(HORIZON, Math.floor(limit)));
+		//the bounding box of the ball's path up to the horizon. the y position is a parabola
+		//in the clock tick number, so its extremes are at either end, or at the top of the parabola
+		double endX = px + (horizon * vx);
+		double endY = py + (horizon * vy) + (gravity * horizon * (horizon + 1) / 2);
+		double minY = Math.min(py, endY);
+		double maxY = Math.max(py, endY);
+		if(gravity != 0){
+			double top = -(vy + (gravity / 2)) / gravity;
+			if(top > 0 && top < horizon){
+				double topY = py + (top * vy) + (gravity * top * (top + 1) / 2);
+				minY = Math.min(minY, topY);
+				maxY = Math.max(maxY, topY);
+			}
+		}
+		if(candidateShapes.length < shapes.size()){
+			candidateShapes = new int[shapes.size()];
+		}
+		int numberOfCandidates = physics.queryShapes(Math.min(px, endX) - radius - 1, minY - radius - 1, Math.max(px, endX) + radius + 1, maxY + radius + 1, candidateShapes);
+		int ticks = horizon;
+		if(numberOfCandidates > 0){
+			ticks = physics.getInflatedGeometry(radius).predictContactTick(px, py, vx, vy, gravity, horizon, candidateShapes, numberOfCandidates);
+		}
+		return ticks;
+	}
+
+	/**
+	 * Predict the next clock tick on which a ball may collide with something, and add that
+	 * prediction to the queue.
+	 */
+	private void schedule(int i){
+		if(frozen[i]){
+			//a frozen ball stays where it is until it is unfrozen, and reset() is called
+			return;
+		}
+		if(players.get(i).getContactShape() != -1){
+			addEvent(baseTick[i] + 1, i);
+			return;
+		}
+		addEvent(baseTick[i] + predict(i), i);
+	}
+
+	/**
+	 * Throw away every prediction, and predict again for every ball, starting from where the
+	 * balls are now. The balls have to be up to date (see updateBalls()) before this is called.
+	 */
+	private void predictAll(){
+		revision = map.getEditHistory().getRevision();
+		int count = players.size();
+		if(baseTick.length != count){
+			baseTick = new long[count];
+			baseX = new double[count];
+			baseY = new double[count];
+			baseXVelocity = new double[count];
+			baseYVelocity = new double[count];
+			frozen = new boolean[count];
+			elapsedTicks = new double[count];
+			currentX = new double[count];
+			currentY = new double[count];
+			currentYVelocity = new double[count];
+		}
+		numberOfEvents = 0;
+		for(int i = 0; i < count; i++){
+			frozen[i] = players.get(i).isFrozen();
+			setBase(i, currentTick);
+			schedule(i);
+		}
+		ballsUpToDate = true;
+	}
+
+	/**
+	 * Throw away every prediction, and predict again for every ball, starting from where the
+	 * balls are now. Call this after the balls have been moved, frozen, unfrozen or given new
+	 * velocities by something else, such as Physics9.resetBalls() or the mouse. If the balls
+	 * were changed by something that only set some of their values, such as their velocities,
+	 * call updateBalls() before changing them, so that the rest are up to date too.
+	 */
+	public void reset(){
+		predictAll();
+	}
+
+	/**
+	 * Set the position and velocity of every ball to where they should be on the current clock
+	 * tick. This is called by the window before the balls are drawn, and has to be called before
+	 * anything else reads the balls, since advance() leaves the balls that didn't collide where
+	 * they were. The positions are all found at once by the BatchKernels, then copied into the
+	 * balls. A frozen ball stays where it is, but gravity still builds up its velocity, like in
+	 * the Physics class. Does nothing if the balls are already up to date.
+	 */
+	public void updateBalls(){
+		if(ballsUpToDate){
+			return;
+		}
+		ballsUpToDate = true;
+		//balls added since the last prediction are still where they were added
+		int count = Math.min(players.size(), baseTick.length);
+		for(int i = 0; i < count; i++){
+			elapsedTicks[i] = currentTick - baseTick[i];
+		}
+		kernels.project(baseX, baseY, baseXVelocity, baseYVelocity, elapsedTicks, count, gravity, currentX, currentY, currentYVelocity);
+		for(int i = 0; i < count; i++){
+			Ball ball = players.get(i);
+			if(!frozen[i]){
+				ball.setPositionKeepingContact(currentX[i], currentY[i]);
+				ball.setXVelocity(baseXVelocity[i]);
+			}
+			ball.setYVelocity(currentYVelocity[i]);
+		}
+		physics.ballsMoved();
+	}
+
+	/**
+	 * Add a prediction to the priority queue.
+	 */
+	private void addEvent(long tick, int ball){
+		if(numberOfEvents == eventTick.length){
+			long[] newEventTick = new long[numberOfEvents * 2];
+			int[] newEventBall = new int[numberOfEvents * 2];
+			System.arraycopy(eventTick, 0, newEventTick, 0, numberOfEvents);
+			System.arraycopy(eventBall, 0, newEventBall, 0, numberOfEvents);
+			eventTick = newEventTick;
+			eventBall = newEventBall;
+		}
+		//add the prediction at the bottom of the heap, then move it up until its parent is earlier
+		int position = numberOfEvents;
+		numberOfEvents++;
+		while(position > 0){
+			int parent = (position - 1) / 2;
+			if(eventTick[parent] <= tick){
+				break;
+			}
+			setEvent(position, eventTick[parent], eventBall[parent]);
+			position = parent;
+		}
+		setEvent(position, tick, ball);
+	}
+
+	/**
+	 * Remove the earliest prediction from the priority queue.
+	 */
+	private void removeFirstEvent(){
+		numberOfEvents--;
+		if(numberOfEvents == 0){
+			return;
+		}
+		//move the last prediction to the top of the heap, then move it down until both of its children are later
+		long tick = eventTick[numberOfEvents];
+		int ball = eventBall[numberOfEvents];
+		int position = 0;
+		while(true){
+			int child = (2 * position) + 1;
+			if(child >= numberOfEvents){
+				break;
+			}
+			if(child + 1 < numberOfEvents && eventTick[child + 1] < eventTick[child]){
+				child++;
+			}
+			if(tick <= eventTick[child]){
+				break;
+			}
+			setEvent(position, eventTick[child], eventBall[child]);
+			position = child;
+		}
+		setEvent(position, tick, ball);
+	}
+
+	private void setEvent(int position, long tick, int ball){
+		eventTick[position] = tick;
+		eventBall[position] = ball;
+	}
+
+	/**
+	 * Return the number of predicted collisions that have been handled so far.
+	 * Each one costs about as much as moving one ball for one clock tick in the Physics class.
+	 */
+	public long getEventsHandled(){
+		return eventsHandled;
+	}
+
+	/**
+	 * Return the number of clock ticks that have passed.
+	 */
+	public long getCurrentTick(){
+		return currentTick;
+	}
+}
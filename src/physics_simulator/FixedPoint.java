@@ -0,0 +1,96 @@
+package physics_simulator;
+
+/**
+ * The FixedPoint class.
+ * Arithmetic on fixed-point numbers stored in longs, used by the FixedPointPhysics class.
+ * A fixed-point number is a whole number of 1/65536ths (16 fraction bits), so 1.5 is stored
+ * as 98304. Adding and subtracting them is plain long arithmetic, and the methods below
+ * multiply, divide and take square roots of them.
+ *
+ * Long arithmetic gives exactly the same results on every machine, no matter how the
+ * calculations are compiled or how many threads run them, so a simulation done entirely in
+ * fixed-point numbers can be replayed anywhere and compared bit for bit.
+ *
+ * Every fixed-point number within the range used by the simulator converts to a double and
+ * back without changing, so fixed-point positions and velocities can be stored in the
+ * ordinary double fields of the Ball class.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class FixedPoint {
+
+	public static final int FRACTION_BITS = 16; //the number of bits after the binary point
+	public static final long ONE = 1L << FRACTION_BITS; //the fixed-point number 1
+	private static final long HALF = ONE >> 1; //added before shifting a product down, so that it is rounded to the nearest value instead of down
+
+	/**
+	 * Convert a double to the nearest fixed-point number.
+	 */
+	public static long toFixed(double value){
+		//multiplying by a power of two is exact, so only the rounding to a whole number changes anything
+		return Math.round(value * ONE);
+	}
+
+	/**
+	 * Convert a fixed-point number to a double. This is exact.
+	 */
+	public static double toDouble(long value){
+		return (double) value / ONE;
+	}
+
+	/**
+	 * Multiply two fixed-point numbers, rounding to the nearest fixed-point number.
+	 * The product of the two raw values must fit in a long, so each should be less
+	 * than about 2^31 (32768 as a fixed-point number).
+	 */
+	public static long multiply(long a, long b){
+		return ((a * b) + HALF) >> FRACTION_BITS;
+	}
+
+	/**
+	 * Divide one fixed-point number by another, rounding towards zero.
+	 * The dividend must be less than about 2^47 (2^31 as a fixed-point number).
+	 */
+	public static long divide(long a, long b){
+		return (a << FRACTION_BITS) / b;
+	}
+
+	/**
+	 * Return the square root of a fixed-point number, rounded down to a fixed-point number.
+	 * The value must be less than about 2^47.
+	 */
+	public static long sqrt(long value){
+		return integerSqrt(value << FRACTION_BITS);
+	}
+
+	/**
+	 * Return the largest whole number whose square is no more than the specified value.
+	 * Math.sqrt() gives a starting guess that is at most a step or two away, and the guess
+	 * is then corrected using only long arithmetic, so the result never depends on how
+	 * Math.sqrt() rounds.
+	 * @param value a value from 0 to 2^62
+	 */
+	public static long integerSqrt(long value){
+		if(value <= 0){
+			return 0;
+		}
+		long root = (long) Math.sqrt((double) value);
+		while(root * root > value){
+			root--;
+		}
+		while((root + 1) * (root + 1) <= value){
+			root++;
+		}
+		return root;
+	}
+
+	/**
+	 * Return the length of the vector (x, y), where x and y are fixed-point numbers,
+	 * rounded down to a fixed-point number. Each component must be less than about 2^30.
+	 */
+	public static long length(long x, long y){
+		//the squares have twice as many fraction bits, so their square root has the usual number
+		return integerSqrt((x * x) + (y * y));
+	}
+}
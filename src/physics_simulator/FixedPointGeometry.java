@@ -0,0 +1,308 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The FixedPointGeometry class.
+ * The same inflated shapes as the InflatedGeometry class (every edge pushed outward by a ball
+ * radius on both sides, and every vertex surrounded by a corner arc), with the same ray and
+ * overlap tests, but with every number stored as a fixed-point long (see the FixedPoint class)
+ * instead of a double. Used by the FixedPointPhysics class.
+ *
+ * The vertices of the shapes are rounded to fixed-point numbers once, when the geometry is
+ * built, and every edge direction, normal and offset is then found from the rounded vertices
+ * using only long arithmetic. Only the sign of each edge normal is taken from the Shape class.
+ *
+ * The products below are only guaranteed to fit in a long for maps smaller than 16384 pixels
+ * across, and for rays shorter than FixedPointPhysics.MAXIMUM_SPEED.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class FixedPointGeometry {
+
+	public static final long SKIN = FixedPoint.toFixed(InflatedGeometry.SKIN); //how far outside of the inflated geometry a ball is placed after it collides
+	private static final long TOLERANCE = FixedPoint.toFixed(0.001); //a ball whose center is this far inside of the inflated geometry is still treated as touching it
+	private int radius; //the ball radius that the shapes are inflated by, in pixels
+	private long fixedRadius; //the same radius as a fixed-point number
+	private int[] shapeEdgeStart = new int[1]; //the edges of shape i are stored from index shapeEdgeStart[i] up to (but not including) shapeEdgeStart[i + 1]
+	//each array below holds the same value as the InflatedGeometry array with the same name, as a fixed-point number
+	private long[] vertexX = new long[0];
+	private long[] vertexY = new long[0];
+	private long[] normalX = new long[0];
+	private long[] normalY = new long[0];
+	private long[] tangentX = new long[0];
+	private long[] tangentY = new long[0];
+	private long[] offsetPositive = new long[0];
+	private long[] offsetNegative = new long[0];
+	private long[] spanStart = new long[0];
+	private long[] spanEnd = new long[0];
+	private long[] boundsXMin = new long[0];
+	private long[] boundsYMin = new long[0];
+	private long[] boundsXMax = new long[0];
+	private long[] boundsYMax = new long[0];
+	//the results of the most recent call to castRay() or depenetrate()
+	private long hitTime; //the fraction of the ray's length at which it hit, from 0 to FixedPoint.ONE
+	private long hitNormalX; //the x component of the unit normal where the ray hit, pointing towards the ball
+	private long hitNormalY; //the y component of that normal
+	private int hitShape; //the index of the shape that was hit
+	private long depenetratedX; //where to move a ball found by depenetrate(), so that it no longer overlaps the closest edge
+	private long depenetratedY; //the y coordinate of that position
+
+	/**
+	 * Construct an empty FixedPointGeometry for balls of the specified radius. Call rebuild() to fill it in.
+	 * @param initRadius the ball radius that the shapes are inflated by
+	 */
+	public FixedPointGeometry(int initRadius){
+		radius = initRadius;
+		fixedRadius = radius * FixedPoint.ONE;
+	}
+
+	/**
+	 * Round every shape in the list to fixed-point numbers and inflate it.
+	 * Called when shapes are edited, added or deleted.
+	 * @param shapes the list of shapes in the simulation
+	 */
+	public void rebuild(ArrayList<Shape> shapes){
+		int numberOfShapes = shapes.size();
+		shapeEdgeStart = new int[numberOfShapes + 1];
+		for(int i = 0; i < numberOfShapes; i++){
+			shapeEdgeStart[i + 1] = shapeEdgeStart[i] + shapes.get(i).getNumberOfVertices();
+		}
+		int numberOfEdges = shapeEdgeStart[numberOfShapes];
+		vertexX = new long[numberOfEdges];
+		vertexY = new long[numberOfEdges];
+		normalX = new long[numberOfEdges];
+		normalY = new long[numberOfEdges];
+		tangentX = new long[numberOfEdges];
+		tangentY = new long[numberOfEdges];
+		offsetPositive = new long[numberOfEdges];
+		offsetNegative = new long[numberOfEdges];
+		spanStart = new long[numberOfEdges];
+		spanEnd = new long[numberOfEdges];
+		boundsXMin = new long[numberOfShapes];
+		boundsYMin = new long[numberOfShapes];
+		boundsXMax = new long[numberOfShapes];
+		boundsYMax = new long[numberOfShapes];
+		for(int i = 0; i < numberOfShapes; i++){
+			Shape shape = shapes.get(i);
+			int numberOfVertices = shape.getNumberOfVertices();
+			for(int k = 0; k < numberOfVertices; k++){
+				int edge = shapeEdgeStart[i] + k;
+				Point current = shape.getVertex(k);
+				Point next = shape.getVertex((k + 1) % numberOfVertices);
+				long x0 = FixedPoint.toFixed(current.getX());
+				long y0 = FixedPoint.toFixed(current.getY());
+				long xDirection = FixedPoint.toFixed(next.getX()) - x0;
+				long yDirection = FixedPoint.toFixed(next.getY()) - y0;
+				long length = FixedPoint.length(xDirection, yDirection);
+				vertexX[edge] = x0;
+				vertexY[edge] = y0;
+				if(length > 0){
+					tangentX[edge] = FixedPoint.divide(xDirection, length);
+					tangentY[edge] = FixedPoint.divide(yDirection, length);
+					//the normal is perpendicular to the tangent, on whichever side the Shape's own normal points to
+					normalX[edge] = -tangentY[edge];
+					normalY[edge] = tangentX[edge];
+					if((shape.getEdgeNormalX(k) * normalX[edge]) + (shape.getEdgeNormalY(k) * normalY[edge]) < 0){
+						normalX[edge] = -normalX[edge];
+						normalY[edge] = -normalY[edge];
+					}
+				}
+				long distance = FixedPoint.multiply(x0, normalX[edge]) + FixedPoint.multiply(y0, normalY[edge]);
+				offsetPositive[edge] = distance + fixedRadius;
+				offsetNegative[edge] = -distance + fixedRadius;
+				spanStart[edge] = FixedPoint.multiply(x0, tangentX[edge]) + FixedPoint.multiply(y0, tangentY[edge]);
+				spanEnd[edge] = spanStart[edge] + length;
+			}
+			boundsXMin[i] = FixedPoint.toFixed(shape.getXMin()) - fixedRadius;
+			boundsYMin[i] = FixedPoint.toFixed(shape.getYMin()) - fixedRadius;
+			boundsXMax[i] = FixedPoint.toFixed(shape.getXMax()) + fixedRadius;
+			boundsYMax[i] = FixedPoint.toFixed(shape.getYMax()) + fixedRadius;
+		}
+	}
+
+	/**
+	 * Follow a ray from the point (px, py) to the point (px + dx, py + dy), and find the first
+	 * place it enters the inflated geometry of any of the candidate shapes. The same as
+	 * InflatedGeometry.castRay(), with every argument a fixed-point number.
+	 * @return true if the ray hits something before it ends
+	 */
+	public boolean castRay(long px, long py, long dx, long dy, int[] candidates, int numberOfCandidates){
+		long best = FixedPoint.ONE; //the earliest hit so far, as a fraction of the ray's length
+		hitShape = -1;
+		long rayXMin = Math.min(px, px + dx);
+		long rayXMax = Math.max(px, px + dx);
+		long rayYMin = Math.min(py, py + dy);
+		long rayYMax = Math.max(py, py + dy);
+		long lengthSquared = FixedPoint.multiply(dx, dx) + FixedPoint.multiply(dy, dy);
+		long radiusSquared = FixedPoint.multiply(fixedRadius, fixedRadius);
+		long cornerXReach = Math.abs(dx) + fixedRadius; //a corner further than this from the start of the ray can't be reached
+		long cornerYReach = Math.abs(dy) + fixedRadius;
+		for(int c = 0; c < numberOfCandidates; c++){
+			int shapeIndex = candidates[c];
+			if(rayXMax < boundsXMin[shapeIndex] || rayXMin > boundsXMax[shapeIndex] || rayYMax < boundsYMin[shapeIndex] || rayYMin > boundsYMax[shapeIndex]){
+				continue;
+			}
+			for(int edge = shapeEdgeStart[shapeIndex]; edge < shapeEdgeStart[shapeIndex + 1]; edge++){
+				long nx = normalX[edge];
+				long ny = normalY[edge];
+				long along = FixedPoint.multiply(px, nx) + FixedPoint.multiply(py, ny); //how far the start of the ray is along the normal
+				long speed = FixedPoint.multiply(dx, nx) + FixedPoint.multiply(dy, ny); //how fast the ray moves along the normal
+				if(speed < 0){
+					//the offset edge on the normal's side
+					long gap = along - offsetPositive[edge];
+					if(gap >= -TOLERANCE){
+						long t = Math.max(0, FixedPoint.divide(gap, -speed));
+						if(t < best && isWithinSpan(edge, px + FixedPoint.multiply(t, dx), py + FixedPoint.multiply(t, dy))){
+							best = t;
+							setHit(t, nx, ny, shapeIndex);
+						}
+					}
+				} else if(speed > 0){
+					//the offset edge on the other side
+					long gap = -along - offsetNegative[edge];
+					if(gap >= -TOLERANCE){
+						long t = Math.max(0, FixedPoint.divide(gap, speed));
+						if(t < best && isWithinSpan(edge, px + FixedPoint.multiply(t, dx), py + FixedPoint.multiply(t, dy))){
+							best = t;
+							setHit(t, -nx, -ny, shapeIndex);
+						}
+					}
+				}
+				//the corner arc around the edge's start vertex. far away corners are skipped first, which also keeps the products below small enough
+				long relativeX = px - vertexX[edge];
+				long relativeY = py - vertexY[edge];
+				if(lengthSquared > 0 && Math.abs(relativeX) <= cornerXReach && Math.abs(relativeY) <= cornerYReach){
+					long b = FixedPoint.multiply(relativeX, dx) + FixedPoint.multiply(relativeY, dy);
+					if(b < 0){
+						long c0 = FixedPoint.multiply(relativeX, relativeX) + FixedPoint.multiply(relativeY, relativeY) - radiusSquared;
+						long discriminant = FixedPoint.multiply(b, b) - FixedPoint.multiply(lengthSquared, c0);
+						if(c0 >= -TOLERANCE * radius && discriminant >= 0){
+							long t = Math.max(0, FixedPoint.divide(-b - FixedPoint.sqrt(discriminant), lengthSquared));
+							if(t < best){
+								long hitX = relativeX + FixedPoint.multiply(t, dx);
+								long hitY = relativeY + FixedPoint.multiply(t, dy);
+								long hitLength = FixedPoint.length(hitX, hitY);
+								if(hitLength > 0){
+									best = t;
+									setHit(t, FixedPoint.divide(hitX, hitLength), FixedPoint.divide(hitY, hitLength), shapeIndex);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return hitShape != -1;
+	}
+
+	/**
+	 * Find whether a ball at the point (px, py) overlaps any of the candidate shapes, and if
+	 * it does, where to move it so that it only touches the closest edge. The same as
+	 * InflatedGeometry.depenetrate(), with every argument a fixed-point number.
+	 * @return true if the ball overlaps a shape
+	 */
+	public boolean depenetrate(long px, long py, int[] candidates, int numberOfCandidates){
+		long limit = fixedRadius - TOLERANCE;
+		long bestDistanceSquared = limit * limit; //with twice the usual number of fraction bits, like the squared distances below
+		hitShape = -1;
+		for(int c = 0; c < numberOfCandidates; c++){
+			int shapeIndex = candidates[c];
+			if(px < boundsXMin[shapeIndex] || px > boundsXMax[shapeIndex] || py < boundsYMin[shapeIndex] || py > boundsYMax[shapeIndex]){
+				continue;
+			}
+			for(int edge = shapeEdgeStart[shapeIndex]; edge < shapeEdgeStart[shapeIndex + 1]; edge++){
+				//find the closest point on the edge to the ball
+				long relativeX = px - vertexX[edge];
+				long relativeY = py - vertexY[edge];
+				long edgeLength = spanEnd[edge] - spanStart[edge];
+				long position = Math.max(0, Math.min(edgeLength, FixedPoint.multiply(relativeX, tangentX[edge]) + FixedPoint.multiply(relativeY, tangentY[edge])));
+				long closestX = vertexX[edge] + FixedPoint.multiply(position, tangentX[edge]);
+				long closestY = vertexY[edge] + FixedPoint.multiply(position, tangentY[edge]);
+				long xDifference = px - closestX;
+				long yDifference = py - closestY;
+				long distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+				if(distanceSquared < bestDistanceSquared){
+					bestDistanceSquared = distanceSquared;
+					long distance = FixedPoint.integerSqrt(distanceSquared);
+					if(distance > 0){
+						setHit(0, FixedPoint.divide(xDifference, distance), FixedPoint.divide(yDifference, distance), shapeIndex);
+					} else {
+						setHit(0, normalX[edge], normalY[edge], shapeIndex);
+					}
+					depenetratedX = closestX + FixedPoint.multiply(hitNormalX, fixedRadius + SKIN);
+					depenetratedY = closestY + FixedPoint.multiply(hitNormalY, fixedRadius + SKIN);
+				}
+			}
+		}
+		return hitShape != -1;
+	}
+
+	/**
+	 * Is the point (x, y), which is on one of the lines that the offset copies of an edge lie on,
+	 * within the part of the line that the offset copy covers?
+	 */
+	private boolean isWithinSpan(int edge, long x, long y){
+		long position = FixedPoint.multiply(x, tangentX[edge]) + FixedPoint.multiply(y, tangentY[edge]);
+		return position >= spanStart[edge] && position <= spanEnd[edge];
+	}
+
+	/**
+	 * Store the details of a hit, to be read with the getters below.
+	 */
+	private void setHit(long t, long nx, long ny, int shapeIndex){
+		hitTime = t;
+		hitNormalX = nx;
+		hitNormalY = ny;
+		hitShape = shapeIndex;
+	}
+
+	/**
+	 * Return the ball radius that the shapes are inflated by
+	 */
+	public int getRadius(){
+		return radius;
+	}
+
+	/**
+	 * Return the fraction of the ray's length at which the most recent castRay() hit, as a fixed-point number
+	 */
+	public long getHitTime(){
+		return hitTime;
+	}
+
+	/**
+	 * Return the x component of the unit normal where the most recent castRay() or depenetrate() hit, pointing towards the ball
+	 */
+	public long getHitNormalX(){
+		return hitNormalX;
+	}
+
+	/**
+	 * Return the y component of the unit normal where the most recent castRay() or depenetrate() hit, pointing towards the ball
+	 */
+	public long getHitNormalY(){
+		return hitNormalY;
+	}
+
+	/**
+	 * Return the index of the shape hit by the most recent castRay() or depenetrate()
+	 */
+	public int getHitShape(){
+		return hitShape;
+	}
+
+	/**
+	 * Return the x coordinate that the most recent depenetrate() found for the ball
+	 */
+	public long getDepenetratedX(){
+		return depenetratedX;
+	}
+
+	/**
+	 * Return the y coordinate that the most recent depenetrate() found for the ball
+	 */
+	public long getDepenetratedY(){
+		return depenetratedY;
+	}
+}
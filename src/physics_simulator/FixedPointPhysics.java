@@ -0,0 +1,245 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The FixedPointPhysics class.
+ * An alternative to the Physics class that does all of its arithmetic on fixed-point longs
+ * (see the FixedPoint class) instead of doubles, so that a simulation gives bit for bit the
+ * same results on every machine and every run, no matter how the Java compiler optimizes it
+ * or how the work is divided between threads. This makes it possible to record a run on one
+ * machine and replay it on another (comparing getChecksum() every so often), or to keep
+ * several copies of a simulation in lockstep.
+ *
+ * Balls are moved with the core of Physics9.moveBall(): gravity is added to the velocity, the
+ * ball is followed along its velocity as a ray through the shapes inflated by its radius (see
+ * the FixedPointGeometry class), and if the ray hits something, the ball is stopped there and
+ * bounced off of the hit normal. The rest of Physics9.moveBall() is left out: balls don't come
+ * to rest on surfaces and slide along them (see Physics9.followContact()), aren't kept inside
+ * the border, and aren't freed when they end up buried inside a solid shape, and every edge
+ * and corner near a ball is checked, without the culling that InflatedGeometry does. So the
+ * balls don't follow the same paths as in the Physics class. They match while they fly and
+ * bounce, apart from rounding to 1/65536 of a pixel, but not once they roll or come to rest,
+ * and then the paths drift apart: after 3000 clock ticks, the FixedPointReplay test module
+ * measured the balls about 13 pixels from where the Physics class put them on
+ * maps/materials_example.txt and maps/simulator_new_file.txt. What this class does guarantee
+ * is that two runs of it never drift apart.
+ *
+ * Every position and velocity this class calculates is a whole number of 1/65536ths, which a
+ * double holds exactly, so the balls themselves store the fixed-point state, and the rest of
+ * the simulator (drawing, emitters, sinks, the mouse) can keep using them as usual. A value
+ * set from outside, such as a velocity drawn with the mouse, is rounded to a fixed-point
+ * number the next time the ball is moved.
+ *
+ * Kinematic shapes and force fields are calculated using doubles, so maps with them have to
+ * use the Physics class instead (see canRun()).
+ *
+ * @author Adam Cogen
+ *
+ */
+public class FixedPointPhysics {
+
+	public static final long MAXIMUM_SPEED = 64 * FixedPoint.ONE; //the fastest a ball can move along each axis in one clock tick, so that the products in FixedPointGeometry can't overflow
+	private static final int CELL_SHIFT = FixedPoint.FRACTION_BITS + Integer.numberOfTrailingZeros(BroadPhaseGrid.CELL_SIZE); //shifting a fixed-point coordinate right by this much gives its grid cell, since CELL_SIZE is a power of two
+	private Map map;
+	private long gravity; //the amount added to each ball's y velocity on each clock tick, from the map
+	/*
+	 * The fixed-point versions of the map's combined material constants (see
+	 * MaterialTable.getContactIndex()), calculated once when the map is loaded, so that a bounce
+	 * doesn't have to convert them. contactTangentFactor[i] is the fraction of its speed along a
+	 * surface that a ball keeps, and contactRestitution[i] is the fraction of its speed into the
+	 * surface that it bounces back with.
+	 */
+	private long[] contactTangentFactor;
+	private long[] contactRestitution;
+	private MaterialTable materials; //the map's materials
+	private ArrayList<Ball> players;
+	private ArrayList<Shape> shapes;
+	private BroadPhaseGrid grid; //divides the map into cells, so that only shapes near a ball are checked for collisions with it
+	private int gridRevision = -1; //the revision of the shapes list (see EditHistory.getRevision()) that the grid and geometry were last built from
+	private int[] candidateShapes = new int[0]; //the indices of the shapes near the ball that is currently being moved
+	private int[] shapeMaterials = new int[0]; //the material index of each shape, copied out of the shapes list when the grid is built
+	private boolean speedLimitReported = false; //has a ball already been slowed down to MAXIMUM_SPEED? this is only reported once
+	private ArrayList<FixedPointGeometry> geometries = new ArrayList<FixedPointGeometry>(); //the shapes inflated by each different ball radius in the simulation
+
+	/**
+	 * Construct a FixedPointPhysics for a map.
+	 * @param initMap the map to simulate
+	 */
+	public FixedPointPhysics(Map initMap){
+		map = initMap;
+		gravity = FixedPoint.toFixed(map.getGravity());
+		materials = map.getMaterials();
+		int numberOfContacts = materials.size() * materials.size();
+		contactTangentFactor = new long[numberOfContacts];
+		contactRestitution = new long[numberOfContacts];
+		for(int i = 0; i < numberOfContacts; i++){
+			contactTangentFactor[i] = FixedPoint.toFixed(materials.getContactTangentFactor(i));
+			contactRestitution[i] = FixedPoint.toFixed(materials.getContactRestitution(i));
+		}
+		players = map.getPlayerList();
+		shapes = map.getShapeList();
+		grid = new BroadPhaseGrid(map.getWidth(), map.getHeight());
+	}
+
+	/**
+	 * Return whether the specified map can be simulated by this class.
+	 * Kinematic shapes, force fields and constraints are calculated using doubles, so maps with them can't be.
+	 */
+	public static boolean canRun(Map map){
+		if(map.getForceFieldList().size() > 0 || map.getConstraintList().size() > 0){
+			return false;
+		}
+		for(int i = 0; i < map.getShapeList().size(); i++){
+			if(map.getShapeList().get(i).isKinematic()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Move every ball in the simulation forward by one clock tick.
+	 * This is called by the simulation timer in place of Physics9.bounceModeClockTick().
+	 */
+	public void bounceModeClockTick(){
+		map.getSpawner().clockTick();
+		updateBroadPhase();
+		for(int i = 0; i < players.size(); i++){
+			moveBall(players.get(i));
+		}
+	}
+
+	/**
+	 * Move a single ball forward by one clock tick, using fixed-point numbers. This only does
+	 * the ray test and bounce of Physics9.moveBall() (see the comment at the top of this class).
+	 * @param ball the ball to move
+	 */
+	private void moveBall(Ball ball){
+		long x = FixedPoint.toFixed(ball.getXPosition());
+		long y = FixedPoint.toFixed(ball.getYPosition());
+		long xVelocity = clampSpeed(FixedPoint.toFixed(ball.getXVelocity()));
+		long yVelocity = clampSpeed(FixedPoint.toFixed(ball.getYVelocity()) + gravity);
+		if(ball.isFrozen()){
+			//the ball is held in place by the mouse
+			setVelocity(ball, xVelocity, yVelocity);
+			return;
+		}
+		int radius = ball.getRadius();
+		long fixedRadius = radius * FixedPoint.ONE;
+		//the grid cells the ball's path covers can be found by shifting, instead of dividing like BroadPhaseGrid.query() does
+		int numberOfCandidates = grid.queryCells((int) ((Math.min(x, x + xVelocity) - fixedRadius) >> CELL_SHIFT), (int) ((Math.min(y, y + yVelocity) - fixedRadius) >> CELL_SHIFT),
+				(int) ((Math.max(x, x + xVelocity) + fixedRadius) >> CELL_SHIFT), (int) ((Math.max(y, y + yVelocity) + fixedRadius) >> CELL_SHIFT), candidateShapes);
+		if(numberOfCandidates == 0){
+			setPosition(ball, x + xVelocity, y + yVelocity);
+			setVelocity(ball, xVelocity, yVelocity);
+			return;
+		}
+		FixedPointGeometry geometry = getGeometry(radius);
+		if(geometry.depenetrate(x, y, candidateShapes, numberOfCandidates)){
+			x = geometry.getDepenetratedX();
+			y = geometry.getDepenetratedY();
+		}
+		if(geometry.castRay(x, y, xVelocity, yVelocity, candidateShapes, numberOfCandidates)){
+			//stop the ball where it touches the wall, slightly away from it, and bounce it off of the hit normal
+			long t = geometry.getHitTime();
+			long normalX = geometry.getHitNormalX();
+			long normalY = geometry.getHitNormalY();
+			setPosition(ball, x + FixedPoint.multiply(t, xVelocity) + FixedPoint.multiply(normalX, FixedPointGeometry.SKIN),
+					y + FixedPoint.multiply(t, yVelocity) + FixedPoint.multiply(normalY, FixedPointGeometry.SKIN));
+			long normalSpeed = FixedPoint.multiply(xVelocity, normalX) + FixedPoint.multiply(yVelocity, normalY);
+			if(normalSpeed < 0){
+				//the same as Ball.normalReflection(), with the constants for the ball's and the shape's materials
+				int contact = materials.getContactIndex(ball.getMaterial(), shapeMaterials[geometry.getHitShape()]);
+				long xReflectionConstant = contactTangentFactor[contact];
+				long yReflectionConstant = contactRestitution[contact];
+				long tangentXVelocity = xVelocity - FixedPoint.multiply(normalSpeed, normalX);
+				long tangentYVelocity = yVelocity - FixedPoint.multiply(normalSpeed, normalY);
+				long reflectedSpeed = FixedPoint.multiply(normalSpeed, yReflectionConstant);
+				xVelocity = FixedPoint.multiply(tangentXVelocity, xReflectionConstant) - FixedPoint.multiply(reflectedSpeed, normalX);
+				yVelocity = FixedPoint.multiply(tangentYVelocity, xReflectionConstant) - FixedPoint.multiply(reflectedSpeed, normalY);
+			}
+		} else {
+			setPosition(ball, x + xVelocity, y + yVelocity);
+		}
+		setVelocity(ball, xVelocity, yVelocity);
+	}
+
+	/**
+	 * Limit a fixed-point velocity component to MAXIMUM_SPEED. The first time a ball is slowed
+	 * down by this, a message is printed, since the simulation is then no longer the one the
+	 * map or the mouse asked for.
+	 */
+	private long clampSpeed(long velocity){
+		if(velocity >= -MAXIMUM_SPEED && velocity <= MAXIMUM_SPEED){
+			return velocity;
+		}
+		if(!speedLimitReported){
+			speedLimitReported = true;
+			System.out.println("A ball was slowed down to " + FixedPoint.toDouble(MAXIMUM_SPEED) + " pixels per clock tick, the fastest the fixed-point engine can move it.");
+		}
+		return Math.max(-MAXIMUM_SPEED, Math.min(MAXIMUM_SPEED, velocity));
+	}
+
+	private static void setPosition(Ball ball, long x, long y){
+		ball.setPosition(FixedPoint.toDouble(x), FixedPoint.toDouble(y));
+	}
+
+	private static void setVelocity(Ball ball, long xVelocity, long yVelocity){
+		ball.setXVelocity(FixedPoint.toDouble(xVelocity));
+		ball.setYVelocity(FixedPoint.toDouble(yVelocity));
+	}
+
+	/**
+	 * Return the FixedPointGeometry for balls of the specified radius, creating it the
+	 * first time a ball with that radius needs it.
+	 */
+	private FixedPointGeometry getGeometry(int radius){
+		for(int i = 0; i < geometries.size(); i++){
+			if(geometries.get(i).getRadius() == radius){
+				return geometries.get(i);
+			}
+		}
+		FixedPointGeometry geometry = new FixedPointGeometry(radius);
+		geometry.rebuild(shapes);
+		geometries.add(geometry);
+		return geometry;
+	}
+
+	/**
+	 * Rebuild the broad phase grid and the fixed-point geometry if any shapes have been
+	 * edited, added or deleted since they were last built.
+	 */
+	private void updateBroadPhase(){
+		int revision = map.getEditHistory().getRevision();
+		if(revision == gridRevision && candidateShapes.length == shapes.size()){
+			return;
+		}
+		gridRevision = revision;
+		grid.rebuild(shapes);
+		for(int i = 0; i < geometries.size(); i++){
+			geometries.get(i).rebuild(shapes);
+		}
+		candidateShapes = new int[shapes.size()];
+		shapeMaterials = new int[shapes.size()];
+		for(int i = 0; i < shapes.size(); i++){
+			shapeMaterials[i] = shapes.get(i).getMaterial();
+		}
+	}
+
+	/**
+	 * Return a number that depends on the exact position and velocity of every ball. Two runs
+	 * of the same map for the same number of clock ticks give the same checksum on any machine,
+	 * so comparing checksums is a quick way to check that a replay hasn't drifted.
+	 */
+	public long getChecksum(){
+		long checksum = players.size();
+		for(int i = 0; i < players.size(); i++){
+			Ball ball = players.get(i);
+			checksum = (checksum * 31) + FixedPoint.toFixed(ball.getXPosition());
+			checksum = (checksum * 31) + FixedPoint.toFixed(ball.getYPosition());
+			checksum = (checksum * 31) + FixedPoint.toFixed(ball.getXVelocity());
+			checksum = (checksum * 31) + FixedPoint.toFixed(ball.getYVelocity());
+		}
+		return checksum;
+	}
+}
@@ -0,0 +1,240 @@
+package physics_simulator;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * The ForceField class.
+ * A force, other than gravity, that pushes on every ball in the simulation on each clock
+ * tick. There are three types of fields:
+ * 		WIND: the same acceleration everywhere on the map.
+ * 		ATTRACTOR: pulls balls towards a point, more strongly the closer they are. A field with
+ * 			a negative strength pushes them away instead, and is called a repulsor.
+ * 		VECTOR_GRID: an acceleration that is given at the points of a regular grid, read from a
+ * 			separate file, and interpolated in between. Outside of the grid it has no effect.
+ *
+ * An attractor's pull falls off with the square of the distance, like gravity between
+ * planets, but is softened near the attractor so that it never becomes infinite: a ball at
+ * distance d is accelerated by strength * d / (d^2 + softening^2)^(3/2) pixels per clock
+ * tick per clock tick.
+ *
+ * The fields of a map are applied to the balls by the ForceFieldStage class.
+ *
+ * In map files, force fields are listed after the sinks:
+ * 		force_fields: number_of_fields
+ * 		wind: x_acceleration y_acceleration
+ * 		attractor: x y strength softening
+ * 		repulsor: x y strength softening
+ * 		vector_grid: file_name
+ * A vector grid file name is relative to the folder of the map file. The file has the form:
+ * 		origin: x y
+ * 		spacing: pixels_between_grid_points
+ * 		columns: number_of_columns
+ * 		rows: number_of_rows
+ * followed by one "vector: x_acceleration y_acceleration" line for each grid point, row by row from the top left.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ForceField {
+
+	public static final int WIND = 0;
+	public static final int ATTRACTOR = 1;
+	public static final int VECTOR_GRID = 2;
+	private int type; //WIND, ATTRACTOR or VECTOR_GRID
+	private double x; //the x coordinate of an attractor, or of the top left point of a vector grid
+	private double y; //the y coordinate of an attractor, or of the top left point of a vector grid
+	private double xAcceleration; //the x acceleration of a wind
+	private double yAcceleration; //the y acceleration of a wind
+	private double strength; //the strength of an attractor. negative for a repulsor
+	private double softening; //the distance within which an attractor's pull stops growing
+	private String gridFilename; //the file name of a vector grid, as written in the map file
+	private double spacing; //the distance between neighboring points of a vector grid
+	private int columns = 0; //the number of points in each row of a vector grid
+	private int rows = 0; //the number of points in each column of a vector grid
+	private double[] gridXAcceleration = new double[0]; //the x acceleration at each point of a vector grid, row by row
+	private double[] gridYAcceleration = new double[0]; //the y acceleration at each point of a vector grid, row by row
+
+	private ForceField(int initType){
+		type = initType;
+	}
+
+	/**
+	 * Create a wind, which accelerates every ball by the same amount.
+	 * @param initXAcceleration the amount added to each ball's x velocity on each clock tick
+	 * @param initYAcceleration the amount added to each ball's y velocity on each clock tick
+	 */
+	public static ForceField createWind(double initXAcceleration, double initYAcceleration){
+		ForceField field = new ForceField(WIND);
+		field.xAcceleration = initXAcceleration;
+		field.yAcceleration = initYAcceleration;
+		return field;
+	}
+
+	/**
+	 * Create an attractor, or a repulsor if the strength is negative.
+	 * @param initX the x coordinate of the attractor
+	 * @param initY the y coordinate of the attractor
+	 * @param initStrength how strongly balls are pulled towards the attractor
+	 * @param initSoftening the distance within which the pull stops growing. must be more than 0
+	 */
+	public static ForceField createAttractor(double initX, double initY, double initStrength, double initSoftening){
+		ForceField field = new ForceField(ATTRACTOR);
+		field.x = initX;
+		field.y = initY;
+		field.strength = initStrength;
+		field.softening = Math.max(initSoftening, 1);
+		return field;
+	}
+
+	/**
+	 * Create a vector grid by reading a vector grid file. If the file can't be read, the
+	 * grid has no points and no effect, but it keeps its file name so that it is still saved.
+	 * @param initGridFilename the file name, as written in the map file
+	 * @param path the file path to read the grid from
+	 */
+	public static ForceField loadVectorGrid(String initGridFilename, String path){
+		ForceField field = new ForceField(VECTOR_GRID);
+		field.gridFilename = initGridFilename;
+		try {
+			Scanner scan = new Scanner(new FileReader(path));
+			scan.next(); //read "origin: "
+			double originX = scan.nextDouble();
+			double originY = scan.nextDouble();
+			scan.next(); //read "spacing: "
+			double gridSpacing = scan.nextDouble();
+			scan.next(); //read "columns: "
+			int gridColumns = scan.nextInt();
+			scan.next(); //read "rows: "
+			int gridRows = scan.nextInt();
+			if(gridColumns < 2 || gridRows < 2 || gridSpacing <= 0){
+				System.out.println("A vector grid needs at least two columns and two rows of points.");
+				scan.close();
+				return field;
+			}
+			double[] xValues = new double[gridColumns * gridRows];
+			double[] yValues = new double[gridColumns * gridRows];
+			for(int i = 0; i < xValues.length; i++){
+				scan.next(); //read "vector: "
+				xValues[i] = scan.nextDouble();
+				yValues[i] = scan.nextDouble();
+			}
+			scan.close();
+			field.x = originX;
+			field.y = originY;
+			field.spacing = gridSpacing;
+			field.columns = gridColumns;
+			field.rows = gridRows;
+			field.gridXAcceleration = xValues;
+			field.gridYAcceleration = yValues;
+		} catch (FileNotFoundException e) {
+			System.out.println("Vector grid file not found: " + path);
+		} catch (InputMismatchException e){
+			System.out.println("The contents of this file do not match the vector grid file format: " + path);
+		} catch (NoSuchElementException e){
+			System.out.println("This vector grid file ends too early: " + path);
+		}
+		return field;
+	}
+
+	/**
+	 * Add this wind's or vector grid's acceleration at each of the specified positions to the accelerations.
+	 * Attractors are added by the ForceFieldStage class instead, which can combine the far away ones.
+	 * @param ballX the x coordinate of each ball
+	 * @param ballY the y coordinate of each ball
+	 * @param accelerationX the x acceleration of each ball, added to
+	 * @param accelerationY the y acceleration of each ball, added to
+	 * @param count the number of balls
+	 */
+	void addAcceleration(double[] ballX, double[] ballY, double[] accelerationX, double[] accelerationY, int count){
+		if(type == WIND){
+			for(int i = 0; i < count; i++){
+				accelerationX[i] += xAcceleration;
+				accelerationY[i] += yAcceleration;
+			}
+		} else if(type == VECTOR_GRID && columns > 0){
+			double inverseSpacing = 1 / spacing;
+			double lastColumn = columns - 1;
+			double lastRow = rows - 1;
+			for(int i = 0; i < count; i++){
+				double gridX = (ballX[i] - x) * inverseSpacing;
+				double gridY = (ballY[i] - y) * inverseSpacing;
+				if(!(gridX >= 0 && gridY >= 0 && gridX <= lastColumn && gridY <= lastRow)){
+					continue; //outside of the grid (or not a number)
+				}
+				//the grid square the ball is in. a ball on the last row or column uses the square before it
+				int column = Math.min((int) gridX, columns - 2);
+				int row = Math.min((int) gridY, rows - 2);
+				double fractionX = gridX - column;
+				double fractionY = gridY - row;
+				int topLeft = (row * columns) + column;
+				int bottomLeft = topLeft + columns;
+				//bilinear interpolation between the four points around the ball
+				double top = gridXAcceleration[topLeft] + (fractionX * (gridXAcceleration[topLeft + 1] - gridXAcceleration[topLeft]));
+				double bottom = gridXAcceleration[bottomLeft] + (fractionX * (gridXAcceleration[bottomLeft + 1] - gridXAcceleration[bottomLeft]));
+				accelerationX[i] += top + (fractionY * (bottom - top));
+				top = gridYAcceleration[topLeft] + (fractionX * (gridYAcceleration[topLeft + 1] - gridYAcceleration[topLeft]));
+				bottom = gridYAcceleration[bottomLeft] + (fractionX * (gridYAcceleration[bottomLeft + 1] - gridYAcceleration[bottomLeft]));
+				accelerationY[i] += top + (fractionY * (bottom - top));
+			}
+		}
+	}
+
+	/**
+	 * Return WIND, ATTRACTOR or VECTOR_GRID
+	 */
+	public int getType(){
+		return type;
+	}
+
+	/**
+	 * Return the x coordinate of an attractor
+	 */
+	public double getX(){
+		return x;
+	}
+
+	/**
+	 * Return the y coordinate of an attractor
+	 */
+	public double getY(){
+		return y;
+	}
+
+	/**
+	 * Return the amount a wind adds to each ball's x velocity on each clock tick
+	 */
+	public double getXAcceleration(){
+		return xAcceleration;
+	}
+
+	/**
+	 * Return the amount a wind adds to each ball's y velocity on each clock tick
+	 */
+	public double getYAcceleration(){
+		return yAcceleration;
+	}
+
+	/**
+	 * Return the strength of an attractor, which is negative for a repulsor
+	 */
+	public double getStrength(){
+		return strength;
+	}
+
+	/**
+	 * Return the distance within which an attractor's pull stops growing
+	 */
+	public double getSoftening(){
+		return softening;
+	}
+
+	/**
+	 * Return the file name of a vector grid, as written in the map file
+	 */
+	public String getGridFilename(){
+		return gridFilename;
+	}
+}
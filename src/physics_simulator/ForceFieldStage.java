@@ -0,0 +1,287 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The ForceFieldStage class.
+ * Applies a map's force fields (see the ForceField class) to all of the balls, once per
+ * clock tick, before the balls are moved. Gravity is still added by Physics9.moveBall(), so
+ * maps without force fields move exactly as they always did.
+ *
+ * The fields are evaluated in bulk: the ball positions are copied into plain arrays, each
+ * field adds its acceleration for every ball in one loop, and the total is then added to
+ * the ball velocities.
+ *
+ * A map can have hundreds of attractors, and adding the pull of every attractor to every
+ * ball on every clock tick would be too slow. Attractors don't move, so most of the work
+ * is done once, when the stage is made. The map is divided into small square cells. For
+ * each cell, the total pull of all of the attractors that aren't near the cell (more than
+ * NEAR_CELLS cells away) is calculated at its four corners. On each clock tick, a ball then
+ * only needs the exact pull of the few attractors near its cell, plus the far pull
+ * interpolated between the corners of its cell. The far pull comes from attractors at
+ * least two cells away, so it changes smoothly across a cell, and the interpolation error
+ * is typically under one percent of the pull (see the ForceFieldBenchmark test module).
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ForceFieldStage {
+
+	public static final double MINIMUM_CELL_SIZE = 16; //the width and height of each cell of the attractor table, in pixels, on maps small enough for it
+	private static final int MAXIMUM_CELLS = 16384; //the largest number of cells in the attractor table. larger maps use larger cells, so that making the table doesn't take too long
+	private static final int NEAR_CELLS = 2; //the attractors within this many cells of a ball's cell, in each direction, are added exactly. the rest are in the table
+	private static final int EXACT_ATTRACTORS = 16; //maps with this many attractors or fewer don't use the table, since adding each one exactly is just as fast
+	private ArrayList<ForceField> otherFields = new ArrayList<ForceField>(); //the winds and vector grids
+	private int numberOfAttractors = 0;
+	private double[] attractorX = new double[0]; //the x coordinate of each attractor, sorted by cell
+	private double[] attractorY = new double[0]; //the y coordinate of each attractor, sorted by cell
+	private double[] attractorStrength = new double[0]; //the strength of each attractor, sorted by cell
+	private double[] attractorSoftening = new double[0]; //the square of the softening distance of each attractor, sorted by cell
+	private boolean aggregateFarFields; //are the far attractors looked up in the table, instead of being added exactly?
+	private double cellSize; //the width and height of each cell of the attractor table
+	private int columns; //the number of columns of cells
+	private int rows; //the number of rows of cells
+	private int[] cellStart = new int[0]; //the attractors in cell i are at indices cellStart[i] to cellStart[i + 1] - 1. cells are numbered row by row
+	/*
+	 * The total acceleration from the far attractors of each cell, at its top left, top
+	 * right, bottom left and bottom right corners, in that order. The values for cell i start at index 4 * i.
+	 */
+	private double[] farX = new double[0];
+	private double[] farY = new double[0];
+	private double[] ballX = new double[0]; //the x coordinate of each ball, copied out of the ball list
+	private double[] ballY = new double[0]; //the y coordinate of each ball
+	private double[] accelerationX = new double[0]; //the total x acceleration of each ball from all of the fields
+	private double[] accelerationY = new double[0]; //the total y acceleration of each ball from all of the fields
+
+	/**
+	 * Construct a ForceFieldStage for the specified fields.
+	 * @param fields the map's force fields
+	 * @param width the width of the map
+	 * @param height the height of the map
+	 */
+	public ForceFieldStage(ArrayList<ForceField> fields, int width, int height){
+		for(int i = 0; i < fields.size(); i++){
+			if(fields.get(i).getType() == ForceField.ATTRACTOR){
+				numberOfAttractors++;
+			} else {
+				otherFields.add(fields.get(i));
+			}
+		}
+		aggregateFarFields = numberOfAttractors > EXACT_ATTRACTORS;
+		cellSize = MINIMUM_CELL_SIZE;
+		while(Math.ceil(width / cellSize) * Math.ceil(height / cellSize) > MAXIMUM_CELLS){
+			cellSize *= 2;
+		}
+		columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		sortAttractors(fields);
+		if(aggregateFarFields){
+			buildFarFieldTable();
+		}
+	}
+
+	/**
+	 * Copy the attractors into the attractor arrays, sorted by the cell they are in, so
+	 * that the attractors near a ball are in a few runs of consecutive indices.
+	 */
+	private void sortAttractors(ArrayList<ForceField> fields){
+		attractorX = new double[numberOfAttractors];
+		attractorY = new double[numberOfAttractors];
+		attractorStrength = new double[numberOfAttractors];
+		attractorSoftening = new double[numberOfAttractors];
+		cellStart = new int[(columns * rows) + 1];
+		for(int i = 0; i < fields.size(); i++){
+			if(fields.get(i).getType() == ForceField.ATTRACTOR){
+				cellStart[getCell(fields.get(i).getX(), fields.get(i).getY()) + 1]++;
+			}
+		}
+		for(int cell = 0; cell < columns * rows; cell++){
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		int[] next = new int[columns * rows];
+		System.arraycopy(cellStart, 0, next, 0, columns * rows);
+		for(int i = 0; i < fields.size(); i++){
+			ForceField field = fields.get(i);
+			if(field.getType() == ForceField.ATTRACTOR){
+				int index = next[getCell(field.getX(), field.getY())]++;
+				attractorX[index] = field.getX();
+				attractorY[index] = field.getY();
+				attractorStrength[index] = field.getStrength();
+				attractorSoftening[index] = field.getSoftening() * field.getSoftening();
+			}
+		}
+	}
+
+	/**
+	 * Return the number of the cell containing the specified point. Points off of the map are in the nearest cell.
+	 */
+	private int getCell(double x, double y){
+		return (getRow(y) * columns) + getColumn(x);
+	}
+
+	private int getColumn(double x){
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+	}
+
+	private int getRow(double y){
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+	}
+
+	/**
+	 * Calculate the total pull of the far attractors at the corners of each cell.
+	 */
+	private void buildFarFieldTable(){
+		farX = new double[columns * rows * 4];
+		farY = new double[columns * rows * 4];
+		double[] cornerX = new double[4];
+		double[] cornerY = new double[4];
+		double[] sumX = new double[4];
+		double[] sumY = new double[4];
+		int[] attractorColumns = new int[numberOfAttractors];
+		int[] attractorRows = new int[numberOfAttractors];
+		for(int i = 0; i < numberOfAttractors; i++){
+			attractorColumns[i] = getColumn(attractorX[i]);
+			attractorRows[i] = getRow(attractorY[i]);
+		}
+		for(int row = 0; row < rows; row++){
+			for(int column = 0; column < columns; column++){
+				for(int corner = 0; corner < 4; corner++){
+					cornerX[corner] = (column + (corner % 2)) * cellSize;
+					cornerY[corner] = (row + (corner / 2)) * cellSize;
+					sumX[corner] = 0;
+					sumY[corner] = 0;
+				}
+				for(int i = 0; i < numberOfAttractors; i++){
+					if(Math.abs(attractorRows[i] - row) <= NEAR_CELLS && Math.abs(attractorColumns[i] - column) <= NEAR_CELLS){
+						continue; //this attractor is added exactly
+					}
+					for(int corner = 0; corner < 4; corner++){
+						double dx = attractorX[i] - cornerX[corner];
+						double dy = attractorY[i] - cornerY[corner];
+						double distanceSquared = (dx * dx) + (dy * dy) + attractorSoftening[i];
+						double scale = attractorStrength[i] / (distanceSquared * Math.sqrt(distanceSquared));
+						sumX[corner] += scale * dx;
+						sumY[corner] += scale * dy;
+					}
+				}
+				int first = ((row * columns) + column) * 4;
+				for(int corner = 0; corner < 4; corner++){
+					farX[first + corner] = sumX[corner];
+					farY[first + corner] = sumY[corner];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the acceleration from every force field to the velocity of each ball.
+	 * This is called by Physics9.bounceModeClockTick() once per clock tick, before the balls are moved.
+	 * @param players the balls in the simulation
+	 */
+	public void apply(ArrayList<Ball> players){
+		if(otherFields.size() == 0 && numberOfAttractors == 0){
+			return;
+		}
+		int count = players.size();
+		if(ballX.length < count){
+			int capacity = Math.max(count, ballX.length * 2);
+			ballX = new double[capacity];
+			ballY = new double[capacity];
+			accelerationX = new double[capacity];
+			accelerationY = new double[capacity];
+		}
+		for(int i = 0; i < count; i++){
+			ballX[i] = players.get(i).getXPosition();
+			ballY[i] = players.get(i).getYPosition();
+		}
+		evaluate(ballX, ballY, accelerationX, accelerationY, count);
+		for(int i = 0; i < count; i++){
+			Ball ball = players.get(i);
+			ball.setXVelocity(ball.getXVelocity() + accelerationX[i]);
+			ball.setYVelocity(ball.getYVelocity() + accelerationY[i]);
+		}
+	}
+
+	/**
+	 * Calculate the total acceleration from every force field at each of the specified positions.
+	 * @param x the x coordinate of each position
+	 * @param y the y coordinate of each position
+	 * @param resultX the total x acceleration at each position is stored here
+	 * @param resultY the total y acceleration at each position is stored here
+	 * @param count the number of positions
+	 */
+	public void evaluate(double[] x, double[] y, double[] resultX, double[] resultY, int count){
+		for(int i = 0; i < count; i++){
+			resultX[i] = 0;
+			resultY[i] = 0;
+		}
+		for(int i = 0; i < otherFields.size(); i++){
+			otherFields.get(i).addAcceleration(x, y, resultX, resultY, count);
+		}
+		if(numberOfAttractors == 0){
+			return;
+		}
+		if(!aggregateFarFields){
+			for(int i = 0; i < count; i++){
+				addAttractors(x[i], y[i], 0, numberOfAttractors, resultX, resultY, i);
+			}
+			return;
+		}
+		for(int i = 0; i < count; i++){
+			int column = getColumn(x[i]);
+			int row = getRow(y[i]);
+			//the far pull, interpolated between the corners of the ball's cell
+			double fractionX = Math.max(0, Math.min(1, (x[i] / cellSize) - column));
+			double fractionY = Math.max(0, Math.min(1, (y[i] / cellSize) - row));
+			int first = ((row * columns) + column) * 4;
+			double top = farX[first] + (fractionX * (farX[first + 1] - farX[first]));
+			double bottom = farX[first + 2] + (fractionX * (farX[first + 3] - farX[first + 2]));
+			resultX[i] += top + (fractionY * (bottom - top));
+			top = farY[first] + (fractionX * (farY[first + 1] - farY[first]));
+			bottom = farY[first + 2] + (fractionX * (farY[first + 3] - farY[first + 2]));
+			resultY[i] += top + (fractionY * (bottom - top));
+			//the exact pull of the near attractors. the cells of each row are consecutive, and so are their attractors
+			int firstColumn = Math.max(0, column - NEAR_CELLS);
+			int lastColumn = Math.min(columns - 1, column + NEAR_CELLS);
+			for(int nearRow = Math.max(0, row - NEAR_CELLS); nearRow <= Math.min(rows - 1, row + NEAR_CELLS); nearRow++){
+				addAttractors(x[i], y[i], cellStart[(nearRow * columns) + firstColumn], cellStart[(nearRow * columns) + lastColumn + 1], resultX, resultY, i);
+			}
+		}
+	}
+
+	/**
+	 * Add the exact pull of the attractors from index start to index end - 1 at the point (x, y) to resultX[i] and resultY[i].
+	 */
+	private void addAttractors(double x, double y, int start, int end, double[] resultX, double[] resultY, int i){
+		double sumX = 0;
+		double sumY = 0;
+		for(int j = start; j < end; j++){
+			double dx = attractorX[j] - x;
+			double dy = attractorY[j] - y;
+			double distanceSquared = (dx * dx) + (dy * dy) + attractorSoftening[j];
+			double scale = attractorStrength[j] / (distanceSquared * Math.sqrt(distanceSquared));
+			sumX += scale * dx;
+			sumY += scale * dy;
+		}
+		resultX[i] += sumX;
+		resultY[i] += sumY;
+	}
+
+	/**
+	 * Set whether the far attractors are looked up in the table (the default for maps with
+	 * many attractors), or added exactly. Used by the ForceFieldBenchmark test module to
+	 * compare the two.
+	 */
+	public void setAggregateFarFields(boolean aggregate){
+		if(aggregate && farX.length == 0){
+			buildFarFieldTable();
+		}
+		aggregateFarFields = aggregate;
+	}
+
+	/**
+	 * Return the number of attractors and repulsors
+	 */
+	public int getNumberOfAttractors(){
+		return numberOfAttractors;
+	}
+}
@@ -0,0 +1,225 @@
+package physics_simulator;
+import java.math.BigDecimal;
+
+/**
+ * The GeometryKernel class.
+ * Orientation and segment intersection tests that always give the right answer, even when
+ * the points involved are exactly or almost exactly collinear.
+ *
+ * The Line and Segment classes find intersections by solving slope-intercept equations and
+ * then checking the result against each Segment's range, widened by a small cushion to make up
+ * for rounding. That works well enough most of the time, but near-parallel or near-touching
+ * segments can be reported wrongly either way. The tests in this class are built on a single
+ * orientation test instead, which decides which side of a line a point is on.
+ *
+ * The orientation test is done with ordinary double arithmetic first, along with a bound on
+ * how large the rounding error in that result could possibly be (the bound from Jonathan
+ * Shewchuk's "Adaptive Precision Floating-Point Arithmetic and Fast Robust Geometric
+ * Predicates"). If the result is further from zero than the bound, its sign is certainly
+ * right, which is almost always the case. Only when it isn't is the test redone exactly with
+ * BigDecimal, which is much slower but can't be wrong. So the common case costs about the
+ * same as the plain double version.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class GeometryKernel {
+
+	private static final double EPSILON = Math.ulp(1.0) / 2; //the largest relative rounding error of a single double operation
+	private static final double ORIENTATION_ERROR_BOUND = (3 + (16 * EPSILON)) * EPSILON; //multiplied by the size of the terms, the largest possible error in orientationDeterminant()'s double result
+
+	private static long exactTests = 0; //the number of orientation tests that have needed exact arithmetic, for test modules
+
+	/**
+	 * Return twice the signed area of the triangle a, b, c. The result is positive if c is to
+	 * the left of the line from a to b (counterclockwise, in the usual math axes), negative if
+	 * it is to the right, and exactly zero only if the three points are exactly collinear.
+	 * The sign is always correct. The size is only approximate when the points are very
+	 * nearly collinear.
+	 */
+	public static double orientationDeterminant(double ax, double ay, double bx, double by, double cx, double cy){
+		double left = (ax - cx) * (by - cy);
+		double right = (ay - cy) * (bx - cx);
+		double determinant = left - right;
+		double termSize;
+		//if the two products have different signs (or one is zero), the subtraction can't cancel, so the sign is right
+		if(left > 0){
+			if(right <= 0){
+				return determinant;
+			}
+			termSize = left + right;
+		} else if(left < 0){
+			if(right >= 0){
+				return determinant;
+			}
+			termSize = -left - right;
+		} else {
+			return determinant;
+		}
+		double errorBound = ORIENTATION_ERROR_BOUND * termSize;
+		if(determinant >= errorBound || -determinant >= errorBound){
+			return determinant;
+		}
+		return exactOrientationDeterminant(ax, ay, bx, by, cx, cy);
+	}
+
+	/**
+	 * Same as orientationDeterminant(), but done entirely in exact arithmetic.
+	 * Every double is exactly representable as a BigDecimal, so nothing is rounded.
+	 */
+	private static double exactOrientationDeterminant(double ax, double ay, double bx, double by, double cx, double cy){
+		exactTests++;
+		BigDecimal x = new BigDecimal(cx);
+		BigDecimal y = new BigDecimal(cy);
+		BigDecimal left = new BigDecimal(ax).subtract(x).multiply(new BigDecimal(by).subtract(y));
+		BigDecimal right = new BigDecimal(ay).subtract(y).multiply(new BigDecimal(bx).subtract(x));
+		BigDecimal determinant = left.subtract(right);
+		double result = determinant.doubleValue();
+		if(result == 0 && determinant.signum() != 0){
+			//too small to be a double, but it still needs the right sign
+			return determinant.signum() * Double.MIN_VALUE;
+		}
+		return result;
+	}
+
+	/**
+	 * Return 1 if c is to the left of the line from a to b, -1 if it is to the right,
+	 * or 0 if the three points are exactly collinear. See orientationDeterminant().
+	 */
+	public static int orientation(double ax, double ay, double bx, double by, double cx, double cy){
+		double determinant = orientationDeterminant(ax, ay, bx, by, cx, cy);
+		if(determinant > 0){
+			return 1;
+		} else if(determinant < 0){
+			return -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Return 1 if c is to the left of the line from a to b, -1 if it is to the right,
+	 * or 0 if the three points are exactly collinear.
+	 */
+	public static int orientation(Point a, Point b, Point c){
+		return orientation(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+	}
+
+	/**
+	 * Determine whether the segment from p0 to p1 and the segment from q0 to q1 have any point
+	 * in common, including when one only touches the other with an endpoint, and when the two
+	 * are collinear and overlap. The answer is exact.
+	 */
+	public static boolean segmentsIntersect(double p0x, double p0y, double p1x, double p1y, double q0x, double q0y, double q1x, double q1y){
+		//quick rejection: segments whose bounding boxes don't overlap can't intersect
+		if(Math.max(p0x, p1x) < Math.min(q0x, q1x) || Math.max(q0x, q1x) < Math.min(p0x, p1x)
+				|| Math.max(p0y, p1y) < Math.min(q0y, q1y) || Math.max(q0y, q1y) < Math.min(p0y, p1y)){
+			return false;
+		}
+		int p0Side = orientation(q0x, q0y, q1x, q1y, p0x, p0y);
+		int p1Side = orientation(q0x, q0y, q1x, q1y, p1x, p1y);
+		if(p0Side != 0 && p0Side == p1Side){
+			return false; //p is entirely on one side of q's line
+		}
+		int q0Side = orientation(p0x, p0y, p1x, p1y, q0x, q0y);
+		int q1Side = orientation(p0x, p0y, p1x, p1y, q1x, q1y);
+		if(q0Side != 0 && q0Side == q1Side){
+			return false; //q is entirely on one side of p's line
+		}
+		//each segment now reaches both sides of (or touches) the other's line. if they aren't
+		//collinear, that means they cross. if they are collinear, the bounding box check above
+		//has already shown that they overlap.
+		return true;
+	}
+
+	/**
+	 * Determine whether two Segments have any point in common. See the other segmentsIntersect().
+	 */
+	public static boolean segmentsIntersect(Segment s0, Segment s1){
+		Point p0 = s0.getStartPoint();
+		Point p1 = s0.getEndPoint();
+		Point q0 = s1.getStartPoint();
+		Point q1 = s1.getEndPoint();
+		return segmentsIntersect(p0.getX(), p0.getY(), p1.getX(), p1.getY(), q0.getX(), q0.getY(), q1.getX(), q1.getY());
+	}
+
+	/**
+	 * Find the point where two Segments cross, or null if they don't intersect or are collinear.
+	 * Whether there is an intersection is decided exactly, by segmentsIntersect(). The point
+	 * itself is found from the ratio of the two orientation determinants of s0's endpoints
+	 * against s1, so it always lies on s0 and works for vertical Segments without any special
+	 * cases, unlike Line.getIntersectionWith().
+	 */
+	public static Point intersectionPoint(Segment s0, Segment s1){
+		if(!segmentsIntersect(s0, s1)){
+			return null;
+		}
+		Point p0 = s0.getStartPoint();
+		Point p1 = s0.getEndPoint();
+		Point q0 = s1.getStartPoint();
+		Point q1 = s1.getEndPoint();
+		double startSide = orientationDeterminant(q0.getX(), q0.getY(), q1.getX(), q1.getY(), p0.getX(), p0.getY());
+		double endSide = orientationDeterminant(q0.getX(), q0.getY(), q1.getX(), q1.getY(), p1.getX(), p1.getY());
+		if(startSide == endSide){
+			return null; //collinear, so there is no single point of intersection
+		}
+		double t = startSide / (startSide - endSide);
+		return new Point(p0.getX() + (t * (p1.getX() - p0.getX())), p0.getY() + (t * (p1.getY() - p0.getY())));
+	}
+
+	/**
+	 * Determine whether a polygon is simple: none of its edges cross or touch any edge other
+	 * than the two next to it, no two edges next to each other fold back over each other, no
+	 * vertex is repeated, and it isn't flat (all of its vertices on one line).
+	 * A polygon that isn't simple has no consistent inside, so its edge normals are meaningless.
+	 * @param vertices the vertices of the polygon, in order
+	 */
+	public static boolean isSimplePolygon(Point[] vertices){
+		int n = vertices.length;
+		if(n < 3){
+			return false;
+		}
+		boolean flat = true;
+		for(int i = 2; i < n && flat; i++){
+			flat = orientation(vertices[0], vertices[1], vertices[i]) == 0;
+		}
+		if(flat){
+			return false;
+		}
+		for(int i = 0; i < n; i++){
+			for(int j = i + 1; j < n; j++){
+				if(vertices[i].getX() == vertices[j].getX() && vertices[i].getY() == vertices[j].getY()){
+					return false;
+				}
+			}
+		}
+		for(int i = 0; i < n; i++){
+			Point a0 = vertices[i];
+			Point a1 = vertices[(i + 1) % n];
+			Point a2 = vertices[(i + 2) % n];
+			//edges i and i + 1 only share their common vertex, unless they are on one line and the second one turns back along the first
+			if(orientation(a0, a1, a2) == 0 && ((a1.getX() - a0.getX()) * (a2.getX() - a1.getX())) + ((a1.getY() - a0.getY()) * (a2.getY() - a1.getY())) < 0){
+				return false;
+			}
+			//edges i and i + 1 share a vertex, so start two edges later, and stop before wrapping around to edge i - 1
+			for(int j = i + 2; j < n; j++){
+				if(i == 0 && j == n - 1){
+					continue; //the last edge shares the first vertex with edge 0
+				}
+				Point b0 = vertices[j];
+				Point b1 = vertices[(j + 1) % n];
+				if(segmentsIntersect(a0.getX(), a0.getY(), a1.getX(), a1.getY(), b0.getX(), b0.getY(), b1.getX(), b1.getY())){
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the number of orientation tests so far that were too close to call with double
+	 * arithmetic and had to be redone exactly. Used by test modules to show how rare that is.
+	 */
+	public static long getExactTests(){
+		return exactTests;
+	}
+}
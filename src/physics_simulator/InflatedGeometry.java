@@ -0,0 +1,657 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The InflatedGeometry class.
+ * Stores the shapes of the simulation "inflated" by a ball radius: every edge is pushed
+ * outward by the radius on both of its sides, and every vertex is surrounded by a circle
+ * (a corner arc) with the same radius. A ball of that radius touches a shape exactly when
+ * its center touches the inflated version of the shape, so instead of checking the distance
+ * between the ball and each edge at many points along the ball's path, the Physics class
+ * only needs to follow the center of the ball along a straight line (a ray) and find the
+ * first inflated edge or corner arc that the ray hits. This is done in a single step, no
+ * matter how far the ball moves.
+ *
+ * Because corners are just part of the inflated geometry, they are found by the same ray
+ * test as edges, instead of needing a separate pass. A ball can only touch a corner arc before
+ * either of the edges next to it if the ball is on the side that the corner sticks out on, so
+ * each corner's bisector (see Shape.getCornerNormalX()) is stored, and a ray only checks the
+ * arcs of corners that face it. The reflex corners of solid shapes, which balls stay outside of, and
+ * corners where the edges continue in a straight line, are never checked at all.
+ *
+ * Balls stay outside of solid shapes (see Shape.setContainer() and the PolygonIndex class), so
+ * only the offset copy on the outward side of a solid shape's edge can ever be touched, and
+ * only by a ray moving against the edge's outward normal. Likewise, balls stay inside of the
+ * map's border, so only the inward side of its edges can be touched. The ray test checks the
+ * sign of the ray's speed along each edge's normal first, and skips these back facing and
+ * receding edges without any distance calculations. Lines, other containers and moving shapes
+ * are still faced from both sides. The numbers of edges tested and skipped are counted, to measure how much of the
+ * work this saves (see getNumberOfEdgesTested() and getNumberOfEdgesCulled()).
+ *
+ * One InflatedGeometry is kept for each different ball radius in the simulation. The
+ * inflated edges are stored as plain arrays of numbers: for each edge, the line each of
+ * its two offset copies lies on (as a unit normal and a distance), and the range along the
+ * edge that the offset copies cover. The arrays are rebuilt when shapes are edited, and
+ * the entries for kinematic shapes are updated each time they move.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class InflatedGeometry {
+
+	public static final double SKIN = 0.01; //how far outside of the inflated geometry a ball is placed after it collides, so that it doesn't start the next clock tick touching it
+	private static final double TOLERANCE = 0.001; //a ball whose center is this far inside of the inflated geometry is still treated as touching it, rather than stuck inside of it
+	private int radius; //the ball radius that the shapes are inflated by
+	private int[] shapeEdgeStart = new int[1]; //the edges of shape i are stored from index shapeEdgeStart[i] up to (but not including) shapeEdgeStart[i + 1]
+	private double[] vertexX = new double[0]; //the x coordinate of the start vertex of each edge, which is the center of a corner arc
+	private double[] vertexY = new double[0]; //the y coordinate of the start vertex of each edge
+	/*
+	 * double[] cullingSign:
+	 * 1 for an edge whose outward side is the only side that can be touched (an edge of a solid
+	 * shape that doesn't move), -1 for an edge whose inward side is the only one (an edge of the
+	 * map's border), and 0 for an edge that can be touched from both sides. A ray whose speed
+	 * along the edge's normal has the same sign as this is moving away from the side that can be touched.
+	 */
+	private double[] cullingSign = new double[0];
+	private int borderShape = -1; //the index of the map's border, or -1 if there is none
+	private double[] normalX = new double[0]; //the x component of each edge's unit normal. (0, 0) if the edge has no length
+	private double[] normalY = new double[0]; //the y component of each edge's unit normal
+	private double[] tangentX = new double[0]; //the x component of the unit vector pointing along each edge
+	private double[] tangentY = new double[0]; //the y component of the unit vector pointing along each edge
+	/*
+	 * double[] offsetPositive, offsetNegative:
+	 * the offset copy of an edge on the side its normal n points to lies on the line of points q
+	 * where q . n = offsetPositive. the copy on the other side lies on the line where q . (-n) = offsetNegative.
+	 */
+	private double[] offsetPositive = new double[0];
+	private double[] offsetNegative = new double[0];
+	private double[] cornerNormalX = new double[0]; //the x component of the bisector of the corner at each edge's start vertex. (0, 0) if the corner faces every way
+	private double[] cornerNormalY = new double[0]; //the y component of that bisector
+	private boolean[] hasCorner = new boolean[0]; //can a ball touch the corner arc at each edge's start vertex before it touches an edge?
+	private double[] spanStart = new double[0]; //the position of each edge's start vertex along the edge (vertex . tangent)
+	private double[] spanEnd = new double[0]; //the position of each edge's end vertex along the edge
+	private double[] boundsXMin = new double[0]; //the hit box of each inflated shape
+	private double[] boundsYMin = new double[0];
+	private double[] boundsXMax = new double[0];
+	private double[] boundsYMax = new double[0];
+	//the results of the most recent call to castRay() or depenetrate()
+	private double hitTime; //the fraction of the ray's length at which it hit
+	private double hitNormalX; //the x component of the unit normal of the inflated geometry where the ray hit, pointing towards the ball
+	private double hitNormalY; //the y component of that normal
+	private int hitShape; //the index of the shape that was hit
+	private int hitEdge; //the index of the edge (or, for a corner, of the edge starting at the corner) within that shape
+	private boolean hitIsCorner; //was a corner arc hit, rather than an inflated edge?
+	private double depenetratedX; //where to move a ball found by depenetrate(), so that it no longer overlaps the closest edge
+	private double depenetratedY; //the y coordinate of that position
+	private long numberOfEdgesTested = 0; //the number of edges that castRay() has calculated the distance to
+	private long numberOfEdgesCulled = 0; //the number of edges that castRay() has skipped, because the ray can't touch them
+
+	/**
+	 * Construct an empty InflatedGeometry for balls of the specified radius. Call rebuild() to fill it in.
+	 * @param initRadius the ball radius that the shapes are inflated by
+	 */
+	public InflatedGeometry(int initRadius){
+		radius = initRadius;
+	}
+
+	/**
+	 * Inflate every shape in the list. Called when shapes are edited, added or deleted.
+	 * @param shapes the list of shapes in the simulation
+	 * @param initBorderShape the index of the map's border, which balls are kept inside of (see Physics9.keepInsideBorder()), or -1 if there is none
+	 */
+	public void rebuild(ArrayList<Shape> shapes, int initBorderShape){
+		borderShape = initBorderShape;
+		int numberOfShapes = shapes.size();
+		shapeEdgeStart = new int[numberOfShapes + 1];
+		for(int i = 0; i < numberOfShapes; i++){
+			shapeEdgeStart[i + 1] = shapeEdgeStart[i] + shapes.get(i).getNumberOfVertices();
+		}
+		int numberOfEdges = shapeEdgeStart[numberOfShapes];
+		vertexX = new double[numberOfEdges];
+		vertexY = new double[numberOfEdges];
+		cullingSign = new double[numberOfEdges];
+		normalX = new double[numberOfEdges];
+		normalY = new double[numberOfEdges];
+		tangentX = new double[numberOfEdges];
+		tangentY = new double[numberOfEdges];
+		offsetPositive = new double[numberOfEdges];
+		offsetNegative = new double[numberOfEdges];
+		cornerNormalX = new double[numberOfEdges];
+		cornerNormalY = new double[numberOfEdges];
+		hasCorner = new boolean[numberOfEdges];
+		spanStart = new double[numberOfEdges];
+		spanEnd = new double[numberOfEdges];
+		boundsXMin = new double[numberOfShapes];
+		boundsYMin = new double[numberOfShapes];
+		boundsXMax = new double[numberOfShapes];
+		boundsYMax = new double[numberOfShapes];
+		for(int i = 0; i < numberOfShapes; i++){
+			updateShape(i, shapes.get(i));
+		}
+	}
+
+	/**
+	 * Inflate a single shape again, after it has moved. The shape must have the same number of
+	 * vertices as when rebuild() was last called. Called for kinematic shapes on each clock tick.
+	 * @param shapeIndex the index of the shape in the shapes list
+	 * @param shape the shape
+	 */
+	public void updateShape(int shapeIndex, Shape shape){
+		int start = shapeEdgeStart[shapeIndex];
+		int numberOfVertices = shape.getNumberOfVertices();
+		//balls stay outside of a solid shape, so its reflex corners point away from them. lines and containers are
+		//faced from both sides, so every corner of theirs can be touched
+		boolean solid = numberOfVertices >= 3 && shape.getSignedArea() != 0 && !shape.isContainer();
+		//a moving shape can move over a ball, which then has to be able to hit the inside of its edges to be found and freed
+		double sign = 0;
+		if(shapeIndex == borderShape){
+			sign = -1;
+		} else if(solid && !shape.isKinematic()){
+			sign = 1;
+		}
+		for(int k = 0; k < numberOfVertices; k++){
+			int edge = start + k;
+			Point current = shape.getVertex(k);
+			Point next = shape.getVertex((k + 1) % numberOfVertices);
+			double x0 = current.getX();
+			double y0 = current.getY();
+			double xDirection = next.getX() - x0;
+			double yDirection = next.getY() - y0;
+			double length = Math.sqrt((xDirection * xDirection) + (yDirection * yDirection));
+			vertexX[edge] = x0;
+			vertexY[edge] = y0;
+			normalX[edge] = shape.getEdgeNormalX(k);
+			normalY[edge] = shape.getEdgeNormalY(k);
+			cullingSign[edge] = sign;
+			if(length > 0){
+				tangentX[edge] = xDirection / length;
+				tangentY[edge] = yDirection / length;
+			} else {
+				tangentX[edge] = 0;
+				tangentY[edge] = 0;
+			}
+			double distance = (x0 * normalX[edge]) + (y0 * normalY[edge]);
+			offsetPositive[edge] = distance + radius;
+			offsetNegative[edge] = -distance + radius;
+			spanStart[edge] = (x0 * tangentX[edge]) + (y0 * tangentY[edge]);
+			spanEnd[edge] = spanStart[edge] + length;
+			cornerNormalX[edge] = shape.getCornerNormalX(k);
+			cornerNormalY[edge] = shape.getCornerNormalY(k);
+			hasCorner[edge] = shape.isCornerConvex(k) || (!solid && (cornerNormalX[edge] != 0 || cornerNormalY[edge] != 0));
+		}
+		boundsXMin[shapeIndex] = shape.getXMin() - radius;
+		boundsYMin[shapeIndex] = shape.getYMin() - radius;
+		boundsXMax[shapeIndex] = shape.getXMax() + radius;
+		boundsYMax[shapeIndex] = shape.getYMax() + radius;
+	}
+
+	/**
+	 * Follow a ray from the point (px, py) to the point (px + dx, py + dy), and find the first
+	 * place it enters the inflated geometry of any of the candidate shapes. In other words,
+	 * find the first place where a ball of this geometry's radius, moving from (px, py) by
+	 * (dx, dy), touches a shape. Only the side of each inflated edge that the ray is moving
+	 * towards is checked, so a ray that starts touching an edge and moves away from it doesn't hit it.
+	 * If there is a hit, it can be read with getHitTime(), getHitNormalX() and the other getters.
+	 * @param px the x coordinate of the start of the ray (the center of the ball)
+	 * @param py the y coordinate of the start of the ray
+	 * @param dx the x distance the ray covers (the ball's x velocity)
+	 * @param dy the y distance the ray covers (the ball's y velocity)
+	 * @param candidates the indices of the shapes to check, such as those found by the BroadPhaseGrid
+	 * @param numberOfCandidates the number of indices in the candidates array
+	 * @return true if the ray hits something before it ends
+	 */
+	public boolean castRay(double px, double py, double dx, double dy, int[] candidates, int numberOfCandidates){
+		double best = 1; //the earliest hit so far, as a fraction of the ray's length. a hit must come before the end of the ray
+		hitShape = -1;
+		double rayXMin = Math.min(px, px + dx);
+		double rayXMax = Math.max(px, px + dx);
+		double rayYMin = Math.min(py, py + dy);
+		double rayYMax = Math.max(py, py + dy);
+		double lengthSquared = (dx * dx) + (dy * dy);
+		double radiusSquared = (double) radius * radius;
+		int tested = 0;
+		int culled = 0;
+		for(int c = 0; c < numberOfCandidates; c++){
+			int shapeIndex = candidates[c];
+			if(rayXMax < boundsXMin[shapeIndex] || rayXMin > boundsXMax[shapeIndex] || rayYMax < boundsYMin[shapeIndex] || rayYMin > boundsYMax[shapeIndex]){
+				continue;
+			}
+			for(int edge = shapeEdgeStart[shapeIndex]; edge < shapeEdgeStart[shapeIndex + 1]; edge++){
+				double nx = normalX[edge];
+				double ny = normalY[edge];
+				double speed = (dx * nx) + (dy * ny); //how fast the ray moves along the normal
+				if(speed == 0 || speed * cullingSign[edge] > 0){
+					//the ray is moving along the edge, or away from the only side of it that can be touched
+					culled++;
+				} else {
+					tested++;
+					double along = (px * nx) + (py * ny); //how far the start of the ray is along the normal
+					if(speed < 0){
+						//the offset edge on the normal's side. the ray has to be outside of it, moving inwards
+						double gap = along - offsetPositive[edge];
+						if(gap >= -TOLERANCE){
+							double t = Math.max(0, gap / -speed);
+							if(t < best && isWithinSpan(edge, px + (t * dx), py + (t * dy))){
+								best = t;
+								setHit(t, nx, ny, shapeIndex, edge, false);
+							}
+						}
+					} else {
+						//the offset edge on the other side
+						double gap = -along - offsetNegative[edge];
+						if(gap >= -TOLERANCE){
+							double t = Math.max(0, gap / speed);
+							if(t < best && isWithinSpan(edge, px + (t * dx), py + (t * dy))){
+								best = t;
+								setHit(t, -nx, -ny, shapeIndex, edge, false);
+							}
+						}
+					}
+				}
+				//the corner arc around the edge's start vertex. it can only be touched on the side the corner sticks out on,
+				//since anywhere else is closer to one of the corner's edges, so the ray has to be on that side or moving towards it
+				if(hasCorner[edge] && lengthSquared > 0){
+					double relativeX = px - vertexX[edge];
+					double relativeY = py - vertexY[edge];
+					double b = (relativeX * dx) + (relativeY * dy);
+					double facing = (relativeX * cornerNormalX[edge]) + (relativeY * cornerNormalY[edge]);
+					if(b < 0 && (facing >= 0 || (dx * cornerNormalX[edge]) + (dy * cornerNormalY[edge]) > 0)){
+						//moving towards the corner. solve |relative + t * d|^2 = radius^2 for the first t
+						double c0 = (relativeX * relativeX) + (relativeY * relativeY) - radiusSquared;
+						double discriminant = (b * b) - (lengthSquared * c0);
+						if(c0 >= -TOLERANCE * radius && discriminant >= 0){
+							double t = Math.max(0, (-b - Math.sqrt(discriminant)) / lengthSquared);
+							double hitX = relativeX + (t * dx);
+							double hitY = relativeY + (t * dy);
+							if(t < best && (hitX * cornerNormalX[edge]) + (hitY * cornerNormalY[edge]) >= 0){
+								best = t;
+								double hitLength = Math.sqrt((hitX * hitX) + (hitY * hitY));
+								setHit(t, hitX / hitLength, hitY / hitLength, shapeIndex, edge, true);
+							}
+						}
+					}
+				}
+			}
+		}
+		numberOfEdgesTested += tested;
+		numberOfEdgesCulled += culled;
+		return hitShape != -1;
+	}
+
+	/**
+	 * Predict the first clock tick on which a ball, moving freely under gravity from the point
+	 * (px, py) with velocity (vx, vy), may touch the inflated geometry of any of the candidate shapes.
+	 * Used by the EventDrivenPhysics class to skip over the clock ticks where nothing can happen.
+	 *
+	 * The Physics class moves a ball by adding gravity to its velocity, then adding its velocity
+	 * to its position, so after n clock ticks without a collision, the ball is at
+	 * 		p(n) = p + n * v + gravity * n * (n + 1) / 2
+	 * which is a parabola in n. For each inflated edge, the distance of p(n) past the edge's offset
+	 * line is a quadratic in n, so the clock tick on which the ball crosses it can be solved for
+	 * directly. Between clock ticks the ball moves in straight lines, which can cut inside the
+	 * parabola by up to gravity / 8, so each line is moved outward by that much to be safe.
+	 * For the corner arcs, a lower bound is used instead: the ball can't have moved further than
+	 * n * |v| + |gravity| * n * (n + 1) / 2, so it can't reach a corner until that distance is
+	 * as large as its distance from the corner arc.
+	 *
+	 * The prediction is never later than the real first collision, but it can be earlier, so the
+	 * caller should move the ball through the predicted clock tick normally, and predict again.
+	 * @param px the x coordinate of the center of the ball
+	 * @param py the y coordinate of the center of the ball
+	 * @param vx the x velocity of the ball
+	 * @param vy the y velocity of the ball
+	 * @param gravity the amount added to the ball's y velocity on each clock tick
+	 * @param horizon the furthest clock tick to look ahead to
+	 * @param candidates the indices of the shapes to check, which must include every shape near the ball's path up to the horizon
+	 * @param numberOfCandidates the number of indices in the candidates array
+	 * @return the number of clock ticks from now until the predicted collision, from 1 to horizon
+	 */
+	public int predictContactTick(double px, double py, double vx, double vy, double gravity, int horizon, int[] candidates, int numberOfCandidates){
+		double earliest = horizon;
+		double margin = (Math.abs(gravity) / 8) + TOLERANCE;
+		//the ball's position as a quadratic in the clock tick n: p(n) = p + b * n + (0, a) * n^2
+		double bx = vx;
+		double by = vy + (gravity / 2);
+		double a = gravity / 2;
+		double speed = Math.sqrt((vx * vx) + (vy * vy));
+		double absoluteGravity = Math.abs(gravity);
+		for(int c = 0; c < numberOfCandidates; c++){
+			int shapeIndex = candidates[c];
+			for(int edge = shapeEdgeStart[shapeIndex]; edge < shapeEdgeStart[shapeIndex + 1]; edge++){
+				double nx = normalX[edge];
+				double ny = normalY[edge];
+				if(nx != 0 || ny != 0){
+					//distance past the offset line on the normal's side: quadratic * n^2 + linear * n + constant
+					double quadratic = a * ny;
+					double linear = (bx * nx) + (by * ny);
+					if(cullingSign[edge] >= 0){
+						double constant = (px * nx) + (py * ny) - offsetPositive[edge] - margin;
+						earliest = Math.min(earliest, firstCrossing(quadratic, linear, constant, edge, px, py, bx, by, a, earliest));
+					}
+					//the same for the offset line on the other side, where the direction of the normal is reversed
+					if(cullingSign[edge] <= 0){
+						double constant = -(px * nx) - (py * ny) - offsetNegative[edge] - margin;
+						earliest = Math.min(earliest, firstCrossing(-quadratic, -linear, constant, edge, px, py, bx, by, a, earliest));
+					}
+				}
+				//the corner arc. solve |gravity| / 2 * n^2 + (speed + |gravity| / 2) * n = distance to the arc.
+				//the ball's path curves, so which side of the corner it ends up on isn't known, but corners that
+				//can never be touched first are still skipped
+				if(!hasCorner[edge]){
+					continue;
+				}
+				double relativeX = px - vertexX[edge];
+				double relativeY = py - vertexY[edge];
+				double gap = Math.sqrt((relativeX * relativeX) + (relativeY * relativeY)) - radius - margin;
+				if(gap <= 0){
+					return 1;
+				}
+				double reach = speed + (absoluteGravity / 2);
+				double ticks;
+				if(absoluteGravity == 0){
+					ticks = (reach == 0) ? horizon : gap / reach;
+				} else {
+					ticks = (-reach + Math.sqrt((reach * reach) + (2 * absoluteGravity * gap))) / absoluteGravity;
+				}
+				earliest = Math.min(earliest, ticks);
+			}
+		}
+		return Math.max(1, Math.min(horizon, (int) Math.ceil(earliest)));
+	}
+
+	/**
+	 * Find the first n after 0 at which quadratic * n^2 + linear * n + constant drops below 0,
+	 * where that expression is the distance of the ball past one of an edge's offset lines.
+	 * Crossings outside of the part of the line that the offset edge covers are ignored, since
+	 * the corner arcs take care of those. Returns Double.MAX_VALUE if there is no crossing
+	 * before the specified limit, or if the ball starts on the far side of the line.
+	 */
+	private double firstCrossing(double quadratic, double linear, double constant, int edge, double px, double py, double bx, double by, double a, double limit){
+		if(constant <= 0){
+			//the ball is already past this line. if it is inside of the inflated edge, it is overlapping it,
+			//so it needs to be moved right away. otherwise, it is on the far side of the edge, or off to
+			//the side of it, and can't cross this side of the edge without touching a corner arc first.
+			double position = (px * tangentX[edge]) + (py * tangentY[edge]);
+			if(constant > -2 * radius && position >= spanStart[edge] - 1 && position <= spanEnd[edge] + 1){
+				return 0;
+			}
+			return Double.MAX_VALUE;
+		}
+		double n;
+		if(quadratic == 0){
+			if(linear >= 0){
+				return Double.MAX_VALUE;
+			}
+			n = -constant / linear;
+		} else {
+			double discriminant = (linear * linear) - (4 * quadratic * constant);
+			if(discriminant < 0){
+				return Double.MAX_VALUE;
+			}
+			//the two roots, calculated in a way that avoids losing precision when subtracting
+			double q = -0.5 * (linear + (linear >= 0 ? Math.sqrt(discriminant) : -Math.sqrt(discriminant)));
+			double root0 = q / quadratic;
+			double root1 = (q == 0) ? 0 : constant / q;
+			double first = Math.min(root0, root1);
+			double second = Math.max(root0, root1);
+			//the expression starts out positive, so the first root after 0 is where it drops below 0
+			if(first > 0){
+				n = first;
+			} else if(second > 0){
+				n = second;
+			} else {
+				return Double.MAX_VALUE;
+			}
+		}
+		if(n >= limit){
+			return Double.MAX_VALUE;
+		}
+		//check that the crossing is within the part of the line the offset edge covers, with some room to spare
+		double crossingX = px + (bx * n);
+		double crossingY = py + (by * n) + (a * n * n);
+		double position = (crossingX * tangentX[edge]) + (crossingY * tangentY[edge]);
+		if(position < spanStart[edge] - 1 || position > spanEnd[edge] + 1){
+			return Double.MAX_VALUE;
+		}
+		return n;
+	}
+
+	/**
+	 * Find how far the point (px, py) is from the inflated geometry of the candidate shapes,
+	 * which is how far a ball centered there can move in any direction before touching one
+	 * of them. Shapes whose bounding boxes are further away than the closest edge found so
+	 * far are skipped, and nothing further away than the specified limit is looked for.
+	 * @param px the x coordinate of the center of the ball
+	 * @param py the y coordinate of the center of the ball
+	 * @param candidates the indices of the shapes to check
+	 * @param numberOfCandidates the number of indices in the candidates array
+	 * @param limit the largest distance to return
+	 * @return the distance from the point to the closest inflated shape, or limit if that is smaller. 0 if the point is inside of one
+	 */
+	public double clearance(double px, double py, int[] candidates, int numberOfCandidates, double limit){
+		return clearance(px, py, candidates, numberOfCandidates, limit, -1, -1);
+	}
+
+	/**
+	 * Same as clearance(px, py, candidates, numberOfCandidates, limit), but without looking at
+	 * one edge, such as the edge that a ball is resting on. The edges next to it are still
+	 * looked at, so the clearance runs out as the ball nears either end of the edge.
+	 * @param ignoredShape the index of the shape that the ignored edge belongs to, or -1 to look at every edge
+	 * @param ignoredEdge the index of the ignored edge within that shape
+	 */
+	public double clearance(double px, double py, int[] candidates, int numberOfCandidates, double limit, int ignoredShape, int ignoredEdge){
+		int skippedEdge = ignoredShape == -1 ? -1 : shapeEdgeStart[ignoredShape] + ignoredEdge;
+		//compare distances to the edges themselves, which are radius further away than the inflated edges
+		double best = limit + radius;
+		double bestSquared = best * best;
+		for(int c = 0; c < numberOfCandidates; c++){
+			int shapeIndex = candidates[c];
+			//the distance to the shape's (inflated) bounding box is never more than the distance to the shape
+			double xGap = Math.max(0, Math.max(boundsXMin[shapeIndex] - px, px - boundsXMax[shapeIndex]));
+			double yGap = Math.max(0, Math.max(boundsYMin[shapeIndex] - py, py - boundsYMax[shapeIndex]));
+			if((xGap * xGap) + (yGap * yGap) >= (best - radius) * (best - radius)){
+				continue;
+			}
+			for(int edge = shapeEdgeStart[shapeIndex]; edge < shapeEdgeStart[shapeIndex + 1]; edge++){
+				if(edge == skippedEdge){
+					continue;
+				}
+				double relativeX = px - vertexX[edge];
+				double relativeY = py - vertexY[edge];
+				double position = Math.max(0, Math.min(spanEnd[edge] - spanStart[edge], (relativeX * tangentX[edge]) + (relativeY * tangentY[edge])));
+				double xDifference = relativeX - (position * tangentX[edge]);
+				double yDifference = relativeY - (position * tangentY[edge]);
+				double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+				if(distanceSquared < bestSquared){
+					bestSquared = distanceSquared;
+					best = Math.sqrt(distanceSquared);
+				}
+			}
+		}
+		return Math.max(0, best - radius);
+	}
+
+	/**
+	 * If the point (px, py) is inside of the inflated geometry of any of the candidate shapes
+	 * (in other words, a ball centered there would overlap a shape), find the closest point on
+	 * the closest edge, and the direction from it to the ball. This happens when a moving shape
+	 * pushes into a ball, or when rounding errors leave a ball slightly inside of an edge.
+	 * The result can be read with getHitNormalX(), getHitNormalY() and the other getters, and
+	 * the position to move the ball to so that it no longer overlaps the closest edge can be
+	 * read with getDepenetratedX() and getDepenetratedY().
+	 * @param px the x coordinate of the center of the ball
+	 * @param py the y coordinate of the center of the ball
+	 * @param candidates the indices of the shapes to check
+	 * @param numberOfCandidates the number of indices in the candidates array
+	 * @return true if the ball overlaps a shape
+	 */
+	public boolean depenetrate(double px, double py, int[] candidates, int numberOfCandidates){
+		double limit = (radius - TOLERANCE) * (radius - TOLERANCE);
+		double bestDistanceSquared = limit;
+		hitShape = -1;
+		for(int c = 0; c < numberOfCandidates; c++){
+			int shapeIndex = candidates[c];
+			if(px < boundsXMin[shapeIndex] || px > boundsXMax[shapeIndex] || py < boundsYMin[shapeIndex] || py > boundsYMax[shapeIndex]){
+				continue;
+			}
+			for(int edge = shapeEdgeStart[shapeIndex]; edge < shapeEdgeStart[shapeIndex + 1]; edge++){
+				//find the closest point on the edge to the ball
+				double relativeX = px - vertexX[edge];
+				double relativeY = py - vertexY[edge];
+				double position = Math.max(0, Math.min(spanEnd[edge] - spanStart[edge], (relativeX * tangentX[edge]) + (relativeY * tangentY[edge])));
+				double closestX = vertexX[edge] + (position * tangentX[edge]);
+				double closestY = vertexY[edge] + (position * tangentY[edge]);
+				double xDifference = px - closestX;
+				double yDifference = py - closestY;
+				double distanceSquared = (xDifference * xDifference) + (yDifference * yDifference);
+				if(distanceSquared < bestDistanceSquared){
+					bestDistanceSquared = distanceSquared;
+					double distance = Math.sqrt(distanceSquared);
+					if(distance > 0){
+						setHit(0, xDifference / distance, yDifference / distance, shapeIndex, edge, false);
+					} else {
+						//the ball's center is exactly on the edge, so there is no direction from the edge to the ball. use the edge's normal
+						setHit(0, normalX[edge], normalY[edge], shapeIndex, edge, false);
+					}
+					hitIsCorner = position == 0 || position == spanEnd[edge] - spanStart[edge];
+					depenetratedX = closestX + (hitNormalX * (radius + SKIN));
+					depenetratedY = closestY + (hitNormalY * (radius + SKIN));
+				}
+			}
+		}
+		return hitShape != -1;
+	}
+
+	/**
+	 * Is a ball centered at the point (px, py) still resting on the flat part of an edge that it
+	 * touched before? It is if its center is within the span of the edge, and no more than the
+	 * specified distance outside of the offset copy of the edge on its side (or only rounding
+	 * errors inside of it). If it is, the unit normal pointing from the edge towards the ball
+	 * can be read with getHitNormalX() and getHitNormalY().
+	 * @param shapeIndex the index of the shape in the shapes list
+	 * @param edge the index of the edge within the shape, as returned by getHitEdge()
+	 * @param px the x coordinate of the center of the ball
+	 * @param py the y coordinate of the center of the ball
+	 * @param distance how far outside of the offset copy the ball can be
+	 * @return true if the ball is resting on the edge
+	 */
+	public boolean touchesEdge(int shapeIndex, int edge, double px, double py, double distance){
+		if(shapeIndex >= boundsXMin.length || edge >= shapeEdgeStart[shapeIndex + 1] - shapeEdgeStart[shapeIndex]){
+			return false;
+		}
+		edge += shapeEdgeStart[shapeIndex];
+		double along = (px * normalX[edge]) + (py * normalY[edge]);
+		double gap = along - offsetPositive[edge];
+		double side = 1;
+		if(along < offsetPositive[edge] - radius){
+			//the ball is on the other side of the edge
+			gap = -along - offsetNegative[edge];
+			side = -1;
+		}
+		if(gap < -TOLERANCE || gap > distance || (normalX[edge] == 0 && normalY[edge] == 0) || !isWithinSpan(edge, px, py)){
+			return false;
+		}
+		setHit(0, side * normalX[edge], side * normalY[edge], shapeIndex, edge, false);
+		return true;
+	}
+
+	/**
+	 * Is the point (x, y), which is on one of the lines that the offset copies of an edge lie on,
+	 * within the part of the line that the offset copy covers?
+	 */
+	private boolean isWithinSpan(int edge, double x, double y){
+		double position = (x * tangentX[edge]) + (y * tangentY[edge]);
+		return position >= spanStart[edge] && position <= spanEnd[edge];
+	}
+
+	/**
+	 * Store the details of a hit, to be read with the getters below.
+	 */
+	private void setHit(double t, double nx, double ny, int shapeIndex, int edge, boolean isCorner){
+		hitTime = t;
+		hitNormalX = nx;
+		hitNormalY = ny;
+		hitShape = shapeIndex;
+		hitEdge = edge - shapeEdgeStart[shapeIndex];
+		hitIsCorner = isCorner;
+	}
+
+	/**
+	 * Return the ball radius that this geometry is inflated by
+	 */
+	public int getRadius(){
+		return radius;
+	}
+
+	/**
+	 * Return the fraction of the ray's length at which the most recent hit happened, from 0 to 1
+	 */
+	public double getHitTime(){
+		return hitTime;
+	}
+
+	/**
+	 * Return the x component of the unit normal of the surface that was hit, pointing towards the ball
+	 */
+	public double getHitNormalX(){
+		return hitNormalX;
+	}
+
+	/**
+	 * Return the y component of the unit normal of the surface that was hit, pointing towards the ball
+	 */
+	public double getHitNormalY(){
+		return hitNormalY;
+	}
+
+	/**
+	 * Return the index in the shapes list of the shape that was hit
+	 */
+	public int getHitShape(){
+		return hitShape;
+	}
+
+	/**
+	 * Return the index of the edge that was hit, within the shape's edges[] array.
+	 * For a corner, this is the edge that starts at the corner.
+	 */
+	public int getHitEdge(){
+		return hitEdge;
+	}
+
+	/**
+	 * Was the most recent hit with a corner, rather than the flat part of an edge?
+	 */
+	public boolean getHitIsCorner(){
+		return hitIsCorner;
+	}
+
+	/**
+	 * Return the number of edges that castRay() has calculated the distance to, since this geometry was created
+	 */
+	public long getNumberOfEdgesTested(){
+		return numberOfEdgesTested;
+	}
+
+	/**
+	 * Return the number of edges that castRay() has skipped without calculating the distance to them,
+	 * because the ray was moving along them or away from the only side of them that can be touched
+	 */
+	public long getNumberOfEdgesCulled(){
+		return numberOfEdgesCulled;
+	}
+
+	/**
+	 * Return the x coordinate that depenetrate() found to move the ball to
+	 */
+	public double getDepenetratedX(){
+		return depenetratedX;
+	}
+
+	/**
+	 * Return the y coordinate that depenetrate() found to move the ball to
+	 */
+	public double getDepenetratedY(){
+		return depenetratedY;
+	}
+}
@@ -0,0 +1,292 @@
+package physics_simulator;
+
+/**
+ * The KinematicMotion class.
+ * Describes a scripted motion for a Shape, which turns an obstacle into a moving
+ * one, such as a rotating paddle or a sliding platform. Kinematic obstacles follow
+ * their script no matter what hits them; they push balls, but balls don't push them.
+ *
+ * A motion has two parts, either of which can be left out:
+ * 		rotation: the shape rotates about a pivot point by a fixed number of degrees
+ * 				  on every physics clock tick. positive is clockwise, negative is
+ * 				  counter-clockwise, as in Point.rotate().
+ * 		sliding: the shape (and its pivot) slide back and forth between their starting
+ * 				 position and that position plus (slideX, slideY), taking slidePeriod
+ * 				 clock ticks to go there and back. the slide eases in and out like a
+ * 				 pendulum, following a cosine curve.
+ *
+ * The motion keeps the shape's rest pose: where its vertices and pivot are with no rotation,
+ * at the start of the slide. Each clock tick, the shape's vertices are calculated from the
+ * rest pose and the total rotation and slide so far, so rounding errors don't build up over
+ * a long run. When a shape is moved or edited by hand in edit mode, its rest pose is moved
+ * or edited to match, so it continues its motion from wherever it is left.
+ *
+ * In map files, a kinematic shape has an extra line after its vertices:
+ * 		motion: pivot_x pivot_y degrees_per_tick slide_x slide_y slide_period
+ *
+ * @author Adam Cogen
+ *
+ */
+public class KinematicMotion {
+
+	private double restPivotX; //the x coordinate of the point the shape rotates about, at the start of the slide
+	private double restPivotY; //the y coordinate of the point the shape rotates about, at the start of the slide
+	private double degreesPerTick; //how far the shape rotates about the pivot on each clock tick
+	private double slideX; //the x distance between the two ends of the slide
+	private double slideY; //the y distance between the two ends of the slide
+	private double slidePeriod; //the number of clock ticks it takes to slide to the far end and back. 0 means the shape doesn't slide
+	private long tick = 0; //how many clock ticks the motion has been running for
+	private double slideOffsetX = 0; //how far along the x axis the shape currently is from the start of its slide
+	private double slideOffsetY = 0; //how far along the y axis the shape currently is from the start of its slide
+	private double rotation = 0; //how many degrees the shape has rotated about the pivot since the motion started, kept between -360 and 360
+	private double velocityX = 0; //the x distance the shape's pivot moved during the most recent clock tick
+	private double velocityY = 0; //the y distance the shape's pivot moved during the most recent clock tick
+	private double[] restCoordinates = new double[0]; //the shape's vertices with no rotation, at the start of the slide, as {x0, y0, x1, y1, ...}
+
+	/**
+	 * Construct a KinematicMotion. Give it to a Shape with Shape.setMotion(), which records the shape's rest pose.
+	 * @param initPivotX the x coordinate of the pivot point
+	 * @param initPivotY the y coordinate of the pivot point
+	 * @param initDegreesPerTick the number of degrees to rotate about the pivot on each clock tick
+	 * @param initSlideX the x distance between the two ends of the slide
+	 * @param initSlideY the y distance between the two ends of the slide
+	 * @param initSlidePeriod the number of clock ticks it takes to slide there and back. 0 for no sliding
+	 */
+	public KinematicMotion(double initPivotX, double initPivotY, double initDegreesPerTick, double initSlideX, double initSlideY, double initSlidePeriod){
+		restPivotX = initPivotX;
+		restPivotY = initPivotY;
+		degreesPerTick = initDegreesPerTick;
+		slideX = initSlideX;
+		slideY = initSlideY;
+		slidePeriod = initSlidePeriod;
+	}
+
+	/**
+	 * Advance the motion by one clock tick, and put the vertices of the specified shape where
+	 * the motion has taken them.
+	 * @param shape the Shape that this motion belongs to
+	 */
+	public void step(Shape shape){
+		tick++;
+		double moveX = 0;
+		double moveY = 0;
+		if(slidePeriod > 0){
+			//position along the slide, from 0 (start) to 1 (far end), following a cosine curve
+			double fraction = (1 - StrictMath.cos((2 * Math.PI * tick) / slidePeriod)) / 2;
+			moveX = (fraction * slideX) - slideOffsetX;
+			moveY = (fraction * slideY) - slideOffsetY;
+			slideOffsetX = fraction * slideX;
+			slideOffsetY = fraction * slideY;
+		}
+		velocityX = moveX;
+		velocityY = moveY;
+		//calculated from the number of clock ticks, rather than added up, so that it doesn't drift
+		rotation = (degreesPerTick * tick) % 360;
+		applyPose(shape);
+	}
+
+	/**
+	 * Put the vertices of the specified shape where the rest pose ends up with the current rotation and slide.
+	 * @param shape the Shape that this motion belongs to
+	 */
+	public void applyPose(Shape shape){
+		shape.setPose(restCoordinates, restPivotX, restPivotY, rotation, slideOffsetX, slideOffsetY);
+	}
+
+	/**
+	 * Record the rest pose of the specified shape, by undoing the current rotation and slide of
+	 * each of its vertices. Called by Shape.setMotion(), and whenever one of the shape's vertices
+	 * is moved by hand.
+	 * @param shape the Shape that this motion belongs to
+	 */
+	public void setRestPose(Shape shape){
+		if(restCoordinates.length != shape.getNumberOfVertices() * 2){
+			restCoordinates = new double[shape.getNumberOfVertices() * 2];
+		}
+		if(rotation == 0){
+			//nothing to rotate back, so leave the coordinates exactly as they are apart from the slide
+			for(int i = 0; i < shape.getNumberOfVertices(); i++){
+				restCoordinates[i * 2] = shape.getVertex(i).getX() - slideOffsetX;
+				restCoordinates[(i * 2) + 1] = shape.getVertex(i).getY() - slideOffsetY;
+			}
+			return;
+		}
+		double radians = Physics9.degreesToRadians(-rotation);
+		double cos = StrictMath.cos(radians);
+		double sin = StrictMath.sin(radians);
+		for(int i = 0; i < shape.getNumberOfVertices(); i++){
+			double relativeX = shape.getVertex(i).getX() - slideOffsetX - restPivotX;
+			double relativeY = shape.getVertex(i).getY() - slideOffsetY - restPivotY;
+			restCoordinates[i * 2] = restPivotX + (relativeX * cos) - (relativeY * sin);
+			restCoordinates[(i * 2) + 1] = restPivotY + (relativeX * sin) + (relativeY * cos);
+		}
+	}
+
+	/**
+	 * Move the rest pose and the pivot point, without moving the shape. Called when the shape is
+	 * translated by hand in edit mode, so that the shape keeps rotating about the same point on
+	 * itself, and continues its motion from where it was left.
+	 * @param xChange the distance to move along the x axis
+	 * @param yChange the distance to move along the y axis
+	 */
+	public void translate(double xChange, double yChange){
+		restPivotX += xChange;
+		restPivotY += yChange;
+		for(int i = 0; i < restCoordinates.length; i += 2){
+			restCoordinates[i] += xChange;
+			restCoordinates[i + 1] += yChange;
+		}
+	}
+
+	/**
+	 * Return the x component of the velocity of the point (x, y) on the shape, as of the most
+	 * recent clock tick. This includes both the slide and the rotation about the pivot.
+	 * Used to calculate how a ball bounces off of a moving obstacle.
+	 * @param x the x coordinate of a point on the shape
+	 * @param y the y coordinate of a point on the shape
+	 * @return the x distance that point is moving per clock tick
+	 */
+	public double getSurfaceVelocityX(double x, double y){
+		//rotating (x, y) about the pivot by a small angle moves it perpendicular to the line from the pivot
+		return velocityX - (Physics9.degreesToRadians(degreesPerTick) * (y - getPivotY()));
+	}
+
+	/**
+	 * Return the y component of the velocity of the point (x, y) on the shape. See getSurfaceVelocityX().
+	 * @param x the x coordinate of a point on the shape
+	 * @param y the y coordinate of a point on the shape
+	 * @return the y distance that point is moving per clock tick
+	 */
+	public double getSurfaceVelocityY(double x, double y){
+		return velocityY + (Physics9.degreesToRadians(degreesPerTick) * (x - getPivotX()));
+	}
+
+	/**
+	 * Calculate the "swept" bounding box of the shape: a rectangle that contains every
+	 * position the shape can reach while following this motion. The broad phase places
+	 * kinematic shapes into grid cells using this rectangle instead of their current hit
+	 * box, so the grid doesn't need to be rebuilt when they move.
+	 * @param shape the Shape that this motion belongs to
+	 * @return an array containing {xMin, yMin, xMax, yMax} of the swept bounding box
+	 */
+	public double[] getSweptBounds(Shape shape){
+		//the start of the slide, relative to the current position
+		double startX = -slideOffsetX;
+		double startY = -slideOffsetY;
+		double xMin, yMin, xMax, yMax;
+		double pivotX = getPivotX();
+		double pivotY = getPivotY();
+		if(degreesPerTick != 0){
+			//a rotating shape can reach anywhere within a circle around its pivot
+			double reach = 0;
+			for(int i = 0; i < shape.getNumberOfVertices(); i++){
+				reach = Math.max(reach, Physics9.distance(shape.getVertex(i), new Point(pivotX, pivotY)));
+			}
+			xMin = pivotX - reach;
+			yMin = pivotY - reach;
+			xMax = pivotX + reach;
+			yMax = pivotY + reach;
+		} else {
+			xMin = shape.getXMin();
+			yMin = shape.getYMin();
+			xMax = shape.getXMax();
+			yMax = shape.getYMax();
+		}
+		//stretch the box to cover both ends of the slide
+		double[] bounds = new double[4];
+		bounds[0] = Math.min(xMin + startX, xMin + startX + slideX);
+		bounds[1] = Math.min(yMin + startY, yMin + startY + slideY);
+		bounds[2] = Math.max(xMax + startX, xMax + startX + slideX);
+		bounds[3] = Math.max(yMax + startY, yMax + startY + slideY);
+		return bounds;
+	}
+
+	/**
+	 * Return the x coordinate of the point the shape currently rotates about, which moves along with the slide.
+	 */
+	public double getPivotX(){
+		return restPivotX + slideOffsetX;
+	}
+
+	/**
+	 * Return the y coordinate of the point the shape currently rotates about, which moves along with the slide.
+	 */
+	public double getPivotY(){
+		return restPivotY + slideOffsetY;
+	}
+
+	/**
+	 * Return the x coordinate of the pivot point at the start of the slide. Used when saving map files.
+	 */
+	public double getRestPivotX(){
+		return restPivotX;
+	}
+
+	/**
+	 * Return the y coordinate of the pivot point at the start of the slide.
+	 */
+	public double getRestPivotY(){
+		return restPivotY;
+	}
+
+	/**
+	 * Return the x coordinate of the specified vertex of the shape with no rotation, at the start of the slide.
+	 * Used when saving map files, so that a saved map starts its motions from the beginning.
+	 */
+	public double getRestX(int vertexIndex){
+		return restCoordinates[vertexIndex * 2];
+	}
+
+	/**
+	 * Return the y coordinate of the specified vertex of the shape with no rotation, at the start of the slide.
+	 */
+	public double getRestY(int vertexIndex){
+		return restCoordinates[(vertexIndex * 2) + 1];
+	}
+
+	/**
+	 * Move one vertex of the rest pose. Call applyPose() afterwards to move the shape to match.
+	 */
+	public void setRestVertex(int vertexIndex, double x, double y){
+		restCoordinates[vertexIndex * 2] = x;
+		restCoordinates[(vertexIndex * 2) + 1] = y;
+	}
+
+	/**
+	 * Return a copy of the rest pose, as {x0, y0, x1, y1, ..., pivot_x, pivot_y}. See setRestCoordinates().
+	 */
+	public double[] getRestCoordinates(){
+		double[] coordinates = new double[restCoordinates.length + 2];
+		System.arraycopy(restCoordinates, 0, coordinates, 0, restCoordinates.length);
+		coordinates[restCoordinates.length] = restPivotX;
+		coordinates[restCoordinates.length + 1] = restPivotY;
+		return coordinates;
+	}
+
+	/**
+	 * Replace the rest pose and the pivot with ones returned by getRestCoordinates(). Used by the
+	 * EditHistory class to undo and redo edits of a moving shape without changing where it is in
+	 * its motion. Call applyPose() afterwards to move the shape to match.
+	 */
+	public void setRestCoordinates(double[] coordinates){
+		System.arraycopy(coordinates, 0, restCoordinates, 0, restCoordinates.length);
+		restPivotX = coordinates[restCoordinates.length];
+		restPivotY = coordinates[restCoordinates.length + 1];
+	}
+
+	public double getDegreesPerTick(){
+		return degreesPerTick;
+	}
+
+	public double getSlideX(){
+		return slideX;
+	}
+
+	public double getSlideY(){
+		return slideY;
+	}
+
+	public double getSlidePeriod(){
+		return slidePeriod;
+	}
+}
@@ -22,7 +22,16 @@ public class Line {
 	 * @param p1 another Point along the line.
 	 */
 	public Line(Point p0, Point p1){
+		setEquation(p0, p1);
+	}
 
+	/**
+	 * Set the fields defining this Line's equation so that it passes through two points.
+	 * Used by the constructor, and by Segment.update() to move a Segment without creating a new one.
+	 * @param p0 a Point along the line
+	 * @param p1 another Point along the line.
+	 */
+	protected void setEquation(Point p0, Point p1){
 		if(p1.getX() == p0.getX()){ //line has undefined slope
 			slopeType = 2;
 			slope = 0;
@@ -47,6 +56,14 @@ public class Line {
 	 * @param initSlope the slope of the line. this value is ignored if slopeType is 0 or 2.
 	 */
 	public Line(Point p0, double initSlopeType, double initSlope){
+		setEquation(p0, initSlopeType, initSlope);
+	}
+
+	/**
+	 * Set the fields defining this Line's equation from 1 point and a slope. See the constructor
+	 * with the same parameters. Used by Axis.setPerpendicularTo() to change an Axis in place.
+	 */
+	protected void setEquation(Point p0, double initSlopeType, double initSlope){
 		if(initSlopeType == 0){ //slope is zero
 			slope = 0;
 			constant = p0.getY();
@@ -17,6 +17,14 @@ public class Map {
 	private ReadMapFile mapFileReader; //handles reading the data from an actual map .txt file upon loading
 	private String filename; //the file path of the file that is currently open
 	private SaveMapFile saveFile; //handles writing the data in this map to a .txt file upon saving
+	private EditHistory editHistory; //a journal of the changes made to the shapes list, used to undo and redo edits
+	private ArrayList<Emitter> emitters; //a list of each region that spawns new balls
+	private ArrayList<Sink> sinks; //a list of each region that removes balls
+	private BallSpawner spawner; //adds balls from the emitters and removes balls in the sinks
+	private double gravity; //the amount added to each ball's y velocity on each clock tick
+	private MaterialTable materials; //the materials that balls and shapes refer to
+	private ArrayList<ForceField> forceFields; //the winds, attractors and vector grids that push on the balls
+	private ArrayList<Constraint> constraints; //the springs, rods, ropes and anchors that join the balls
 
 	/**
 	 * Construct a new Map instance from a specified file path,
@@ -28,10 +36,16 @@ public class Map {
 		filename = initFilename;
 		players = new ArrayList<Ball>();
 		shapes = new ArrayList<Shape>();
-		mapFileReader = new ReadMapFile(players, shapes, filename);
+		emitters = new ArrayList<Emitter>();
+		sinks = new ArrayList<Sink>();
+		mapFileReader = new ReadMapFile(players, shapes, emitters, sinks, filename);
 		height = mapFileReader.getHeight();
 		width = mapFileReader.getWidth();
 		drawBorder = mapFileReader.getDrawBorder();
+		gravity = mapFileReader.getGravity();
+		materials = mapFileReader.getMaterials();
+		forceFields = mapFileReader.getForceFields();
+		constraints = mapFileReader.getConstraints();
 		if(drawBorder){ 
 			/*
 			 * If the map should have an automatically drawn uneditable rectangular border, add it as the 
@@ -45,9 +59,12 @@ public class Map {
 			simulationBorder.add(new Point(width - 20, 20));
 			simulationBorder.add(new Point(width - 20, height - 20));
 			simulationBorder.add(new Point(20, height - 20));
-			shapes.add(0, new Shape(simulationBorder));
+			Shape border = new Shape(simulationBorder);
+			border.setContainer(true);
+			shapes.add(0, border);
 		}
-
+		editHistory = new EditHistory(shapes);
+		spawner = new BallSpawner(players, emitters, sinks, materials);
 	}
 
 	/**
@@ -78,6 +95,101 @@ public class Map {
 		return players;
 	}
 
+	/**
+	 * Return the EditHistory that records the changes made to this Map's shapes,
+	 * so that they can be undone and redone.
+	 * @return the EditHistory for this Map
+	 */
+	public EditHistory getEditHistory(){
+		return editHistory;
+	}
+
+	/**
+	 * Return the list of all emitters in this Map, which spawn new balls.
+	 * @return the emitters ArrayList<Emitter> from this Map
+	 */
+	public ArrayList<Emitter> getEmitterList(){
+		return emitters;
+	}
+
+	/**
+	 * Return the list of all sinks in this Map, which remove balls.
+	 * @return the sinks ArrayList<Sink> from this Map
+	 */
+	public ArrayList<Sink> getSinkList(){
+		return sinks;
+	}
+
+	/**
+	 * Return the BallSpawner, which adds and removes balls using this Map's emitters and sinks.
+	 * @return the BallSpawner for this Map
+	 */
+	public BallSpawner getSpawner(){
+		return spawner;
+	}
+
+	/**
+	 * Return a list of the balls that belong to this Map's file: every ball that was not
+	 * spawned by an emitter, including balls that are currently removed because they entered
+	 * a sink. These are the balls that are saved when the map is saved.
+	 * @return a new ArrayList<Ball> containing the balls from the map file
+	 */
+	public ArrayList<Ball> getMapBalls(){
+		ArrayList<Ball> mapBalls = new ArrayList<Ball>();
+		for(int i = 0; i < players.size(); i++){
+			if(!players.get(i).isSpawned()){
+				mapBalls.add(players.get(i));
+			}
+		}
+		mapBalls.addAll(spawner.getRemovedMapBalls());
+		return mapBalls;
+	}
+
+	/**
+	 * Does this Map contain any kinematic shapes, which move on their own in physics mode?
+	 * @return true if any shape in this Map has a KinematicMotion
+	 */
+	public boolean hasKinematicShapes(){
+		for(int i = 0; i < shapes.size(); i++){
+			if(shapes.get(i).isKinematic()){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the amount added to each ball's y velocity on each clock tick in this Map
+	 * @return the gravity of this Map
+	 */
+	public double getGravity(){
+		return gravity;
+	}
+
+	/**
+	 * Return the materials that the balls and shapes of this Map refer to
+	 * @return the MaterialTable for this Map
+	 */
+	public MaterialTable getMaterials(){
+		return materials;
+	}
+
+	/**
+	 * Return the force fields of this Map, other than gravity
+	 * @return the forceFields ArrayList<ForceField> from this Map
+	 */
+	public ArrayList<ForceField> getForceFieldList(){
+		return forceFields;
+	}
+
+	/**
+	 * Return the springs, rods, ropes and anchors that join the balls in this Map
+	 * @return the constraints ArrayList<Constraint> from this Map
+	 */
+	public ArrayList<Constraint> getConstraintList(){
+		return constraints;
+	}
+
 	/**
 	 * Return the height of this Map
 	 * @return the height of this Map
@@ -0,0 +1,124 @@
+package physics_simulator;
+
+/**
+ * The MaterialTable class.
+ * The physical materials used by a map. Each material has a restitution (the fraction of a
+ * ball's speed into a surface that it bounces back with) and a friction (the fraction of its
+ * speed along the surface that it loses in a bounce). Balls and shapes each refer to a
+ * material by its index in the table, so a map can have bouncy balls, sticky floors and so
+ * on, and variants of a map can use different values without changing any code.
+ *
+ * When a ball bounces off of a shape, the two materials are combined by averaging their
+ * restitutions and their frictions. The combined values for every pair of materials are
+ * calculated once, when the table is made, and stored in plain arrays indexed by
+ * getContactIndex(), so a bounce only needs two array lookups.
+ *
+ * Material 0 is the default for balls and shapes that don't specify one. Maps that don't
+ * have a materials section get a table with only the default material, which behaves
+ * exactly like the constants the simulator always used.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class MaterialTable {
+
+	public static final double DEFAULT_RESTITUTION = .75; //the restitution of the default material. also known as the coefficient of restitution
+	public static final double DEFAULT_FRICTION = .03; //the friction of the default material, so that balls keep 97% of their speed along a surface
+	private double[] restitution; //the restitution of each material
+	private double[] friction; //the friction of each material
+	private int numberOfMaterials;
+	private double[] contactRestitution; //the combined restitution of each pair of materials, at getContactIndex()
+	private double[] contactTangentFactor; //the fraction of its speed along the surface that a ball keeps, for each pair of materials, at getContactIndex()
+
+	/**
+	 * Construct a MaterialTable with only the default material.
+	 */
+	public MaterialTable(){
+		this(new double[] {DEFAULT_RESTITUTION}, new double[] {DEFAULT_FRICTION});
+	}
+
+	/**
+	 * Construct a MaterialTable with the specified materials. Material i has restitution
+	 * initRestitution[i] and friction initFriction[i]. There must be at least one material.
+	 */
+	public MaterialTable(double[] initRestitution, double[] initFriction){
+		numberOfMaterials = initRestitution.length;
+		restitution = initRestitution.clone();
+		friction = initFriction.clone();
+		contactRestitution = new double[numberOfMaterials * numberOfMaterials];
+		contactTangentFactor = new double[numberOfMaterials * numberOfMaterials];
+		for(int ballMaterial = 0; ballMaterial < numberOfMaterials; ballMaterial++){
+			for(int shapeMaterial = 0; shapeMaterial < numberOfMaterials; shapeMaterial++){
+				int contact = (ballMaterial * numberOfMaterials) + shapeMaterial;
+				//the average of two equal values is exactly that value, so a map with one material bounces exactly as before
+				contactRestitution[contact] = (restitution[ballMaterial] + restitution[shapeMaterial]) / 2;
+				contactTangentFactor[contact] = 1 - ((friction[ballMaterial] + friction[shapeMaterial]) / 2);
+			}
+		}
+	}
+
+	/**
+	 * Return the index of the combined values for a ball of one material bouncing off of a
+	 * shape of another, for getContactRestitution() and getContactTangentFactor().
+	 * @param ballMaterial the index of the ball's material
+	 * @param shapeMaterial the index of the shape's material
+	 */
+	public int getContactIndex(int ballMaterial, int shapeMaterial){
+		return (ballMaterial * numberOfMaterials) + shapeMaterial;
+	}
+
+	/**
+	 * Return the fraction of a ball's speed into a surface that it bounces back with,
+	 * for the pair of materials at the specified index (see getContactIndex())
+	 */
+	public double getContactRestitution(int contact){
+		return contactRestitution[contact];
+	}
+
+	/**
+	 * Return the fraction of a ball's speed along a surface that it keeps when it bounces,
+	 * for the pair of materials at the specified index (see getContactIndex())
+	 */
+	public double getContactTangentFactor(int contact){
+		return contactTangentFactor[contact];
+	}
+
+	/**
+	 * Return the restitution of the specified material
+	 */
+	public double getRestitution(int material){
+		return restitution[material];
+	}
+
+	/**
+	 * Return the friction of the specified material
+	 */
+	public double getFriction(int material){
+		return friction[material];
+	}
+
+	/**
+	 * Return the index of the specified material if it is in the table, or the default material (0) if it isn't.
+	 * Used when reading map files, so that a bad material index can't cause errors later.
+	 */
+	public int checkIndex(int material){
+		if(material < 0 || material >= numberOfMaterials){
+			return 0;
+		}
+		return material;
+	}
+
+	/**
+	 * Return the number of materials in the table
+	 */
+	public int size(){
+		return numberOfMaterials;
+	}
+
+	/**
+	 * Does this table contain only the default material, so that it doesn't need to be saved?
+	 */
+	public boolean isDefault(){
+		return numberOfMaterials == 1 && restitution[0] == DEFAULT_RESTITUTION && friction[0] == DEFAULT_FRICTION;
+	}
+}
@@ -1,10 +1,13 @@
 package physics_simulator;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.KeyStroke;
 /**
  * The Menu class, which initializes the JMenuBar at the top of the simulation,
  * manages all action listeners within it, and makes the necessary method calls
@@ -23,11 +26,18 @@ public class Menu {
 	private JMenuItem fileLoadInitial; //the "file-->load sample file" button
 	private JMenuItem physicsReset; //the "physics-->reset balls" button
 	private JMenuItem physicsRunPause; //the "physics-->run / pause simulation" button
+	private JMenuItem physicsClosestPair; //the "physics-->show / hide closest pair" button
+	private JMenuItem physicsEngine; //the "physics-->use event-driven / stepped engine" button
+	private JMenuItem physicsFixedPoint; //the "physics-->use fixed-point / floating-point engine" button
+	private JMenuItem physicsAttraction; //the "physics-->turn on / turn off ball attraction" button
+	private JMenuItem physicsSoftParticles; //the "physics-->turn on / turn off soft particles" button
 	private JMenuItem drawTriangle; //the "draw-->triangle" button
 	private JMenuItem drawRectangle; //the "draw-->quadrilateral" button
 	private JMenuItem editMoveVertex; //the "edit-->move vertex" button
 	private JMenuItem editMoveShape; //the "edit-->move shape" button
 	private JMenuItem editSelectDelete; //the "edit-->select / delete shape" button
+	private JMenuItem editUndo; //the "edit-->undo" button
+	private JMenuItem editRedo; //the "edit-->redo" button
 	/**
 	 * Constructor for the Menu class, which stores as a field 
 	 * the Simulator instance that has invoked this constructor.
@@ -61,11 +71,22 @@ public class Menu {
 		fileLoadInitial = new JMenuItem("Reload Sample File...");
 		physicsReset = new JMenuItem("Reset Balls...");
 		physicsRunPause = new JMenuItem("Pause Simulation...");
+		physicsClosestPair = new JMenuItem("Show Closest Pair...");
+		physicsEngine = new JMenuItem("Use Event-Driven Engine...");
+		physicsEngine.setEnabled(sim.canUseEventDrivenPhysics());
+		physicsFixedPoint = new JMenuItem("Use Fixed-Point Engine...");
+		physicsFixedPoint.setEnabled(sim.canUseFixedPointPhysics());
+		physicsAttraction = new JMenuItem("Turn On Ball Attraction...");
+		physicsSoftParticles = new JMenuItem("Turn On Soft Particles...");
 		drawTriangle = new JMenuItem("Draw Triangle...");
 		drawRectangle = new JMenuItem("Draw Quadrilateral...");
 		editMoveVertex = new JMenuItem("Move Vertex...");
 		editMoveShape = new JMenuItem("Move Shape...");
 		editSelectDelete = new JMenuItem("Select / Delete Shape...");
+		editUndo = new JMenuItem("Undo");
+		editUndo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+		editRedo = new JMenuItem("Redo");
+		editRedo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
 		//add the ActionListener to the JMenuBar's buttons
 		addActionListenerToMenuButtons(getActionListener());
 		//add each button to each JMenuBar submenu
@@ -75,11 +96,19 @@ public class Menu {
 		fileMenu.add(fileLoadInitial);
 		physicsMenu.add(physicsReset);
 		physicsMenu.add(physicsRunPause);
+		physicsMenu.add(physicsClosestPair);
+		physicsMenu.add(physicsEngine);
+		physicsMenu.add(physicsFixedPoint);
+		physicsMenu.add(physicsAttraction);
+		physicsMenu.add(physicsSoftParticles);
 		drawMenu.add(drawTriangle);
 		drawMenu.add(drawRectangle);
 		editMenu.add(editMoveVertex);
 		editMenu.add(editMoveShape);
 		editMenu.add(editSelectDelete);
+		editMenu.addSeparator();
+		editMenu.add(editUndo);
+		editMenu.add(editRedo);
 		//add each submenu to the JMenuBar
 		menubar.add(fileMenu);
 		menubar.add(physicsMenu);
@@ -149,6 +178,53 @@ public class Menu {
 						//otherwise, the simulation is already running, and the physicsRunPause button was pressed, so pause the simulation
 						pauseSimulation(); //this method is implemented within the Menu class
 					}
+				} else if(e.getSource() == physicsClosestPair){
+					/*
+					 * The "physics-->show / hide closest pair" button was pressed. Toggle whether the two
+					 * closest balls are highlighted, and adjust the text of the button accordingly.
+					 * This doesn't change the simulation mode, so return before the delete menu is hidden below.
+					 */
+					sim.setShowClosestPair(!sim.getShowClosestPair());
+					if(sim.getShowClosestPair()){
+						physicsClosestPair.setText("Hide Closest Pair...");
+					} else {
+						physicsClosestPair.setText("Show Closest Pair...");
+					}
+					return;
+				} else if(e.getSource() == physicsEngine){
+					/*
+					 * The "physics-->use event-driven / stepped engine" button was pressed. Toggle which
+					 * class runs the simulation, and adjust the text of the button accordingly.
+					 * This doesn't change the simulation mode either, so return here too.
+					 */
+					sim.setUseEventDrivenPhysics(!sim.getUseEventDrivenPhysics());
+					updateEngineButtons();
+					return;
+				} else if(e.getSource() == physicsFixedPoint){
+					/*
+					 * The "physics-->use fixed-point / floating-point engine" button was pressed. Toggle
+					 * the fixed-point engine, which also turns off the event-driven engine, and adjust
+					 * the text of both engine buttons. This doesn't change the simulation mode either.
+					 */
+					sim.setUseFixedPointPhysics(!sim.getUseFixedPointPhysics());
+					updateEngineButtons();
+					return;
+				} else if(e.getSource() == physicsAttraction){
+					/*
+					 * The "physics-->turn on / turn off ball attraction" button was pressed. Toggle whether
+					 * the balls attract each other, which only the stepped engine can do, and adjust the
+					 * text and availability of the engine buttons. This doesn't change the simulation mode either.
+					 */
+					sim.setBallAttraction(!sim.getBallAttraction());
+					return;
+				} else if(e.getSource() == physicsSoftParticles){
+					/*
+					 * The "physics-->turn on / turn off soft particles" button was pressed. Toggle whether
+					 * overlapping balls push each other apart, which only the stepped engine can do, and adjust
+					 * the text and availability of the engine buttons. This doesn't change the simulation mode either.
+					 */
+					sim.setSoftParticles(!sim.getSoftParticles());
+					return;
 				} else if(e.getSource() == drawTriangle){
 					/*
 					 * The "draw-->triangle" button was pressed. Pause the simulation, set the Simulator's 
@@ -193,6 +269,20 @@ public class Menu {
 					pauseSimulation();
 					sim.setMode(2);
 					sim.setSubmode(2);
+				} else if(e.getSource() == editUndo){
+					/*
+					 * The "edit-->undo" button was pressed. call the Simulator.undo() method.
+					 * Undoing doesn't change the simulation mode, so return before the delete
+					 * menu is hidden below.
+					 */
+					sim.undo();
+					return;
+				} else if(e.getSource() == editRedo){
+					/*
+					 * The "edit-->redo" button was pressed. call the Simulator.redo() method.
+					 */
+					sim.redo();
+					return;
 				} else {
 					//none of the buttons that were just checked for were clicked
 					System.out.println("An unimplemented button was clicked");
@@ -235,6 +325,35 @@ public class Menu {
 		physicsRunPause.setText("Run Simulation...");
 	}
 	
+	/**
+	 * Set the text of the engine buttons to match the engine that is running the simulation,
+	 * and only enable the ones that can run the current map.
+	 */
+	public void updateEngineButtons(){
+		if(sim.getUseEventDrivenPhysics()){
+			physicsEngine.setText("Use Stepped Engine...");
+		} else {
+			physicsEngine.setText("Use Event-Driven Engine...");
+		}
+		if(sim.getUseFixedPointPhysics()){
+			physicsFixedPoint.setText("Use Floating-Point Engine...");
+		} else {
+			physicsFixedPoint.setText("Use Fixed-Point Engine...");
+		}
+		if(sim.getBallAttraction()){
+			physicsAttraction.setText("Turn Off Ball Attraction...");
+		} else {
+			physicsAttraction.setText("Turn On Ball Attraction...");
+		}
+		if(sim.getSoftParticles()){
+			physicsSoftParticles.setText("Turn Off Soft Particles...");
+		} else {
+			physicsSoftParticles.setText("Turn On Soft Particles...");
+		}
+		physicsEngine.setEnabled(sim.canUseEventDrivenPhysics());
+		physicsFixedPoint.setEnabled(sim.canUseFixedPointPhysics());
+	}
+
 	/**
 	 * Add the appropriate ActionListener to each button in the menu.
 	 * This is made it into its own method for the sake of readability.
@@ -247,11 +366,18 @@ public class Menu {
 		fileLoadInitial.addActionListener(listener);
 		physicsReset.addActionListener(listener);
 		physicsRunPause.addActionListener(listener);
+		physicsClosestPair.addActionListener(listener);
+		physicsEngine.addActionListener(listener);
+		physicsFixedPoint.addActionListener(listener);
+		physicsAttraction.addActionListener(listener);
+		physicsSoftParticles.addActionListener(listener);
 		drawTriangle.addActionListener(listener);
 		drawRectangle.addActionListener(listener);
 		editMoveVertex.addActionListener(listener);
 		editMoveShape.addActionListener(listener);
 		editSelectDelete.addActionListener(listener);
+		editUndo.addActionListener(listener);
+		editRedo.addActionListener(listener);
 	}
 	
 	/*
@@ -20,23 +20,62 @@ import java.util.ArrayList;
 public class Physics9 {
 
 	private static final double GRAVITY_CONSTANT = -10; //constant that is proportional to the magnitude of acceleration due to gravity. recommended value is -10. 
-	private static final double ACC_GRAVITY = GRAVITY_CONSTANT * -(0.005); //constant that will be used to represent acceleration due to gravity. it is recommended that instead of adjusting this parameter, you adjust the GRAVITY_CONSTANT to modify gravity in the simulation. default value for this is GRAVITY_CONSTANT * -(0.005)
-	private static final double Y_REFLECTION_CONSTANT = .75; //whenever a ball collides with a wall, its velocity is multiplied by this constant in order to to slow the ball down after collisions, representing friction. also known as coefficient of restitution.
-	private static final double X_REFLECTION_CONSTANT = .97;//.97; coefficient of restitution along x axis.
-	private Point oldPosition; //the position of a ball at the beginning of a clock tick
-	private Point testPosition; //a potential position for the ball after moving during a clock tick
+	private static final double ACC_GRAVITY = GRAVITY_CONSTANT * -(0.005); //the acceleration due to gravity for maps that don't specify their own (see Map.getGravity()). it is recommended that instead of adjusting this parameter, you adjust the GRAVITY_CONSTANT. default value for this is GRAVITY_CONSTANT * -(0.005)
+	private double gravity; //the amount added to each ball's y velocity on each clock tick, from the map
+	private MaterialTable materials; //the map's materials. the restitution and friction of each bounce come from here (see MaterialTable.getContactIndex())
+	private ForceFieldStage forceFields; //adds the acceleration from the map's winds, attractors and vector grids to the balls
+	private BarnesHutTree ballAttraction = new BarnesHutTree(); //pulls the balls towards each other, when useBallAttraction is true
+	private boolean useBallAttraction = false; //do the balls attract each other, in addition to the map's gravity?
+	private SoftParticles softParticles; //pushes overlapping balls apart, when useSoftParticles is true
+	private boolean useSoftParticles = false; //do the balls push each other apart when they overlap, so that they pile up instead of passing through each other?
+	private ConstraintSolver constraints; //solves the map's springs, rods, ropes and anchors
+	private int[] shapeMaterials = new int[0]; //the material index of each shape, copied out of the shapes list so that a bounce doesn't need to look at the Shape
 	private ArrayList<Ball> players; //a list of each ball in the simulation
 	private ArrayList<Shape> shapes; //a list of each shape (obstacle) in the simulation
 	private Map map; //the Map instance that is currently running in the simulation
+	private BroadPhaseGrid grid; //divides the map into cells, so that only shapes near a ball are checked for collisions with it
+	private int gridRevision = -1; //the revision of the shapes list (see EditHistory.getRevision()) that the grid was last built from
+	private int gridVersion = -1; //which build of the grid this is, out of every grid built by any Physics9, so that a ball can tell if the shapes it remembers being near are still right
+	private static int numberOfGridBuilds = 0;
+	private int[] candidateShapes = new int[0]; //the indices of the shapes near the ball that is currently being moved, found using the grid
+	private long[] candidateCellMasks = new long[0]; //which of the cells around the ball each of the candidateShapes is in, while the shapes the ball remembers are being found (see queryNearbyShapes())
+	private int[] kinematicShapes = new int[0]; //the indices of the shapes that follow a KinematicMotion
+	private int numberOfKinematicShapes = 0;
+	private double[][] sweptBounds = new double[0][]; //the swept bounding box of each kinematic shape (see KinematicMotion.getSweptBounds()), or null for shapes that don't move
+	private int[] staticCandidates = new int[0]; //the candidateShapes that don't move, for calculating a ball's clearance
+	private static final double CLEARANCE_LOOKAHEAD = BroadPhaseGrid.CELL_SIZE; //the largest clearance a ball can be given (see Ball.getClearance()). shapes further away than this aren't looked at
+	private static final double CLEARANCE_TICKS = 8; //slow balls only look for shapes as far as they would move in this many clock ticks, so that they don't search a large area for nothing
+	private static final double NEARBY_DISTANCE = CLEARANCE_LOOKAHEAD + (BroadPhaseGrid.CELL_SIZE / 2); //how far past its radius a ball remembers the shapes in the cells around it (see queryNearbyShapes())
+	private static final double CLEARANCE_MINIMUM_SPEED = 0.5; //balls slower than this, such as balls resting on a surface, don't look for their clearance at all
+	private static final double RESTING_SPEED = 0.1; //a ball that moves into an edge slower than this comes to rest on it instead of bouncing, and from then on slides along it (see followContact())
+	private static final double CONTACT_DISTANCE = 2 * InflatedGeometry.SKIN; //how far a ball can be from the edge it is resting on and still be on it
+	private ArrayList<InflatedGeometry> inflatedGeometries = new ArrayList<InflatedGeometry>(); //the shapes inflated by each different ball radius in the simulation, for finding collisions
+	private PolygonIndex polygons = new PolygonIndex(); //finds balls whose centers are inside of solid shapes, so that they can be freed
+	private static final int MAXIMUM_EXITS = 4; //the most shapes a buried ball is moved out of in a row, in case leaving one shape puts it inside of another
+	private boolean hasBorder = false; //does the map have a border? if it does, it is the first shape in the shapes list
+	private double borderXMin; //the left side of the inside of the map's border
+	private double borderYMin; //the top side of the inside of the map's border
+	private double borderXMax; //the right side of the inside of the map's border
+	private double borderYMax; //the bottom side of the inside of the map's border
+	private int numberOfFreedBalls = 0; //the number of times a ball has been moved out of a shape it was inside of, or a notch it was stuck in
+	private double[] ballX = new double[0]; //the x coordinate of each ball, copied out of the players list for the closest pair and nearest ball queries
+	private double[] ballY = new double[0]; //the y coordinate of each ball
+	private int numberOfIndexedBalls = 0; //the number of balls in ballX[] and ballY[]
+	private boolean ballIndexUpToDate = false; //have the balls moved since ballX[], ballY[] and the ballGrid were last updated?
+	private BallGrid ballGrid; //sorts the balls into cells, for finding the balls nearest to a point
+	private ClosestPair closestPair = new ClosestPair(); //finds the closest pair of balls when the ballGrid can't
+	private int[] closestPairResult = new int[2]; //the indices of the closest pair found by the ballGrid
+	private double[] nearestDistances = new double[0]; //working space for findNearestBalls()
+	private static final double BALL_GRID_MINIMUM_CELL_SIZE = 2; //the smallest width and height of each cell in the ballGrid, in pixels
 	//public static final int BALL_RADIUS = 5;
 	boolean stuck = false;
 
 	/**
 	 * Constructor for the physics class.
-	 * Retrieves the player and shape lists
-	 * from the map class, and initializes
-	 * necessary values in each player in
-	 * the simulation.
+	 * Retrieves the player and shape lists,
+	 * gravity and materials from the map class.
+	 * The balls already have the reflection
+	 * constants of their materials.
 	 */
 	public Physics9(Map initMap){
 
@@ -44,13 +83,13 @@ public class Physics9 {
 
 		players = map.getPlayerList();
 		shapes = map.getShapeList();
-
-		//set the reflection constant of each ball in the simulation to that defined in the fields of the Physics class
-		for(int i = 0; i < players.size(); i++){
-			players.get(i).setYReflectionConstant(Y_REFLECTION_CONSTANT);
-			players.get(i).setXReflectionConstant(X_REFLECTION_CONSTANT);
-		}
-
+		grid = new BroadPhaseGrid(map.getWidth(), map.getHeight());
+		ballGrid = new BallGrid(map.getWidth(), map.getHeight(), BALL_GRID_MINIMUM_CELL_SIZE);
+		gravity = map.getGravity();
+		materials = map.getMaterials();
+		forceFields = new ForceFieldStage(map.getForceFieldList(), map.getWidth(), map.getHeight());
+		softParticles = new SoftParticles(map.getWidth(), map.getHeight());
+		constraints = new ConstraintSolver(map.getConstraintList(), gravity);
 	}
 
 	/**
@@ -58,200 +97,635 @@ public class Physics9 {
 	 * each ball and each shape, and handle them appropriately.
 	 */
 	public void bounceModeClockTick(){
+		ballIndexUpToDate = false;
+		map.getSpawner().clockTick();
+		updateBroadPhase();
+		moveKinematicShapes();
+		forceFields.apply(players);
+		if(useBallAttraction){
+			ballAttraction.apply(players);
+		}
+		if(useSoftParticles){
+			softParticles.apply(players);
+		}
+		constraints.apply(players);
 		//update positions for each ball in the players ArrayList one at a time by iterating through the list
 		for (int i = 0; i < players.size(); i++){
-			int currentPlayerRadius = players.get(i).getRadius();
-			Segment path; //the potential path of the ball during this clock tick if no collision occurs
-			Segment intersectingEdge; //the edge that has collided with the ball
-			Point intersection; //the point of intersection between the ball and the intersectingEdge
-
-			oldPosition = new Point(players.get(i).getXPosition(), (players.get(i).getYPosition()));
-			players.get(i).setYVelocity(players.get(i).getYVelocity() + ACC_GRAVITY);
-			testPosition = players.get(i).returnPotentialUpdatedPositionAsPoint();
-			//oldPosition = findPointAlongLine(players.get(i).getVelocityVector(), oldPosition, (double) 5);
-			//System.out.println(oldPosition);
-			//start at start point of ball's path
-			//draw segment perpendicular to each shape edge through center point of ball.
-			//check if segment length is less than circle radius
-			//if it is, a collision has occurred.
-			//if it is not, move distance .01 along the line and check again.
-
-			//start at start point of ball's path
-			Point oldPositionIncrementing = oldPosition;
-			path = new Segment(oldPosition, testPosition);
-			Point previousPosition = oldPosition;
-
-			ArrayList<Segment> allShapeEdges = new ArrayList<Segment>();
-			Segment[] currentShapeEdges;
-			ArrayList<Line> perpendiculars = new ArrayList<Line>();
-			ArrayList<Double> edgeDistances = new ArrayList<Double>();
-			ArrayList<Boolean> isCorner = new ArrayList<Boolean>();
-			ArrayList<Double> ballDistances = new ArrayList<Double>();
-			int closestEdgeDistanceIndex = -1;
-			int closestBallDistanceIndex = -1;
-			int count = 0;
-			ArrayList<Shape> withinHitBox = new ArrayList<Shape>();
-			while(shapes.size() != 0 && !oldPositionIncrementing.equals(testPosition, .01)) {
-				int hb = 0;
-				//instead of checking carefully for collision with all shapes,
-				//only check carefully when the ball is within a shape's 
-				//approximate area. determine whether this is the case by 
-				//making a rectangle around
-				//each shape (like this []) and checking if the ball is within that rectangle.
-				//this saves a huge amount of time -- checking whether the ball is within
-				//the rectangle only involves checking if it is within a certain x and y 
-				//range, since the sides of the rectangle are parallel with the x and y axes.
-				withinHitBox = new ArrayList<Shape>();
-				while(shapes.size() != 0 && hb < shapes.size()) {
-					double hbx = oldPositionIncrementing.getX();
-					double hby = oldPositionIncrementing.getY();
-					Shape tempshp = shapes.get(hb);
-					//increase the size of the hit box by the ball's radius,
-					//which will be faster than using the distance formula
-					//but will have the same effect
-					if(hbx > tempshp.getXMin() - currentPlayerRadius && hbx < tempshp.getXMax() + currentPlayerRadius && hby > tempshp.getYMin() - currentPlayerRadius && hby < tempshp.getYMax() + currentPlayerRadius) {
-						withinHitBox.add(tempshp);
-					}
-					hb++;
-				}
-				//System.out.println(withinHitBox.size());
-				allShapeEdges = new ArrayList<Segment>();
-				perpendiculars = new ArrayList<Line>();
-				edgeDistances = new ArrayList<Double>();
-				closestEdgeDistanceIndex = -1;
-				//check each shape in the shapes ArrayList for intersections with the proposed path of the ball (in other words, check for collisions with the ball)
-				for(int j = 0; j < withinHitBox.size(); j++){
-					//draw segment perpendicular to each shape edge through center point of ball.
-					currentShapeEdges = withinHitBox.get(j).getEdges();
-					//add current shape edges to list of all shape edges
-					for(int k = 0; k < currentShapeEdges.length; k++) {
-						allShapeEdges.add(currentShapeEdges[k]);
-						//System.out.println(currentShapeEdges.length);
-					}
-					//make a list of all perpendicular lines between current shape edges and incrementing position
-					for(int k = 0; k < currentShapeEdges.length; k++) {
-						perpendiculars.add(currentShapeEdges[k].constructPerpendicularLine(oldPositionIncrementing));
-					}
-				}
-				//check if segment length is less than circle (ball/player) radius
-				//if it is, a collision has occurred.
-				for(int l = 0; l < perpendiculars.size(); l++) {
-					Point perpendicularIntersection = perpendiculars.get(l).getIntersectionWith(allShapeEdges.get(l));
-					if(allShapeEdges.get(l).isIntersecting(perpendiculars.get(l), perpendicularIntersection)) {
-						edgeDistances.add(distanceNoSqrt(oldPositionIncrementing, perpendicularIntersection));
-					} else {
-						edgeDistances.add(Double.MAX_VALUE);
-					}
-					isCorner.add(false);
-				}
+			moveBall(players.get(i));
+			keepInsideBorder(players.get(i));
+		}
+	}
 
-				//do the same type of thing again, but this time we will check for collisions with corners
-				//start by making a list of lines perpendicular to the internal bisectors of all corners. 
-				//corners exist between adjacent shape edges in the shapes' edge lists, as well as between the first and last edges in the lists
-				//check if the ball is hitting the start/end points of any shape edges.
-				//if the ball is hitting the start point, the corner is between this edge and the previous one.
-				//if the ball is hitting the end point, the corner is between this edge and the next one.
-				//find a line perpendicular to the interior bisector of this corner
-				//refect the ball off of that line
-				int cornerCollidingShape = -1;
-				int firstCorner = -1;
-				int secondCorner = -1;
-				boolean firstCornerIsEnd = false; 
-				int allShapesIndex = 0;
-				for(int k = 0; k < withinHitBox.size(); k++) {
-					for(int ka = 0; ka < withinHitBox.get(k).getNumberOfVertices(); ka++) {
-						Segment currentEdge = withinHitBox.get(k).getEdges()[ka];
-						double distanceFromEdgeStart = distanceNoSqrt(oldPositionIncrementing, currentEdge.getStartPoint());
-						double distanceFromEdgeEnd = distanceNoSqrt(oldPositionIncrementing, currentEdge.getEndPoint());
-						if(distanceFromEdgeStart <= currentPlayerRadius * currentPlayerRadius) {
-							//we have a corner collision with the start point
-							//take note of which two edges of which shape we are colliding with
-							firstCornerIsEnd = false;
-							cornerCollidingShape = k;
-							firstCorner = ka;
-							if(ka == 0) {
-								secondCorner = withinHitBox.get(k).getNumberOfVertices() - 1;
-							} else {
-								secondCorner = ka - 1;
-							}
-							break; 
-						} else if (distanceFromEdgeEnd <= currentPlayerRadius * currentPlayerRadius) {
-							//we have a corner collision with the end point
-							//take note of which two edges of which shape we are colliding with
-							firstCornerIsEnd = true;
-							cornerCollidingShape = k;
-							firstCorner = ka;
-							if(withinHitBox.get(k).getNumberOfVertices() == ka) {
-								secondCorner = 0;
-							} else {
-								secondCorner = ka + 1;
-							}
-							break;
-						}
-						allShapesIndex++;
-					}
-					//find the line perpendicular to the corner's internal bisector. \|/ in this little ASCII picture, the line in the middle is the internal bisector to the the other two lines
-					//start by finding the internal bisector
-					if(cornerCollidingShape != -1) {
-						Segment firstEdge = withinHitBox.get(cornerCollidingShape).getEdges()[firstCorner];
-						Segment secondEdge = withinHitBox.get(cornerCollidingShape).getEdges()[secondCorner];
-						Point corner;
-						if(firstCornerIsEnd) {
-							corner = firstEdge.getEndPoint();
-						} else {
-							corner = firstEdge.getStartPoint();
-						}
-						edgeDistances.set(allShapesIndex, distanceNoSqrt(oldPositionIncrementing, corner));
-						isCorner.set(allShapesIndex, true);
-
-					}
-				}
-				closestEdgeDistanceIndex = findIndexOfMinElement(edgeDistances);
-				if(closestEdgeDistanceIndex != -1 && edgeDistances.get(closestEdgeDistanceIndex) <= currentPlayerRadius * currentPlayerRadius) {
-					//collision. stop the ball from moving to this spot or further. 
-					if(count == 0) { 
-						//a value of count == 0 indicates that the ball's starting position was already colliding with an edge. 
-						//this means we are at risk of getting stuck inside of a wall if not handled correctly, 
-						//due to lack of precision in the double data type.
-						//if the ball is stuck in a wall due to double precision errors (or at risk of having this happen), get the ball out of (away from) the wall
-						//figure out the direction in which the ball needs to move to get further away from the closest edge
-						//move the ball a tiny bit along that vector
-						Point perpendicularIntersection = perpendiculars.get(closestEdgeDistanceIndex).getIntersectionWith(allShapeEdges.get(closestEdgeDistanceIndex));
-						Point unstickVector = new Point(oldPositionIncrementing.getX() - perpendicularIntersection.getX(), oldPositionIncrementing.getY() - perpendicularIntersection.getY());
-						previousPosition = findPointAlongLine(unstickVector, oldPositionIncrementing, .1);
-					}
-					break;
-				}
-				//if segment length is not less than radius, move distance .01 along the line and check again.
-				previousPosition = oldPositionIncrementing;
-				oldPositionIncrementing = findPointAlongLine(players.get(i).getVelocityVector(), oldPositionIncrementing, .01);
-				count++;
+	/**
+	 * Put a ball that has ended up outside of the map's border back inside of it, for example after
+	 * a moving shape has pushed it through the border, or after it has been dropped there by the
+	 * mouse. The border is a rectangle that can't be edited, so this is a few comparisons, without
+	 * asking the grid for anything. The ball is moved to just inside of the border, and bounces off
+	 * of it if it is still moving outward. Balls inside of the border, which is nearly all of them,
+	 * are left alone, and collide with the inside of the border like with any other shape.
+	 * Only the inside of the border's edges can be touched (see InflatedGeometry.castRay()), so
+	 * this must be done after each time a ball is moved.
+	 * @param ball the ball
+	 */
+	void keepInsideBorder(Ball ball){
+		if(!hasBorder){
+			return;
+		}
+		double radius = ball.getRadius();
+		double x = ball.getXPosition();
+		double y = ball.getYPosition();
+		double xMin = borderXMin + radius;
+		double yMin = borderYMin + radius;
+		double xMax = borderXMax - radius;
+		double yMax = borderYMax - radius;
+		if((x >= xMin && x <= xMax && y >= yMin && y <= yMax) || ball.isFrozen()){
+			//a frozen ball is being held by the mouse, which can take it anywhere
+			return;
+		}
+		//the border is smaller than the ball, so the ball is put in the middle of it
+		double clampedX = (xMin > xMax) ? (borderXMin + borderXMax) / 2 : Math.max(xMin + InflatedGeometry.SKIN, Math.min(xMax - InflatedGeometry.SKIN, x));
+		double clampedY = (yMin > yMax) ? (borderYMin + borderYMax) / 2 : Math.max(yMin + InflatedGeometry.SKIN, Math.min(yMax - InflatedGeometry.SKIN, y));
+		int contact = materials.getContactIndex(ball.getMaterial(), shapeMaterials[0]);
+		if(clampedX != x){
+			ball.normalReflection(clampedX > x ? 1 : -1, 0, materials.getContactTangentFactor(contact), materials.getContactRestitution(contact));
+		}
+		if(clampedY != y){
+			ball.normalReflection(0, clampedY > y ? 1 : -1, materials.getContactTangentFactor(contact), materials.getContactRestitution(contact));
+		}
+		ball.setPosition(clampedX, clampedY);
+	}
+
+	/**
+	 * Move a single ball forward by one clock tick: apply gravity, then move the ball along its
+	 * velocity vector, and if it collides with a shape on the way, stop it there and reflect it.
+	 * The broad phase grid and kinematic shapes must already be up to date for this clock tick.
+	 * This is also used by the EventDrivenPhysics class, to move a ball through the clock ticks
+	 * where it may collide with something.
+	 * @param ball the ball to move
+	 */
+	void moveBall(Ball ball){
+		int currentPlayerRadius = ball.getRadius();
+
+		ball.setYVelocity(ball.getYVelocity() + gravity);
+		/*
+		 * Most of the time, a ball is out in the open, far away from any shape. The ball's clearance
+		 * is how far it was from the nearest shape the last time it was checked. As long as the ball
+		 * moves less than that in a clock tick, it can't reach any shape, so it can just be moved
+		 * without looking for collisions, and its clearance shrinks by the distance it moved. Only
+		 * once the clearance runs out is the grid asked for shapes again.
+		 */
+		double distanceMoved = Math.sqrt((ball.getXVelocity() * ball.getXVelocity()) + (ball.getYVelocity() * ball.getYVelocity()));
+		if(distanceMoved < ball.getClearance()){
+			ball.setClearance(ball.getClearance() - distanceMoved);
+			ball.updatePosition();
+			return;
+		}
+		if(ball.getContactShape() != -1 && followContact(ball)){
+			return;
+		}
+		//the ball's position at the start of this clock tick, and how far it will move if nothing is in the way. a frozen ball doesn't move
+		double x = ball.getXPosition();
+		double y = ball.getYPosition();
+		double xChange = ball.isFrozen() ? 0 : ball.getXVelocity();
+		double yChange = ball.isFrozen() ? 0 : ball.getYVelocity();
+		//ask the grid for the shapes that are near the ball's path during this clock tick.
+		//only these shapes can possibly collide with the ball, so no other shapes are looked at below.
+		int numberOfCandidates = queryNearbyShapes(ball, Math.min(x, x + xChange) - currentPlayerRadius, Math.min(y, y + yChange) - currentPlayerRadius, 
+				Math.max(x, x + xChange) + currentPlayerRadius, Math.max(y, y + yChange) + currentPlayerRadius);
+		if(numberOfCandidates == 0){
+			//no collision can take place along our potential path
+			ball.updatePosition();
+			ball.setClearance(findClearance(ball, distanceMoved));
+			return;
+		}
+		/*
+		 * Instead of moving the ball along its path a tiny bit at a time and checking its distance
+		 * from every edge at each step, use the shapes inflated by the ball's radius (see the
+		 * InflatedGeometry class). The ball collides with a shape exactly when its center touches
+		 * the inflated shape, so the first collision along the path is found with a single ray test.
+		 */
+		InflatedGeometry geometry = getInflatedGeometry(currentPlayerRadius);
+		if(geometry.depenetrate(x, y, candidateShapes, numberOfCandidates)){
+			//the ball's starting position is already overlapping an edge, because a moving shape pushed into it,
+			//or because of a lack of precision in the double data type. get the ball out of (away from) the wall
+			//before moving it, so that it can't get stuck inside of the wall.
+			int overlappedShape = geometry.getHitShape();
+			double depenetratedX = geometry.getDepenetratedX();
+			double depenetratedY = geometry.getDepenetratedY();
+			if(polygons.isSolid(overlappedShape) && (polygons.contains(overlappedShape, x, y) || polygons.contains(overlappedShape, depenetratedX, depenetratedY)
+					|| geometry.depenetrate(depenetratedX, depenetratedY, candidateShapes, numberOfCandidates))){
+				//pushing the ball away from the closest edge won't work: its center is inside of the shape, so it would be
+				//pushed further in, or it is in a narrow notch, so it would be pushed into the other side of the notch.
+				//move it to the closest place outside of the shape where it fits instead
+				polygons.findExit(overlappedShape, x, y, currentPlayerRadius + InflatedGeometry.SKIN);
+				ball.setPosition(polygons.getExitX(), polygons.getExitY());
+				numberOfFreedBalls++;
+				freeBuriedBall(ball);
+				return;
+			}
+			x = depenetratedX;
+			y = depenetratedY;
+			ball.setPosition(x, y);
+		}
+		if(xChange == 0 && yChange == 0){
+			//the ball is frozen in place
+			return;
+		}
+		if(geometry.castRay(x, y, xChange, yChange, candidateShapes, numberOfCandidates)){
+			if(polygons.contains(geometry.getHitShape(), x, y) && freeBuriedBall(ball)){
+				//the ball has been moving around inside of the shape and has hit it from the inside. move it out
+				return;
+			}
+			//handle collision with a wall here. stop the ball at the point where it touches the wall, 
+			//moved slightly away from the wall so that it doesn't start the next clock tick touching it.
+			double t = geometry.getHitTime();
+			double normalX = geometry.getHitNormalX();
+			double normalY = geometry.getHitNormalY();
+			double intersectionX = x + (t * xChange) + (normalX * InflatedGeometry.SKIN);
+			double intersectionY = y + (t * yChange) + (normalY * InflatedGeometry.SKIN);
+			Shape intersectingShape = shapes.get(geometry.getHitShape());
+			double surfaceVelocityX = 0;
+			double surfaceVelocityY = 0;
+			if(intersectingShape.isKinematic()) {
+				//the obstacle is moving. bounce the ball off of it as if it were standing still, by using
+				//the ball's velocity relative to the obstacle, then add the obstacle's velocity back afterwards.
+				surfaceVelocityX = intersectingShape.getMotion().getSurfaceVelocityX(intersectionX, intersectionY);
+				surfaceVelocityY = intersectingShape.getMotion().getSurfaceVelocityY(intersectionX, intersectionY);
+				ball.setXVelocity(ball.getXVelocity() - surfaceVelocityX);
+				ball.setYVelocity(ball.getYVelocity() - surfaceVelocityY);
+			}
+			ball.setPosition(intersectionX, intersectionY);
+			//the hit normal points from the edge (or corner) towards the ball, so the ball bounces
+			//off of edges and corners the same way, without finding any angles
+			int contact = materials.getContactIndex(ball.getMaterial(), shapeMaterials[geometry.getHitShape()]);
+			double normalSpeed = (ball.getXVelocity() * normalX) + (ball.getYVelocity() * normalY);
+			if(normalSpeed > -RESTING_SPEED && !intersectingShape.isKinematic() && !geometry.getHitIsCorner()){
+				//the ball has landed gently on the flat part of a still edge. instead of bouncing a tiny bit
+				//on every clock tick from now on, it comes to rest on the edge and slides along it
+				ball.normalReflection(normalX, normalY, materials.getContactTangentFactor(contact), 0);
+				ball.setContact(geometry.getHitShape(), geometry.getHitEdge(), findContactClearance(ball, geometry.getHitShape(), geometry.getHitEdge(), distanceMoved));
+				return;
 			}
+			ball.normalReflection(normalX, normalY, materials.getContactTangentFactor(contact), materials.getContactRestitution(contact));
+			ball.setXVelocity(ball.getXVelocity() + surfaceVelocityX);
+			ball.setYVelocity(ball.getYVelocity() + surfaceVelocityY);
+		} else {
+			//no collision takes place along our potential path 
+			ball.updatePosition();
+			ball.setClearance(findClearance(ball, distanceMoved));
+		}
+	}
 
-			if (closestEdgeDistanceIndex != -1 && edgeDistances.get(closestEdgeDistanceIndex) <= currentPlayerRadius * currentPlayerRadius ){
-				//handle collision with a wall here. allShapeEdges.get(closestEdgeDistanceIndex()) is the closest wall to the ball, which we know is colliding with the ball
-				intersection = previousPosition;
-				intersectingEdge = allShapeEdges.get(closestEdgeDistanceIndex);
-				double anglebtwn;
-				if(isCorner.get(closestEdgeDistanceIndex)) {
-					//handle corner collision here
-					oldPositionIncrementing = previousPosition;
-					players.get(i).setPosition(previousPosition);
-					players.get(i).cornerReflection();
-				} else {
-					anglebtwn = path.angleBetween(intersectingEdge);
-					oldPositionIncrementing = previousPosition;
-					players.get(i).setPosition(previousPosition);
-					players.get(i).angledReflection(anglebtwn);
-				}
+	/**
+	 * If the center of a ball is inside of a solid shape, move the ball out of the shape by the
+	 * shortest way, so that it is just touching the edge it left through (see PolygonIndex.findExit()).
+	 * This is repeated in case leaving one shape puts the ball inside of another. The ball keeps
+	 * its velocity. Without this, a ball inside of a shape, for example one that a shape was
+	 * dragged over, would stay trapped inside, bouncing off of the inside of its edges.
+	 * @param ball the ball
+	 * @return true if the ball was moved
+	 */
+	private boolean freeBuriedBall(Ball ball){
+		double x = ball.getXPosition();
+		double y = ball.getYPosition();
+		boolean moved = false;
+		for(int exit = 0; exit < MAXIMUM_EXITS; exit++){
+			int numberOfCandidates = grid.query(x, y, x, y, candidateShapes);
+			int shapeIndex = polygons.findContainingShape(x, y, candidateShapes, numberOfCandidates);
+			if(shapeIndex == -1){
+				break;
+			}
+			polygons.findExit(shapeIndex, x, y, ball.getRadius() + InflatedGeometry.SKIN);
+			x = polygons.getExitX();
+			y = polygons.getExitY();
+			moved = true;
+		}
+		if(moved){
+			ball.setPosition(x, y);
+			numberOfFreedBalls++;
+		}
+		return moved;
+	}
 
+	/**
+	 * Slide a ball that is resting or rolling on the flat part of an edge along that edge for
+	 * one clock tick, without looking for collisions.
+	 *
+	 * Without this, a ball rolling down a slope or lying on the floor collides with the same
+	 * edge on every clock tick: gravity pulls it into the edge, the full search finds the edge
+	 * again, the ball only moves as far as the edge, and it bounces off by a tiny amount. The
+	 * ball instead remembers the edge it landed on (see Ball.getContactShape()). While it is
+	 * still on the edge and moving into it no faster than RESTING_SPEED, the part of its velocity
+	 * into the edge is removed, friction is applied to the rest as it would be by a bounce, and
+	 * the ball moves along the edge. Like the ball's clearance, its contact clearance is how far
+	 * it can move before it could possibly touch any shape other than the edge, so it is only
+	 * searched for again when that runs out.
+	 * @param ball the ball, whose velocity already includes gravity for this clock tick
+	 * @return true if the ball was moved, or false if it has left the edge, is hitting it hard, or might touch another shape, so it needs to be moved normally
+	 */
+	private boolean followContact(Ball ball){
+		int shapeIndex = ball.getContactShape();
+		InflatedGeometry geometry = getInflatedGeometry(ball.getRadius());
+		if(ball.isFrozen() || !geometry.touchesEdge(shapeIndex, ball.getContactEdge(), ball.getXPosition(), ball.getYPosition(), CONTACT_DISTANCE)){
+			ball.clearContact();
+			return false;
+		}
+		double normalX = geometry.getHitNormalX();
+		double normalY = geometry.getHitNormalY();
+		double normalSpeed = (ball.getXVelocity() * normalX) + (ball.getYVelocity() * normalY);
+		if(normalSpeed >= 0 || normalSpeed < -RESTING_SPEED){
+			//the ball is leaving the edge, or has been pushed into it hard enough to bounce
+			ball.clearContact();
+			return false;
+		}
+		double tangentFactor = materials.getContactTangentFactor(materials.getContactIndex(ball.getMaterial(), shapeMaterials[shapeIndex]));
+		double xVelocity = (ball.getXVelocity() - (normalSpeed * normalX)) * tangentFactor;
+		double yVelocity = (ball.getYVelocity() - (normalSpeed * normalY)) * tangentFactor;
+		double distanceMoved = Math.sqrt((xVelocity * xVelocity) + (yVelocity * yVelocity));
+		if(distanceMoved >= ball.getContactClearance()){
+			ball.setContactClearance(findContactClearance(ball, shapeIndex, ball.getContactEdge(), distanceMoved));
+			if(distanceMoved >= ball.getContactClearance()){
+				ball.clearContact();
+				return false;
+			}
+		}
+		ball.setXVelocity(xVelocity);
+		ball.setYVelocity(yVelocity);
+		ball.updatePosition();
+		ball.setContactClearance(ball.getContactClearance() - distanceMoved);
+		return true;
+	}
+
+	/**
+	 * Find how far a ball can move before it could possibly touch a shape, after it has been
+	 * moved without colliding with anything. Only the shapes within a short distance of the ball
+	 * are looked at, so the clearance is never more than that distance: CLEARANCE_LOOKAHEAD, or
+	 * less for a slow ball. A kinematic shape can move anywhere within its swept bounding box,
+	 * so for those, the distance to that box is used instead of the distance to the shape.
+	 * @param ball the ball
+	 * @param distanceMoved how far the ball moved during this clock tick
+	 * @return the ball's clearance
+	 */
+	private double findClearance(Ball ball, double distanceMoved){
+		if(distanceMoved < CLEARANCE_MINIMUM_SPEED){
+			return 0;
+		}
+		return searchClearance(ball, Math.min(CLEARANCE_LOOKAHEAD, (distanceMoved * CLEARANCE_TICKS) + 1), -1, -1);
+	}
+
+	/**
+	 * Find how far a ball resting on an edge can move before it could possibly touch any other
+	 * shape, or another edge of the same shape. Unlike findClearance(), this is also done for
+	 * slow and still balls, since a ball lying on the floor stays on it for a long time.
+	 * @param ball the ball
+	 * @param shapeIndex the index of the shape that the ball is resting on
+	 * @param edge the index of the edge that the ball is resting on, within that shape
+	 * @param distanceMoved how far the ball moves in a clock tick
+	 * @return the ball's contact clearance
+	 */
+	private double findContactClearance(Ball ball, int shapeIndex, int edge, double distanceMoved){
+		return searchClearance(ball, Math.min(CLEARANCE_LOOKAHEAD, (distanceMoved * CLEARANCE_TICKS) + 1), shapeIndex, edge);
+	}
+
+	/**
+	 * Find the distance from a ball to the nearest shape, up to the specified limit, for findClearance() and findContactClearance().
+	 * @param ignoredShape the index of the shape with an edge that isn't looked at, or -1 to look at every edge
+	 * @param ignoredEdge the index of that edge within the shape
+	 */
+	private double searchClearance(Ball ball, double limit, int ignoredShape, int ignoredEdge){
+		double x = ball.getXPosition();
+		double y = ball.getYPosition();
+		double clearance = limit;
+		double reach = ball.getRadius() + clearance;
+		int numberOfCandidates = queryNearbyShapes(ball, x - reach, y - reach, x + reach, y + reach);
+		int numberOfStaticCandidates = 0;
+		for(int c = 0; c < numberOfCandidates; c++){
+			double[] bounds = sweptBounds[candidateShapes[c]];
+			if(bounds == null){
+				staticCandidates[numberOfStaticCandidates] = candidateShapes[c];
+				numberOfStaticCandidates++;
 			} else {
-				//no collision takes place along our potential path 
-				players.get(i).updatePosition();
+				double xGap = Math.max(0, Math.max(bounds[0] - x, x - bounds[2]));
+				double yGap = Math.max(0, Math.max(bounds[1] - y, y - bounds[3]));
+				clearance = Math.min(clearance, Math.max(0, Math.sqrt((xGap * xGap) + (yGap * yGap)) - ball.getRadius()));
+			}
+		}
+		if(numberOfStaticCandidates > 0){
+			clearance = getInflatedGeometry(ball.getRadius()).clearance(x, y, staticCandidates, numberOfStaticCandidates, clearance, ignoredShape, ignoredEdge);
+		}
+		//leave a little room for rounding, so that the ball never quite reaches a shape without being checked
+		return Math.max(0, clearance - InflatedGeometry.SKIN);
+	}
+
+	/**
+	 * Find the shapes in the grid cells that the specified box around a ball covers, and write
+	 * their indices into candidateShapes[]. Instead of asking the grid each time, the ball
+	 * remembers the shapes in the cells within NEARBY_DISTANCE of its radius, and which of those
+	 * cells each one is in (see Ball.getNearbyShapes()). While the boxes it asks about stay
+	 * inside of those cells, the shapes are picked out of the ones it remembers, which gives the
+	 * same shapes that the grid would have. A ball moving a few pixels per clock tick only asks
+	 * the grid again every few clock ticks, once it has moved out of the cells.
+	 * @return the number of shapes found
+	 */
+	private int queryNearbyShapes(Ball ball, double xMin, double yMin, double xMax, double yMax){
+		int firstColumn = grid.clampColumn(xMin);
+		int firstRow = grid.clampRow(yMin);
+		int lastColumn = grid.clampColumn(xMax);
+		int lastRow = grid.clampRow(yMax);
+		if(ball.getNearbyVersion() != gridVersion || firstColumn < ball.getNearbyColumn() || firstRow < ball.getNearbyRow()
+				|| lastColumn > ball.getNearbyLastColumn() || lastRow > ball.getNearbyLastRow()){
+			double reach = ball.getRadius() + NEARBY_DISTANCE;
+			int nearbyColumn = grid.clampColumn(ball.getXPosition() - reach);
+			int nearbyRow = grid.clampRow(ball.getYPosition() - reach);
+			int nearbyLastColumn = grid.clampColumn(ball.getXPosition() + reach);
+			int nearbyLastRow = grid.clampRow(ball.getYPosition() + reach);
+			if(firstColumn < nearbyColumn || firstRow < nearbyRow || lastColumn > nearbyLastColumn || lastRow > nearbyLastRow
+					|| nearbyLastColumn - nearbyColumn >= BroadPhaseGrid.MASK_SIZE || nearbyLastRow - nearbyRow >= BroadPhaseGrid.MASK_SIZE){
+				//the ball is moving too fast for the box to fit inside of the cells around it, or it is too big for them to be remembered, so just ask the grid about the box
+				return grid.queryCells(firstColumn, firstRow, lastColumn, lastRow, candidateShapes);
+			}
+			int numberOfShapes = grid.queryCellMasks(nearbyColumn, nearbyRow, nearbyLastColumn, nearbyLastRow, candidateShapes, candidateCellMasks);
+			ball.setNearbyShapes(candidateShapes, candidateCellMasks, numberOfShapes, nearbyColumn, nearbyRow, nearbyLastColumn, nearbyLastRow, gridVersion);
+		}
+		int[] nearbyShapes = ball.getNearbyShapes();
+		long[] nearbyCellMasks = ball.getNearbyCellMasks();
+		long cells = BroadPhaseGrid.cellMask(firstColumn - ball.getNearbyColumn(), firstRow - ball.getNearbyRow(), lastColumn - ball.getNearbyColumn(), lastRow - ball.getNearbyRow());
+		int numberOfCandidates = 0;
+		for(int k = 0; k < ball.getNumberOfNearbyShapes(); k++){
+			if((nearbyCellMasks[k] & cells) != 0){
+				candidateShapes[numberOfCandidates] = nearbyShapes[k];
+				numberOfCandidates++;
+			}
+		}
+		return numberOfCandidates;
+	}
+
+	/**
+	 * Return the InflatedGeometry for balls of the specified radius, creating it the
+	 * first time a ball with that radius needs it. Most maps only have one radius.
+	 * @param radius the radius of the ball
+	 * @return the shapes of the simulation, inflated by that radius
+	 */
+	InflatedGeometry getInflatedGeometry(int radius){
+		for(int i = 0; i < inflatedGeometries.size(); i++){
+			if(inflatedGeometries.get(i).getRadius() == radius){
+				return inflatedGeometries.get(i);
+			}
+		}
+		InflatedGeometry geometry = new InflatedGeometry(radius);
+		geometry.rebuild(shapes, hasBorder ? 0 : -1);
+		inflatedGeometries.add(geometry);
+		return geometry;
+	}
+
+	/**
+	 * Rebuild the broad phase grid if any shapes have been edited, added or deleted since
+	 * it was last built. Kinematic shapes moving on their own don't require a rebuild, since
+	 * they are placed into the grid using their swept bounding boxes.
+	 */
+	void updateBroadPhase(){
+		int revision = map.getEditHistory().getRevision();
+		if(revision == gridRevision && candidateShapes.length == shapes.size()){
+			return;
+		}
+		gridRevision = revision;
+		numberOfGridBuilds++;
+		gridVersion = numberOfGridBuilds;
+		hasBorder = map.getDrawBorder() && shapes.size() > 0;
+		grid.rebuild(shapes);
+		for(int i = 0; i < inflatedGeometries.size(); i++){
+			inflatedGeometries.get(i).rebuild(shapes, hasBorder ? 0 : -1);
+		}
+		polygons.rebuild(shapes);
+		candidateShapes = new int[shapes.size()];
+		candidateCellMasks = new long[shapes.size()];
+		staticCandidates = new int[shapes.size()];
+		kinematicShapes = new int[shapes.size()];
+		sweptBounds = new double[shapes.size()][];
+		shapeMaterials = new int[shapes.size()];
+		numberOfKinematicShapes = 0;
+		if(hasBorder){
+			borderXMin = shapes.get(0).getXMin();
+			borderYMin = shapes.get(0).getYMin();
+			borderXMax = shapes.get(0).getXMax();
+			borderYMax = shapes.get(0).getYMax();
+		}
+		for(int i = 0; i < shapes.size(); i++){
+			shapeMaterials[i] = shapes.get(i).getMaterial();
+			if(shapes.get(i).isKinematic()){
+				kinematicShapes[numberOfKinematicShapes] = i;
+				numberOfKinematicShapes++;
+				sweptBounds[i] = shapes.get(i).getMotion().getSweptBounds(shapes.get(i));
+			}
+		}
+		//the shapes have changed, so every ball's clearance has to be found again, and the edges that balls are resting on may have moved.
+		//a shape may also have been drawn or dragged over some balls, so free any balls that are now inside of a shape
+		for(int i = 0; i < players.size(); i++){
+			players.get(i).setClearance(0);
+			players.get(i).clearContact();
+			freeBuriedBall(players.get(i));
+		}
+	}
+
+	/**
+	 * Find the shapes whose bounding boxes overlap the specified box, using the broad phase grid.
+	 * @param result an array to write the indices of the shapes into, at least as long as the shapes list
+	 * @return the number of shapes found
+	 */
+	int queryShapes(double xMin, double yMin, double xMax, double yMax, int[] result){
+		return grid.query(xMin, yMin, xMax, yMax, result);
+	}
+
+	/**
+	 * Return the number of times a ball has been moved out of a shape that its center was inside of, or out of a notch that it was stuck in.
+	 */
+	public int getNumberOfFreedBalls(){
+		return numberOfFreedBalls;
+	}
+
+	/**
+	 * Return the number of times the broad phase grid has been asked for the shapes near a ball
+	 */
+	public long getNumberOfGridQueries(){
+		return grid.getNumberOfQueries();
+	}
+
+	/**
+	 * Return the number of edges that the ray tests have calculated the distance to, for balls of every radius.
+	 * Together with getNumberOfEdgesCulled(), this shows how much of the narrow phase the back face culling
+	 * in InflatedGeometry.castRay() saves.
+	 */
+	public long getNumberOfEdgesTested(){
+		long total = 0;
+		for(int i = 0; i < inflatedGeometries.size(); i++){
+			total += inflatedGeometries.get(i).getNumberOfEdgesTested();
+		}
+		return total;
+	}
+
+	/**
+	 * Return the number of edges that the ray tests have skipped, because the ball was moving along them
+	 * or away from them, for balls of every radius
+	 */
+	public long getNumberOfEdgesCulled(){
+		long total = 0;
+		for(int i = 0; i < inflatedGeometries.size(); i++){
+			total += inflatedGeometries.get(i).getNumberOfEdgesCulled();
+		}
+		return total;
+	}
+
+	/**
+	 * Return whether any shape in the simulation follows a KinematicMotion. The broad phase
+	 * must be up to date (see updateBroadPhase()).
+	 */
+	boolean hasKinematicShapes(){
+		return numberOfKinematicShapes > 0;
+	}
+
+	/**
+	 * Note that the balls have been moved by something other than bounceModeClockTick(),
+	 * so that the ball index is rebuilt before the next closest pair or nearest ball query.
+	 */
+	void ballsMoved(){
+		ballIndexUpToDate = false;
+	}
+
+	/**
+	 * Return the amount that gravity adds to the y velocity of each ball on each clock tick in this simulation
+	 */
+	public double getGravity(){
+		return gravity;
+	}
+
+	/**
+	 * Set whether the balls attract each other, like stars in a galaxy, in addition to the
+	 * map's gravity. See the BarnesHutTree class.
+	 */
+	public void setBallAttraction(boolean use){
+		useBallAttraction = use;
+	}
+
+	public boolean getBallAttraction(){
+		return useBallAttraction;
+	}
+
+	/**
+	 * Return the BarnesHutTree that makes the balls attract each other, so that its opening angle, strength and softening can be changed
+	 */
+	public BarnesHutTree getBallAttractionTree(){
+		return ballAttraction;
+	}
+
+	/**
+	 * Set whether the balls push each other apart when they overlap, so that they pile up like
+	 * sand instead of passing through each other. See the SoftParticles class.
+	 */
+	public void setSoftParticles(boolean use){
+		useSoftParticles = use;
+	}
+
+	public boolean getSoftParticles(){
+		return useSoftParticles;
+	}
+
+	/**
+	 * Return the SoftParticles that push overlapping balls apart, so that their stiffness, damping and skin distance can be changed
+	 */
+	public SoftParticles getSoftParticlesStage(){
+		return softParticles;
+	}
+
+	/**
+	 * Return the ConstraintSolver that solves the map's springs, rods, ropes and anchors, so that its number of iterations can be changed
+	 */
+	public ConstraintSolver getConstraintSolver(){
+		return constraints;
+	}
+
+	/**
+	 * Return the gravity used by maps that don't specify their own
+	 */
+	public static double getDefaultGravity(){
+		return ACC_GRAVITY;
+	}
+
+	/**
+	 * Advance each kinematic shape's scripted motion by one clock tick, and update
+	 * its inflated geometry to match.
+	 */
+	private void moveKinematicShapes(){
+		for(int i = 0; i < numberOfKinematicShapes; i++){
+			Shape shape = shapes.get(kinematicShapes[i]);
+			shape.getMotion().step(shape);
+			for(int j = 0; j < inflatedGeometries.size(); j++){
+				inflatedGeometries.get(j).updateShape(kinematicShapes[i], shape);
 			}
+			polygons.updateShape(kinematicShapes[i]);
 		}
 	}
 
+	/**
+	 * Copy the position of each ball into the ballX[] and ballY[] arrays, and sort the balls
+	 * into the cells of the ballGrid. This is only done when a query needs it, and at most once
+	 * per clock tick, so it costs nothing while no queries are being made.
+	 */
+	private void updateBallIndex(){
+		if(ballIndexUpToDate){
+			return;
+		}
+		numberOfIndexedBalls = players.size();
+		if(ballX.length < numberOfIndexedBalls){
+			ballX = new double[numberOfIndexedBalls];
+			ballY = new double[numberOfIndexedBalls];
+		}
+		for(int i = 0; i < numberOfIndexedBalls; i++){
+			ballX[i] = players.get(i).getXPosition();
+			ballY[i] = players.get(i).getYPosition();
+		}
+		ballGrid.rebuild(ballX, ballY, numberOfIndexedBalls);
+		ballIndexUpToDate = true;
+	}
+
+	/**
+	 * Find the two balls in the simulation whose centers are closest together. The ballGrid is
+	 * checked first, which takes O(n) time. If the balls are spread out too unevenly for that
+	 * to work, the ClosestPair class is used instead, which takes O(n log n) time.
+	 * @return a Point whose x and y values are the indices of the two balls in the players list,
+	 * 		   or (-1, -1) if there are fewer than two balls
+	 */
+	public Point findClosestPair(){
+		updateBallIndex();
+		if(ballGrid.findClosestPair(closestPairResult) >= 0){
+			return new Point(closestPairResult[0], closestPairResult[1]);
+		}
+		if(!closestPair.find(ballX, ballY, numberOfIndexedBalls)){
+			return new Point(-1, -1);
+		}
+		return new Point(closestPair.getFirst(), closestPair.getSecond());
+	}
+
+	/**
+	 * Find the k balls whose centers are closest to the specified point, closest first.
+	 * Only the cells of the ballGrid around the point are searched, so this takes about the same
+	 * amount of time no matter how many balls are in the simulation.
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @param k the number of balls to find
+	 * @param result an array of length at least k to write the indices of the balls into
+	 * @return the number of balls found, which is less than k only if there are fewer than k balls
+	 */
+	public int findNearestBalls(double x, double y, int k, int[] result){
+		updateBallIndex();
+		if(k <= 0){
+			return 0;
+		}
+		if(nearestDistances.length < k){
+			nearestDistances = new double[k];
+		}
+		return ballGrid.findNearest(x, y, k, -1, result, nearestDistances);
+	}
+
 	/**
 	 * find the index of the smallest element in an ArrayList<Double>, the first time it appears
 	 * @param list
@@ -324,9 +798,28 @@ public class Physics9 {
 		return (xDifference * xDifference) + (yDifference * yDifference);
 	}
 
+	/**
+	 * Return a Point with x and y values containing two indices specifying the closest pair out of
+	 * any two points in the specified ArrayList. Uses the ClosestPair class, which takes O(n log n) time.
+	 */
+	public static Point closestPair(ArrayList<Point> list){
+		double[] x = new double[list.size()];
+		double[] y = new double[list.size()];
+		for(int i = 0; i < list.size(); i++){
+			x[i] = list.get(i).getX();
+			y[i] = list.get(i).getY();
+		}
+		ClosestPair finder = new ClosestPair();
+		if(!finder.find(x, y, list.size())){
+			return new Point(-1, -1);
+		}
+		return new Point(finder.getFirst(), finder.getSecond());
+	}
+
 	/**
 	 * Return a Point with x and y values containing two indices specifying the closest pair out of 
-	 * any two points in the specified ArrayList
+	 * any two points in the specified ArrayList. This checks every pair, which takes O(n^2) time;
+	 * it is kept for checking the results of closestPair() against.
 	 */
 	public Point closestPairBruteForce(ArrayList<Point> list){
 		double closestDistance = Double.MAX_VALUE;
@@ -352,19 +845,19 @@ public class Physics9 {
 	 */
 	public static ArrayList<Integer> indicesOfClosestPointBruteForce(ArrayList<Point> list, Point pointOfReference){
 		double closestDistance = Double.MAX_VALUE;
-		int indexOfClosestPoint = 0;
 		double tempDistance;
-		ArrayList<Double> distances = new ArrayList<Double>();
 		ArrayList<Integer> results = new ArrayList<Integer>();
+		//find the closest distance first, then collect every point within 0.1 of it.
+		//recalculating the distances in the second pass is cheaper than storing them all in a list.
 		for(int i = 0; i < list.size(); i++){
 			tempDistance = distanceNoSqrt(list.get(i), pointOfReference);
-			distances.add(tempDistance);
 			if(tempDistance < closestDistance){
 				closestDistance = tempDistance;
 			}
 		}
 		for(int i = 0; i < list.size(); i++){
-			if(distances.get(i) + 0.1 >= closestDistance && distances.get(i) - 0.1 <= closestDistance){
+			tempDistance = distanceNoSqrt(list.get(i), pointOfReference);
+			if(tempDistance + 0.1 >= closestDistance && tempDistance - 0.1 <= closestDistance){
 				results.add(i);
 			}
 		}
@@ -446,10 +939,14 @@ public class Physics9 {
 	 * to their initial positions and velocities.
 	 */
 	public void resetBalls(){
+		//remove spawned balls first, and put back balls that were removed by sinks, so that they are reset too
+		map.getSpawner().reset();
 		for(int i = 0; i < players.size(); i++){
 			players.get(i).reset();
 
 		}
+		constraints.reset();
+		ballIndexUpToDate = false;
 	}
 
 	public static void main(String args []) {
@@ -157,6 +157,8 @@ public class Point implements Comparable<Object>{
 	 * correct number of degrees about the origin (0,0). This has the
 	 * same effect as rotating a vector to determine the right velocity
 	 * for a ball after reflecting off of a wall at a certain angle.
+	 * This is no longer used by the Physics class, which reflects balls using the
+	 * wall's normal instead (see Ball.normalReflection()).
 	 * @param double anglebtwn: the angle between the balls path and the 
 	 * 							wall it hit. will be used in calculations.
 	 * @return Point: 	a Point with x representing x component of velocity, 
@@ -0,0 +1,464 @@
+package physics_simulator;
+import java.util.ArrayList;
+
+/**
+ * The PolygonIndex class.
+ * Answers whether a point is inside of one of the solid shapes of the simulation, and finds
+ * the shortest way out of a shape for a point that is. The Physics class uses this to free
+ * balls that have ended up inside of a shape, for example because a shape was dragged over
+ * them, instead of leaving them trapped inside, bouncing off of the inside of its edges.
+ *
+ * A point is inside of a shape if a line from the point out to the right crosses the shape's
+ * edges an odd number of times. Following that line across a shape with thousands of vertices
+ * would cross many of them, so instead, each shape's hit box is divided into a small grid of
+ * cells (edge buckets), and each cell lists the edges that pass through it. When the cells
+ * are made, it is worked out once whether the center of each cell is inside of the shape.
+ * A point is then inside of the shape if the center of its cell is, and the path from the
+ * center to the point (across, then up or down) crosses the edges in the cell an even number
+ * of times. Only the few edges in one cell are looked at, however many vertices the shape has.
+ *
+ * To find the shortest way out of a shape, the cells are searched in rings around the point's
+ * cell, stopping once the rings left are further away than the closest way out found.
+ *
+ * Lines, and shapes with no area, have no inside, and neither do containers like the map's
+ * border, which hold the balls inside of them (see Shape.setContainer()). The cells of a kinematic shape are made again the first time
+ * it is looked at after it moves.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class PolygonIndex {
+
+	private static final int CELLS_PER_EDGE = 2; //about how many cells each shape is divided into, for each of its edges
+	private static final int MAXIMUM_CELLS_PER_SIDE = 256; //the most cells across or down that a single shape is divided into
+	private static final double CLEAR_FRACTION = 0.999; //a ball placed by findExit() may be this fraction of the distance from an edge, to allow for rounding
+	private Shape[] shapes = new Shape[0]; //the shapes, so that the cells of a kinematic shape can be made again after it moves
+	private boolean[] solid = new boolean[0]; //does each shape have an inside?
+	private boolean[] stale = new boolean[0]; //has each shape moved since its cells were made?
+	private double[][] vertexX = new double[0][]; //the x coordinates of the vertices of each shape. edge k of a shape goes from vertex k to vertex k + 1
+	private double[][] vertexY = new double[0][]; //the y coordinates of the vertices of each shape
+	private double[] boundsXMin = new double[0]; //the hit box of each shape, which its grid covers
+	private double[] boundsYMin = new double[0];
+	private double[] boundsXMax = new double[0];
+	private double[] boundsYMax = new double[0];
+	private int[] columns = new int[0]; //the number of cells across each shape's grid
+	private int[] rows = new int[0]; //the number of cells down each shape's grid
+	private double[] cellWidth = new double[0]; //the width of the cells of each shape's grid
+	private double[] cellHeight = new double[0]; //the height of the cells of each shape's grid
+	/*
+	 * int[][] cellStart, int[][] cellEdges:
+	 * the edges that pass through cell c of shape i, where c = row * columns + column, are stored
+	 * from cellEdges[i][cellStart[i][c]] up to (but not including) cellEdges[i][cellStart[i][c + 1]].
+	 */
+	private int[][] cellStart = new int[0][];
+	private int[][] cellEdges = new int[0][];
+	private boolean[][] centerInside = new boolean[0][]; //is the center of each cell of each shape inside of the shape?
+	//the result of the most recent call to findExit()
+	private double exitX; //where to move the point so that it is outside of the shape
+	private double exitY; //the y coordinate of that position
+
+	/**
+	 * Index every shape in the list. Called when shapes are edited, added or deleted.
+	 * @param shapeList the list of shapes in the simulation
+	 */
+	public void rebuild(ArrayList<Shape> shapeList){
+		int numberOfShapes = shapeList.size();
+		shapes = new Shape[numberOfShapes];
+		solid = new boolean[numberOfShapes];
+		stale = new boolean[numberOfShapes];
+		vertexX = new double[numberOfShapes][];
+		vertexY = new double[numberOfShapes][];
+		boundsXMin = new double[numberOfShapes];
+		boundsYMin = new double[numberOfShapes];
+		boundsXMax = new double[numberOfShapes];
+		boundsYMax = new double[numberOfShapes];
+		columns = new int[numberOfShapes];
+		rows = new int[numberOfShapes];
+		cellWidth = new double[numberOfShapes];
+		cellHeight = new double[numberOfShapes];
+		cellStart = new int[numberOfShapes][];
+		cellEdges = new int[numberOfShapes][];
+		centerInside = new boolean[numberOfShapes][];
+		for(int i = 0; i < numberOfShapes; i++){
+			Shape shape = shapeList.get(i);
+			shapes[i] = shape;
+			solid[i] = !shape.isContainer() && shape.getNumberOfVertices() >= 3 && shape.getSignedArea() != 0;
+			if(solid[i]){
+				index(i);
+			}
+		}
+	}
+
+	/**
+	 * Note that a shape has moved, so that its cells are made again the next time it is looked
+	 * at. Called for kinematic shapes on each clock tick.
+	 * @param shapeIndex the index of the shape in the shapes list
+	 */
+	public void updateShape(int shapeIndex){
+		stale[shapeIndex] = solid[shapeIndex];
+	}
+
+	/**
+	 * Copy the vertices of a shape, sort its edges into the cells of its grid, and work out
+	 * whether the center of each cell is inside of the shape.
+	 */
+	private void index(int i){
+		Shape shape = shapes[i];
+		int numberOfVertices = shape.getNumberOfVertices();
+		double[] x = new double[numberOfVertices];
+		double[] y = new double[numberOfVertices];
+		for(int k = 0; k < numberOfVertices; k++){
+			x[k] = shape.getVertex(k).getX();
+			y[k] = shape.getVertex(k).getY();
+		}
+		vertexX[i] = x;
+		vertexY[i] = y;
+		boundsXMin[i] = shape.getXMin();
+		boundsYMin[i] = shape.getYMin();
+		boundsXMax[i] = shape.getXMax();
+		boundsYMax[i] = shape.getYMax();
+		//divide the hit box into about CELLS_PER_EDGE cells for each edge, as close to square as the hit box allows
+		double width = Math.max(boundsXMax[i] - boundsXMin[i], 1e-9);
+		double height = Math.max(boundsYMax[i] - boundsYMin[i], 1e-9);
+		double side = Math.sqrt(width * height / (numberOfVertices * CELLS_PER_EDGE));
+		columns[i] = Math.max(1, Math.min(MAXIMUM_CELLS_PER_SIDE, (int) Math.ceil(width / side)));
+		rows[i] = Math.max(1, Math.min(MAXIMUM_CELLS_PER_SIDE, (int) Math.ceil(height / side)));
+		cellWidth[i] = width / columns[i];
+		cellHeight[i] = height / rows[i];
+		int numberOfCells = columns[i] * rows[i];
+		//count the edges in each cell, then fill the cells in a second pass
+		int[] start = new int[numberOfCells + 1];
+		for(int k = 0; k < numberOfVertices; k++){
+			visitCells(i, k, start, null);
+		}
+		for(int c = 0; c < numberOfCells; c++){
+			start[c + 1] += start[c];
+		}
+		int[] edges = new int[start[numberOfCells]];
+		cellStart[i] = start;
+		cellEdges[i] = edges;
+		int[] filled = new int[numberOfCells];
+		for(int k = 0; k < numberOfVertices; k++){
+			visitCells(i, k, filled, edges);
+		}
+		//along the line through the centers of each row, find where the edges cross it, and count
+		//the crossings to the right of each center (see isAbove() for why the crossings are counted this way)
+		boolean[] inside = new boolean[numberOfCells];
+		double[] crossings = new double[numberOfVertices];
+		for(int row = 0; row < rows[i]; row++){
+			double centerY = boundsYMin[i] + ((row + 0.5) * cellHeight[i]);
+			int numberOfCrossings = 0;
+			for(int k = 0; k < numberOfVertices; k++){
+				int next = (k + 1) % numberOfVertices;
+				if(isAbove(y[k], centerY) != isAbove(y[next], centerY)){
+					crossings[numberOfCrossings] = crossingX(x[k], y[k], x[next], y[next], centerY);
+					numberOfCrossings++;
+				}
+			}
+			java.util.Arrays.sort(crossings, 0, numberOfCrossings);
+			int passed = 0; //the number of crossings at or to the left of the current center
+			for(int column = 0; column < columns[i]; column++){
+				double centerX = boundsXMin[i] + ((column + 0.5) * cellWidth[i]);
+				while(passed < numberOfCrossings && crossings[passed] <= centerX){
+					passed++;
+				}
+				inside[(row * columns[i]) + column] = (numberOfCrossings - passed) % 2 == 1;
+			}
+		}
+		centerInside[i] = inside;
+		stale[i] = false;
+	}
+
+	/**
+	 * Go through the cells that edge k of shape i passes through, one row at a time. If edges
+	 * is null, count the edge in each cell's entry in the counts array. Otherwise, store the edge
+	 * in each cell's list, using counts to keep track of how much of each list is filled.
+	 */
+	private void visitCells(int i, int k, int[] counts, int[] edges){
+		double[] x = vertexX[i];
+		double[] y = vertexY[i];
+		int next = (k + 1) % x.length;
+		double x0 = x[k];
+		double y0 = y[k];
+		double x1 = x[next];
+		double y1 = y[next];
+		int firstRow = clampRow(i, Math.min(y0, y1));
+		int lastRow = clampRow(i, Math.max(y0, y1));
+		for(int row = firstRow; row <= lastRow; row++){
+			//the part of the edge within this row
+			double top = Math.max(Math.min(y0, y1), boundsYMin[i] + (row * cellHeight[i]));
+			double bottom = Math.min(Math.max(y0, y1), boundsYMin[i] + ((row + 1) * cellHeight[i]));
+			double left;
+			double right;
+			if(y0 == y1){
+				left = Math.min(x0, x1);
+				right = Math.max(x0, x1);
+			} else {
+				double xTop = x0 + ((top - y0) * (x1 - x0) / (y1 - y0));
+				double xBottom = x0 + ((bottom - y0) * (x1 - x0) / (y1 - y0));
+				left = Math.min(xTop, xBottom);
+				right = Math.max(xTop, xBottom);
+			}
+			int lastColumn = clampColumn(i, right);
+			for(int column = clampColumn(i, left); column <= lastColumn; column++){
+				int cell = (row * columns[i]) + column;
+				if(edges == null){
+					counts[cell + 1]++;
+				} else {
+					edges[cellStart[i][cell] + counts[cell]] = k;
+					counts[cell]++;
+				}
+			}
+		}
+	}
+
+	private int clampColumn(int i, double x){
+		return Math.max(0, Math.min(columns[i] - 1, (int) Math.floor((x - boundsXMin[i]) / cellWidth[i])));
+	}
+
+	private int clampRow(int i, double y){
+		return Math.max(0, Math.min(rows[i] - 1, (int) Math.floor((y - boundsYMin[i]) / cellHeight[i])));
+	}
+
+	/**
+	 * Is a vertex at height y above the horizontal line at height lineY, for counting crossings?
+	 * A vertex exactly on the line counts as below it, so that an edge ending on the line and the
+	 * edge starting there are counted once between them, not twice.
+	 */
+	private static boolean isAbove(double y, double lineY){
+		return y > lineY;
+	}
+
+	/**
+	 * Return the x coordinate where the edge from (x0, y0) to (x1, y1) crosses the horizontal line at height lineY
+	 */
+	private static double crossingX(double x0, double y0, double x1, double y1, double lineY){
+		return x0 + ((lineY - y0) * (x1 - x0) / (y1 - y0));
+	}
+
+	/**
+	 * Does the specified shape have an inside? Lines, shapes with no area and containers don't.
+	 * @param shapeIndex the index of the shape in the shapes list
+	 */
+	public boolean isSolid(int shapeIndex){
+		return solid[shapeIndex];
+	}
+
+	/**
+	 * Is the point (px, py) inside of the specified shape? Points exactly on an edge may be
+	 * counted as either inside or outside.
+	 * @param shapeIndex the index of the shape in the shapes list
+	 * @return true if the shape is solid and the point is inside of it
+	 */
+	public boolean contains(int shapeIndex, double px, double py){
+		if(!solid[shapeIndex]){
+			return false;
+		}
+		if(stale[shapeIndex]){
+			index(shapeIndex);
+		}
+		if(px < boundsXMin[shapeIndex] || px > boundsXMax[shapeIndex] || py < boundsYMin[shapeIndex] || py > boundsYMax[shapeIndex]){
+			return false;
+		}
+		double[] x = vertexX[shapeIndex];
+		double[] y = vertexY[shapeIndex];
+		int column = clampColumn(shapeIndex, px);
+		int row = clampRow(shapeIndex, py);
+		int cell = (row * columns[shapeIndex]) + column;
+		double centerX = boundsXMin[shapeIndex] + ((column + 0.5) * cellWidth[shapeIndex]);
+		double centerY = boundsYMin[shapeIndex] + ((row + 0.5) * cellHeight[shapeIndex]);
+		boolean inside = centerInside[shapeIndex][cell];
+		double left = Math.min(centerX, px);
+		double right = Math.max(centerX, px);
+		double low = Math.min(centerY, py);
+		double high = Math.max(centerY, py);
+		/*
+		 * Go from the center across to (px, centerY), then up or down to the point, and count the
+		 * edges crossed on the way. Both parts count crossings the same way as the line to the
+		 * right does, as if the point were moved a tiny bit down and to the right, so that a
+		 * path through a vertex is counted the same way as the line through it.
+		 */
+		int[] edges = cellEdges[shapeIndex];
+		for(int position = cellStart[shapeIndex][cell]; position < cellStart[shapeIndex][cell + 1]; position++){
+			int k = edges[position];
+			int next = (k + 1) % x.length;
+			if(isAbove(y[k], centerY) != isAbove(y[next], centerY)){
+				double crossing = crossingX(x[k], y[k], x[next], y[next], centerY);
+				if(crossing > left && crossing <= right){
+					inside = !inside;
+				}
+			}
+			if((x[k] > px) != (x[next] > px)){
+				double crossing = y[k] + ((px - x[k]) * (y[next] - y[k]) / (x[next] - x[k]));
+				if(crossing > low && crossing <= high){
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Find the first of the candidate shapes that the point (px, py) is inside of.
+	 * @param candidates the indices of the shapes to check, such as those found by the BroadPhaseGrid
+	 * @param numberOfCandidates the number of indices in the candidates array
+	 * @return the index of the shape, or -1 if the point isn't inside of any of them
+	 */
+	public int findContainingShape(double px, double py, int[] candidates, int numberOfCandidates){
+		for(int c = 0; c < numberOfCandidates; c++){
+			if(contains(candidates[c], px, py)){
+				return candidates[c];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the shortest way out of a shape for a ball centered at the point (px, py), which is
+	 * inside of it or overlapping its edges: the closest position outside of the shape where the
+	 * ball, whose radius is the specified distance, doesn't overlap any of the shape's edges. The result can be read
+	 * with getExitX() and getExitY().
+	 *
+	 * For each edge near the point, the closest point on the edge is found, and the ball is
+	 * tried just past it, both along the edge's normal and straight on from the point. Just
+	 * moving the ball past the closest edge isn't enough, because in a narrow notch it would
+	 * then overlap the other side of the notch, and pushing it off of that side would push it
+	 * back inside. The cells are searched in rings around the point's cell, stopping once the
+	 * rings left are too far away to hold a closer position. If the ball doesn't fit anywhere,
+	 * it is moved just past the closest edge.
+	 * @param shapeIndex the index of the shape in the shapes list
+	 * @param distance how far from every edge the ball has to be, which is its radius plus a little
+	 */
+	public void findExit(int shapeIndex, double px, double py, double distance){
+		if(stale[shapeIndex]){
+			index(shapeIndex);
+		}
+		double[] x = vertexX[shapeIndex];
+		double[] y = vertexY[shapeIndex];
+		int[] start = cellStart[shapeIndex];
+		int[] edges = cellEdges[shapeIndex];
+		int homeColumn = clampColumn(shapeIndex, px);
+		int homeRow = clampRow(shapeIndex, py);
+		double ringWidth = Math.min(cellWidth[shapeIndex], cellHeight[shapeIndex]);
+		int rings = Math.max(columns[shapeIndex], rows[shapeIndex]);
+		double closestDistanceSquared = Double.MAX_VALUE; //the closest point on any edge, for when the ball doesn't fit anywhere
+		double fallbackX = px;
+		double fallbackY = py;
+		double bestDistance = Double.MAX_VALUE; //the closest position found so far where the ball fits
+		for(int ring = 0; ring < rings; ring++){
+			//every edge in this ring is at least this far from the point, so a position next to it is at least this far minus the distance
+			double nearest = (ring - 1) * ringWidth;
+			if(ring > 1 && nearest - distance >= bestDistance){
+				break;
+			}
+			for(int row = Math.max(0, homeRow - ring); row <= Math.min(rows[shapeIndex] - 1, homeRow + ring); row++){
+				//the top and bottom rows of the ring are searched all the way across, the rows between only at either end
+				boolean wholeRow = row == homeRow - ring || row == homeRow + ring;
+				int step = wholeRow ? 1 : Math.max(1, 2 * ring);
+				for(int column = homeColumn - ring; column <= homeColumn + ring; column += step){
+					if(column < 0 || column >= columns[shapeIndex]){
+						continue;
+					}
+					int cell = (row * columns[shapeIndex]) + column;
+					for(int position = start[cell]; position < start[cell + 1]; position++){
+						int k = edges[position];
+						int next = (k + 1) % x.length;
+						double edgeX = x[next] - x[k];
+						double edgeY = y[next] - y[k];
+						double lengthSquared = (edgeX * edgeX) + (edgeY * edgeY);
+						double along = lengthSquared > 0 ? Math.max(0, Math.min(1, (((px - x[k]) * edgeX) + ((py - y[k]) * edgeY)) / lengthSquared)) : 0;
+						double pointX = x[k] + (along * edgeX);
+						double pointY = y[k] + (along * edgeY);
+						double depthSquared = ((px - pointX) * (px - pointX)) + ((py - pointY) * (py - pointY));
+						double normalX = shapes[shapeIndex].getEdgeNormalX(k);
+						double normalY = shapes[shapeIndex].getEdgeNormalY(k);
+						double directionX = normalX;
+						double directionY = normalY;
+						if(depthSquared > 0){
+							//straight on from the point, through the closest point on the edge
+							double depth = Math.sqrt(depthSquared);
+							directionX = (pointX - px) / depth;
+							directionY = (pointY - py) / depth;
+						}
+						if(depthSquared < closestDistanceSquared){
+							closestDistanceSquared = depthSquared;
+							fallbackX = pointX + (directionX * distance);
+							fallbackY = pointY + (directionY * distance);
+						}
+						bestDistance = tryExit(shapeIndex, px, py, pointX + (directionX * distance), pointY + (directionY * distance), distance, bestDistance);
+						bestDistance = tryExit(shapeIndex, px, py, pointX + (normalX * distance), pointY + (normalY * distance), distance, bestDistance);
+						bestDistance = tryExit(shapeIndex, px, py, pointX - (normalX * distance), pointY - (normalY * distance), distance, bestDistance);
+					}
+				}
+			}
+		}
+		if(bestDistance == Double.MAX_VALUE){
+			exitX = fallbackX;
+			exitY = fallbackY;
+		}
+	}
+
+	/**
+	 * If the position (qx, qy) is closer to the point (px, py) than the best exit found so far,
+	 * and a ball there would be outside of the shape without overlapping any of its edges, make
+	 * it the new exit.
+	 * @return the distance from the point to the best exit found so far
+	 */
+	private double tryExit(int shapeIndex, double px, double py, double qx, double qy, double distance, double bestDistance){
+		double exitDistance = Math.sqrt(((qx - px) * (qx - px)) + ((qy - py) * (qy - py)));
+		if(exitDistance >= bestDistance || contains(shapeIndex, qx, qy) || isNearEdge(shapeIndex, qx, qy, distance * CLEAR_FRACTION)){
+			return bestDistance;
+		}
+		exitX = qx;
+		exitY = qy;
+		return exitDistance;
+	}
+
+	/**
+	 * Is the point (qx, qy) closer than the specified distance to any edge of the shape? Only
+	 * the cells within that distance of the point are looked at.
+	 */
+	private boolean isNearEdge(int shapeIndex, double qx, double qy, double distance){
+		if(qx < boundsXMin[shapeIndex] - distance || qx > boundsXMax[shapeIndex] + distance || qy < boundsYMin[shapeIndex] - distance || qy > boundsYMax[shapeIndex] + distance){
+			return false;
+		}
+		double[] x = vertexX[shapeIndex];
+		double[] y = vertexY[shapeIndex];
+		int[] start = cellStart[shapeIndex];
+		int[] edges = cellEdges[shapeIndex];
+		double distanceSquared = distance * distance;
+		for(int row = clampRow(shapeIndex, qy - distance); row <= clampRow(shapeIndex, qy + distance); row++){
+			for(int column = clampColumn(shapeIndex, qx - distance); column <= clampColumn(shapeIndex, qx + distance); column++){
+				int cell = (row * columns[shapeIndex]) + column;
+				for(int position = start[cell]; position < start[cell + 1]; position++){
+					int k = edges[position];
+					int next = (k + 1) % x.length;
+					double edgeX = x[next] - x[k];
+					double edgeY = y[next] - y[k];
+					double lengthSquared = (edgeX * edgeX) + (edgeY * edgeY);
+					double along = lengthSquared > 0 ? Math.max(0, Math.min(1, (((qx - x[k]) * edgeX) + ((qy - y[k]) * edgeY)) / lengthSquared)) : 0;
+					double xDifference = qx - (x[k] + (along * edgeX));
+					double yDifference = qy - (y[k] + (along * edgeY));
+					if((xDifference * xDifference) + (yDifference * yDifference) < distanceSquared){
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the x coordinate that findExit() found to move the point to
+	 */
+	public double getExitX(){
+		return exitX;
+	}
+
+	/**
+	 * Return the y coordinate that findExit() found to move the point to
+	 */
+	public double getExitY(){
+		return exitY;
+	}
+}
@@ -1,5 +1,6 @@
 package physics_simulator;
 import java.awt.Color;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.util.ArrayList;
@@ -17,7 +18,13 @@ public class ReadMapFile {
 	private int width; //the map's width
 	private ArrayList<Ball> players; //a list of each ball in the simulation
 	private ArrayList<Shape> shapes; //a list of each shape (obstacle) in the simulation
+	private ArrayList<Emitter> emitters; //a list of each region that spawns new balls
+	private ArrayList<Sink> sinks; //a list of each region that removes balls
 	private boolean drawBorder; //should an unpassable, uneditable rectangular border be drawn 20 pixels in from the edge of the map?
+	private double gravity = Physics9.getDefaultGravity(); //the amount added to each ball's y velocity on each clock tick
+	private MaterialTable materials = new MaterialTable(); //the materials that balls and shapes refer to
+	private ArrayList<ForceField> forceFields = new ArrayList<ForceField>(); //the winds, attractors and vector grids that push on the balls
+	private ArrayList<Constraint> constraints = new ArrayList<Constraint>(); //the springs, rods, ropes and anchors that join the balls
 
 	/**
 	 * Read the Map data from a file.
@@ -29,11 +36,15 @@ public class ReadMapFile {
 	 * 		  if drawBorder is specified as true in the file, the border is already
 	 * 		  added to this list at index 0, by the Map class before the list is 
 	 * 		  passed to this constructor.
+	 * @param initEmitters a list of all of the emitters in the simulation
+	 * @param initSinks a list of all of the sinks in the simulation
 	 * @param filename a String describing the file path of this map file
 	 */
-	public ReadMapFile(ArrayList<Ball> initPlayers, ArrayList<Shape> initShapes, String filename){
+	public ReadMapFile(ArrayList<Ball> initPlayers, ArrayList<Shape> initShapes, ArrayList<Emitter> initEmitters, ArrayList<Sink> initSinks, String filename){
 		players = initPlayers;
 		shapes = initShapes;
+		emitters = initEmitters;
+		sinks = initSinks;
 		readFile(filename);
 	}
 
@@ -48,8 +59,14 @@ public class ReadMapFile {
 			readHeight(scan);
 			readWidth(scan);
 			readDrawBorder(scan);
+			readGravity(scan);
+			readMaterials(scan);
 			readPlayers(scan);
 			readShapes(scan);
+			readEmitters(scan);
+			readSinks(scan);
+			readForceFields(scan, filename);
+			readConstraints(scan);
 			scan.close();
 		} catch (FileNotFoundException e) {
 			System.out.println("File not found.");
@@ -100,6 +117,62 @@ public class ReadMapFile {
 		return drawBorder;
 	}
 
+	/**
+	 * Read the gravity of the map from the file, if it has one. Gravity is optional,
+	 * so older map files without a "gravity: " line can still be read.
+	 * @param scan
+	 */
+	private void readGravity(Scanner scan){
+		if(!scan.hasNext("gravity:")){
+			return;
+		}
+		scan.next(); //read "gravity: "
+		gravity = scan.nextDouble(); //read gravity value
+		scan.nextLine(); //skip any additional text at the end of the line
+	}
+
+	/**
+	 * Read the materials from the map file, if there are any. Each material line has a
+	 * restitution and a friction, and the materials are numbered from 0 in the order they
+	 * are listed. Materials are optional, like gravity. See the MaterialTable class.
+	 * @param scan
+	 */
+	private void readMaterials(Scanner scan){
+		if(!scan.hasNext("materials:")){
+			return;
+		}
+		scan.next(); //read "materials: "
+		int numberOfMaterials = scan.nextInt(); //read the number of materials
+		if(numberOfMaterials < 1){
+			return;
+		}
+		double[] restitution = new double[numberOfMaterials];
+		double[] friction = new double[numberOfMaterials];
+		for(int i = 0; i < numberOfMaterials; i++){
+			scan.next(); //read "material: "
+			restitution[i] = scan.nextDouble();
+			friction[i] = scan.nextDouble();
+		}
+		scan.nextLine(); //skip any additional text at the end of the line
+		materials = new MaterialTable(restitution, friction);
+	}
+
+	/**
+	 * Read an optional "material_index: " line, which balls and shapes that don't use the
+	 * default material have after their other values.
+	 * @param scan
+	 * @return the material index, or 0 if there is no line or the index isn't in the table
+	 */
+	private int readMaterialIndex(Scanner scan){
+		if(!scan.hasNext("material_index:")){
+			return 0;
+		}
+		scan.next(); //read "material_index: "
+		int material = materials.checkIndex(scan.nextInt()); //read the material index
+		scan.nextLine(); //skip any additional text at the end of the line
+		return material;
+	}
+
 	/**
 	 * Read the ball data from the map file, including the number
 	 * of balls in the simulation and the attributes of each ball.
@@ -129,7 +202,9 @@ public class ReadMapFile {
 			color_green_value = readNextColorValueFromFile(scan, Color.RED.getGreen());
 			color_blue_value = readNextColorValueFromFile(scan, Color.RED.getBlue());
 			//add a ball to the simulation with the values that have just been read from the file
-			players.add(new Ball(start_x_position, start_y_position, start_x_velocity, start_y_velocity, new Color(color_red_value, color_green_value, color_blue_value)));
+			Ball ball = new Ball(start_x_position, start_y_position, start_x_velocity, start_y_velocity, new Color(color_red_value, color_green_value, color_blue_value));
+			ball.setMaterial(readMaterialIndex(scan), materials);
+			players.add(ball);
 		}
 	}
 
@@ -175,11 +250,145 @@ public class ReadMapFile {
 			for(int j = 0; j < numberOfVertices; j++){
 				currentShape.add(readNextPointFromFile(scan));
 			}
-			shapes.add(new Shape(currentShape));
+			Shape shape = new Shape(currentShape);
+			if(scan.hasNext("motion:")){
+				//this shape is kinematic. see the KinematicMotion class for the format of this line
+				scan.next(); //read "motion: "
+				shape.setMotion(new KinematicMotion(scan.nextDouble(), scan.nextDouble(), scan.nextDouble(), scan.nextDouble(), scan.nextDouble(), scan.nextDouble()));
+			}
+			if(scan.hasNext("container:")){
+				//balls stay inside of this shape, rather than outside of it
+				scan.next(); //read "container: "
+				shape.setContainer(scan.nextBoolean());
+			}
+			shape.setMaterial(readMaterialIndex(scan));
+			shapes.add(shape);
 			currentShape.clear();
 		}
 	}
 
+	/**
+	 * Read the emitters from the map file, if there are any. Emitters are optional,
+	 * so older map files without an "emitters: " section can still be read.
+	 * @param scan
+	 */
+	private void readEmitters(Scanner scan){
+		if(!scan.hasNext("emitters:")){
+			return;
+		}
+		scan.next(); //read "emitters: "
+		int numberOfEmitters = scan.nextInt(); //read the number of emitters
+		for(int i = 0; i < numberOfEmitters; i++){
+			scan.next(); //read "emitter: "
+			double x = scan.nextDouble();
+			double y = scan.nextDouble();
+			double emitterWidth = scan.nextDouble();
+			double emitterHeight = scan.nextDouble();
+			double rate = scan.nextDouble();
+			double xVelocity = scan.nextDouble();
+			double yVelocity = scan.nextDouble();
+			int red = Math.max(0, Math.min(255, scan.nextInt()));
+			int green = Math.max(0, Math.min(255, scan.nextInt()));
+			int blue = Math.max(0, Math.min(255, scan.nextInt()));
+			Emitter emitter = new Emitter(x, y, emitterWidth, emitterHeight, rate, xVelocity, yVelocity, new Color(red, green, blue));
+			if(scan.hasNextInt()){
+				//the optional material index of the balls it spawns
+				emitter.setMaterial(materials.checkIndex(scan.nextInt()));
+			}
+			emitters.add(emitter);
+		}
+	}
+
+	/**
+	 * Read the sinks from the map file, if there are any. Like emitters, sinks are optional.
+	 * @param scan
+	 */
+	private void readSinks(Scanner scan){
+		if(!scan.hasNext("sinks:")){
+			return;
+		}
+		scan.next(); //read "sinks: "
+		int numberOfSinks = scan.nextInt(); //read the number of sinks
+		for(int i = 0; i < numberOfSinks; i++){
+			scan.next(); //read "sink: "
+			sinks.add(new Sink(scan.nextDouble(), scan.nextDouble(), scan.nextDouble(), scan.nextDouble()));
+		}
+	}
+
+	/**
+	 * Read the force fields from the map file, if there are any. Like emitters and sinks,
+	 * force fields are optional. See the ForceField class for the format of each line.
+	 * @param scan
+	 * @param filename the file path of the map file, which vector grid file names are relative to
+	 */
+	private void readForceFields(Scanner scan, String filename){
+		if(!scan.hasNext("force_fields:")){
+			return;
+		}
+		scan.next(); //read "force_fields: "
+		int numberOfFields = scan.nextInt(); //read the number of force fields
+		for(int i = 0; i < numberOfFields; i++){
+			String type = scan.next(); //read "wind: ", "attractor: ", "repulsor: " or "vector_grid: "
+			if(type.equalsIgnoreCase("wind:")){
+				forceFields.add(ForceField.createWind(scan.nextDouble(), scan.nextDouble()));
+			} else if(type.equalsIgnoreCase("attractor:") || type.equalsIgnoreCase("repulsor:")){
+				double x = scan.nextDouble();
+				double y = scan.nextDouble();
+				double strength = Math.abs(scan.nextDouble());
+				double softening = scan.nextDouble();
+				forceFields.add(ForceField.createAttractor(x, y, type.equalsIgnoreCase("repulsor:") ? -strength : strength, softening));
+			} else if(type.equalsIgnoreCase("vector_grid:")){
+				String gridFilename = scan.next();
+				File gridFile = new File(gridFilename);
+				if(!gridFile.isAbsolute()){
+					gridFile = new File(new File(filename).getAbsoluteFile().getParentFile(), gridFilename);
+				}
+				forceFields.add(ForceField.loadVectorGrid(gridFilename, gridFile.getPath()));
+			}
+		}
+	}
+
+	/**
+	 * Read the constraints from the map file, if there are any. Like force fields, constraints
+	 * are optional. See the Constraint class for the format of each line. A constraint that
+	 * refers to a ball that isn't in the file is skipped.
+	 * @param scan
+	 */
+	private void readConstraints(Scanner scan){
+		if(!scan.hasNext("constraints:")){
+			return;
+		}
+		scan.next(); //read "constraints: "
+		int numberOfConstraints = scan.nextInt(); //read the number of constraints
+		for(int i = 0; i < numberOfConstraints; i++){
+			String type = scan.next(); //read "spring: ", "rod: ", "rope: " or "anchor: "
+			int firstBall = scan.nextInt();
+			if(type.equalsIgnoreCase("anchor:")){
+				double x = scan.nextDouble();
+				double y = scan.nextDouble();
+				double length = scan.nextDouble();
+				if(firstBall >= 0 && firstBall < players.size()){
+					constraints.add(Constraint.createAnchor(players.get(firstBall), x, y, length));
+				} else {
+					System.out.println("Skipped a constraint for ball " + firstBall + ", which is not in the map file.");
+				}
+				continue;
+			}
+			int secondBall = scan.nextInt();
+			double length = scan.nextDouble();
+			double stiffness = type.equalsIgnoreCase("spring:") ? scan.nextDouble() : 0;
+			if(firstBall < 0 || firstBall >= players.size() || secondBall < 0 || secondBall >= players.size()){
+				System.out.println("Skipped a constraint between balls " + firstBall + " and " + secondBall + ", which are not both in the map file.");
+			} else if(type.equalsIgnoreCase("spring:")){
+				constraints.add(Constraint.createSpring(players.get(firstBall), players.get(secondBall), length, stiffness));
+			} else if(type.equalsIgnoreCase("rod:")){
+				constraints.add(Constraint.createRod(players.get(firstBall), players.get(secondBall), length));
+			} else if(type.equalsIgnoreCase("rope:")){
+				constraints.add(Constraint.createRope(players.get(firstBall), players.get(secondBall), length));
+			}
+		}
+	}
+
 	public Point readNextPointFromFile(Scanner scan){
 		double xValue = 0;
 		double yValue = 0;
@@ -189,6 +398,38 @@ public class ReadMapFile {
 		return new Point(xValue, yValue);
 	}
 
+	/**
+	 * Return the gravity of this Map, as stored in the file, or the default gravity if the file doesn't have one.
+	 * @return the amount added to each ball's y velocity on each clock tick
+	 */
+	public double getGravity(){
+		return gravity;
+	}
+
+	/**
+	 * Return the materials of this Map, as stored in the file, or a table with only the default material if the file doesn't have any.
+	 * @return the MaterialTable for this Map
+	 */
+	public MaterialTable getMaterials(){
+		return materials;
+	}
+
+	/**
+	 * Return the force fields of this Map, as stored in the file. The list is empty if the file doesn't have any.
+	 * @return the ForceFields for this Map
+	 */
+	public ArrayList<ForceField> getForceFields(){
+		return forceFields;
+	}
+
+	/**
+	 * Return the constraints of this Map, as stored in the file. The list is empty if the file doesn't have any.
+	 * @return the Constraints for this Map
+	 */
+	public ArrayList<Constraint> getConstraints(){
+		return constraints;
+	}
+
 	/**
 	 * Return the height of this Map, as stored in the file.
 	 * @return the height of this Map
@@ -2,6 +2,7 @@ package physics_simulator;
 import java.awt.Color;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 
 /**
  * Save a map as a file, in the correct format to be read by the ReadMapFile class.
@@ -28,6 +29,9 @@ public class SaveMapFile {
 			saveMapProperties(pw);
 			savePlayers(pw);
 			saveShapes(pw);
+			saveEmittersAndSinks(pw);
+			saveForceFields(pw);
+			saveConstraints(pw);
 			pw.flush();
 			pw.close();
 		} catch (FileNotFoundException e) {
@@ -39,19 +43,32 @@ public class SaveMapFile {
 		pw.write("height: " + map.getHeight() + "\n");
 		pw.write("width: " + map.getWidth() + "\n");
 		pw.write("draw_border: " + map.getDrawBorder() + "\n");
+		//gravity and materials are only saved if they aren't the defaults, so that other maps look the same as they did before they existed
+		if(map.getGravity() != Physics9.getDefaultGravity()){
+			pw.write("gravity: " + map.getGravity() + "\n");
+		}
+		MaterialTable materials = map.getMaterials();
+		if(!materials.isDefault()){
+			pw.write("\n" + "materials: " + materials.size() + "\n");
+			for(int i = 0; i < materials.size(); i++){
+				pw.write("material: " + materials.getRestitution(i) + " " + materials.getFriction(i) + "\n");
+			}
+		}
 		pw.write("\n");
 	}
 	
 	private void savePlayers(PrintWriter pw){
-		int numberOfPlayers = map.getPlayerList().size();
+		//balls spawned by emitters aren't part of the map, so only the balls from the map file are saved
+		ArrayList<Ball> mapBalls = map.getMapBalls();
+		int numberOfPlayers = mapBalls.size();
 		Point initialPosition;
 		Point initialVelocity;
 		Color color;
 		pw.write("players: " + numberOfPlayers + "\n");
 		for(int i = 0; i < numberOfPlayers; i++){
-			initialPosition = map.getPlayerList().get(i).getInitialPosition();
-			initialVelocity = map.getPlayerList().get(i).getInitialVelocity();
-			color = map.getPlayerList().get(i).getColor();
+			initialPosition = mapBalls.get(i).getInitialPosition();
+			initialVelocity = mapBalls.get(i).getInitialVelocity();
+			color = mapBalls.get(i).getColor();
 			pw.write("\n");
 			pw.write("start_x_coordinate: " + initialPosition.getX() + "\n");
 			pw.write("start_y_coordinate: " + initialPosition.getY() + "\n");
@@ -60,6 +77,9 @@ public class SaveMapFile {
 			pw.write("color_red_value: " + color.getRed() + "\n");
 			pw.write("color_green_value: " + color.getGreen() + "\n");
 			pw.write("color_blue_value: " + color.getBlue() + "\n");
+			if(mapBalls.get(i).getMaterial() != 0){
+				pw.write("material_index: " + mapBalls.get(i).getMaterial() + "\n");
+			}
 		}
 	}
 	
@@ -67,6 +87,7 @@ public class SaveMapFile {
 		int numberOfShapes = map.getShapeList().size();
 		int numberOfVertices;
 		Point vertex;
+		KinematicMotion motion;
 		boolean drawBorder = map.getDrawBorder();
 		int i = 0;
 		if(drawBorder){
@@ -76,15 +97,109 @@ public class SaveMapFile {
 		pw.write("\n" + "shapes: " + numberOfShapes + "\n");
 		for( ; i < map.getShapeList().size(); i++){
 			numberOfVertices = map.getShapeList().get(i).getNumberOfVertices();
+			motion = map.getShapeList().get(i).getMotion();
 			pw.write("\n");
 			pw.write("number_of_vertices: " + numberOfVertices + "\n");
 			for(int j = 0; j < numberOfVertices; j++){
 				vertex = map.getShapeList().get(i).getVertex(j);
-				pw.write("vertex: " + vertex.getX() + " " + vertex.getY() + "\n");
+				if(motion == null){
+					pw.write("vertex: " + vertex.getX() + " " + vertex.getY() + "\n");
+				} else {
+					//kinematic shapes are saved in their rest pose, so that the saved map starts their motions from the beginning
+					pw.write("vertex: " + motion.getRestX(j) + " " + motion.getRestY(j) + "\n");
+				}
+			}
+			if(motion != null){
+				pw.write("motion: " + motion.getRestPivotX() + " " + motion.getRestPivotY() + " " + motion.getDegreesPerTick() + " " 
+						+ motion.getSlideX() + " " + motion.getSlideY() + " " + motion.getSlidePeriod() + "\n");
+			}
+			if(map.getShapeList().get(i).isContainer()){
+				pw.write("container: true\n");
+			}
+			if(map.getShapeList().get(i).getMaterial() != 0){
+				pw.write("material_index: " + map.getShapeList().get(i).getMaterial() + "\n");
 			}
 		}
 	}
 	
+	/**
+	 * Save the emitters and sinks. Maps without any are saved without these sections,
+	 * so that they look the same as they did before emitters and sinks existed.
+	 */
+	private void saveEmittersAndSinks(PrintWriter pw){
+		ArrayList<Emitter> emitters = map.getEmitterList();
+		ArrayList<Sink> sinks = map.getSinkList();
+		if(emitters.size() > 0){
+			pw.write("\n" + "emitters: " + emitters.size() + "\n");
+			for(int i = 0; i < emitters.size(); i++){
+				Emitter emitter = emitters.get(i);
+				pw.write("emitter: " + emitter.getX() + " " + emitter.getY() + " " + emitter.getWidth() + " " + emitter.getHeight() + " " + emitter.getRate() + " " 
+						+ emitter.getXVelocity() + " " + emitter.getYVelocity() + " " 
+						+ emitter.getColor().getRed() + " " + emitter.getColor().getGreen() + " " + emitter.getColor().getBlue() 
+						+ (emitter.getMaterial() != 0 ? " " + emitter.getMaterial() : "") + "\n");
+			}
+		}
+		if(sinks.size() > 0){
+			pw.write("\n" + "sinks: " + sinks.size() + "\n");
+			for(int i = 0; i < sinks.size(); i++){
+				Sink sink = sinks.get(i);
+				pw.write("sink: " + sink.getX() + " " + sink.getY() + " " + sink.getWidth() + " " + sink.getHeight() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Save the force fields, if there are any. Vector grids are saved as the file name they
+	 * were read from, so the grid file has to stay next to the map file.
+	 */
+	private void saveForceFields(PrintWriter pw){
+		ArrayList<ForceField> forceFields = map.getForceFieldList();
+		if(forceFields.size() == 0){
+			return;
+		}
+		pw.write("\n" + "force_fields: " + forceFields.size() + "\n");
+		for(int i = 0; i < forceFields.size(); i++){
+			ForceField field = forceFields.get(i);
+			if(field.getType() == ForceField.WIND){
+				pw.write("wind: " + field.getXAcceleration() + " " + field.getYAcceleration() + "\n");
+			} else if(field.getType() == ForceField.ATTRACTOR){
+				pw.write((field.getStrength() < 0 ? "repulsor: " : "attractor: ") + field.getX() + " " + field.getY() + " " 
+						+ Math.abs(field.getStrength()) + " " + field.getSoftening() + "\n");
+			} else {
+				pw.write("vector_grid: " + field.getGridFilename() + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Save the constraints, if there are any. Balls are referred to by their position in the
+	 * list of players that savePlayers() writes.
+	 */
+	private void saveConstraints(PrintWriter pw){
+		ArrayList<Constraint> constraints = map.getConstraintList();
+		if(constraints.size() == 0){
+			return;
+		}
+		ArrayList<Ball> mapBalls = map.getMapBalls();
+		pw.write("\n" + "constraints: " + constraints.size() + "\n");
+		for(int i = 0; i < constraints.size(); i++){
+			Constraint constraint = constraints.get(i);
+			int firstBall = mapBalls.indexOf(constraint.getFirstBall());
+			if(constraint.getType() == Constraint.ANCHOR){
+				pw.write("anchor: " + firstBall + " " + constraint.getX() + " " + constraint.getY() + " " + constraint.getLength() + "\n");
+				continue;
+			}
+			int secondBall = mapBalls.indexOf(constraint.getSecondBall());
+			if(constraint.getType() == Constraint.SPRING){
+				pw.write("spring: " + firstBall + " " + secondBall + " " + constraint.getLength() + " " + constraint.getStiffness() + "\n");
+			} else if(constraint.getType() == Constraint.ROD){
+				pw.write("rod: " + firstBall + " " + secondBall + " " + constraint.getLength() + "\n");
+			} else {
+				pw.write("rope: " + firstBall + " " + secondBall + " " + constraint.getLength() + "\n");
+			}
+		}
+	}
+
 	public String getFileName(){
 		return filename;
 	}
@@ -31,6 +31,25 @@ public class Segment extends Line{
 		super(p0, p1); //call the superclass constructor (the Line constructor) on the two Points passed to this constructor as parameters
 		startPoint = p0;
 		endPoint = p1;
+		initializeBounds();
+	}
+
+	/**
+	 * Recalculate this Segment's equation and bounds from its start and end points, after those
+	 * Points have been moved. Shape uses this to follow its vertices as they move, without creating
+	 * new Segments on every clock tick.
+	 */
+	public void update(){
+		setEquation(startPoint, endPoint);
+		initializeBounds();
+	}
+
+	/**
+	 * Find the largest and smallest x and y values in this Segment.
+	 */
+	private void initializeBounds(){
+		Point p0 = startPoint;
+		Point p1 = endPoint;
 		if(p0.getY() > p1.getY()){ //figure out which values to store as yMin and yMax
 			yMin = p1.getY();
 			yMax = p0.getY();
@@ -269,41 +288,22 @@ public class Segment extends Line{
 	}
 
 	/**
-	 * Segments are represented using linear equations, but there is
-	 * a limit on the x and y range of a Segment. Given another Segment,
-	 * and the point of intersection between the equations representing
-	 * the lines defining this Segment and the other, determine whether
-	 * that intersection falls within the range of valid x and y values
-	 * of each Segment, and is thus a valid intersection between the two
-	 * Segments.
-	 * It is assumed that the point of intersection given is correct
-	 * for the equations of the lines representing the two Segments.
-	 * The reason the point of intersection is passed in as a parameter
-	 * instead of being calculated is because by the time this method is
-	 * called within the Physics class, the point of intersection has 
-	 * already been calculated for another purpose, so passing it in
-	 * as a parameter prevents redundant calculations from occurring.
+	 * Determine whether this Segment and another Segment intersect.
+	 * This used to check whether the point of intersection between the
+	 * linear equations of the two Segments fell within each Segment's
+	 * x and y range, widened by a small cushioning constant to account for
+	 * the lack of precision in the double data type. That could give the
+	 * wrong answer for Segments that were nearly parallel or only just
+	 * touching, so the answer now comes from GeometryKernel.segmentsIntersect(),
+	 * which is exact.
+	 * The point of intersection parameter is no longer needed, but is kept so
+	 * that existing callers don't need to change.
 	 * @param line0 the Segment to check for an intersection with
-	 * @param intersection the point of intersection between the linear equations defining this Segment and line0
-	 * @return true if the point of intersection is valid, false otherwise
+	 * @param intersection the point of intersection between the linear equations defining this Segment and line0 (unused)
+	 * @return true if the Segments intersect, false otherwise
 	 */
 	public boolean isIntersecting(Segment line0, Point intersection){
-		boolean inXRange0 = false;
-		boolean inYRange0 = false;
-		boolean inXRange1 = false;
-		boolean inYRange1 = false;
-		if(intersection != null){
-			double intersectionX = intersection.getX();
-			double intersectionY = intersection.getY();
-			double cushioning = .01; //.01 increase boundary ranges by the cushioning constant, to account for lack of precision in the double data type
-			//is the intersection within the boundaries of the invoking Segment?
-			inXRange0 = (intersectionX >= xMin - cushioning && intersectionX <= xMax + cushioning);
-			inYRange0 = (intersectionY >= yMin - cushioning && intersectionY <= yMax + cushioning);
-			//is the intserction within the boundaries of the Segment passed in as a parameter?
-			inXRange1 = (intersectionX >= line0.getXMin() - cushioning && intersectionX <= line0.getXMax() + cushioning);
-			inYRange1 = (intersectionY >= line0.getYMin() - cushioning && intersectionY <= line0.getYMax() + cushioning);
-		}
-		return inXRange0 && inYRange0 && inXRange1 && inYRange1;
+		return GeometryKernel.segmentsIntersect(this, line0);
 	}
 
 	public boolean isIntersecting(Line line0, Point intersection) {
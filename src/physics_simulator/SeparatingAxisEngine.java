@@ -0,0 +1,106 @@
+package physics_simulator;
+
+/**
+ * The SeparatingAxisEngine class.
+ * Detects overlaps between polygons using the separating axis theorem, like the
+ * SeparatingAxisTheorem test module, but without constructing any Axis, Line,
+ * Segment or Point objects.
+ *
+ * Each candidate axis is the outward unit normal of an edge of one of the two
+ * shapes (see Shape.getEdgeNormalX() and Shape.getEdgeNormalY()). Projecting a
+ * shape onto a unit normal is just a dot product with each vertex, so a shape's
+ * projection is an interval of two numbers, [min, max], and two projections
+ * overlap unless one interval ends before the other starts. No special cases for
+ * zero or undefined slopes are needed. As soon as one axis is found on which the
+ * projections don't overlap, the shapes can't be overlapping, so no more axes are
+ * checked.
+ *
+ * Like the separating axis theorem itself, this engine is exact for convex shapes.
+ * For a concave shape, the result is the same as for its convex hull, so it may report
+ * an overlap where there is none, but it will never miss a real one.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class SeparatingAxisEngine {
+
+	/**
+	 * Determine whether two shapes are overlapping.
+	 * @param s0 a Shape
+	 * @param s1 another Shape
+	 * @return true if the shapes overlap (or touch), false otherwise
+	 */
+	public static boolean overlaps(Shape s0, Shape s1){
+		if(!hitBoxesOverlap(s0, s1)){
+			return false;
+		}
+		return findSeparatingAxis(s0, s1) == -1;
+	}
+
+	/**
+	 * Check whether the hit boxes of two shapes overlap. This rules out most pairs of
+	 * shapes before any projections are made.
+	 */
+	private static boolean hitBoxesOverlap(Shape s0, Shape s1){
+		return s0.getXMin() <= s1.getXMax() && s1.getXMin() <= s0.getXMax() && s0.getYMin() <= s1.getYMax() && s1.getYMin() <= s0.getYMax();
+	}
+
+	/**
+	 * Find an axis on which the projections of two shapes don't overlap.
+	 * Axes 0 to (number of edges of s0) - 1 are the edge normals of s0, and the axes
+	 * after that are the edge normals of s1.
+	 * @param s0 a Shape
+	 * @param s1 another Shape
+	 * @return the index of a separating axis, or -1 if there is none and the shapes overlap
+	 */
+	private static int findSeparatingAxis(Shape s0, Shape s1){
+		int numberOfAxes0 = s0.getNumberOfVertices();
+		int numberOfAxes = numberOfAxes0 + s1.getNumberOfVertices();
+		for(int axis = 0; axis < numberOfAxes; axis++){
+			if(isSeparatingAxis(s0, s1, axis, numberOfAxes0)){
+				return axis;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Project both shapes onto the specified axis and check whether the two intervals are disjoint.
+	 */
+	private static boolean isSeparatingAxis(Shape s0, Shape s1, int axis, int numberOfAxes0){
+		double unitX;
+		double unitY;
+		if(axis < numberOfAxes0){
+			unitX = s0.getEdgeNormalX(axis);
+			unitY = s0.getEdgeNormalY(axis);
+		} else {
+			unitX = s1.getEdgeNormalX(axis - numberOfAxes0);
+			unitY = s1.getEdgeNormalY(axis - numberOfAxes0);
+		}
+		if(unitX == 0 && unitY == 0){
+			//edges with no length have no normal, and can't separate anything
+			return false;
+		}
+		double min0 = Double.MAX_VALUE;
+		double max0 = -Double.MAX_VALUE;
+		for(int i = 0; i < s0.getNumberOfVertices(); i++){
+			Point vertex = s0.getVertex(i);
+			double projection = (vertex.getX() * unitX) + (vertex.getY() * unitY);
+			min0 = Math.min(min0, projection);
+			max0 = Math.max(max0, projection);
+		}
+		double min1 = Double.MAX_VALUE;
+		double max1 = -Double.MAX_VALUE;
+		for(int i = 0; i < s1.getNumberOfVertices(); i++){
+			Point vertex = s1.getVertex(i);
+			double projection = (vertex.getX() * unitX) + (vertex.getY() * unitY);
+			//stop projecting as soon as s1's interval is known to overlap s0's interval
+			if(projection >= min0 && projection <= max0){
+				return false;
+			}
+			min1 = Math.min(min1, projection);
+			max1 = Math.max(max1, projection);
+		}
+		return max1 < min0 || max0 < min1;
+	}
+}
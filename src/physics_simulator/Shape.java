@@ -14,6 +14,31 @@ public class Shape {
 	private Point[] vertices; //a list of all the vertices of the shape, stored as Points
 	private Segment[] edges; //a list of all of the edges of the shape, stored as Segments
 	private ArrayList<Axis> perpendicularAxes; //a list containing the perpendicular axes to each edge in this shape. read the Axis class for more information
+	/*
+	 * double[] edgeNormalX, edgeNormalY:
+	 * the x and y components of the outward unit normal of each edge, stored at the same index 
+	 * as the edge in the edges[] array. "outward" means pointing away from the inside of the shape.
+	 * For a shape with only two vertices (a single line), its two edges have opposite normals.
+	 * These are recalculated whenever the edges are, and allow projections and reflections
+	 * to be done with plain arithmetic instead of constructing Lines and Axes.
+	 */
+	private double[] edgeNormalX;
+	private double[] edgeNormalY;
+	/*
+	 * double[] cornerNormalX, cornerNormalY:
+	 * the x and y components of the unit vector pointing straight out of the corner at each vertex,
+	 * halfway between the directions of the two edges that meet there (the corner's bisector). It
+	 * points to the side that the corner sticks out on, which is outside of the shape for a convex
+	 * corner and inside of it for a reflex corner. It is (0, 0) where the two edges continue in a
+	 * straight line, or where either of them has no length.
+	 */
+	private double[] cornerNormalX;
+	private double[] cornerNormalY;
+	private boolean[] cornerIsConvex; //does the corner at each vertex stick out of the shape? false for reflex corners and straight ones
+	private double signedArea; //the area of the shape, positive or negative depending on the order its vertices are listed in
+	private KinematicMotion motion; //the scripted motion this shape follows in physics mode, or null if the shape doesn't move on its own
+	private int material = 0; //the index of this shape's material in the map's MaterialTable
+	private boolean container = false; //do balls stay inside of this shape, rather than outside of it? (see setContainer())
 	private double xMax; //largest vertex x value
 	private double xMin; //smallest vertex x value
 	private double yMax; //largest vertex y value
@@ -64,6 +89,10 @@ public class Shape {
 		initializeEdges();
 		initializeAxes();
 		initializeHitBox();
+		if(motion != null){
+			//a moving shape should continue its motion with the edited vertex
+			motion.setRestPose(this);
+		}
 	}
 
 	/**
@@ -80,15 +109,210 @@ public class Shape {
 	public void moveShape(int selectedVertexIndex, Point newPosition){
 		double xChange = newPosition.getX() - vertices[selectedVertexIndex].getX();
 		double yChange = newPosition.getY() - vertices[selectedVertexIndex].getY();
+		translate(xChange, yChange);
+	}
+
+	/**
+	 * Move every vertex of this Shape by the specified distance along each axis.
+	 * The edges and axes are then reinitialized to be consistent with the Shape's new location.
+	 * @param xChange the distance to move the Shape along the x axis
+	 * @param yChange the distance to move the Shape along the y axis
+	 */
+	public void translate(double xChange, double yChange){
 		for(int i = 0; i < vertices.length; i++){
 			vertices[i].setX(vertices[i].getX() + xChange);
 			vertices[i].setY(vertices[i].getY() + yChange);
 		}
-		initializeEdges();
-		initializeAxes();
+		if(motion != null){
+			//a moving shape should keep rotating about the same point on itself
+			motion.translate(xChange, yChange);
+		}
+		updateGeometry();
+	}
+
+	/**
+	 * Return the x coordinate of the specified vertex in this Shape's rest pose: where it is with no
+	 * rotation, at the start of its slide (see KinematicMotion). For a Shape that doesn't move on its
+	 * own, this is where the vertex is. Edits are recorded in the rest pose by the EditHistory class,
+	 * so undoing an edit of a moving shape doesn't also undo the motion since the edit.
+	 * @param vertexIndex the index of the vertex in the vertices[] array
+	 */
+	public double getRestX(int vertexIndex){
+		return motion == null ? vertices[vertexIndex].getX() : motion.getRestX(vertexIndex);
+	}
+
+	/**
+	 * Return the y coordinate of the specified vertex in this Shape's rest pose. See getRestX().
+	 * @param vertexIndex the index of the vertex in the vertices[] array
+	 */
+	public double getRestY(int vertexIndex){
+		return motion == null ? vertices[vertexIndex].getY() : motion.getRestY(vertexIndex);
+	}
+
+	/**
+	 * Move the specified vertex in this Shape's rest pose, and move the Shape to match. See getRestX().
+	 * @param vertexIndex the index of the vertex in the vertices[] array
+	 * @param x the new x coordinate of the vertex in the rest pose
+	 * @param y the new y coordinate of the vertex in the rest pose
+	 */
+	public void setRestVertex(int vertexIndex, double x, double y){
+		if(motion == null){
+			moveVertex(vertexIndex, new Point(x, y));
+		} else {
+			motion.setRestVertex(vertexIndex, x, y);
+			motion.applyPose(this);
+		}
+	}
+
+	/**
+	 * Return a copy of the coordinates of every vertex of this Shape in its rest pose, as
+	 * {x0, y0, x1, y1, ...}, followed by the pivot point if the Shape moves on its own.
+	 * See getRestX() and setRestCoordinates().
+	 */
+	public double[] getRestCoordinates(){
+		if(motion != null){
+			return motion.getRestCoordinates();
+		}
+		double[] coordinates = new double[vertices.length * 2];
+		for(int i = 0; i < vertices.length; i++){
+			coordinates[i * 2] = vertices[i].getX();
+			coordinates[(i * 2) + 1] = vertices[i].getY();
+		}
+		return coordinates;
+	}
+
+	/**
+	 * Put this Shape's rest pose back to coordinates returned by getRestCoordinates(), and move the
+	 * Shape to match. Used by the EditHistory class to put a dragged shape back exactly where it was.
+	 * @param coordinates the coordinates returned by getRestCoordinates()
+	 */
+	public void setRestCoordinates(double[] coordinates){
+		if(motion != null){
+			motion.setRestCoordinates(coordinates);
+			motion.applyPose(this);
+			return;
+		}
+		for(int i = 0; i < vertices.length; i++){
+			vertices[i].setX(coordinates[i * 2]);
+			vertices[i].setY(coordinates[(i * 2) + 1]);
+		}
+		updateGeometry();
+	}
+
+	/**
+	 * Put every vertex of this Shape where the specified rest pose ends up after rotating it
+	 * about a pivot point, then moving it by the specified distance along each axis. This is how
+	 * kinematic shapes are moved on each clock tick (see the KinematicMotion class). The rest
+	 * pose is rotated by the total angle each time, rather than rotating the vertices a little
+	 * more on every clock tick, so rounding errors don't build up. Vertices, edges, normals and
+	 * axes are updated in place, using the same rotational matrix as Point.rotate(), but with
+	 * the sine and cosine calculated only once.
+	 * @param restCoordinates the vertices with no rotation and no movement, as {x0, y0, x1, y1, ...}
+	 * @param pivotX the x coordinate of the point to rotate the rest pose about
+	 * @param pivotY the y coordinate of the point to rotate the rest pose about
+	 * @param degrees the number of degrees to rotate. positive is clockwise, negative is counter-clockwise.
+	 * @param xChange the distance to move the Shape along the x axis after rotating
+	 * @param yChange the distance to move the Shape along the y axis after rotating
+	 */
+	public void setPose(double[] restCoordinates, double pivotX, double pivotY, double degrees, double xChange, double yChange){
+		if(degrees == 0){
+			//nothing to rotate, so move the rest pose without rounding it through the pivot
+			for(int i = 0; i < vertices.length; i++){
+				vertices[i].setX(restCoordinates[i * 2] + xChange);
+				vertices[i].setY(restCoordinates[(i * 2) + 1] + yChange);
+			}
+			updateGeometry();
+			return;
+		}
+		double radians = Physics9.degreesToRadians(degrees);
+		double cos = StrictMath.cos(radians);
+		double sin = StrictMath.sin(radians);
+		for(int i = 0; i < vertices.length; i++){
+			double relativeX = restCoordinates[i * 2] - pivotX;
+			double relativeY = restCoordinates[(i * 2) + 1] - pivotY;
+			vertices[i].setX(pivotX + (relativeX * cos) - (relativeY * sin) + xChange);
+			vertices[i].setY(pivotY + (relativeX * sin) + (relativeY * cos) + yChange);
+		}
+		updateGeometry();
+	}
+
+	/**
+	 * Recalculate the edges, normals, corners, axes and hit box of this Shape after its vertices
+	 * have been moved in place, reusing the existing Segments, Axes and arrays. Moving kinematic
+	 * shapes does this on every clock tick, so it shouldn't create any garbage.
+	 */
+	private void updateGeometry(){
+		for(int i = 0; i < edges.length; i++){
+			edges[i].update();
+		}
+		initializeNormals();
+		for(int i = 0; i < edges.length; i++){
+			perpendicularAxes.get(i).setPerpendicularTo(edges[i]);
+		}
 		initializeHitBox();
 	}
 
+	/**
+	 * Give this Shape a scripted motion to follow in physics mode, making it a kinematic obstacle.
+	 * The Shape's current vertices are recorded as the start of the motion.
+	 * @param initMotion the motion to follow, or null to make this Shape stationary
+	 */
+	public void setMotion(KinematicMotion initMotion){
+		motion = initMotion;
+		if(motion != null){
+			motion.setRestPose(this);
+		}
+	}
+
+	/**
+	 * Return the scripted motion this Shape follows in physics mode.
+	 * @return the KinematicMotion for this Shape, or null if it doesn't move on its own
+	 */
+	public KinematicMotion getMotion(){
+		return motion;
+	}
+
+	/**
+	 * Return the index of this Shape's material in the map's MaterialTable
+	 */
+	public int getMaterial(){
+		return material;
+	}
+
+	/**
+	 * Set the index of this Shape's material in the map's MaterialTable
+	 */
+	public void setMaterial(int initMaterial){
+		material = initMaterial;
+	}
+
+	/**
+	 * Make this Shape a container, which balls bounce around inside of, like the map's border,
+	 * or a solid obstacle, which balls bounce off of the outside of. Balls found inside of a solid
+	 * shape are moved out of it, but balls inside of a container are left alone. The broad phase
+	 * also only looks at a container near its edges, since its hit box covers every ball inside of it.
+	 * @param initContainer true to make this Shape a container, false to make it solid
+	 */
+	public void setContainer(boolean initContainer){
+		container = initContainer;
+	}
+
+	/**
+	 * Do balls stay inside of this Shape, rather than outside of it?
+	 * @return true if this Shape is a container, false if it is a solid obstacle
+	 */
+	public boolean isContainer(){
+		return container;
+	}
+
+	/**
+	 * Does this Shape move on its own in physics mode?
+	 * @return true if this Shape has a KinematicMotion, false otherwise
+	 */
+	public boolean isKinematic(){
+		return motion != null;
+	}
+
 	/**
 	 * Define the edges representing this Shape.
 	 * Add them to the edges[] array.
@@ -102,6 +326,97 @@ public class Shape {
 				edges[numberOfVertices - 1] = new Segment(vertices[numberOfVertices - 1], vertices[0]);
 			}
 		}
+		initializeNormals();
+	}
+
+	/**
+	 * Calculate the outward unit normal of each edge in this Shape, and store them
+	 * in the edgeNormalX[] and edgeNormalY[] arrays.
+	 * Whether the normal to the left or to the right of an edge is "outward" depends
+	 * on the order that the vertices are listed in (clockwise or counter-clockwise),
+	 * which is determined by the sign of the shape's signed area (the shoelace formula).
+	 * This method is called each time the edges are initialized.
+	 */
+	private void initializeNormals(){
+		if(edgeNormalX == null || edgeNormalX.length != numberOfVertices){
+			edgeNormalX = new double[numberOfVertices];
+			edgeNormalY = new double[numberOfVertices];
+		}
+		signedArea = 0;
+		for(int i = 0; i < numberOfVertices; i++){
+			Point current = vertices[i];
+			Point next = vertices[(i + 1) % numberOfVertices];
+			signedArea += (current.getX() * next.getY()) - (next.getX() * current.getY());
+		}
+		signedArea /= 2;
+		for(int i = 0; i < numberOfVertices; i++){
+			Point current = vertices[i];
+			Point next = vertices[(i + 1) % numberOfVertices];
+			double xDirection = next.getX() - current.getX();
+			double yDirection = next.getY() - current.getY();
+			double length = Math.sqrt((xDirection * xDirection) + (yDirection * yDirection));
+			if(length == 0){
+				//two vertices are on top of each other, so this edge has no direction
+				edgeNormalX[i] = 0;
+				edgeNormalY[i] = 0;
+			} else if(signedArea >= 0){
+				edgeNormalX[i] = yDirection / length;
+				edgeNormalY[i] = -xDirection / length;
+			} else {
+				edgeNormalX[i] = -yDirection / length;
+				edgeNormalY[i] = xDirection / length;
+			}
+		}
+		initializeCorners();
+	}
+
+	/**
+	 * Calculate the bisector of the corner at each vertex in this Shape, and whether the corner is
+	 * convex, and store them in the cornerNormalX[], cornerNormalY[] and cornerIsConvex[] arrays.
+	 * A ball can only touch a corner before either of the edges next to it if the ball is on the
+	 * side that the corner sticks out on, so these let collision tests skip most corners with a
+	 * single lookup. This method is called each time the normals are calculated.
+	 */
+	private void initializeCorners(){
+		if(cornerNormalX == null || cornerNormalX.length != numberOfVertices){
+			cornerNormalX = new double[numberOfVertices];
+			cornerNormalY = new double[numberOfVertices];
+			cornerIsConvex = new boolean[numberOfVertices];
+		}
+		for(int i = 0; i < numberOfVertices; i++){
+			//the arrays are reused when the vertices move, so clear the values from last time
+			cornerNormalX[i] = 0;
+			cornerNormalY[i] = 0;
+			cornerIsConvex[i] = false;
+			Point previous = vertices[getEdgeBeforeVertex(i)];
+			Point current = vertices[i];
+			Point next = vertices[(i + 1) % numberOfVertices];
+			double inX = current.getX() - previous.getX();
+			double inY = current.getY() - previous.getY();
+			double outX = next.getX() - current.getX();
+			double outY = next.getY() - current.getY();
+			double inLength = Math.sqrt((inX * inX) + (inY * inY));
+			double outLength = Math.sqrt((outX * outX) + (outY * outY));
+			if(inLength == 0 || outLength == 0){
+				//a vertex on top of its neighbor doesn't give the corner a direction, so treat it as sticking out every way
+				cornerIsConvex[i] = true;
+				continue;
+			}
+			//the direction the edge coming in is going, minus the direction the edge going out is going,
+			//points into the corner's tip. for a corner that doubles back on itself, it points past the tip
+			double xDirection = (inX / inLength) - (outX / outLength);
+			double yDirection = (inY / inLength) - (outY / outLength);
+			double length = Math.sqrt((xDirection * xDirection) + (yDirection * yDirection));
+			if(length < 1e-12){
+				//the edges continue in a straight line, so there is no corner
+				continue;
+			}
+			cornerNormalX[i] = xDirection / length;
+			cornerNormalY[i] = yDirection / length;
+			//the corner is convex if it sticks out on the same side as the outward normals of its edges
+			int before = getEdgeBeforeVertex(i);
+			cornerIsConvex[i] = (cornerNormalX[i] * (edgeNormalX[before] + edgeNormalX[i])) + (cornerNormalY[i] * (edgeNormalY[before] + edgeNormalY[i])) >= 0;
+		}
 	}
 
 	/**
@@ -166,11 +481,9 @@ public class Shape {
 	 * @return An ArrayList<Segment> containing all of the edges of this shape that intersect with line seg0
 	 */
 	public ArrayList<Segment> edgeIntersects(Segment seg0){
-		Point intersection; //initialize a Point that will temporarily hold the values of points of intersection while iterating through each edge
 		ArrayList<Segment> list = new ArrayList<Segment>(); //initialize a list that will contain all of the intersections that are deemed valid
 		for(int i = 0; i < edges.length; i++){ //iterate through all of the edges in order to check for intersections
-			intersection = edges[i].getIntersectionWith(seg0); //set the intersection local variable as the intersection between seg0 and the edge at edges[i]
-			if(edges[i].isIntersecting(seg0, intersection)){ //check if the intersection found above is valid (within the ranges of each segment. read the segment class for more info)
+			if(GeometryKernel.segmentsIntersect(edges[i], seg0)){ //exact test, see the GeometryKernel class
 				list.add(edges[i]); //add any valid intersections to the intersections list
 			}
 		}
@@ -235,6 +548,93 @@ public class Shape {
 		return vertices[index];
 	}
 
+	/**
+	 * Return the x component of the outward unit normal of the edge at the specified index
+	 * @param index the index of the edge in the edges[] array
+	 * @return the x component of that edge's outward unit normal
+	 */
+	public double getEdgeNormalX(int index){
+		return edgeNormalX[index];
+	}
+
+	/**
+	 * Return the y component of the outward unit normal of the edge at the specified index
+	 * @param index the index of the edge in the edges[] array
+	 * @return the y component of that edge's outward unit normal
+	 */
+	public double getEdgeNormalY(int index){
+		return edgeNormalY[index];
+	}
+
+	/**
+	 * Return the index of the edge that ends at the specified vertex. Edge i goes from vertex i to
+	 * vertex i + 1, so this is the edge before the vertex, wrapping around to the last edge for vertex 0.
+	 * @param vertexIndex the index of the vertex in the vertices[] array
+	 * @return the index of the edge in the edges[] array
+	 */
+	public int getEdgeBeforeVertex(int vertexIndex){
+		return vertexIndex == 0 ? numberOfVertices - 1 : vertexIndex - 1;
+	}
+
+	/**
+	 * Return the index of the edge that starts at the specified vertex, which has the same index as the vertex.
+	 * @param vertexIndex the index of the vertex in the vertices[] array
+	 * @return the index of the edge in the edges[] array
+	 */
+	public int getEdgeAfterVertex(int vertexIndex){
+		return vertexIndex;
+	}
+
+	/**
+	 * Return the x component of the unit bisector of the corner at the specified vertex, pointing
+	 * to the side that the corner sticks out on. (0, 0) if there is no corner there, because its
+	 * edges continue in a straight line, or if either of its edges has no length.
+	 * @param index the index of the vertex in the vertices[] array
+	 * @return the x component of that corner's bisector
+	 */
+	public double getCornerNormalX(int index){
+		return cornerNormalX[index];
+	}
+
+	/**
+	 * Return the y component of the unit bisector of the corner at the specified vertex
+	 * @param index the index of the vertex in the vertices[] array
+	 * @return the y component of that corner's bisector
+	 */
+	public double getCornerNormalY(int index){
+		return cornerNormalY[index];
+	}
+
+	/**
+	 * Does the corner at the specified vertex stick out of this Shape? Reflex corners, which
+	 * point into the shape, and straight ones, where there is no corner, are not convex. A
+	 * corner that doubles back on itself, like the ends of a shape with only two vertices, is.
+	 * @param index the index of the vertex in the vertices[] array
+	 * @return true if the corner is convex, false otherwise
+	 */
+	public boolean isCornerConvex(int index){
+		return cornerIsConvex[index];
+	}
+
+	/**
+	 * Return the signed area of this Shape. The magnitude is the area of the shape, and the
+	 * sign depends on the order its vertices are listed in.
+	 * @return the signed area of this Shape
+	 */
+	public double getSignedArea(){
+		return signedArea;
+	}
+
+	/**
+	 * Determine whether this Shape is a simple polygon: its edges don't cross each other, and
+	 * its vertices aren't all on one line. The edge normals of a Shape that isn't simple don't
+	 * consistently point outward. See GeometryKernel.isSimplePolygon().
+	 * @return true if this Shape is simple, false otherwise
+	 */
+	public boolean isSimple(){
+		return GeometryKernel.isSimplePolygon(vertices);
+	}
+
 	private void initializeHitBox() {
 		double tempX;
 		double tempY;
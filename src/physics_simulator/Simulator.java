@@ -1,4 +1,5 @@
 package physics_simulator;
+import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
@@ -26,6 +27,10 @@ public class Simulator {
 	private Draw drawmode; //0 is bouncing ball, 1 is edit shapes, 2 is draw triangles
 	private Edit editmode;
 	private Physics9 physics;
+	private EventDrivenPhysics eventDrivenPhysics; //an alternative to physics, which jumps from one predicted collision to the next instead of moving every ball on every clock tick
+	private boolean useEventDrivenPhysics = false; //should eventDrivenPhysics run the simulation instead of physics?
+	private FixedPointPhysics fixedPointPhysics; //an alternative to physics, which uses fixed-point numbers so that every run gives exactly the same results
+	private boolean useFixedPointPhysics = false; //should fixedPointPhysics run the simulation instead of physics?
 	private Map map;
 	final JFileChooser fc;
 	private String filename;
@@ -33,6 +38,8 @@ public class Simulator {
 	private DeleteMenu deleteMenu;
 	private boolean drawBorder = true;
 	private int mode = 0;
+	private boolean showClosestPair = false; //should the two balls closest to each other be highlighted?
+	private static final Color CLOSEST_PAIR_COLOR = Color.RED; //the color the two closest balls are highlighted in
 	/*
 	 * mode 0 is physics mode. mode 1 is draw mode. mode 2 is edit mode.
 	 * in physics mode, submode 0 is running, submode 1 is paused
@@ -86,11 +93,18 @@ public class Simulator {
 		}
 		map = new Map(filename);
 		physics = new Physics9(map);
+		eventDrivenPhysics = new EventDrivenPhysics(map, physics);
+		useEventDrivenPhysics = false;
+		fixedPointPhysics = new FixedPointPhysics(map);
+		useFixedPointPhysics = false;
 		drawmode = new Draw(map);
 		editmode = new Edit(map);
 		menu = new Menu(this);
 		window = new Window(map, drawmode, editmode, menu.getMenuBar());
 		window.setMode(mode, submode);
+		window.setClosestPairColor(CLOSEST_PAIR_COLOR);
+		window.setShowClosestPair(false);
+		showClosestPair = false;
 		deleteMenu = new DeleteMenu(this, window);
 		//instantiate and start the physicsTimer
 		if(simulationTimer != null){
@@ -127,7 +141,13 @@ public class Simulator {
 			public void actionPerformed(ActionEvent e) {
 				window.setMode(mode, submode);
 				if(mode == 0 && submode == 0){
-					physics.bounceModeClockTick();
+					if(useEventDrivenPhysics){
+						eventDrivenPhysics.bounceModeClockTick();
+					} else if(useFixedPointPhysics){
+						fixedPointPhysics.bounceModeClockTick();
+					} else {
+						physics.bounceModeClockTick();
+					}
 				} else if (mode == 1){
 					drawmode.drawModeClockTick();
 				} else if (mode == 2){
@@ -138,6 +158,12 @@ public class Simulator {
 						deleteMenu.setDeleteButtonEnabled(false);
 					}
 				}
+				if(showClosestPair){
+					if(useEventDrivenPhysics){
+						eventDrivenPhysics.updateBalls();
+					}
+					window.setClosestPlayers(physics.findClosestPair());
+				}
 				//redraw the display of simulation window
 				refresh();
 			}
@@ -176,6 +202,146 @@ public class Simulator {
 
 	public void resetBalls(){
 		physics.resetBalls();
+		if(useEventDrivenPhysics){
+			eventDrivenPhysics.reset();
+		}
+	}
+
+	/**
+	 * Set whether the simulation should be run by the EventDrivenPhysics class instead of the
+	 * Physics class. Maps with emitters, sinks, moving shapes, force fields or constraints,
+	 * and simulations with ball attraction or soft particles turned on, can only be run by the Physics class.
+	 * @param use true to use the EventDrivenPhysics class
+	 */
+	public void setUseEventDrivenPhysics(boolean use){
+		if(use && !canUseEventDrivenPhysics()){
+			return;
+		}
+		if(use && !useEventDrivenPhysics){
+			//start predicting collisions from where the balls are now
+			eventDrivenPhysics.reset();
+			useFixedPointPhysics = false;
+		}
+		if(!use){
+			stopEventDrivenPhysics();
+			return;
+		}
+		useEventDrivenPhysics = true;
+		window.setEventDrivenPhysics(eventDrivenPhysics);
+	}
+
+	/**
+	 * Stop running the simulation with the EventDrivenPhysics class, after moving the balls
+	 * it hasn't moved yet to where they should be, so that the other engines start from there.
+	 */
+	private void stopEventDrivenPhysics(){
+		if(useEventDrivenPhysics){
+			eventDrivenPhysics.updateBalls();
+		}
+		useEventDrivenPhysics = false;
+		window.setEventDrivenPhysics(null);
+	}
+
+	public boolean getUseEventDrivenPhysics(){
+		return useEventDrivenPhysics;
+	}
+
+	/**
+	 * Return whether the current map can be run by the EventDrivenPhysics class.
+	 */
+	public boolean canUseEventDrivenPhysics(){
+		return EventDrivenPhysics.canRun(map) && !physics.getBallAttraction() && !physics.getSoftParticles();
+	}
+
+	/**
+	 * Set whether the simulation should be run by the FixedPointPhysics class instead of the
+	 * Physics class. Maps with moving shapes, force fields or constraints, and
+	 * simulations with ball attraction or soft particles turned on, can only be run by the Physics class.
+	 * @param use true to use the FixedPointPhysics class
+	 */
+	public void setUseFixedPointPhysics(boolean use){
+		if(use && !canUseFixedPointPhysics()){
+			return;
+		}
+		if(use){
+			stopEventDrivenPhysics();
+		}
+		useFixedPointPhysics = use;
+	}
+
+	public boolean getUseFixedPointPhysics(){
+		return useFixedPointPhysics;
+	}
+
+	/**
+	 * Return whether the current map can be run by the FixedPointPhysics class.
+	 */
+	public boolean canUseFixedPointPhysics(){
+		return FixedPointPhysics.canRun(map) && !physics.getBallAttraction() && !physics.getSoftParticles();
+	}
+
+	/**
+	 * Set whether the balls attract each other, in addition to the map's gravity (see the
+	 * BarnesHutTree class). Only the Physics class can do this, so turning it on also
+	 * turns off the other engines.
+	 * @param use true to make the balls attract each other
+	 */
+	public void setBallAttraction(boolean use){
+		physics.setBallAttraction(use);
+		if(use){
+			stopEventDrivenPhysics();
+			useFixedPointPhysics = false;
+		}
+		menu.updateEngineButtons();
+	}
+
+	public boolean getBallAttraction(){
+		return physics.getBallAttraction();
+	}
+
+	/**
+	 * Set the opening angle of the ball attraction (see BarnesHutTree.setOpeningAngle())
+	 */
+	public void setOpeningAngle(double openingAngle){
+		physics.getBallAttractionTree().setOpeningAngle(openingAngle);
+	}
+
+	/**
+	 * Set whether the balls push each other apart when they overlap (see the SoftParticles
+	 * class). Only the Physics class can do this, so turning it on also turns off the other engines.
+	 * @param use true to make the balls soft particles
+	 */
+	public void setSoftParticles(boolean use){
+		physics.setSoftParticles(use);
+		if(use){
+			stopEventDrivenPhysics();
+			useFixedPointPhysics = false;
+		}
+		menu.updateEngineButtons();
+	}
+
+	public boolean getSoftParticles(){
+		return physics.getSoftParticles();
+	}
+
+	/**
+	 * Return the Map that is currently open
+	 */
+	public Map getMap(){
+		return map;
+	}
+
+	/**
+	 * Set whether the two balls closest to each other should be highlighted.
+	 * While they are, the closest pair is found again on every clock tick.
+	 */
+	public void setShowClosestPair(boolean show){
+		showClosestPair = show;
+		window.setShowClosestPair(show);
+	}
+
+	public boolean getShowClosestPair(){
+		return showClosestPair;
 	}
 	
 	public void enableDeleteMenu(boolean enabled){
@@ -193,6 +359,26 @@ public class Simulator {
 		}
 	}
 
+	/**
+	 * Undo the most recent change to the map's shapes, if there is one.
+	 * The permanently selected shape is deselected, since its index may
+	 * no longer refer to the same shape.
+	 */
+	public void undo(){
+		if(map.getEditHistory().undo()){
+			editmode.setPermanentlySelectedShapeIndex(-1);
+		}
+	}
+
+	/**
+	 * Redo the most recently undone change to the map's shapes, if there is one.
+	 */
+	public void redo(){
+		if(map.getEditHistory().redo()){
+			editmode.setPermanentlySelectedShapeIndex(-1);
+		}
+	}
+
 	public static void main(String [] args){
 		Simulator sim = new Simulator();
 	}
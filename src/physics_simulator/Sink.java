@@ -0,0 +1,63 @@
+package physics_simulator;
+
+/**
+ * The Sink class.
+ * A rectangular region of the map that removes any ball whose center enters it.
+ * Sinks are the counterpart of the Emitter class: emitters add balls to the
+ * simulation, and sinks take them away again, so that a stream of balls can run
+ * for as long as the simulation does without the number of balls growing forever.
+ *
+ * In map files, sinks are listed after the emitters:
+ * 		sinks: number_of_sinks
+ * 		sink: x y width height
+ *
+ * @author Adam Cogen
+ *
+ */
+public class Sink {
+
+	private double x; //the x coordinate of the left side of the region
+	private double y; //the y coordinate of the top side of the region
+	private double width; //the width of the region
+	private double height; //the height of the region
+
+	/**
+	 * Construct a Sink.
+	 * @param initX the x coordinate of the left side of the region
+	 * @param initY the y coordinate of the top side of the region
+	 * @param initWidth the width of the region
+	 * @param initHeight the height of the region
+	 */
+	public Sink(double initX, double initY, double initWidth, double initHeight){
+		x = initX;
+		y = initY;
+		width = initWidth;
+		height = initHeight;
+	}
+
+	/**
+	 * Is the point (px, py) inside of this sink?
+	 * @param px the x coordinate of the point
+	 * @param py the y coordinate of the point
+	 * @return true if the point is inside of the region
+	 */
+	public boolean contains(double px, double py){
+		return px >= x && px <= x + width && py >= y && py <= y + height;
+	}
+
+	public double getX(){
+		return x;
+	}
+
+	public double getY(){
+		return y;
+	}
+
+	public double getWidth(){
+		return width;
+	}
+
+	public double getHeight(){
+		return height;
+	}
+}
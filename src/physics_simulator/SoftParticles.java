@@ -0,0 +1,293 @@
+package physics_simulator;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * The SoftParticles class.
+ * Makes the balls push each other apart when they overlap, as if each ball were a slightly
+ * soft particle, when soft particles are turned on (see Physics9.setSoftParticles()). This
+ * lets balls pile up like sand, or flow like a liquid, instead of passing through each other.
+ *
+ * Two overlapping balls are pushed apart by a spring: the acceleration along the line
+ * between their centers is the stiffness times the overlap, minus the damping times the
+ * speed at which they are moving towards or away from each other, so that a pile settles
+ * down instead of bouncing forever. The walls are still handled by Physics9.moveBall().
+ *
+ * Checking every pair of balls for overlaps on every clock tick would take n^2 checks.
+ * Instead, each ball keeps a Verlet neighbor list: the balls that were within the sum of
+ * the two radii plus a skin distance of it when the lists were made. As long as no ball has
+ * moved more than half of the skin distance since then, no two balls can have come closer
+ * than the sum of their radii without being in each other's lists, so only the balls in
+ * the lists need to be checked. The lists are remade only when some ball has moved further,
+ * using a BallGrid with cells at least as wide as the list distance, so that each ball's
+ * neighbors are in its own cell and the eight cells around it.
+ *
+ * Every ball lists all of its neighbors, so each ball's push can be added up separately, and
+ * the balls are divided between threads, both when the lists are made and on each clock
+ * tick. Each ball adds up its neighbors in the order they are listed, so the results are
+ * the same no matter how many threads there are.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class SoftParticles {
+
+	public static final double DEFAULT_STIFFNESS = 0.3; //the acceleration of a ball for each pixel that it overlaps another ball, per clock tick
+	public static final double DEFAULT_DAMPING = 0.15; //the fraction of the speed at which two overlapping balls approach each other that is removed on each clock tick
+	public static final double DEFAULT_SKIN = 2; //the extra distance, in pixels, that the neighbor lists reach beyond the sum of the radii
+	private static final int CHUNK_SIZE = 2048; //the number of balls each thread handles at a time
+	private double stiffness = DEFAULT_STIFFNESS;
+	private double damping = DEFAULT_DAMPING;
+	private double skin = DEFAULT_SKIN;
+	private int width; //the width of the map
+	private int height; //the height of the map
+	private BallGrid grid; //sorts the balls into cells, for making the neighbor lists
+	private double gridCellSize = 0; //the smallest cell size of the grid, which must be at least the largest list distance
+	private int count = 0; //the number of balls
+	private double[] x = new double[0]; //the x coordinate of each ball
+	private double[] y = new double[0]; //the y coordinate of each ball
+	private double[] xVelocity = new double[0]; //the x velocity of each ball
+	private double[] yVelocity = new double[0]; //the y velocity of each ball
+	private double[] radius = new double[0]; //the radius of each ball
+	private double[] accelerationX = new double[0]; //the x acceleration of each ball from its overlaps
+	private double[] accelerationY = new double[0]; //the y acceleration of each ball from its overlaps
+	/*
+	 * The neighbor lists. The neighbors of ball i are at indices neighborStart[i] to
+	 * neighborStart[i + 1] - 1 of neighbors[].
+	 */
+	private int[] neighborStart = new int[1];
+	private int[] neighbors = new int[0];
+	private Ball[] listedBalls = new Ball[0]; //the ball at each index when the lists were made, to notice when balls are added or removed
+	private double[] listedX = new double[0]; //the x coordinate of each ball when the lists were made
+	private double[] listedY = new double[0]; //the y coordinate of each ball when the lists were made
+	private int numberOfRebuilds = 0; //the number of times the neighbor lists have been made
+
+	/**
+	 * Construct a SoftParticles for a map of the specified size.
+	 */
+	public SoftParticles(int initWidth, int initHeight){
+		width = initWidth;
+		height = initHeight;
+	}
+
+	/**
+	 * Add the push from every overlapping ball to the velocity of each ball.
+	 * This is called by Physics9.bounceModeClockTick() once per clock tick, before the balls are moved.
+	 * @param players the balls in the simulation
+	 */
+	public void apply(ArrayList<Ball> players){
+		count = players.size();
+		if(count < 2){
+			return;
+		}
+		if(x.length < count){
+			int capacity = Math.max(count, x.length * 2);
+			x = new double[capacity];
+			y = new double[capacity];
+			xVelocity = new double[capacity];
+			yVelocity = new double[capacity];
+			radius = new double[capacity];
+			accelerationX = new double[capacity];
+			accelerationY = new double[capacity];
+		}
+		double largestRadius = 0;
+		for(int i = 0; i < count; i++){
+			Ball ball = players.get(i);
+			x[i] = ball.getXPosition();
+			y[i] = ball.getYPosition();
+			xVelocity[i] = ball.getXVelocity();
+			yVelocity[i] = ball.getYVelocity();
+			radius[i] = ball.getRadius();
+			largestRadius = Math.max(largestRadius, radius[i]);
+		}
+		if(needsRebuild(players)){
+			rebuild(players, largestRadius);
+		}
+		int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, chunks).parallel().forEach(chunk -> {
+			for(int i = chunk * CHUNK_SIZE; i < Math.min(count, (chunk + 1) * CHUNK_SIZE); i++){
+				calculateAcceleration(i);
+			}
+		});
+		for(int i = 0; i < count; i++){
+			Ball ball = players.get(i);
+			ball.setXVelocity(xVelocity[i] + accelerationX[i]);
+			ball.setYVelocity(yVelocity[i] + accelerationY[i]);
+		}
+	}
+
+	/**
+	 * Add up the push on ball i from each of its neighbors that it overlaps.
+	 */
+	private void calculateAcceleration(int i){
+		double sumX = 0;
+		double sumY = 0;
+		for(int k = neighborStart[i]; k < neighborStart[i + 1]; k++){
+			int j = neighbors[k];
+			double dx = x[i] - x[j];
+			double dy = y[i] - y[j];
+			double distanceSquared = (dx * dx) + (dy * dy);
+			double touching = radius[i] + radius[j];
+			if(distanceSquared >= touching * touching){
+				continue;
+			}
+			double distance = Math.sqrt(distanceSquared);
+			double normalX;
+			double normalY;
+			if(distance > 0){
+				normalX = dx / distance;
+				normalY = dy / distance;
+			} else {
+				//two balls in exactly the same place are pushed apart sideways, the lower index to the left
+				normalX = i < j ? -1 : 1;
+				normalY = 0;
+			}
+			//the speed at which the two balls are moving apart, along the line between them
+			double separatingSpeed = ((xVelocity[i] - xVelocity[j]) * normalX) + ((yVelocity[i] - yVelocity[j]) * normalY);
+			double push = (stiffness * (touching - distance)) - (damping * separatingSpeed);
+			sumX += push * normalX;
+			sumY += push * normalY;
+		}
+		accelerationX[i] = sumX;
+		accelerationY[i] = sumY;
+	}
+
+	/**
+	 * Do the neighbor lists need to be made again, because balls have been added or removed,
+	 * or some ball has moved more than half of the skin distance since they were made?
+	 */
+	private boolean needsRebuild(ArrayList<Ball> players){
+		if(listedBalls.length != count){
+			return true;
+		}
+		for(int i = 0; i < count; i++){
+			if(listedBalls[i] != players.get(i)){
+				return true;
+			}
+		}
+		double limit = (skin / 2) * (skin / 2);
+		return IntStream.range(0, count).parallel().anyMatch(i -> {
+			double dx = x[i] - listedX[i];
+			double dy = y[i] - listedY[i];
+			//a ball whose position isn't a number never matches, so it doesn't cause a rebuild on every clock tick
+			return (dx * dx) + (dy * dy) > limit;
+		});
+	}
+
+	/**
+	 * Make the neighbor lists. Each ball's neighbors are counted in parallel, the counts are
+	 * added up to find where each list starts, and the lists are then filled in parallel.
+	 */
+	private void rebuild(ArrayList<Ball> players, double largestRadius){
+		numberOfRebuilds++;
+		double cellSize = (2 * largestRadius) + skin;
+		if(grid == null || gridCellSize < cellSize){
+			gridCellSize = cellSize;
+			grid = new BallGrid(width, height, gridCellSize);
+		}
+		grid.rebuild(x, y, count);
+		if(listedBalls.length != count){
+			listedBalls = new Ball[count];
+		}
+		if(listedX.length < count){
+			listedX = new double[x.length];
+			listedY = new double[x.length];
+		}
+		if(neighborStart.length < count + 1){
+			neighborStart = new int[x.length + 1];
+		}
+		for(int i = 0; i < count; i++){
+			listedBalls[i] = players.get(i);
+			listedX[i] = x[i];
+			listedY[i] = y[i];
+		}
+		int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		IntStream.range(0, chunks).parallel().forEach(chunk -> {
+			for(int i = chunk * CHUNK_SIZE; i < Math.min(count, (chunk + 1) * CHUNK_SIZE); i++){
+				neighborStart[i + 1] = findNeighbors(i, -1);
+			}
+		});
+		neighborStart[0] = 0;
+		for(int i = 0; i < count; i++){
+			neighborStart[i + 1] += neighborStart[i];
+		}
+		if(neighbors.length < neighborStart[count]){
+			neighbors = new int[Math.max(neighborStart[count], neighbors.length * 2)];
+		}
+		IntStream.range(0, chunks).parallel().forEach(chunk -> {
+			for(int i = chunk * CHUNK_SIZE; i < Math.min(count, (chunk + 1) * CHUNK_SIZE); i++){
+				findNeighbors(i, neighborStart[i]);
+			}
+		});
+	}
+
+	/**
+	 * Find the balls within the list distance of ball i, in its own cell and the cells around
+	 * it. If first is -1, they are only counted. Otherwise they are stored in neighbors[],
+	 * starting at index first.
+	 * @return the number of neighbors found
+	 */
+	private int findNeighbors(int i, int first){
+		int found = 0;
+		int column = grid.clampColumn(x[i]);
+		int row = grid.clampRow(y[i]);
+		for(int neighborRow = Math.max(0, row - 1); neighborRow <= Math.min(grid.getRows() - 1, row + 1); neighborRow++){
+			for(int neighborColumn = Math.max(0, column - 1); neighborColumn <= Math.min(grid.getColumns() - 1, column + 1); neighborColumn++){
+				for(int position = grid.getCellStart(neighborColumn, neighborRow); position < grid.getCellEnd(neighborColumn, neighborRow); position++){
+					int j = grid.getCellBall(position);
+					if(j == i){
+						continue;
+					}
+					double dx = x[i] - x[j];
+					double dy = y[i] - y[j];
+					double reach = radius[i] + radius[j] + skin;
+					if((dx * dx) + (dy * dy) < reach * reach){
+						if(first >= 0){
+							neighbors[first + found] = j;
+						}
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Set the acceleration of a ball for each pixel that it overlaps another ball. Values
+	 * above about 1 make crowded balls shake, since they move too far in one clock tick.
+	 */
+	public void setStiffness(double initStiffness){
+		stiffness = initStiffness;
+	}
+
+	/**
+	 * Set the fraction of the speed at which two overlapping balls approach each other that is removed on each clock tick
+	 */
+	public void setDamping(double initDamping){
+		damping = initDamping;
+	}
+
+	/**
+	 * Set the extra distance that the neighbor lists reach beyond the sum of the radii. A
+	 * larger skin means the lists are made less often, but are longer.
+	 */
+	public void setSkin(double initSkin){
+		skin = Math.max(0, initSkin);
+		listedBalls = new Ball[0]; //make the lists again, with the new distance
+	}
+
+	/**
+	 * Return the number of times the neighbor lists have been made
+	 */
+	public int getNumberOfRebuilds(){
+		return numberOfRebuilds;
+	}
+
+	/**
+	 * Return the total length of the neighbor lists
+	 */
+	public int getNumberOfNeighbors(){
+		return neighborStart[count];
+	}
+}
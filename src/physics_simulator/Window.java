@@ -54,6 +54,8 @@ public class Window extends JFrame{
 	private int editModeSelectedShapeIndex;
 	private int editModeSelectedVertexIndex;
 	private boolean DRAW_HIT_BOXES = false;
+	private EventDrivenPhysics eventDrivenPhysics; //the EventDrivenPhysics running the simulation, which has to update the balls before they are drawn or changed, or null if it isn't running
+	private static final int MANY_BALLS = 5000; //with more balls than this, such as in a ball attraction demo, the balls are drawn as plain squares, which is much faster
 	//private int permanentSelectedShapeIndex;
 
 	public Window(Map initMap, Draw initDrawmode, Edit initEditmode, JMenuBar menu){
@@ -115,7 +117,7 @@ public class Window extends JFrame{
 				} else if (mode == 1){
 
 				} else if (mode == 2){
-
+					editModeMouseReleased(e);
 				}
 			}
 			@Override
@@ -178,6 +180,11 @@ public class Window extends JFrame{
 		}
 	}
 
+	private void editModeMouseReleased(MouseEvent e){
+		//a click and drag has ended, so the next move should be recorded as a separate change in the edit history
+		editmode.endDrag();
+	}
+
 	private void editModeMouseMoved(MouseEvent e){
 		editmode.setMousePosition(new Point(mouseX, mouseY));
 		editModeSelectedShapeIndex = editmode.getSelectedShapeIndex();
@@ -199,11 +206,17 @@ public class Window extends JFrame{
 	private void bounceModeMousePressed(MouseEvent e){
 		clickMouseX = getMouseX(e);
 		clickMouseY = getMouseY(e);
+		if(eventDrivenPhysics != null){
+			eventDrivenPhysics.updateBalls();
+		}
 		for(int i = 0; i < players.size(); i++){
 			players.get(i).setXVelocity(0);
 			players.get(i).setYVelocity(0);
 			players.get(i).freeze();
 		}
+		if(eventDrivenPhysics != null){
+			eventDrivenPhysics.reset();
+		}
 	}
 
 	private void bounceModeMouseReleased(MouseEvent e){
@@ -213,6 +226,9 @@ public class Window extends JFrame{
 		double yChange = clickMouseY - unclickMouseY;
 		//xChange /= 2;
 		//yChange /= 2;
+		if(eventDrivenPhysics != null){
+			eventDrivenPhysics.updateBalls();
+		}
 		for(int i = 0; i < players.size(); i++){
 			if(yChange == 0){
 				yChange = 0.1;
@@ -221,6 +237,9 @@ public class Window extends JFrame{
 			players.get(i).setYVelocity(yChange / 2);
 			players.get(i).unfreeze();
 		}
+		if(eventDrivenPhysics != null){
+			eventDrivenPhysics.reset();
+		}
 		drawVector = false;
 	}
 
@@ -275,6 +294,15 @@ public class Window extends JFrame{
 		submode = initSubmode;
 	}
 
+	/**
+	 * Set the EventDrivenPhysics that is running the simulation, or null if the Physics class is.
+	 * The EventDrivenPhysics only moves the balls that collide on each clock tick, so the window
+	 * has it update the rest just before they are drawn, or changed by the mouse.
+	 */
+	public void setEventDrivenPhysics(EventDrivenPhysics initEventDrivenPhysics){
+		eventDrivenPhysics = initEventDrivenPhysics;
+	}
+
 	public void setSelectedShape(int shapeIndex){
 		editModeSelectedShapeIndex = shapeIndex;
 	}
@@ -287,9 +315,19 @@ public class Window extends JFrame{
 		public void paintComponent(Graphics g){
 			g.setColor(Color.WHITE);
 			g.fillRect(0, 0, 800, 800);
+			drawEmittersAndSinks(g);
+			drawAttractors(g);
+			drawConstraints(g);
+			if(eventDrivenPhysics != null){
+				eventDrivenPhysics.updateBalls();
+			}
 			if(mode == 0 || mode == 1 || mode == 2){
-				for(int i = 0; i < players.size(); i++){
-					drawPlayer(g, i);
+				if(players.size() > MANY_BALLS){
+					drawPlayersQuickly(g);
+				} else {
+					for(int i = 0; i < players.size(); i++){
+						drawPlayer(g, i);
+					}
 				}
 			}
 			for(int i = 0; i < shapes.size(); i++){
@@ -323,6 +361,11 @@ public class Window extends JFrame{
 					}
 					drawSegment(g, drawmode.getCurrentShapeVertex(shapeDrawStep - 1), new Point(mouseX, mouseY));
 				}
+				if(drawmode.getRejectedShape() != null){
+					g.setColor(Color.RED);
+					drawShape(g, 0, drawmode.getRejectedShape());
+					g.setColor(Color.BLACK);
+				}
 			}
 
 			if(mode == 2 && editModeSelectedShapeIndex != -1 && editModeSelectedVertexIndex != -1){
@@ -352,12 +395,96 @@ public class Window extends JFrame{
 			if(mode == 1 || mode == 2){
 				drawMouseCoordinates(g);
 			}
+			if(mode == 1){
+				g.drawString(drawmode.getStatusMessage(), 5, 30);
+			}
+		}
+
+		/**
+		 * Draw the outline of each emitter in the emitter's ball color, and the outline of each sink in gray.
+		 */
+		public void drawEmittersAndSinks(Graphics g){
+			ArrayList<Emitter> emitters = map.getEmitterList();
+			for(int i = 0; i < emitters.size(); i++){
+				Emitter emitter = emitters.get(i);
+				g.setColor(emitter.getColor());
+				g.drawRect((int) emitter.getX(), (int) emitter.getY(), (int) emitter.getWidth(), (int) emitter.getHeight());
+			}
+			ArrayList<Sink> sinks = map.getSinkList();
+			g.setColor(Color.GRAY);
+			for(int i = 0; i < sinks.size(); i++){
+				Sink sink = sinks.get(i);
+				g.fillRect((int) sink.getX(), (int) sink.getY(), (int) sink.getWidth(), (int) sink.getHeight());
+			}
+		}
+
+		/**
+		 * Draw a circle the size of its softening distance around each attractor, in dark gray
+		 * for attractors and light gray for repulsors. Winds and vector grids aren't drawn.
+		 */
+		public void drawAttractors(Graphics g){
+			ArrayList<ForceField> forceFields = map.getForceFieldList();
+			for(int i = 0; i < forceFields.size(); i++){
+				ForceField field = forceFields.get(i);
+				if(field.getType() == ForceField.ATTRACTOR){
+					int radius = (int) field.getSoftening();
+					g.setColor(field.getStrength() < 0 ? Color.LIGHT_GRAY : Color.DARK_GRAY);
+					g.drawOval((int) field.getX() - radius, (int) field.getY() - radius, radius * 2, radius * 2);
+				}
+			}
+		}
+
+		/**
+		 * Draw a line between the two ends of each constraint: dark gray for rods and anchors,
+		 * light gray for springs and ropes.
+		 */
+		public void drawConstraints(Graphics g){
+			ArrayList<Constraint> constraints = map.getConstraintList();
+			for(int i = 0; i < constraints.size(); i++){
+				Constraint constraint = constraints.get(i);
+				Ball firstBall = constraint.getFirstBall();
+				Ball secondBall = constraint.getSecondBall();
+				int type = constraint.getType();
+				g.setColor(type == Constraint.ROD || type == Constraint.ANCHOR ? Color.DARK_GRAY : Color.LIGHT_GRAY);
+				if(secondBall == null){
+					g.drawLine((int) firstBall.getXPosition(), (int) firstBall.getYPosition(), (int) constraint.getX(), (int) constraint.getY());
+				} else {
+					g.drawLine((int) firstBall.getXPosition(), (int) firstBall.getYPosition(), (int) secondBall.getXPosition(), (int) secondBall.getYPosition());
+				}
+			}
 		}
 
 		public void drawMouseCoordinates(Graphics g){
 			g.drawString(mouseX + ", " + mouseY, 5, 15);
 		}
 
+		/**
+		 * Draw every ball as a filled square in its color, without an outline. Drawing a hundred
+		 * thousand circles takes too long to keep up with the clock ticks, but squares are quick,
+		 * and look much the same when the balls are small. The closest pair is then drawn on top
+		 * of the squares as normal, highlighted balls, so that it can still be found in the crowd.
+		 */
+		public void drawPlayersQuickly(Graphics g){
+			Color currentColor = null;
+			for(int i = 0; i < players.size(); i++){
+				Ball ball = players.get(i);
+				if(ball.getColor() != currentColor){
+					currentColor = ball.getColor();
+					g.setColor(currentColor);
+				}
+				int radius = ball.getRadius();
+				g.fillRect(plrXCoord(i) - radius, plrYCoord(i) - radius, Math.max(1, radius * 2), Math.max(1, radius * 2));
+			}
+			if(showClosestPair){
+				int first = (int) closestPlayers.getX();
+				int second = (int) closestPlayers.getY();
+				if(first >= 0 && first < players.size() && second >= 0 && second < players.size()){
+					drawPlayer(g, first);
+					drawPlayer(g, second);
+				}
+			}
+		}
+
 		public void drawPlayer(Graphics g, int index){
 			Color ballColor = players.get(index).getColor();
 			int radius = players.get(index).getRadius();
@@ -0,0 +1,137 @@
+package test_modules;
+import java.util.Arrays;
+import java.util.Random;
+
+import physics_simulator.BatchKernels;
+import physics_simulator.Physics9;
+
+/**
+ * Test module for measuring how much faster the VectorBatchKernels class is than the plain
+ * BatchKernels class, along with the two kernels in the BenchmarkKernels class, which only
+ * exist for this benchmark. Like the SpawnerSoak test module, this one doesn't open a window. It
+ * fills arrays with random balls and boxes, times each kernel in both versions, and checks
+ * that both versions give exactly the same results. Everything is run a few times first,
+ * so that the Java compiler has finished optimizing both versions before they are timed.
+ *
+ * Compile the src_vector source folder too, and run it with "--add-modules jdk.incubator.vector",
+ * or both versions will be the plain one.
+ *
+ * Usage: BatchKernelBenchmark [number_of_balls] [number_of_repetitions]
+ * The defaults are 100000 balls and 2000 repetitions.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BatchKernelBenchmark {
+
+	private static final int WARM_UP_ROUNDS = 3; //the number of times everything is run before the round that is timed
+
+	public static void main(String[] args){
+		int count = 100000;
+		int repetitions = 2000;
+		if(args.length > 0){
+			count = Integer.parseInt(args[0]);
+		}
+		if(args.length > 1){
+			repetitions = Integer.parseInt(args[1]);
+		}
+		BatchKernels scalar = new BatchKernels();
+		BatchKernels fastest = BatchKernels.create();
+		BenchmarkKernels scalarExtra = new BenchmarkKernels();
+		BenchmarkKernels fastestExtra = BenchmarkKernels.create();
+		System.out.println("fastest available kernels: " + fastest.getDescription());
+		for(int round = 0; round < WARM_UP_ROUNDS; round++){
+			runRound(scalar, fastest, scalarExtra, fastestExtra, count, Math.max(1, repetitions / 10), false);
+		}
+		runRound(scalar, fastest, scalarExtra, fastestExtra, count, repetitions, true);
+	}
+
+	/**
+	 * Time each kernel in both versions, on the same random balls and boxes each time.
+	 * @param print should the times be printed?
+	 */
+	private static void runRound(BatchKernels scalar, BatchKernels fastest, BenchmarkKernels scalarExtra, BenchmarkKernels fastestExtra,
+			int count, int repetitions, boolean print){
+		Random random = new Random(1);
+		double[] x = new double[count];
+		double[] y = new double[count];
+		double[] xVelocity = new double[count];
+		double[] yVelocity = new double[count];
+		double[] ticks = new double[count];
+		double[] xMax = new double[count];
+		double[] yMax = new double[count];
+		for(int i = 0; i < count; i++){
+			x[i] = random.nextDouble() * 800;
+			y[i] = random.nextDouble() * 600;
+			xVelocity[i] = (random.nextDouble() * 16) - 8;
+			yVelocity[i] = (random.nextDouble() * 16) - 8;
+			ticks[i] = random.nextInt(256);
+			xMax[i] = x[i] + 10 + (random.nextDouble() * 40);
+			yMax[i] = y[i] + 10 + (random.nextDouble() * 40);
+		}
+		double gravity = Physics9.getDefaultGravity();
+
+		//integrate(): each version moves its own copy of the balls
+		double[][] scalarBalls = {x.clone(), y.clone(), xVelocity.clone(), yVelocity.clone()};
+		double[][] fastestBalls = {x.clone(), y.clone(), xVelocity.clone(), yVelocity.clone()};
+		double scalarTime = timeIntegrate(scalarExtra, scalarBalls, count, gravity, repetitions);
+		double fastestTime = timeIntegrate(fastestExtra, fastestBalls, count, gravity, repetitions);
+		boolean same = Arrays.equals(scalarBalls[0], fastestBalls[0]) && Arrays.equals(scalarBalls[1], fastestBalls[1]) && Arrays.equals(scalarBalls[3], fastestBalls[3]);
+		report(print, "integrate", scalarTime, fastestTime, (long) count * repetitions, same);
+
+		//project()
+		double[][] scalarResults = new double[3][count];
+		double[][] fastestResults = new double[3][count];
+		scalarTime = timeProject(scalar, x, y, xVelocity, yVelocity, ticks, count, gravity, scalarResults, repetitions);
+		fastestTime = timeProject(fastest, x, y, xVelocity, yVelocity, ticks, count, gravity, fastestResults, repetitions);
+		same = Arrays.deepEquals(scalarResults, fastestResults);
+		report(print, "project", scalarTime, fastestTime, (long) count * repetitions, same);
+
+		//findOverlapping(): check a small box at a different place in each repetition against every box
+		int[] scalarOverlapping = new int[count];
+		int[] fastestOverlapping = new int[count];
+		long scalarFound = 0;
+		long fastestFound = 0;
+		long start = System.nanoTime();
+		for(int r = 0; r < repetitions; r++){
+			double boxX = (r * 37) % 800;
+			double boxY = (r * 53) % 600;
+			scalarFound += scalarExtra.findOverlapping(boxX, boxY, boxX + 20, boxY + 20, x, y, xMax, yMax, count, scalarOverlapping);
+		}
+		scalarTime = (System.nanoTime() - start) / 1e6;
+		start = System.nanoTime();
+		for(int r = 0; r < repetitions; r++){
+			double boxX = (r * 37) % 800;
+			double boxY = (r * 53) % 600;
+			fastestFound += fastestExtra.findOverlapping(boxX, boxY, boxX + 20, boxY + 20, x, y, xMax, yMax, count, fastestOverlapping);
+		}
+		fastestTime = (System.nanoTime() - start) / 1e6;
+		same = scalarFound == fastestFound && Arrays.equals(scalarOverlapping, fastestOverlapping);
+		report(print, "findOverlapping", scalarTime, fastestTime, (long) count * repetitions, same);
+	}
+
+	private static double timeIntegrate(BenchmarkKernels kernels, double[][] balls, int count, double gravity, int repetitions){
+		long start = System.nanoTime();
+		for(int r = 0; r < repetitions; r++){
+			kernels.integrate(balls[0], balls[1], balls[2], balls[3], count, gravity);
+		}
+		return (System.nanoTime() - start) / 1e6;
+	}
+
+	private static double timeProject(BatchKernels kernels, double[] x, double[] y, double[] xVelocity, double[] yVelocity, double[] ticks,
+			int count, double gravity, double[][] results, int repetitions){
+		long start = System.nanoTime();
+		for(int r = 0; r < repetitions; r++){
+			kernels.project(x, y, xVelocity, yVelocity, ticks, count, gravity, results[0], results[1], results[2]);
+		}
+		return (System.nanoTime() - start) / 1e6;
+	}
+
+	private static void report(boolean print, String name, double scalarTime, double fastestTime, long operations, boolean same){
+		if(!print){
+			return;
+		}
+		System.out.println(name + ": scalar " + scalarTime + " ms, fastest " + fastestTime + " ms, speedup " + (scalarTime / fastestTime) + "x, "
+				+ (operations / (fastestTime * 1e3)) + " million per second, results " + (same ? "identical" : "DIFFERENT"));
+	}
+}
@@ -0,0 +1,95 @@
+package test_modules;
+
+/**
+ * The BenchmarkKernels class.
+ * Two batch kernels that the BatchKernelBenchmark test module measures alongside
+ * BatchKernels.project(), but that the simulator itself doesn't use: moving many balls
+ * under gravity by one clock tick, and checking one box against many boxes. Physics9 moves
+ * each ball on its own as part of its collision tests, and finds the shapes near a ball with
+ * the BroadPhaseGrid, so neither one has a plain array of balls or boxes to work on. These are
+ * kept here, instead of in BatchKernels, to show what the Vector API does for simple loops
+ * like these. The VectorBenchmarkKernels class overrides them using the Vector API.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class BenchmarkKernels {
+
+	/**
+	 * Return a VectorBenchmarkKernels if the Vector API is available, or a BenchmarkKernels otherwise.
+	 * See BatchKernels.create().
+	 */
+	public static BenchmarkKernels create(){
+		if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+			try {
+				//loaded by name, so that this class still works when the Vector API classes can't be found
+				return (BenchmarkKernels) Class.forName("test_modules.VectorBenchmarkKernels").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e){
+				//fall back to the plain version below
+			}
+		}
+		return new BenchmarkKernels();
+	}
+
+	/**
+	 * Move many balls forward by one clock tick without checking for collisions, the same way
+	 * that the Physics class moves a single ball: add gravity to the y velocity, then add the
+	 * velocity to the position.
+	 * @param x the x position of each ball, which is updated
+	 * @param y the y position of each ball, which is updated
+	 * @param xVelocity the x velocity of each ball
+	 * @param yVelocity the y velocity of each ball, which is updated
+	 * @param count the number of balls
+	 * @param gravity the amount to add to each y velocity
+	 */
+	public void integrate(double[] x, double[] y, double[] xVelocity, double[] yVelocity, int count, double gravity){
+		integrate(x, y, xVelocity, yVelocity, 0, count, gravity);
+	}
+
+	/**
+	 * Same as integrate(), for the balls from start up to (but not including) end.
+	 * Used by VectorBenchmarkKernels for the balls left over after the last full vector.
+	 */
+	protected void integrate(double[] x, double[] y, double[] xVelocity, double[] yVelocity, int start, int end, double gravity){
+		for(int i = start; i < end; i++){
+			yVelocity[i] += gravity;
+			x[i] += xVelocity[i];
+			y[i] += yVelocity[i];
+		}
+	}
+
+	/**
+	 * Find every box, out of a list of axis-aligned bounding boxes, that overlaps the specified box.
+	 * @param boxXMin the left side of the box to check
+	 * @param boxYMin the top of the box to check
+	 * @param boxXMax the right side of the box to check
+	 * @param boxYMax the bottom of the box to check
+	 * @param xMin the left side of each box in the list
+	 * @param yMin the top of each box in the list
+	 * @param xMax the right side of each box in the list
+	 * @param yMax the bottom of each box in the list
+	 * @param count the number of boxes in the list
+	 * @param result an array of length at least count to write the indices of the overlapping boxes into, in order
+	 * @return the number of overlapping boxes
+	 */
+	public int findOverlapping(double boxXMin, double boxYMin, double boxXMax, double boxYMax,
+			double[] xMin, double[] yMin, double[] xMax, double[] yMax, int count, int[] result){
+		return findOverlapping(boxXMin, boxYMin, boxXMax, boxYMax, xMin, yMin, xMax, yMax, 0, count, result, 0);
+	}
+
+	/**
+	 * Same as findOverlapping(), for the boxes from start up to (but not including) end,
+	 * adding the results to the result array after the first found results.
+	 * @return the total number of results in the result array
+	 */
+	protected int findOverlapping(double boxXMin, double boxYMin, double boxXMax, double boxYMax,
+			double[] xMin, double[] yMin, double[] xMax, double[] yMax, int start, int end, int[] result, int found){
+		for(int i = start; i < end; i++){
+			if(xMin[i] <= boxXMax && xMax[i] >= boxXMin && yMin[i] <= boxYMax && yMax[i] >= boxYMin){
+				result[found] = i;
+				found++;
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,154 @@
+package test_modules;
+import java.awt.Color;
+import java.util.ArrayList;
+
+import physics_simulator.Ball;
+import physics_simulator.Constraint;
+import physics_simulator.ConstraintSolver;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+import physics_simulator.Simulator;
+
+/**
+ * Test module for constraints (see the Constraint and ConstraintSolver classes). It opens the
+ * simulator with maps/constraint_example.txt, which has a double pendulum of rods, a ball
+ * swinging on a rope, a soft square of springs and a bridge of rods pinned at both ends.
+ *
+ * With "headless" as the last argument, it doesn't open a window. Instead, it hangs a long
+ * chain of rods between two pins in maps/sand_box_example.txt, runs the physics clock ticks
+ * for it as fast as possible, and prints how long each clock tick takes and how far the
+ * most stretched link is from its length.
+ *
+ * Usage: ChainDemo [number_of_links] [number_of_clock_ticks] [headless]
+ * The defaults are 2000 links and 1000 clock ticks (only used in headless mode).
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ChainDemo {
+
+	private static final int REPORT_INTERVAL = 100; //the number of clock ticks between each line that is printed in headless mode
+	private static final double SLACK = 1.2; //the length of the chain, as a multiple of the distance between its pins
+
+	public static void main(String[] args){
+		boolean headless = args.length > 0 && args[args.length - 1].equalsIgnoreCase("headless");
+		int numberOfLinks = 2000;
+		int numberOfTicks = 1000;
+		if(args.length > 0 && !args[0].equalsIgnoreCase("headless")){
+			numberOfLinks = Integer.parseInt(args[0]);
+		}
+		if(args.length > 1 && !args[1].equalsIgnoreCase("headless")){
+			numberOfTicks = Integer.parseInt(args[1]);
+		}
+		if(headless){
+			time(numberOfLinks, numberOfTicks);
+			return;
+		}
+		Simulator sim = new Simulator();
+		sim.loadMapFromFilePath("maps/constraint_example.txt");
+	}
+
+	/**
+	 * Hang a chain of the specified number of rods between two pins at the specified height,
+	 * with the balls placed along a curve that is already about the shape that the chain
+	 * hangs in, so that it doesn't start with a jolt.
+	 * @return the balls of the chain, in order from the left pin to the right pin
+	 */
+	private static ArrayList<Ball> addChain(Map map, int numberOfLinks, double left, double right, double top){
+		double span = right - left;
+		double linkLength = span * SLACK / numberOfLinks;
+		//the curve is a parabola that sags by the depth that makes it as long as the chain
+		double low = 0;
+		double high = span;
+		for(int i = 0; i < 60; i++){
+			double depth = (low + high) / 2;
+			if(curveLength(left, span, top, depth) < span * SLACK){
+				low = depth;
+			} else {
+				high = depth;
+			}
+		}
+		double depth = low;
+		ArrayList<Ball> chain = new ArrayList<Ball>();
+		Ball previous = addBall(map, left, top);
+		chain.add(previous);
+		map.getConstraintList().add(Constraint.createAnchor(previous, left, top, 0));
+		double previousX = left;
+		double previousY = top;
+		double along = 0;
+		for(int link = 0; link < numberOfLinks; link++){
+			//find the point on the curve that is one link away from the last ball
+			double lowAlong = along;
+			double highAlong = 1;
+			for(int i = 0; i < 60; i++){
+				double middle = (lowAlong + highAlong) / 2;
+				if(Math.hypot(curveX(left, span, middle) - previousX, curveY(top, depth, middle) - previousY) < linkLength){
+					lowAlong = middle;
+				} else {
+					highAlong = middle;
+				}
+			}
+			along = lowAlong;
+			previousX = curveX(left, span, along);
+			previousY = curveY(top, depth, along);
+			Ball ball = addBall(map, previousX, previousY);
+			chain.add(ball);
+			map.getConstraintList().add(Constraint.createRod(previous, ball, linkLength));
+			previous = ball;
+		}
+		map.getConstraintList().add(Constraint.createAnchor(previous, right, top, 0));
+		return chain;
+	}
+
+	private static Ball addBall(Map map, double x, double y){
+		Ball ball = new Ball(x, y, 0, 0, new Color(128, 64, 0));
+		ball.setRadius(1);
+		map.getPlayerList().add(ball);
+		return ball;
+	}
+
+	private static double curveX(double left, double span, double along){
+		return left + (span * along);
+	}
+
+	private static double curveY(double top, double depth, double along){
+		double fromMiddle = (2 * along) - 1;
+		return top + (depth * (1 - (fromMiddle * fromMiddle)));
+	}
+
+	private static double curveLength(double left, double span, double top, double depth){
+		double length = 0;
+		for(int i = 1; i <= 10000; i++){
+			length += Math.hypot(curveX(left, span, i / 10000.0) - curveX(left, span, (i - 1) / 10000.0), curveY(top, depth, i / 10000.0) - curveY(top, depth, (i - 1) / 10000.0));
+		}
+		return length;
+	}
+
+	/**
+	 * Run the physics clock ticks for a chain of the specified number of links, and print how long they take.
+	 */
+	private static void time(int numberOfLinks, int numberOfTicks){
+		Map map = new Map("maps/sand_box_example.txt");
+		ArrayList<Ball> chain = addChain(map, numberOfLinks, 100, map.getWidth() - 100, 200);
+		double linkLength = map.getConstraintList().get(1).getLength();
+		Physics9 physics = new Physics9(map);
+		ConstraintSolver solver = physics.getConstraintSolver();
+		System.out.println(numberOfLinks + " links of " + linkLength + " pixels, " + Runtime.getRuntime().availableProcessors() + " processors");
+		long intervalStart = System.nanoTime();
+		for(int tick = 1; tick <= numberOfTicks; tick++){
+			physics.bounceModeClockTick();
+			if(tick % REPORT_INTERVAL == 0){
+				long now = System.nanoTime();
+				double tickTime = (now - intervalStart) / 1e6 / REPORT_INTERVAL;
+				intervalStart = now;
+				double largestStretch = 0;
+				for(int i = 1; i < chain.size(); i++){
+					double distance = Math.hypot(chain.get(i).getXPosition() - chain.get(i - 1).getXPosition(), chain.get(i).getYPosition() - chain.get(i - 1).getYPosition());
+					largestStretch = Math.max(largestStretch, Math.abs(distance - linkLength) / linkLength);
+				}
+				System.out.println("tick " + tick + ": " + tickTime + " ms per clock tick, " + solver.getNumberOfIslands() + " islands, largest stretch of a link: "
+						+ (largestStretch * 100) + "%");
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package test_modules;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics_simulator.Ball;
+import physics_simulator.BarnesHutTree;
+import physics_simulator.Simulator;
+
+/**
+ * Test module for ball attraction (see the BarnesHutTree class). It opens the simulator with
+ * maps/clustering_example.txt, which has no gravity, fills it with a large number of tiny
+ * balls in a slowly turning disk, and turns ball attraction on, so that the balls pull
+ * themselves together into clusters. The menu can be used as usual, for example to turn
+ * ball attraction off again, or to reset the balls.
+ *
+ * With "headless" as the last argument, it doesn't open a window. Instead, it checks the
+ * pull from the tree against adding up every pair of balls for a few thousand balls, then
+ * prints how long building the tree and calculating the pull take for all of the balls.
+ *
+ * Usage: ClusteringDemo [number_of_balls] [opening_angle] [headless]
+ * The defaults are 100000 balls and an opening angle of 0.7, which is a little rougher than
+ * the usual 0.5 (see BarnesHutTree.setOpeningAngle()), but faster.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ClusteringDemo {
+
+	private static final int CHECKED_BALLS = 3000; //the number of balls that the pull is checked for in headless mode
+
+	public static void main(String[] args){
+		int numberOfBalls = 100000;
+		double openingAngle = 0.7;
+		boolean headless = args.length > 0 && args[args.length - 1].equalsIgnoreCase("headless");
+		if(args.length > 0 && !args[0].equalsIgnoreCase("headless")){
+			numberOfBalls = Integer.parseInt(args[0]);
+		}
+		if(args.length > 1 && !args[1].equalsIgnoreCase("headless")){
+			openingAngle = Double.parseDouble(args[1]);
+		}
+		if(headless){
+			checkAccuracy(openingAngle);
+			time(numberOfBalls, openingAngle);
+			return;
+		}
+		Simulator sim = new Simulator();
+		sim.loadMapFromFilePath("maps/clustering_example.txt");
+		addDisk(sim.getMap().getPlayerList(), numberOfBalls, new Random(1), sim.getMap().getWidth() / 2, sim.getMap().getHeight() / 2);
+		sim.setOpeningAngle(openingAngle);
+		sim.setBallAttraction(true);
+	}
+
+	/**
+	 * Add balls with a radius of one pixel, spread over a disk around the specified center and
+	 * turning slowly around it, in shades of blue.
+	 */
+	private static void addDisk(ArrayList<Ball> players, int numberOfBalls, Random random, double centerX, double centerY){
+		double diskRadius = Math.min(centerX, centerY) * 0.8;
+		for(int i = 0; i < numberOfBalls; i++){
+			double angle = random.nextDouble() * 2 * Math.PI;
+			double distance = diskRadius * Math.sqrt(random.nextDouble());
+			double speed = 0.3 * distance / diskRadius;
+			Ball ball = new Ball(centerX + (distance * Math.cos(angle)), centerY + (distance * Math.sin(angle)), -speed * Math.sin(angle), speed * Math.cos(angle),
+					new Color(0, random.nextInt(128), 128 + random.nextInt(128)));
+			ball.setRadius(1);
+			players.add(ball);
+		}
+	}
+
+	/**
+	 * Compare the pull from the tree with the exact pull, for a few thousand balls in a disk.
+	 */
+	private static void checkAccuracy(double openingAngle){
+		double[] x = new double[CHECKED_BALLS];
+		double[] y = new double[CHECKED_BALLS];
+		ArrayList<Ball> players = new ArrayList<Ball>();
+		addDisk(players, CHECKED_BALLS, new Random(2), 400, 400);
+		for(int i = 0; i < CHECKED_BALLS; i++){
+			x[i] = players.get(i).getXPosition();
+			y[i] = players.get(i).getYPosition();
+		}
+		double[] treeX = new double[CHECKED_BALLS];
+		double[] treeY = new double[CHECKED_BALLS];
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.setOpeningAngle(openingAngle);
+		tree.build(x, y, CHECKED_BALLS);
+		tree.calculateAccelerations(treeX, treeY);
+		//add up every pair, with the same formula as the tree
+		double softeningSquared = BarnesHutTree.DEFAULT_SOFTENING * BarnesHutTree.DEFAULT_SOFTENING;
+		double pull = BarnesHutTree.DEFAULT_STRENGTH / CHECKED_BALLS;
+		double largestError = 0;
+		double totalError = 0;
+		double totalPull = 0;
+		for(int i = 0; i < CHECKED_BALLS; i++){
+			double sumX = 0;
+			double sumY = 0;
+			for(int j = 0; j < CHECKED_BALLS; j++){
+				if(j != i){
+					double dx = x[j] - x[i];
+					double dy = y[j] - y[i];
+					double distanceSquared = (dx * dx) + (dy * dy) + softeningSquared;
+					double scale = 1 / (distanceSquared * Math.sqrt(distanceSquared));
+					sumX += scale * dx;
+					sumY += scale * dy;
+				}
+			}
+			double error = Math.hypot(treeX[i] - (sumX * pull), treeY[i] - (sumY * pull));
+			largestError = Math.max(largestError, error);
+			totalError += error;
+			totalPull += Math.hypot(sumX * pull, sumY * pull);
+		}
+		//the pull nearly cancels out near the middle of the disk, so the errors are compared to the average size of the pull instead of the pull on each ball
+		double averagePull = totalPull / CHECKED_BALLS;
+		System.out.println(CHECKED_BALLS + " balls, opening angle " + openingAngle + ": error of the tree, relative to the average pull: largest "
+				+ (largestError / averagePull) + ", average " + (totalError / CHECKED_BALLS / averagePull));
+	}
+
+	/**
+	 * Print how long it takes to build the tree and calculate the pull for the specified number of balls.
+	 */
+	private static void time(int numberOfBalls, double openingAngle){
+		ArrayList<Ball> players = new ArrayList<Ball>();
+		addDisk(players, numberOfBalls, new Random(1), 400, 400);
+		double[] x = new double[numberOfBalls];
+		double[] y = new double[numberOfBalls];
+		for(int i = 0; i < numberOfBalls; i++){
+			x[i] = players.get(i).getXPosition();
+			y[i] = players.get(i).getYPosition();
+		}
+		double[] resultX = new double[numberOfBalls];
+		double[] resultY = new double[numberOfBalls];
+		BarnesHutTree tree = new BarnesHutTree();
+		tree.setOpeningAngle(openingAngle);
+		int repetitions = 20;
+		double buildTime = 0;
+		double pullTime = 0;
+		for(int i = 0; i < repetitions * 2; i++){
+			long start = System.nanoTime();
+			tree.build(x, y, numberOfBalls);
+			long built = System.nanoTime();
+			tree.calculateAccelerations(resultX, resultY);
+			long done = System.nanoTime();
+			if(i >= repetitions){
+				//the first half of the repetitions are a warm up, so that the times don't include compiling
+				buildTime += (built - start) / 1e6;
+				pullTime += (done - built) / 1e6;
+			}
+		}
+		System.out.println(numberOfBalls + " balls, opening angle " + openingAngle + ", " + tree.getNumberOfNodes() + " nodes, "
+				+ Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.println("building the tree: " + (buildTime / repetitions) + " ms, calculating the pull: " + (pullTime / repetitions) + " ms");
+	}
+}
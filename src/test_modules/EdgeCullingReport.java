@@ -0,0 +1,56 @@
+package test_modules;
+
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+
+/**
+ * Test module for the back face culling in the ray test (see InflatedGeometry.castRay()), which
+ * doesn't open a window. For each map, it runs the physics clock ticks, then prints how many
+ * edges the ray tests calculated the distance to, how many they skipped because the balls were
+ * moving along them or away from the side of them that can be touched, how many times per clock
+ * tick the broad phase grid was asked for shapes, and how long each clock tick took.
+ *
+ * Usage: EdgeCullingReport [number_of_clock_ticks] [map_file ...]
+ * The default is 2000 clock ticks of each of the example maps.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class EdgeCullingReport {
+
+	private static final String[] EXAMPLE_MAPS = {"maps/simulator_initial_file.txt", "maps/stream_example.txt", "maps/kinematic_example.txt",
+			"maps/materials_example.txt", "maps/force_field_example.txt", "maps/constraint_example.txt"};
+
+	public static void main(String[] args){
+		int numberOfTicks = 2000;
+		String[] maps = EXAMPLE_MAPS;
+		if(args.length > 0){
+			numberOfTicks = Integer.parseInt(args[0]);
+		}
+		if(args.length > 1){
+			maps = new String[args.length - 1];
+			System.arraycopy(args, 1, maps, 0, maps.length);
+		}
+		long totalTested = 0;
+		long totalCulled = 0;
+		for(int i = 0; i < maps.length; i++){
+			Physics9 physics = new Physics9(new Map(maps[i]));
+			long start = System.nanoTime();
+			for(int tick = 0; tick < numberOfTicks; tick++){
+				physics.bounceModeClockTick();
+			}
+			double tickTime = (System.nanoTime() - start) / 1e6 / numberOfTicks;
+			long tested = physics.getNumberOfEdgesTested();
+			long culled = physics.getNumberOfEdgesCulled();
+			totalTested += tested;
+			totalCulled += culled;
+			System.out.println(maps[i] + ": " + tested + " edges tested, " + culled + " edges culled (" + percent(culled, tested + culled) + "%), "
+					+ ((double) physics.getNumberOfGridQueries() / numberOfTicks) + " grid queries and " + tickTime + " ms per clock tick");
+		}
+		System.out.println("all maps: " + totalTested + " edges tested, " + totalCulled + " edges culled (" + percent(totalCulled, totalTested + totalCulled) + "%)");
+	}
+
+	private static double percent(long part, long whole){
+		return whole == 0 ? 0 : Math.round(1000.0 * part / whole) / 10.0;
+	}
+}
@@ -0,0 +1,203 @@
+package test_modules;
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics_simulator.Draw;
+import physics_simulator.Edit;
+import physics_simulator.EditHistory;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+import physics_simulator.Point;
+import physics_simulator.Shape;
+
+/**
+ * Test module for the EditHistory class, which doesn't open a window. It loads a map, draws
+ * a new shape, drags a shape and a vertex around in many small steps the way a mouse would,
+ * and deletes a shape, using the same Draw and Edit methods that the Window class calls.
+ * Then it undoes every change and checks that the shapes are exactly where they were in the
+ * map file, and redoes every change and checks that the shapes are exactly where they were
+ * after the edits.
+ *
+ * Then it does the same with the moving shapes in maps/kinematic_example.txt, while the
+ * physics clock ticks run: it drags a moving shape and one of its vertices, lets the motions
+ * continue, and undoes both. The undone shapes should be exactly where the shapes of a copy
+ * of the map that was never edited are after the same number of clock ticks, rather than
+ * where they were when they were edited.
+ *
+ * Usage: EditHistoryReplay [map_file] [number_of_drag_steps]
+ * The defaults are maps/materials_example.txt and 2000 steps.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class EditHistoryReplay {
+
+	private static final String KINEMATIC_MAP = "maps/kinematic_example.txt"; //a map with moving shapes
+
+	public static void main(String[] args){
+		String mapFile = "maps/materials_example.txt";
+		int dragSteps = 2000;
+		if(args.length > 0){
+			mapFile = args[0];
+		}
+		if(args.length > 1){
+			dragSteps = Integer.parseInt(args[1]);
+		}
+		Map map = new Map(mapFile);
+		ArrayList<Shape> shapes = map.getShapeList();
+		EditHistory history = map.getEditHistory();
+		Edit edit = new Edit(map);
+		Draw draw = new Draw(map);
+		Random random = new Random(3);
+		//the border can't be edited, so start with the first shape after it
+		int firstShape = map.getDrawBorder() ? 1 : 0;
+		if(shapes.size() < firstShape + 2){
+			System.out.println("This test module needs a map with at least two shapes besides the border.");
+			return;
+		}
+		ArrayList<double[]> original = copyShapes(shapes);
+		int numberOfChanges = 0;
+
+		//draw a triangle
+		draw.setNumberOfVerticesToDraw(3);
+		draw.addVertexToCurrentShape(new Point(200, 200));
+		draw.addVertexToCurrentShape(new Point(260, 210));
+		draw.addVertexToCurrentShape(new Point(230, 260));
+		numberOfChanges++;
+
+		//drag a shape by its first vertex, in small steps that aren't whole pixels
+		Point position = shapes.get(firstShape).getVertex(0);
+		double x = position.getX();
+		double y = position.getY();
+		for(int i = 0; i < dragSteps; i++){
+			x += (random.nextDouble() - 0.5) * 0.7;
+			y += (random.nextDouble() - 0.5) * 0.7;
+			edit.moveShape(firstShape, 0, new Point(x, y));
+		}
+		edit.endDrag();
+		numberOfChanges++;
+
+		//drag a vertex of another shape
+		position = shapes.get(firstShape + 1).getVertex(1);
+		x = position.getX();
+		y = position.getY();
+		for(int i = 0; i < dragSteps; i++){
+			x += (random.nextDouble() - 0.5) * 0.3;
+			y += (random.nextDouble() - 0.5) * 0.3;
+			edit.moveShapeVertex(firstShape + 1, 1, new Point(x, y));
+		}
+		edit.endDrag();
+		numberOfChanges++;
+
+		//drag the shape that was just drawn, then delete the shape that was dragged first
+		int drawnShape = shapes.size() - 1;
+		for(int i = 0; i < dragSteps; i++){
+			edit.moveShape(drawnShape, 2, new Point(230 + (i * 0.013), 260 - (i * 0.029)));
+		}
+		edit.endDrag();
+		numberOfChanges++;
+		edit.deleteShape(firstShape);
+		numberOfChanges++;
+		ArrayList<double[]> edited = copyShapes(shapes);
+
+		int undone = 0;
+		while(history.undo()){
+			undone++;
+		}
+		report("after undoing " + undone + " of " + numberOfChanges + " changes", original, copyShapes(shapes));
+		int redone = 0;
+		while(history.redo()){
+			redone++;
+		}
+		report("after redoing " + redone + " of " + numberOfChanges + " changes", edited, copyShapes(shapes));
+		replayWhileMoving(dragSteps);
+	}
+
+	/**
+	 * Edit a moving shape in maps/kinematic_example.txt between physics clock ticks, undo the edits
+	 * after the motions have continued, and compare the shapes to a copy of the map that wasn't edited.
+	 */
+	private static void replayWhileMoving(int dragSteps){
+		Map map = new Map(KINEMATIC_MAP);
+		Map unedited = new Map(KINEMATIC_MAP);
+		Physics9 physics = new Physics9(map);
+		Physics9 uneditedPhysics = new Physics9(unedited);
+		ArrayList<Shape> shapes = map.getShapeList();
+		Edit edit = new Edit(map);
+		int moving = -1;
+		for(int i = 0; i < shapes.size() && moving == -1; i++){
+			if(shapes.get(i).isKinematic()){
+				moving = i;
+			}
+		}
+		if(moving == -1){
+			System.out.println(KINEMATIC_MAP + " has no moving shapes.");
+			return;
+		}
+		int tick = 0;
+		for( ; tick < 100; tick++){
+			physics.bounceModeClockTick();
+			uneditedPhysics.bounceModeClockTick();
+		}
+		//drag the moving shape a little on each clock tick, the way a mouse would while the simulation runs
+		Point position = shapes.get(moving).getVertex(0);
+		for(int i = 0; i < dragSteps; i++, tick++){
+			edit.moveShape(moving, 0, new Point(position.getX() + 0.37, position.getY() - 0.21));
+			physics.bounceModeClockTick();
+			uneditedPhysics.bounceModeClockTick();
+		}
+		edit.endDrag();
+		Point vertex = shapes.get(moving).getVertex(1);
+		edit.moveShapeVertex(moving, 1, new Point(vertex.getX() + 15, vertex.getY() + 5));
+		edit.endDrag();
+		for(int i = 0; i < 500; i++, tick++){
+			physics.bounceModeClockTick();
+			uneditedPhysics.bounceModeClockTick();
+		}
+		int undone = 0;
+		while(map.getEditHistory().undo()){
+			undone++;
+		}
+		report("moving shapes after undoing " + undone + " edits made during " + tick + " clock ticks", copyShapes(unedited.getShapeList()), copyShapes(shapes));
+	}
+
+	/**
+	 * Copy the coordinates of every vertex of every shape, as {x0, y0, x1, y1, ...} for each shape.
+	 */
+	private static ArrayList<double[]> copyShapes(ArrayList<Shape> shapes){
+		ArrayList<double[]> copy = new ArrayList<double[]>();
+		for(int i = 0; i < shapes.size(); i++){
+			Shape shape = shapes.get(i);
+			double[] coordinates = new double[shape.getNumberOfVertices() * 2];
+			for(int j = 0; j < shape.getNumberOfVertices(); j++){
+				coordinates[j * 2] = shape.getVertex(j).getX();
+				coordinates[(j * 2) + 1] = shape.getVertex(j).getY();
+			}
+			copy.add(coordinates);
+		}
+		return copy;
+	}
+
+	/**
+	 * Print whether the shapes are exactly where they are expected to be, and if not, the farthest any coordinate is from where it should be.
+	 */
+	private static void report(String description, ArrayList<double[]> expected, ArrayList<double[]> actual){
+		if(expected.size() != actual.size()){
+			System.out.println(description + ": expected " + expected.size() + " shapes, found " + actual.size() + ", DIFFERENT");
+			return;
+		}
+		double largestDifference = 0;
+		boolean same = true;
+		for(int i = 0; i < expected.size(); i++){
+			if(expected.get(i).length != actual.get(i).length){
+				System.out.println(description + ": shape " + i + " has a different number of vertices, DIFFERENT");
+				return;
+			}
+			for(int j = 0; j < expected.get(i).length; j++){
+				largestDifference = Math.max(largestDifference, Math.abs(expected.get(i)[j] - actual.get(i)[j]));
+				same = same && expected.get(i)[j] == actual.get(i)[j];
+			}
+		}
+		System.out.println(description + ": " + actual.size() + " shapes, largest difference in a coordinate " + largestDifference + ", shapes " + (same ? "identical" : "DIFFERENT"));
+	}
+}
@@ -0,0 +1,87 @@
+package test_modules;
+import java.util.ArrayList;
+
+import physics_simulator.Ball;
+import physics_simulator.EventDrivenPhysics;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+
+/**
+ * Test module for comparing the EventDrivenPhysics class to the Physics class. Like the
+ * SpawnerSoak test module, this one doesn't open a window. It loads the same map twice,
+ * runs one copy with each class for the same number of clock ticks, and prints how long
+ * each took, how many collisions the EventDrivenPhysics class had to handle, and how far
+ * apart the balls ended up in the two copies. The distances should be close to zero.
+ *
+ * The EventDrivenPhysics copy is moved forward in steps, and its balls are updated after
+ * each step, the same as when the window draws them. The time spent updating the balls is
+ * printed separately, since moving forward only costs as much as the collisions. Drawing
+ * only every few clock ticks is where it saves the most time. It only saves time when
+ * collisions are rare, as in maps/billiards_example.txt, where balls bounce around an empty
+ * box without gravity. On maps where the balls come to rest, such as the default map, every
+ * resting ball is handled on every clock tick, and the EventDrivenPhysics class is slower.
+ *
+ * Usage: EventDrivenComparison [map_file] [number_of_clock_ticks] [clock_ticks_per_step]
+ * The defaults are maps/simulator_new_file.txt, 3000 clock ticks and 1 clock tick per step.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class EventDrivenComparison {
+
+	public static void main(String[] args){
+		String filename = "maps/simulator_new_file.txt";
+		int numberOfTicks = 3000;
+		int ticksPerStep = 1;
+		if(args.length > 0){
+			filename = args[0];
+		}
+		if(args.length > 1){
+			numberOfTicks = Integer.parseInt(args[1]);
+		}
+		if(args.length > 2){
+			ticksPerStep = Integer.parseInt(args[2]);
+		}
+		Map steppedMap = new Map(filename);
+		Map eventMap = new Map(filename);
+		if(!EventDrivenPhysics.canRun(eventMap)){
+			System.out.println("this map has emitters, sinks, moving shapes or force fields, so it can't be run by the EventDrivenPhysics class");
+			return;
+		}
+		Physics9 stepped = new Physics9(steppedMap);
+		EventDrivenPhysics eventDriven = new EventDrivenPhysics(eventMap, new Physics9(eventMap));
+
+		long start = System.nanoTime();
+		for(int tick = 0; tick < numberOfTicks; tick++){
+			stepped.bounceModeClockTick();
+		}
+		double steppedTime = (System.nanoTime() - start) / 1e6;
+
+		long updateTime = 0;
+		start = System.nanoTime();
+		for(int tick = 0; tick < numberOfTicks; tick += ticksPerStep){
+			eventDriven.advance(Math.min(ticksPerStep, numberOfTicks - tick));
+			long updateStart = System.nanoTime();
+			eventDriven.updateBalls();
+			updateTime += System.nanoTime() - updateStart;
+		}
+		double eventDrivenTime = (System.nanoTime() - start) / 1e6;
+
+		ArrayList<Ball> steppedBalls = steppedMap.getPlayerList();
+		ArrayList<Ball> eventBalls = eventMap.getPlayerList();
+		double largestDistance = 0;
+		double totalDistance = 0;
+		for(int i = 0; i < steppedBalls.size(); i++){
+			double distance = Physics9.distance(steppedBalls.get(i), eventBalls.get(i));
+			largestDistance = Math.max(largestDistance, distance);
+			totalDistance += distance;
+		}
+		long ballTicks = (long) steppedBalls.size() * numberOfTicks;
+		System.out.println(steppedBalls.size() + " balls, " + numberOfTicks + " clock ticks");
+		System.out.println("stepped: " + steppedTime + " ms, " + ballTicks + " ball moves");
+		System.out.println("event-driven: " + eventDrivenTime + " ms, " + eventDriven.getEventsHandled() + " ball moves, "
+				+ (updateTime / 1e6) + " ms of which was updating the balls");
+		System.out.println("distance between the two copies of each ball: largest " + largestDistance
+				+ ", average " + (totalDistance / Math.max(1, steppedBalls.size())));
+	}
+}
@@ -0,0 +1,84 @@
+package test_modules;
+import java.util.ArrayList;
+
+import physics_simulator.Ball;
+import physics_simulator.FixedPointPhysics;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+
+/**
+ * Test module for checking that the FixedPointPhysics class gives exactly the same results
+ * every time. Like the SpawnerSoak test module, this one doesn't open a window. It loads the
+ * same map three times, runs two copies with the FixedPointPhysics class and one with the
+ * Physics class, and prints the checksum of both fixed-point copies every so often. The
+ * checksums must always match, and should be the same when this is run on another machine
+ * or with different JVM options. At the end, it prints how long each class took, and how
+ * far the fixed-point balls have drifted from the floating-point ones.
+ *
+ * Usage: FixedPointReplay [map_file] [number_of_clock_ticks] [clock_ticks_between_checksums]
+ * The defaults are maps/simulator_initial_file.txt, 3000 clock ticks and 500 clock ticks between checksums.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class FixedPointReplay {
+
+	public static void main(String[] args){
+		String filename = "maps/simulator_initial_file.txt";
+		int numberOfTicks = 3000;
+		int ticksBetweenChecksums = 500;
+		if(args.length > 0){
+			filename = args[0];
+		}
+		if(args.length > 1){
+			numberOfTicks = Integer.parseInt(args[1]);
+		}
+		if(args.length > 2){
+			ticksBetweenChecksums = Integer.parseInt(args[2]);
+		}
+		Map floatingMap = new Map(filename);
+		Map fixedMap = new Map(filename);
+		Map replayMap = new Map(filename);
+		if(!FixedPointPhysics.canRun(fixedMap)){
+			System.out.println("this map has moving shapes or force fields, so it can't be run by the FixedPointPhysics class");
+			return;
+		}
+		Physics9 floating = new Physics9(floatingMap);
+		FixedPointPhysics fixed = new FixedPointPhysics(fixedMap);
+		FixedPointPhysics replay = new FixedPointPhysics(replayMap);
+
+		long start = System.nanoTime();
+		for(int tick = 0; tick < numberOfTicks; tick++){
+			floating.bounceModeClockTick();
+		}
+		double floatingTime = (System.nanoTime() - start) / 1e6;
+
+		boolean identical = true;
+		double fixedTime = 0;
+		for(int tick = 1; tick <= numberOfTicks; tick++){
+			start = System.nanoTime();
+			fixed.bounceModeClockTick();
+			fixedTime += (System.nanoTime() - start) / 1e6;
+			replay.bounceModeClockTick();
+			identical = identical && fixed.getChecksum() == replay.getChecksum();
+			if(tick % ticksBetweenChecksums == 0 || tick == numberOfTicks){
+				System.out.println("clock tick " + tick + ": checksum " + Long.toHexString(fixed.getChecksum()) + ", replay " + Long.toHexString(replay.getChecksum()));
+			}
+		}
+
+		ArrayList<Ball> floatingBalls = floatingMap.getPlayerList();
+		ArrayList<Ball> fixedBalls = fixedMap.getPlayerList();
+		double largestDistance = 0;
+		double totalDistance = 0;
+		for(int i = 0; i < Math.min(floatingBalls.size(), fixedBalls.size()); i++){
+			double distance = Physics9.distance(floatingBalls.get(i), fixedBalls.get(i));
+			largestDistance = Math.max(largestDistance, distance);
+			totalDistance += distance;
+		}
+		System.out.println("replay " + (identical ? "identical on every clock tick" : "DIFFERENT"));
+		System.out.println(fixedBalls.size() + " balls, " + numberOfTicks + " clock ticks");
+		System.out.println("floating-point: " + floatingTime + " ms, fixed-point: " + fixedTime + " ms");
+		System.out.println("distance between the fixed-point and floating-point copies of each ball: largest " + largestDistance
+				+ ", average " + (totalDistance / Math.max(1, fixedBalls.size())));
+	}
+}
@@ -0,0 +1,97 @@
+package test_modules;
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics_simulator.ForceField;
+import physics_simulator.ForceFieldStage;
+
+/**
+ * Test module for the far field table of the ForceFieldStage class. Like the
+ * BatchKernelBenchmark test module, this one doesn't open a window. It scatters attractors
+ * and repulsors at random over an 800 by 600 pixel map, calculates their total pull at many
+ * random points, first adding every attractor exactly and then using the far field table,
+ * and prints how long each took and how far apart the results are.
+ *
+ * Usage: ForceFieldBenchmark [number_of_attractors] [number_of_points] [repetitions]
+ * The defaults are 500 attractors, 5000 points and 200 repetitions.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class ForceFieldBenchmark {
+
+	public static void main(String[] args){
+		int numberOfAttractors = 500;
+		int numberOfPoints = 5000;
+		int repetitions = 200;
+		if(args.length > 0){
+			numberOfAttractors = Integer.parseInt(args[0]);
+		}
+		if(args.length > 1){
+			numberOfPoints = Integer.parseInt(args[1]);
+		}
+		if(args.length > 2){
+			repetitions = Integer.parseInt(args[2]);
+		}
+		Random random = new Random(1);
+		ArrayList<ForceField> fields = new ArrayList<ForceField>();
+		for(int i = 0; i < numberOfAttractors; i++){
+			//one in four is a repulsor
+			double strength = (random.nextInt(4) == 0 ? -1 : 1) * (20 + (random.nextDouble() * 80));
+			fields.add(ForceField.createAttractor(random.nextDouble() * 800, random.nextDouble() * 600, strength, 5 + (random.nextDouble() * 10)));
+		}
+		double[] x = new double[numberOfPoints];
+		double[] y = new double[numberOfPoints];
+		for(int i = 0; i < numberOfPoints; i++){
+			x[i] = random.nextDouble() * 800;
+			y[i] = random.nextDouble() * 600;
+		}
+
+		long start = System.nanoTime();
+		ForceFieldStage stage = new ForceFieldStage(fields, 800, 600);
+		stage.setAggregateFarFields(true);
+		double tableTime = (System.nanoTime() - start) / 1e6;
+
+		double[] exactX = new double[numberOfPoints];
+		double[] exactY = new double[numberOfPoints];
+		double[] tableX = new double[numberOfPoints];
+		double[] tableY = new double[numberOfPoints];
+		stage.setAggregateFarFields(false);
+		double exactTime = time(stage, x, y, exactX, exactY, repetitions);
+		stage.setAggregateFarFields(true);
+		double aggregateTime = time(stage, x, y, tableX, tableY, repetitions);
+
+		//the pulls of many attractors can cancel out at some points, so the errors are compared to the average size of the pull instead of the pull at each point
+		double largestError = 0;
+		double totalError = 0;
+		double totalPull = 0;
+		for(int i = 0; i < numberOfPoints; i++){
+			double error = Math.hypot(tableX[i] - exactX[i], tableY[i] - exactY[i]);
+			largestError = Math.max(largestError, error);
+			totalError += error;
+			totalPull += Math.hypot(exactX[i], exactY[i]);
+		}
+		double averagePull = totalPull / numberOfPoints;
+		System.out.println(numberOfAttractors + " attractors, " + numberOfPoints + " points, " + repetitions + " repetitions");
+		System.out.println("making the far field table: " + tableTime + " ms");
+		System.out.println("every attractor exactly: " + exactTime + " ms per repetition");
+		System.out.println("far field table: " + aggregateTime + " ms per repetition");
+		System.out.println("average pull: " + averagePull);
+		System.out.println("error of the far field table, relative to the average pull: largest " + (largestError / averagePull) + ", average " + (totalError / numberOfPoints / averagePull));
+	}
+
+	/**
+	 * Return the average time in milliseconds that the stage takes to evaluate the pull at all of the points.
+	 */
+	private static double time(ForceFieldStage stage, double[] x, double[] y, double[] resultX, double[] resultY, int repetitions){
+		//warm up first, so that the times don't include compiling
+		for(int i = 0; i < Math.min(20, repetitions); i++){
+			stage.evaluate(x, y, resultX, resultY, x.length);
+		}
+		long start = System.nanoTime();
+		for(int i = 0; i < repetitions; i++){
+			stage.evaluate(x, y, resultX, resultY, x.length);
+		}
+		return (System.nanoTime() - start) / 1e6 / repetitions;
+	}
+}
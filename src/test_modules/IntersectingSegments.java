@@ -9,6 +9,7 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 
 import physics_simulator.DrawPanel;
+import physics_simulator.GeometryKernel;
 import physics_simulator.Physics9;
 import physics_simulator.Point;
 import physics_simulator.Segment;
@@ -16,11 +17,11 @@ import physics_simulator.Segment;
 /**
  * A test module that exemplifies determining whether 
  * two Segments are intersecting, using methods
- * from the Segment class.
- * Basically checks where the equations of each 
- * Segment would intersect, then checks if that 
- * intersection is within the bounds of each Segment.
- * If it is, the Segments are intersecting,
+ * from the GeometryKernel class.
+ * Checks which side of each Segment the endpoints
+ * of the other Segment are on, exactly, even when
+ * they are very nearly on the Segment itself.
+ * If the Segments are intersecting,
  * and the intersection is circled in green.
  * A true/false indication of whether the 
  * Segments intersect is also written in the
@@ -62,11 +63,12 @@ public class IntersectingSegments extends JFrame{
 		public void paintComponent(Graphics g){
 			g.setColor(Color.WHITE);
 			g.fillRect(0, 0, 510, 510);
-			Point intersection = s0.getIntersectionWith(s1);
-			boolean isIntersect = s0.isIntersecting(s1, intersection);
+			//GeometryKernel decides exactly whether the segments intersect, and finds the point without special cases for vertical segments
+			Point intersection = GeometryKernel.intersectionPoint(s0, s1);
+			boolean isIntersect = GeometryKernel.segmentsIntersect(s0, s1);
 
 			//drawPointBeforeIntersection(g,intersection);
-			drawIntersection(g, intersection, isIntersect);
+			drawIntersection(g, intersection, intersection != null); //collinear overlapping segments intersect, but not at a single point
 
 			g.setColor(Color.BLACK);
 			//g.drawString("" + isIntersect, 464, 469);
@@ -0,0 +1,154 @@
+package test_modules;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics_simulator.Ball;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+import physics_simulator.Point;
+import physics_simulator.PolygonIndex;
+import physics_simulator.Shape;
+
+/**
+ * Test module for the PolygonIndex class, which doesn't open a window. For star shaped
+ * polygons with more and more vertices, it checks the index's point in polygon test against
+ * following a line through every edge, and times both. Then it adds a star to
+ * maps/sand_box_example.txt on top of a crowd of balls, drags it sideways across more of
+ * them, and prints how many balls were freed and how many are still inside of the star.
+ *
+ * Usage: PolygonIndexBenchmark [number_of_points]
+ * The default is 200000 points for each polygon.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class PolygonIndexBenchmark {
+
+	private static final int NUMBER_OF_BALLS = 2000; //the number of balls that the star is dropped on
+	private static final int DRAG_STEPS = 40; //the number of clock ticks the star is dragged for
+	private static final double DRAG_DISTANCE = 5; //how far the star is dragged on each clock tick
+
+	public static void main(String[] args){
+		int numberOfPoints = 200000;
+		if(args.length > 0){
+			numberOfPoints = Integer.parseInt(args[0]);
+		}
+		for(int numberOfVertices = 8; numberOfVertices <= 32768; numberOfVertices *= 8){
+			time(numberOfVertices, numberOfPoints);
+		}
+		drag();
+	}
+
+	/**
+	 * Make a star with the specified number of vertices around the point (600, 450), with
+	 * points reaching out to 250 pixels and dips between them at 200 to 240 pixels.
+	 */
+	private static Shape makeStar(int numberOfVertices, Random random){
+		Point[] vertices = new Point[numberOfVertices];
+		for(int k = 0; k < numberOfVertices; k++){
+			double angle = 2 * Math.PI * k / numberOfVertices;
+			double distance = k % 2 == 0 ? 250 : 200 + (random.nextDouble() * 40);
+			vertices[k] = new Point(600 + (distance * Math.cos(angle)), 450 + (distance * Math.sin(angle)));
+		}
+		return new Shape(vertices);
+	}
+
+	/**
+	 * Is the point (px, py) inside of the shape, found by following a line to the right through every edge?
+	 */
+	private static boolean containsByEveryEdge(Shape shape, double px, double py){
+		boolean inside = false;
+		int numberOfVertices = shape.getNumberOfVertices();
+		for(int k = 0; k < numberOfVertices; k++){
+			Point current = shape.getVertex(k);
+			Point next = shape.getVertex((k + 1) % numberOfVertices);
+			if((current.getY() > py) != (next.getY() > py)){
+				double crossingX = current.getX() + ((py - current.getY()) * (next.getX() - current.getX()) / (next.getY() - current.getY()));
+				if(px < crossingX){
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Check and time the point in polygon test for a star with the specified number of vertices, at random points around it.
+	 */
+	private static void time(int numberOfVertices, int numberOfPoints){
+		Random random = new Random(1);
+		ArrayList<Shape> shapes = new ArrayList<Shape>();
+		shapes.add(makeStar(numberOfVertices, random));
+		PolygonIndex index = new PolygonIndex();
+		index.rebuild(shapes);
+		double[] x = new double[numberOfPoints];
+		double[] y = new double[numberOfPoints];
+		for(int i = 0; i < numberOfPoints; i++){
+			x[i] = 330 + (random.nextDouble() * 540);
+			y[i] = 180 + (random.nextDouble() * 540);
+		}
+		//the slow test is only run on every tenth point, so that the largest stars don't take too long
+		int mismatches = 0;
+		long start = System.nanoTime();
+		for(int i = 0; i < numberOfPoints; i += 10){
+			if(containsByEveryEdge(shapes.get(0), x[i], y[i]) != index.contains(0, x[i], y[i])){
+				mismatches++;
+			}
+		}
+		double everyEdgeTime = (System.nanoTime() - start) / (numberOfPoints / 10.0);
+		double indexTime = 0;
+		int inside = 0;
+		for(int repetition = 0; repetition < 3; repetition++){
+			//the first repetitions are a warm up, so that the time doesn't include compiling
+			inside = 0;
+			start = System.nanoTime();
+			for(int i = 0; i < numberOfPoints; i++){
+				if(index.contains(0, x[i], y[i])){
+					inside++;
+				}
+			}
+			indexTime = (System.nanoTime() - start) / (double) numberOfPoints;
+		}
+		System.out.println(numberOfVertices + " vertices: " + indexTime + " ns per point with the index, " + everyEdgeTime + " ns following every edge, "
+				+ inside + " of " + numberOfPoints + " points inside, " + mismatches + " mismatches");
+	}
+
+	/**
+	 * Add a star on top of a crowd of balls and drag it across more of them, then check that none are left inside of it.
+	 */
+	private static void drag(){
+		Random random = new Random(3);
+		Map map = new Map("maps/sand_box_example.txt");
+		ArrayList<Ball> players = map.getPlayerList();
+		for(int i = 0; i < NUMBER_OF_BALLS; i++){
+			players.add(new Ball(350 + (random.nextDouble() * 500), 200 + (random.nextDouble() * 500), random.nextDouble() - 0.5, random.nextDouble() - 0.5, Color.RED));
+		}
+		Physics9 physics = new Physics9(map);
+		physics.bounceModeClockTick();
+		Shape star = makeStar(64, random);
+		ArrayList<Shape> shapes = map.getShapeList();
+		shapes.add(star);
+		map.getEditHistory().recordShapeCreation(shapes.size() - 1, star);
+		System.out.println(countInside(star, players) + " of " + NUMBER_OF_BALLS + " balls inside of the star when it is added");
+		for(int tick = 0; tick < DRAG_STEPS; tick++){
+			physics.bounceModeClockTick();
+			map.getEditHistory().recordShapeMove(shapes.size() - 1);
+			star.translate(DRAG_DISTANCE, 0);
+		}
+		map.getEditHistory().endDrag();
+		physics.bounceModeClockTick();
+		System.out.println("after dragging it " + (DRAG_STEPS * DRAG_DISTANCE) + " pixels: " + physics.getNumberOfFreedBalls() + " balls freed, "
+				+ countInside(star, players) + " balls still inside");
+	}
+
+	private static int countInside(Shape shape, ArrayList<Ball> players){
+		int inside = 0;
+		for(int i = 0; i < players.size(); i++){
+			if(containsByEveryEdge(shape, players.get(i).getXPosition(), players.get(i).getYPosition())){
+				inside++;
+			}
+		}
+		return inside;
+	}
+}
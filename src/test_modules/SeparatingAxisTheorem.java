@@ -13,6 +13,7 @@ import physics_simulator.Axis;
 import physics_simulator.DrawPanel;
 import physics_simulator.Physics9;
 import physics_simulator.Point;
+import physics_simulator.SeparatingAxisEngine;
 import physics_simulator.Shape;
 /**
  * Test module exemplifying collision detection between two convex polygons
@@ -79,12 +80,9 @@ public class SeparatingAxisTheorem extends JFrame{
 			perpendicularAxes.get(i).addProjection(s0.projectOntoLine(perpendicularAxes.get(i)));
 			perpendicularAxes.get(i).addProjection(s1.projectOntoLine(perpendicularAxes.get(i)));
 		}
-		for(int i = 0; i < perpendicularAxes.size(); i++){
-			if(!perpendicularAxes.get(i).projectionsOverlap()){
-				return false;
-			}
-		}
-		return true;
+		//the projections above are only made so that they can be drawn. the overlap
+		//itself is checked with scalar intervals by the SeparatingAxisEngine
+		return SeparatingAxisEngine.overlaps(s0, s1);
 	}
 
 	class SATDrawPanel extends DrawPanel{
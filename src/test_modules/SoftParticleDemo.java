@@ -0,0 +1,102 @@
+package test_modules;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+import physics_simulator.Ball;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+import physics_simulator.Simulator;
+import physics_simulator.SoftParticles;
+
+/**
+ * Test module for soft particles (see the SoftParticles class). It opens the simulator with
+ * maps/sand_box_example.txt, which is an empty box with weak gravity, stacks a tall column
+ * of small balls in the middle of it and turns soft particles on, so that the column slumps
+ * and spreads out over the floor like wet sand, instead of the balls passing through each other. The menu can be used as usual, for example to turn
+ * soft particles off again, or to reset the balls.
+ *
+ * With "headless" as the last argument, it doesn't open a window. Instead, it runs the
+ * physics clock ticks for the balls as fast as possible, and prints how long each clock tick
+ * takes, how many times the neighbor lists have been made, and how long they are.
+ *
+ * Usage: SoftParticleDemo [number_of_balls] [number_of_clock_ticks] [headless]
+ * The defaults are 20000 balls with a radius of two pixels, or 200000 balls with a radius of
+ * one pixel in headless mode, and 500 clock ticks (only used in headless mode).
+ *
+ * @author Adam Cogen
+ *
+ */
+public class SoftParticleDemo {
+
+	private static final int REPORT_INTERVAL = 50; //the number of clock ticks between each line that is printed in headless mode
+	private static final int BORDER = 20; //the distance of the map's border from the edge of the map
+
+	public static void main(String[] args){
+		boolean headless = args.length > 0 && args[args.length - 1].equalsIgnoreCase("headless");
+		int numberOfBalls = headless ? 200000 : 20000;
+		int numberOfTicks = 500;
+		if(args.length > 0 && !args[0].equalsIgnoreCase("headless")){
+			numberOfBalls = Integer.parseInt(args[0]);
+		}
+		if(args.length > 1 && !args[1].equalsIgnoreCase("headless")){
+			numberOfTicks = Integer.parseInt(args[1]);
+		}
+		if(headless){
+			time(numberOfBalls, numberOfTicks);
+			return;
+		}
+		Simulator sim = new Simulator();
+		sim.loadMapFromFilePath("maps/sand_box_example.txt");
+		addBlock(sim.getMap(), numberOfBalls, 2, sim.getMap().getWidth() / 4, new Random(1));
+		sim.setSoftParticles(true);
+	}
+
+	/**
+	 * Add balls with the specified radius in rows, stacked up from the floor of the map's border
+	 * and the specified distance in from its sides, a little apart and moving a little at random,
+	 * in shades of sand.
+	 */
+	private static void addBlock(Map map, int numberOfBalls, int radius, double margin, Random random){
+		double spacing = radius * 2.2;
+		int columns = (int) ((map.getWidth() - (2 * margin)) / spacing);
+		ArrayList<Ball> players = map.getPlayerList();
+		for(int i = 0; i < numberOfBalls; i++){
+			double x = margin + ((i % columns) * spacing) + (spacing / 2);
+			double y = map.getHeight() - BORDER - ((i / columns) * spacing) - (spacing / 2);
+			int shade = random.nextInt(60);
+			Ball ball = new Ball(x, y, (random.nextDouble() - 0.5) * 0.2, (random.nextDouble() - 0.5) * 0.2, new Color(195 + shade, 160 + shade, 90 + shade));
+			ball.setRadius(radius);
+			players.add(ball);
+		}
+	}
+
+	/**
+	 * Run the physics clock ticks for the specified number of balls with a radius of one pixel, and print how long they take.
+	 */
+	private static void time(int numberOfBalls, int numberOfTicks){
+		Map map = new Map("maps/sand_box_example.txt");
+		addBlock(map, numberOfBalls, 1, BORDER, new Random(1));
+		Physics9 physics = new Physics9(map);
+		physics.setSoftParticles(true);
+		SoftParticles softParticles = physics.getSoftParticlesStage();
+		System.out.println(numberOfBalls + " balls, " + Runtime.getRuntime().availableProcessors() + " processors");
+		long intervalStart = System.nanoTime();
+		for(int tick = 1; tick <= numberOfTicks; tick++){
+			physics.bounceModeClockTick();
+			if(tick % REPORT_INTERVAL == 0){
+				long now = System.nanoTime();
+				double tickTime = (now - intervalStart) / 1e6 / REPORT_INTERVAL;
+				intervalStart = now;
+				System.out.println("tick " + tick + ": " + tickTime + " ms per clock tick, " + softParticles.getNumberOfRebuilds() + " neighbor lists made, "
+						+ (softParticles.getNumberOfNeighbors() / (double) numberOfBalls) + " neighbors per ball");
+			}
+		}
+		//the sum of the positions is the same for any number of threads, so it can be used to check that the results don't depend on them
+		double total = 0;
+		for(Ball ball : map.getPlayerList()){
+			total += ball.getXPosition() + ball.getYPosition();
+		}
+		System.out.println("sum of the positions: " + total);
+	}
+}
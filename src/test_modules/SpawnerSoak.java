@@ -0,0 +1,48 @@
+package test_modules;
+import physics_simulator.BallSpawner;
+import physics_simulator.Map;
+import physics_simulator.Physics9;
+
+/**
+ * Test module for checking that a map with emitters and sinks can run for a long time
+ * without slowing down. Unlike the other test modules, this one doesn't open a window:
+ * it runs the physics clock ticks for a map as fast as possible, and prints the number
+ * of clock ticks per second, the number of balls in the simulation, and the size of the
+ * ball pool after every interval. With constant churn, the number of balls and the size
+ * of the pool should level off, and the clock ticks per second should stay steady.
+ *
+ * Usage: SpawnerSoak [map_file] [number_of_clock_ticks]
+ * The defaults are maps/stream_example.txt and 1000000 clock ticks.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class SpawnerSoak {
+
+	private static final int REPORT_INTERVAL = 10000; //the number of clock ticks between each line that is printed
+
+	public static void main(String[] args){
+		String filename = "maps/stream_example.txt";
+		long numberOfTicks = 1000000;
+		if(args.length > 0){
+			filename = args[0];
+		}
+		if(args.length > 1){
+			numberOfTicks = Long.parseLong(args[1]);
+		}
+		Map map = new Map(filename);
+		Physics9 physics = new Physics9(map);
+		BallSpawner spawner = map.getSpawner();
+		long intervalStart = System.nanoTime();
+		for(long tick = 1; tick <= numberOfTicks; tick++){
+			physics.bounceModeClockTick();
+			if(tick % REPORT_INTERVAL == 0){
+				long now = System.nanoTime();
+				double ticksPerSecond = REPORT_INTERVAL / ((now - intervalStart) / 1e9);
+				intervalStart = now;
+				System.out.println("tick " + tick + ": " + (int) ticksPerSecond + " ticks/s, " + map.getPlayerList().size() + " balls, " 
+						+ spawner.getPoolSize() + " pooled, " + spawner.getTotalSpawned() + " spawned, " + spawner.getTotalRemoved() + " removed");
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package physics_simulator;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorBatchKernels class.
+ * The BatchKernels methods, written with the Java Vector API, so that each instruction
+ * handles as many values as fit in the processor's widest vector registers: 4 doubles with
+ * AVX2, or 8 with AVX-512. The balls left over after the last full vector are
+ * handled by the plain loops in BatchKernels.
+ *
+ * This class can only be compiled and loaded with "--add-modules jdk.incubator.vector", so it
+ * is kept in the src_vector source folder, away from the rest of the program, which is built
+ * without that option. Nothing refers to it by name at compile time. Don't construct it directly; use BatchKernels.create(), which falls back to BatchKernels
+ * when the Vector API isn't available.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class VectorBatchKernels extends BatchKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED; //the widest vector of doubles the processor supports
+
+	@Override
+	public String getDescription(){
+		return "vector, " + SPECIES.length() + " doubles per instruction";
+	}
+
+	@Override
+	public void project(double[] x, double[] y, double[] xVelocity, double[] yVelocity, double[] ticks, int count, double gravity,
+			double[] resultX, double[] resultY, double[] resultYVelocity){
+		int end = SPECIES.loopBound(count);
+		for(int i = 0; i < end; i += SPECIES.length()){
+			DoubleVector n = DoubleVector.fromArray(SPECIES, ticks, i);
+			DoubleVector yVelocityVector = DoubleVector.fromArray(SPECIES, yVelocity, i);
+			//the same operations in the same order as BatchKernels.project(), so that the results are identical
+			DoubleVector.fromArray(SPECIES, x, i).add(n.mul(DoubleVector.fromArray(SPECIES, xVelocity, i))).intoArray(resultX, i);
+			DoubleVector fall = n.mul(gravity).mul(n.add(1)).div(2);
+			DoubleVector.fromArray(SPECIES, y, i).add(n.mul(yVelocityVector)).add(fall).intoArray(resultY, i);
+			yVelocityVector.add(n.mul(gravity)).intoArray(resultYVelocity, i);
+		}
+		project(x, y, xVelocity, yVelocity, ticks, end, count, gravity, resultX, resultY, resultYVelocity);
+	}
+}
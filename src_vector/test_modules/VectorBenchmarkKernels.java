@@ -0,0 +1,57 @@
+package test_modules;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorBenchmarkKernels class.
+ * The BenchmarkKernels methods, written with the Java Vector API in the same way as
+ * physics_simulator.VectorBatchKernels. The balls or boxes left over after the last full
+ * vector are handled by the plain loops in BenchmarkKernels.
+ *
+ * This class can only be compiled and loaded with "--add-modules jdk.incubator.vector", so
+ * like VectorBatchKernels it is kept in the src_vector source folder.
+ * Use BenchmarkKernels.create() to get it.
+ *
+ * @author Adam Cogen
+ *
+ */
+public class VectorBenchmarkKernels extends BenchmarkKernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED; //the widest vector of doubles the processor supports
+
+	@Override
+	public void integrate(double[] x, double[] y, double[] xVelocity, double[] yVelocity, int count, double gravity){
+		DoubleVector gravityVector = DoubleVector.broadcast(SPECIES, gravity);
+		int end = SPECIES.loopBound(count);
+		for(int i = 0; i < end; i += SPECIES.length()){
+			DoubleVector newYVelocity = DoubleVector.fromArray(SPECIES, yVelocity, i).add(gravityVector);
+			newYVelocity.intoArray(yVelocity, i);
+			DoubleVector.fromArray(SPECIES, x, i).add(DoubleVector.fromArray(SPECIES, xVelocity, i)).intoArray(x, i);
+			DoubleVector.fromArray(SPECIES, y, i).add(newYVelocity).intoArray(y, i);
+		}
+		integrate(x, y, xVelocity, yVelocity, end, count, gravity);
+	}
+
+	@Override
+	public int findOverlapping(double boxXMin, double boxYMin, double boxXMax, double boxYMax,
+			double[] xMin, double[] yMin, double[] xMax, double[] yMax, int count, int[] result){
+		int found = 0;
+		int end = SPECIES.loopBound(count);
+		for(int i = 0; i < end; i += SPECIES.length()){
+			VectorMask<Double> overlapping = DoubleVector.fromArray(SPECIES, xMin, i).compare(VectorOperators.LE, boxXMax)
+					.and(DoubleVector.fromArray(SPECIES, xMax, i).compare(VectorOperators.GE, boxXMin))
+					.and(DoubleVector.fromArray(SPECIES, yMin, i).compare(VectorOperators.LE, boxYMax))
+					.and(DoubleVector.fromArray(SPECIES, yMax, i).compare(VectorOperators.GE, boxYMin));
+			//most boxes don't overlap, so usually there is nothing to write
+			long bits = overlapping.toLong();
+			while(bits != 0){
+				result[found] = i + Long.numberOfTrailingZeros(bits);
+				found++;
+				bits &= bits - 1;
+			}
+		}
+		return findOverlapping(boxXMin, boxYMin, boxXMax, boxYMax, xMin, yMin, xMax, yMax, end, count, result, found);
+	}
+}